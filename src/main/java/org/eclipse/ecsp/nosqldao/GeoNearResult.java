@@ -0,0 +1,88 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao;
+
+/**
+ * An entity returned by {@link IgniteBaseDAO#geoNear(String, Coordinate, IgniteQuery)}, with its distance
+ * from the point of the query.
+ *
+ * @param <E> the entity type
+ */
+public class GeoNearResult<E> {
+
+    private final E entity;
+
+    private final double distance;
+
+    /**
+     * Instantiates a new result.
+     *
+     * @param entity the entity
+     * @param distance the distance from the point of the query, in meters
+     */
+    public GeoNearResult(E entity, double distance) {
+        this.entity = entity;
+        this.distance = distance;
+    }
+
+    /**
+     * Gets the entity.
+     *
+     * @return the entity
+     */
+    public E getEntity() {
+        return entity;
+    }
+
+    /**
+     * Gets the distance of the entity from the point of the query.
+     *
+     * @return the distance in meters
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return "GeoNearResult [entity=" + entity + ", distance=" + distance + "]";
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao;
+
+import org.eclipse.ecsp.nosqldao.utils.NumericConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A shape for the {@link Operator#GEO_WITHIN} and {@link Operator#GEO_INTERSECTS} geospatial criteria. Its
+ * points are {@link Coordinate}s, whose radius is ignored except for the center of a sphere. Shapes are
+ * immutable and created with the static factory methods.
+ *
+ * <p>{@link #box(Coordinate, Coordinate)} and {@link #centerSphere(Coordinate)} are only valid with
+ * {@link Operator#GEO_WITHIN}, {@link #point(Coordinate)} and {@link #lineString(Coordinate...)} only with
+ * {@link Operator#GEO_INTERSECTS}, and {@link #polygon(Coordinate...)} with both.
+ */
+public final class GeoShape {
+
+    /**
+     * Earth radius MongoDB uses for spherical geometry, in meters.
+     */
+    public static final double EARTH_RADIUS_METERS = 6378100.0;
+
+    private static final int MIN_POLYGON_POINTS = 3;
+
+    /**
+     * The kinds of shapes.
+     */
+    public enum Type {
+
+        /**
+         * A rectangle given by its bottom left and upper right corners.
+         */
+        BOX,
+        /**
+         * A polygon given by the points of its exterior ring.
+         */
+        POLYGON,
+        /**
+         * A circle on the sphere given by its center and a radius in meters.
+         */
+        CENTER_SPHERE,
+        /**
+         * A single point.
+         */
+        POINT,
+        /**
+         * A line through two or more points.
+         */
+        LINE_STRING
+    }
+
+    private final Type type;
+
+    private final List<Coordinate> coordinates;
+
+    private final double radius;
+
+    /**
+     * Instantiates a new shape.
+     *
+     * @param type the type of the shape
+     * @param coordinates the points of the shape
+     * @param radius the radius of a sphere, in meters, 0 for the other shapes
+     */
+    private GeoShape(Type type, List<Coordinate> coordinates, double radius) {
+        this.type = type;
+        this.coordinates = Collections.unmodifiableList(coordinates);
+        this.radius = radius;
+    }
+
+    /**
+     * Creates a rectangle, matching the points whose longitude and latitude are between those of its corners.
+     *
+     * @param bottomLeft the bottom left corner
+     * @param upperRight the upper right corner
+     * @return the shape
+     */
+    public static GeoShape box(Coordinate bottomLeft, Coordinate upperRight) {
+        return new GeoShape(Type.BOX, Arrays.asList(bottomLeft, upperRight), 0.0);
+    }
+
+    /**
+     * Creates a polygon. The ring is closed by repeating the first point when the last point differs.
+     *
+     * @param points the points of the exterior ring, at least three
+     * @return the shape
+     * @throws IllegalArgumentException if less than three points are given
+     */
+    public static GeoShape polygon(Coordinate... points) {
+        if (points.length < MIN_POLYGON_POINTS) {
+            throw new IllegalArgumentException("A polygon needs at least " + MIN_POLYGON_POINTS + " points");
+        }
+        List<Coordinate> ring = new ArrayList<>(Arrays.asList(points));
+        Coordinate first = points[0];
+        Coordinate last = points[points.length - 1];
+        if (first.getLatitude() != last.getLatitude() || first.getLongitude() != last.getLongitude()) {
+            ring.add(first);
+        }
+        return new GeoShape(Type.POLYGON, ring, 0.0);
+    }
+
+    /**
+     * Creates a circle on the sphere, matching the points within the radius of the center.
+     *
+     * @param center the center, with the radius in meters
+     * @return the shape
+     * @throws IllegalArgumentException if the radius is negative
+     */
+    public static GeoShape centerSphere(Coordinate center) {
+        if (center.getRadius() < 0) {
+            throw new IllegalArgumentException("The radius of a sphere cannot be negative");
+        }
+        return new GeoShape(Type.CENTER_SPHERE, Collections.singletonList(center), center.getRadius());
+    }
+
+    /**
+     * Creates a point.
+     *
+     * @param point the point
+     * @return the shape
+     */
+    public static GeoShape point(Coordinate point) {
+        return new GeoShape(Type.POINT, Collections.singletonList(point), 0.0);
+    }
+
+    /**
+     * Creates a line.
+     *
+     * @param points the points of the line, at least two
+     * @return the shape
+     * @throws IllegalArgumentException if less than two points are given
+     */
+    public static GeoShape lineString(Coordinate... points) {
+        if (points.length < NumericConstants.TWO) {
+            throw new IllegalArgumentException("A line needs at least " + NumericConstants.TWO + " points");
+        }
+        return new GeoShape(Type.LINE_STRING, Arrays.asList(points), 0.0);
+    }
+
+    /**
+     * Gets the type of the shape.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the points of the shape: the two corners of a box, the closed ring of a polygon, the center of a
+     * sphere, the point or the points of a line.
+     *
+     * @return the points, unmodifiable
+     */
+    public List<Coordinate> getCoordinates() {
+        return coordinates;
+    }
+
+    /**
+     * Gets the radius of a sphere.
+     *
+     * @return the radius in meters, 0 for the other shapes
+     */
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Gets the radius of a sphere as an angle, the unit of the MongoDB {@code $centerSphere} operator.
+     *
+     * @return the radius in radians, 0 for the other shapes
+     */
+    public double getRadiusInRadians() {
+        return radius / EARTH_RADIUS_METERS;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(type.name()).append('[');
+        for (int i = 0; i < coordinates.size(); i++) {
+            Coordinate coordinate = coordinates.get(i);
+            sb.append(i > 0 ? ", " : "").append('(').append(coordinate.getLongitude()).append(' ')
+                    .append(coordinate.getLatitude()).append(')');
+        }
+        if (type == Type.CENTER_SPHERE) {
+            sb.append(", ").append(radius).append('m');
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,1147 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao;
+
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Database neutral aggregation pipeline, built fluently stage by stage.
+ *
+ * <p>The match stage reuses {@link IgniteQuery}, whose field names are translated like in find. Field
+ * names of the other stages are the names of the stored document fields, or fields produced by an
+ * earlier stage.</p>
+ *
+ * <pre>
+ * IgniteAggregation aggregation = new IgniteAggregation()
+ *         .match(query)
+ *         .group(List.of("vehicleId"), IgniteAggregation.Accumulator.count("events"))
+ *         .sort(new IgniteOrderBy().byfield("events").desc())
+ *         .limit(10);
+ * </pre>
+ */
+public class IgniteAggregation {
+
+    /**
+     * The stages.
+     */
+    private List<Stage> stages = new ArrayList<>();
+
+    /**
+     * Whether stages may write temporary files, null for the server default.
+     */
+    private Boolean allowDiskUse;
+
+    /**
+     * The number of documents per batch, 0 for the server default.
+     */
+    private int batchSize;
+
+    /**
+     * The read preference, null for the read preference of the database.
+     */
+    private ReadPreference readPreference;
+
+    /**
+     * The read concern, null for the default of the entity.
+     */
+    private ReadConcern readConcern;
+
+    /**
+     * The workload, null for analytical.
+     */
+    private Workload workload;
+
+    /**
+     * The maximum server execution time, in milliseconds, 0 for the default of the DAO.
+     */
+    private long maxTimeMs;
+
+    /**
+     * Adds a stage keeping the documents which match the query.
+     *
+     * @param query the query to match
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation match(IgniteQuery query) {
+        stages.add(new MatchStage(query));
+        return this;
+    }
+
+    /**
+     * Adds a stage keeping only the given fields.
+     *
+     * @param fields the fields to include
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation project(String... fields) {
+        stages.add(new ProjectStage(Arrays.asList(fields), new ArrayList<>(), new LinkedHashMap<>()));
+        return this;
+    }
+
+    /**
+     * Adds a stage reshaping the documents.
+     *
+     * @param includes the fields to include
+     * @param excludes the fields to exclude
+     * @param aliases the fields to add, by name, with the field whose value they take
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation project(List<String> includes, List<String> excludes, Map<String, String> aliases) {
+        stages.add(new ProjectStage(includes, excludes, aliases));
+        return this;
+    }
+
+    /**
+     * Adds a stage grouping the documents by the given fields. The output documents have the group key
+     * in _id, either the value of the single field or a document of the values of all fields, dots in
+     * field names being replaced by underscores, and a field per accumulator.
+     *
+     * @param groupBy the fields to group by, empty to group all documents together
+     * @param accumulators the accumulators
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation group(List<String> groupBy, Accumulator... accumulators) {
+        stages.add(new GroupStage(groupBy, Arrays.asList(accumulators)));
+        return this;
+    }
+
+    /**
+     * Adds a stage sorting the documents.
+     *
+     * @param orderBys the sort fields, in order
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation sort(IgniteOrderBy... orderBys) {
+        stages.add(new SortStage(Arrays.asList(orderBys)));
+        return this;
+    }
+
+    /**
+     * Adds a stage skipping documents.
+     *
+     * @param skip the number of documents to skip
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation skip(int skip) {
+        stages.add(new SkipStage(skip));
+        return this;
+    }
+
+    /**
+     * Adds a stage limiting the number of documents.
+     *
+     * @param limit the maximum number of documents
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation limit(int limit) {
+        stages.add(new LimitStage(limit));
+        return this;
+    }
+
+    /**
+     * Adds a stage producing a document per element of an array field. Documents whose array is
+     * missing or empty are dropped.
+     *
+     * @param field the array field
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation unwind(String field) {
+        return unwind(field, false);
+    }
+
+    /**
+     * Adds a stage producing a document per element of an array field.
+     *
+     * @param field the array field
+     * @param preserveNullAndEmptyArrays whether documents whose array is missing or empty are kept
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation unwind(String field, boolean preserveNullAndEmptyArrays) {
+        stages.add(new UnwindStage(field, preserveNullAndEmptyArrays));
+        return this;
+    }
+
+    /**
+     * Adds a stage joining the documents of another collection whose foreign field equals the local field.
+     *
+     * @param from the collection to join
+     * @param localField the field of the input documents
+     * @param foreignField the field of the joined documents
+     * @param as the array field receiving the joined documents
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation lookup(String from, String localField, String foreignField, String as) {
+        stages.add(new LookupStage(from, localField, foreignField, as));
+        return this;
+    }
+
+    /**
+     * Adds a stage running several pipelines on the same input documents. The output is a single document
+     * with an array field per pipeline.
+     *
+     * @param facets the pipelines, by output field
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation facet(Map<String, IgniteAggregation> facets) {
+        stages.add(new FacetStage(facets));
+        return this;
+    }
+
+    /**
+     * Allows stages to write temporary files when they exceed the memory limit.
+     *
+     * @param allowDiskUse whether disk use is allowed
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation allowDiskUse(boolean allowDiskUse) {
+        this.allowDiskUse = allowDiskUse;
+        return this;
+    }
+
+    /**
+     * Sets the number of documents per batch.
+     *
+     * @param batchSize the batch size
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the read preference.
+     *
+     * @param readPreference the read preference
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation readPreference(ReadPreference readPreference) {
+        this.readPreference = readPreference;
+        return this;
+    }
+
+    /**
+     * Sets the read concern, overriding the default of the entity.
+     *
+     * @param readConcern the read concern
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation readConcern(ReadConcern readConcern) {
+        this.readConcern = readConcern;
+        return this;
+    }
+
+    /**
+     * Sets the workload. Aggregations are analytical by default, so they run on the analytical client if
+     * one is configured.
+     *
+     * @param workload the workload
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation workload(Workload workload) {
+        this.workload = workload;
+        return this;
+    }
+
+    /**
+     * Sets the maximum server execution time, after which the server aborts the aggregation.
+     *
+     * @param maxTimeMs the maximum server execution time, in milliseconds
+     * @return the updated IgniteAggregation object
+     */
+    public IgniteAggregation maxTimeMs(long maxTimeMs) {
+        this.maxTimeMs = maxTimeMs;
+        return this;
+    }
+
+    /**
+     * Gets the stages.
+     *
+     * @return the stages
+     */
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Gets whether disk use is allowed.
+     *
+     * @return whether disk use is allowed, null for the server default
+     */
+    public Boolean getAllowDiskUse() {
+        return allowDiskUse;
+    }
+
+    /**
+     * Gets the batch size.
+     *
+     * @return the batch size, 0 for the server default
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Gets the read preference.
+     *
+     * @return the read preference, null for the read preference of the database
+     */
+    public ReadPreference getReadPreference() {
+        return readPreference;
+    }
+
+    /**
+     * Gets the read concern.
+     *
+     * @return the read concern, null for the default of the entity
+     */
+    public ReadConcern getReadConcern() {
+        return readConcern;
+    }
+
+    /**
+     * Gets the workload.
+     *
+     * @return the workload, null for analytical
+     */
+    public Workload getWorkload() {
+        return workload;
+    }
+
+    /**
+     * Gets the maximum server execution time.
+     *
+     * @return the maximum server execution time, in milliseconds, 0 for the default of the DAO
+     */
+    public long getMaxTimeMs() {
+        return maxTimeMs;
+    }
+
+    /**
+     * Traverse.
+     *
+     * @param v the visitor
+     */
+    public void traverse(StageVisitor v) {
+        for (Stage stage : stages) {
+            stage.accept(v);
+        }
+    }
+
+    /**
+     * Templated string of the pipeline, without values, used as metrics label.
+     *
+     * @return the templated pipeline
+     */
+    public String toTemplatedString() {
+        StringBuilder buffer = new StringBuilder();
+        for (Stage stage : stages) {
+            if (buffer.length() > 0) {
+                buffer.append('|');
+            }
+            buffer.append(stage.getName());
+            if (stage instanceof MatchStage) {
+                buffer.append(((MatchStage) stage).getQuery().toTemplatedQueryString());
+            }
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * The interface Stage.
+     */
+    public static interface Stage {
+
+        /**
+         * Accepts a visitor that implements the StageVisitor interface.
+         *
+         * @param v the visitor to accept
+         */
+        public void accept(StageVisitor v);
+
+        /**
+         * Gets the name of the stage.
+         *
+         * @return the name
+         */
+        public String getName();
+    }
+
+    /**
+     * The interface Stage visitor.
+     */
+    public static interface StageVisitor {
+
+        /**
+         * Visit a MatchStage.
+         *
+         * @param stage the stage to visit
+         */
+        public void visit(MatchStage stage);
+
+        /**
+         * Visit a ProjectStage.
+         *
+         * @param stage the stage to visit
+         */
+        public void visit(ProjectStage stage);
+
+        /**
+         * Visit a GroupStage.
+         *
+         * @param stage the stage to visit
+         */
+        public void visit(GroupStage stage);
+
+        /**
+         * Visit a SortStage.
+         *
+         * @param stage the stage to visit
+         */
+        public void visit(SortStage stage);
+
+        /**
+         * Visit a SkipStage.
+         *
+         * @param stage the stage to visit
+         */
+        public void visit(SkipStage stage);
+
+        /**
+         * Visit a LimitStage.
+         *
+         * @param stage the stage to visit
+         */
+        public void visit(LimitStage stage);
+
+        /**
+         * Visit an UnwindStage.
+         *
+         * @param stage the stage to visit
+         */
+        public void visit(UnwindStage stage);
+
+        /**
+         * Visit a LookupStage.
+         *
+         * @param stage the stage to visit
+         */
+        public void visit(LookupStage stage);
+
+        /**
+         * Visit a FacetStage.
+         *
+         * @param stage the stage to visit
+         */
+        public void visit(FacetStage stage);
+    }
+
+    /**
+     * The type Match stage.
+     */
+    public static class MatchStage implements Stage {
+
+        /**
+         * The query.
+         */
+        private final IgniteQuery query;
+
+        /**
+         * Instantiates a new match stage.
+         *
+         * @param query the query
+         */
+        public MatchStage(IgniteQuery query) {
+            this.query = query;
+        }
+
+        @Override
+        public void accept(StageVisitor v) {
+            v.visit(this);
+        }
+
+        @Override
+        public String getName() {
+            return "match";
+        }
+
+        /**
+         * Gets query.
+         *
+         * @return the query
+         */
+        public IgniteQuery getQuery() {
+            return query;
+        }
+    }
+
+    /**
+     * The type Project stage.
+     */
+    public static class ProjectStage implements Stage {
+
+        /**
+         * The included fields.
+         */
+        private final List<String> includes;
+
+        /**
+         * The excluded fields.
+         */
+        private final List<String> excludes;
+
+        /**
+         * The added fields, by name, with the field whose value they take.
+         */
+        private final Map<String, String> aliases;
+
+        /**
+         * Instantiates a new project stage.
+         *
+         * @param includes the included fields
+         * @param excludes the excluded fields
+         * @param aliases the added fields
+         */
+        public ProjectStage(List<String> includes, List<String> excludes, Map<String, String> aliases) {
+            this.includes = includes;
+            this.excludes = excludes;
+            this.aliases = aliases;
+        }
+
+        @Override
+        public void accept(StageVisitor v) {
+            v.visit(this);
+        }
+
+        @Override
+        public String getName() {
+            return "project";
+        }
+
+        /**
+         * Gets includes.
+         *
+         * @return the included fields
+         */
+        public List<String> getIncludes() {
+            return includes;
+        }
+
+        /**
+         * Gets excludes.
+         *
+         * @return the excluded fields
+         */
+        public List<String> getExcludes() {
+            return excludes;
+        }
+
+        /**
+         * Gets aliases.
+         *
+         * @return the added fields, by name, with the field whose value they take
+         */
+        public Map<String, String> getAliases() {
+            return aliases;
+        }
+    }
+
+    /**
+     * The type Group stage.
+     */
+    public static class GroupStage implements Stage {
+
+        /**
+         * The fields to group by.
+         */
+        private final List<String> groupBy;
+
+        /**
+         * The accumulators.
+         */
+        private final List<Accumulator> accumulators;
+
+        /**
+         * Instantiates a new group stage.
+         *
+         * @param groupBy the fields to group by
+         * @param accumulators the accumulators
+         */
+        public GroupStage(List<String> groupBy, List<Accumulator> accumulators) {
+            this.groupBy = groupBy;
+            this.accumulators = accumulators;
+        }
+
+        @Override
+        public void accept(StageVisitor v) {
+            v.visit(this);
+        }
+
+        @Override
+        public String getName() {
+            return "group";
+        }
+
+        /**
+         * Gets group by.
+         *
+         * @return the fields to group by
+         */
+        public List<String> getGroupBy() {
+            return groupBy;
+        }
+
+        /**
+         * Gets accumulators.
+         *
+         * @return the accumulators
+         */
+        public List<Accumulator> getAccumulators() {
+            return accumulators;
+        }
+    }
+
+    /**
+     * The type Sort stage.
+     */
+    public static class SortStage implements Stage {
+
+        /**
+         * The sort fields.
+         */
+        private final List<IgniteOrderBy> orderBys;
+
+        /**
+         * Instantiates a new sort stage.
+         *
+         * @param orderBys the sort fields
+         */
+        public SortStage(List<IgniteOrderBy> orderBys) {
+            this.orderBys = orderBys;
+        }
+
+        @Override
+        public void accept(StageVisitor v) {
+            v.visit(this);
+        }
+
+        @Override
+        public String getName() {
+            return "sort";
+        }
+
+        /**
+         * Gets order bys.
+         *
+         * @return the sort fields
+         */
+        public List<IgniteOrderBy> getOrderBys() {
+            return orderBys;
+        }
+    }
+
+    /**
+     * The type Skip stage.
+     */
+    public static class SkipStage implements Stage {
+
+        /**
+         * The number of documents to skip.
+         */
+        private final int skip;
+
+        /**
+         * Instantiates a new skip stage.
+         *
+         * @param skip the number of documents to skip
+         */
+        public SkipStage(int skip) {
+            this.skip = skip;
+        }
+
+        @Override
+        public void accept(StageVisitor v) {
+            v.visit(this);
+        }
+
+        @Override
+        public String getName() {
+            return "skip";
+        }
+
+        /**
+         * Gets skip.
+         *
+         * @return the number of documents to skip
+         */
+        public int getSkip() {
+            return skip;
+        }
+    }
+
+    /**
+     * The type Limit stage.
+     */
+    public static class LimitStage implements Stage {
+
+        /**
+         * The maximum number of documents.
+         */
+        private final int limit;
+
+        /**
+         * Instantiates a new limit stage.
+         *
+         * @param limit the maximum number of documents
+         */
+        public LimitStage(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void accept(StageVisitor v) {
+            v.visit(this);
+        }
+
+        @Override
+        public String getName() {
+            return "limit";
+        }
+
+        /**
+         * Gets limit.
+         *
+         * @return the maximum number of documents
+         */
+        public int getLimit() {
+            return limit;
+        }
+    }
+
+    /**
+     * The type Unwind stage.
+     */
+    public static class UnwindStage implements Stage {
+
+        /**
+         * The array field.
+         */
+        private final String field;
+
+        /**
+         * Whether documents whose array is missing or empty are kept.
+         */
+        private final boolean preserveNullAndEmptyArrays;
+
+        /**
+         * Instantiates a new unwind stage.
+         *
+         * @param field the array field
+         * @param preserveNullAndEmptyArrays whether documents whose array is missing or empty are kept
+         */
+        public UnwindStage(String field, boolean preserveNullAndEmptyArrays) {
+            this.field = field;
+            this.preserveNullAndEmptyArrays = preserveNullAndEmptyArrays;
+        }
+
+        @Override
+        public void accept(StageVisitor v) {
+            v.visit(this);
+        }
+
+        @Override
+        public String getName() {
+            return "unwind";
+        }
+
+        /**
+         * Gets field.
+         *
+         * @return the array field
+         */
+        public String getField() {
+            return field;
+        }
+
+        /**
+         * Is preserve null and empty arrays.
+         *
+         * @return whether documents whose array is missing or empty are kept
+         */
+        public boolean isPreserveNullAndEmptyArrays() {
+            return preserveNullAndEmptyArrays;
+        }
+    }
+
+    /**
+     * The type Lookup stage.
+     */
+    public static class LookupStage implements Stage {
+
+        /**
+         * The collection to join.
+         */
+        private final String from;
+
+        /**
+         * The field of the input documents.
+         */
+        private final String localField;
+
+        /**
+         * The field of the joined documents.
+         */
+        private final String foreignField;
+
+        /**
+         * The array field receiving the joined documents.
+         */
+        private final String as;
+
+        /**
+         * Instantiates a new lookup stage.
+         *
+         * @param from the collection to join
+         * @param localField the field of the input documents
+         * @param foreignField the field of the joined documents
+         * @param as the array field receiving the joined documents
+         */
+        public LookupStage(String from, String localField, String foreignField, String as) {
+            this.from = from;
+            this.localField = localField;
+            this.foreignField = foreignField;
+            this.as = as;
+        }
+
+        @Override
+        public void accept(StageVisitor v) {
+            v.visit(this);
+        }
+
+        @Override
+        public String getName() {
+            return "lookup";
+        }
+
+        /**
+         * Gets from.
+         *
+         * @return the collection to join
+         */
+        public String getFrom() {
+            return from;
+        }
+
+        /**
+         * Gets local field.
+         *
+         * @return the field of the input documents
+         */
+        public String getLocalField() {
+            return localField;
+        }
+
+        /**
+         * Gets foreign field.
+         *
+         * @return the field of the joined documents
+         */
+        public String getForeignField() {
+            return foreignField;
+        }
+
+        /**
+         * Gets as.
+         *
+         * @return the array field receiving the joined documents
+         */
+        public String getAs() {
+            return as;
+        }
+    }
+
+    /**
+     * The type Facet stage.
+     */
+    public static class FacetStage implements Stage {
+
+        /**
+         * The pipelines, by output field.
+         */
+        private final Map<String, IgniteAggregation> facets;
+
+        /**
+         * Instantiates a new facet stage.
+         *
+         * @param facets the pipelines, by output field
+         */
+        public FacetStage(Map<String, IgniteAggregation> facets) {
+            this.facets = facets;
+        }
+
+        @Override
+        public void accept(StageVisitor v) {
+            v.visit(this);
+        }
+
+        @Override
+        public String getName() {
+            return "facet";
+        }
+
+        /**
+         * Gets facets.
+         *
+         * @return the pipelines, by output field
+         */
+        public Map<String, IgniteAggregation> getFacets() {
+            return facets;
+        }
+    }
+
+    /**
+     * Accumulator of a group stage, computing an output field from the documents of a group.
+     */
+    public static class Accumulator {
+
+        /**
+         * The accumulator type.
+         */
+        private final AccumulatorType type;
+
+        /**
+         * The output field.
+         */
+        private final String name;
+
+        /**
+         * The input field, null for count.
+         */
+        private final String field;
+
+        /**
+         * Instantiates a new accumulator.
+         *
+         * @param type the accumulator type
+         * @param name the output field
+         * @param field the input field
+         */
+        public Accumulator(AccumulatorType type, String name, String field) {
+            this.type = type;
+            this.name = name;
+            this.field = field;
+        }
+
+        /**
+         * Counts the documents of the group.
+         *
+         * @param name the output field
+         * @return the accumulator
+         */
+        public static Accumulator count(String name) {
+            return new Accumulator(AccumulatorType.COUNT, name, null);
+        }
+
+        /**
+         * Sums the values of a field.
+         *
+         * @param name the output field
+         * @param field the input field
+         * @return the accumulator
+         */
+        public static Accumulator sum(String name, String field) {
+            return new Accumulator(AccumulatorType.SUM, name, field);
+        }
+
+        /**
+         * Averages the values of a field.
+         *
+         * @param name the output field
+         * @param field the input field
+         * @return the accumulator
+         */
+        public static Accumulator avg(String name, String field) {
+            return new Accumulator(AccumulatorType.AVG, name, field);
+        }
+
+        /**
+         * Takes the lowest value of a field.
+         *
+         * @param name the output field
+         * @param field the input field
+         * @return the accumulator
+         */
+        public static Accumulator min(String name, String field) {
+            return new Accumulator(AccumulatorType.MIN, name, field);
+        }
+
+        /**
+         * Takes the highest value of a field.
+         *
+         * @param name the output field
+         * @param field the input field
+         * @return the accumulator
+         */
+        public static Accumulator max(String name, String field) {
+            return new Accumulator(AccumulatorType.MAX, name, field);
+        }
+
+        /**
+         * Takes the value of a field in the first document of the group.
+         *
+         * @param name the output field
+         * @param field the input field
+         * @return the accumulator
+         */
+        public static Accumulator first(String name, String field) {
+            return new Accumulator(AccumulatorType.FIRST, name, field);
+        }
+
+        /**
+         * Takes the value of a field in the last document of the group.
+         *
+         * @param name the output field
+         * @param field the input field
+         * @return the accumulator
+         */
+        public static Accumulator last(String name, String field) {
+            return new Accumulator(AccumulatorType.LAST, name, field);
+        }
+
+        /**
+         * Collects the values of a field into an array.
+         *
+         * @param name the output field
+         * @param field the input field
+         * @return the accumulator
+         */
+        public static Accumulator push(String name, String field) {
+            return new Accumulator(AccumulatorType.PUSH, name, field);
+        }
+
+        /**
+         * Collects the distinct values of a field into an array.
+         *
+         * @param name the output field
+         * @param field the input field
+         * @return the accumulator
+         */
+        public static Accumulator addToSet(String name, String field) {
+            return new Accumulator(AccumulatorType.ADD_TO_SET, name, field);
+        }
+
+        /**
+         * Gets type.
+         *
+         * @return the accumulator type
+         */
+        public AccumulatorType getType() {
+            return type;
+        }
+
+        /**
+         * Gets name.
+         *
+         * @return the output field
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets field.
+         *
+         * @return the input field, null for count
+         */
+        public String getField() {
+            return field;
+        }
+    }
+
+    /**
+     * The enum Accumulator type.
+     */
+    public enum AccumulatorType {
+        /**
+         * Count of documents.
+         */
+        COUNT,
+        /**
+         * Sum of values.
+         */
+        SUM,
+        /**
+         * Average of values.
+         */
+        AVG,
+        /**
+         * Lowest value.
+         */
+        MIN,
+        /**
+         * Highest value.
+         */
+        MAX,
+        /**
+         * Value of the first document.
+         */
+        FIRST,
+        /**
+         * Value of the last document.
+         */
+        LAST,
+        /**
+         * Array of values.
+         */
+        PUSH,
+        /**
+         * Array of distinct values.
+         */
+        ADD_TO_SET
+    }
+}
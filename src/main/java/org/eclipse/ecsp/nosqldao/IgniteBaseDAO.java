@@ -40,10 +40,14 @@
 
 package org.eclipse.ecsp.nosqldao;
 
+import com.mongodb.WriteConcern;
+import org.bson.RawBsonDocument;
 import org.eclipse.ecsp.entities.IgniteEntity;
 import reactor.core.publisher.Flux;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  *  This interface is used for exposing methods for IgniteBaseDao repository layer.
@@ -61,6 +65,23 @@ public interface IgniteBaseDAO<K, E extends IgniteEntity> {
      */
     public E save(E entity);
 
+    /**
+     * Saves the given entity with a write concern, overriding the default of the entity.
+     *
+     * @param entity the entity to save
+     * @param writeConcern the write concern, null for the default of the entity
+     * @return the saved entity
+     * @throws UnsupportedOperationException if a write concern is given and the implementation does not
+     *         support write concerns
+     */
+    public default E save(E entity, WriteConcern writeConcern) {
+        if (writeConcern != null) {
+            throw new UnsupportedOperationException("Write concerns are not supported by "
+                    + getClass().getSimpleName());
+        }
+        return save(entity);
+    }
+
     /**
      * Saves all given entities.
      *
@@ -69,6 +90,18 @@ public interface IgniteBaseDAO<K, E extends IgniteEntity> {
      */
     public List<E> saveAll(@SuppressWarnings("unchecked") E... entities);
 
+    /**
+     * Saves raw BSON documents as they are, without encoding entities, replacing the document with the same
+     * _id. Used to re-import documents read with {@link #streamFindRaw(IgniteQuery)}.
+     *
+     * @param documents the documents, each with an _id
+     * @return the number of documents saved
+     * @throws UnsupportedOperationException if the implementation does not support raw writes
+     */
+    default int saveAllRaw(List<RawBsonDocument> documents) {
+        throw new UnsupportedOperationException("Raw writes are not supported by " + getClass().getSimpleName());
+    }
+
     /**
      * Finds an entity by its ID.
      *
@@ -77,6 +110,28 @@ public interface IgniteBaseDAO<K, E extends IgniteEntity> {
      */
     public E findById(K id);
 
+    /**
+     * Finds an entity by its ID and shard key. The equality predicates on the shard key let a sharded
+     * cluster route the query to a single shard instead of broadcasting it to all shards.
+     *
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name
+     * @return the found entity
+     */
+    public default E findById(K id, Map<String, Object> shardKey) {
+        return findById(id);
+    }
+
+    /**
+     * Gets the shard key values of the entity, to be passed to the shard key aware operations.
+     *
+     * @param entity the entity
+     * @return the shard key values by field name, empty if the collection has no shard key
+     */
+    public default Map<String, Object> getShardKey(E entity) {
+        return Collections.emptyMap();
+    }
+
     /**
      * Finds entities by their IDs.
      *
@@ -100,6 +155,44 @@ public interface IgniteBaseDAO<K, E extends IgniteEntity> {
      */
     public List<E> find(IgniteQuery c);
 
+    /**
+     * Finds entities matching the given query, returning only the fields of a projection type. The projection
+     * type is a record or a class with a constructor without argument, whose components or fields are named
+     * after the entity properties; only those fields are read and decoded.
+     *
+     * @param <P> the projection type
+     * @param c the query to match
+     * @param projectionType the projection type
+     * @return the list of projections of the matching entities
+     * @throws UnsupportedOperationException if the implementation does not support projections
+     */
+    public default <P> List<P> find(IgniteQuery c, Class<P> projectionType) {
+        throw new UnsupportedOperationException("Projections are not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Finds the documents matching the given query as raw BSON, without decoding them into entities. The
+     * field names of the query, if set, restrict the returned fields.
+     *
+     * @param c the query to match
+     * @return the list of the raw matching documents
+     * @throws UnsupportedOperationException if the implementation does not support raw reads
+     */
+    public default List<RawBsonDocument> findRaw(IgniteQuery c) {
+        throw new UnsupportedOperationException("Raw reads are not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Streams the documents matching the given query as raw BSON, without decoding them into entities. The
+     * default implementation streams the result of {@link #findRaw(IgniteQuery)}.
+     *
+     * @param c the query to match
+     * @return a Flux of the raw matching documents
+     */
+    public default Flux<RawBsonDocument> streamFindRaw(IgniteQuery c) {
+        return Flux.defer(() -> Flux.fromIterable(findRaw(c)));
+    }
+
     /**
      * Finds entities with paging information.
      *
@@ -116,6 +209,17 @@ public interface IgniteBaseDAO<K, E extends IgniteEntity> {
      */
     public boolean deleteById(K id);
 
+    /**
+     * Deletes an entity by its ID and shard key, routed to a single shard of a sharded cluster.
+     *
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name
+     * @return true if the entity was deleted, false otherwise
+     */
+    public default boolean deleteById(K id, Map<String, Object> shardKey) {
+        return deleteById(id);
+    }
+
     /**
      * Deletes entities by their IDs.
      *
@@ -156,6 +260,18 @@ public interface IgniteBaseDAO<K, E extends IgniteEntity> {
      */
     public boolean update(K id, Updates u);
 
+    /**
+     * Updates an entity by its ID and shard key, routed to a single shard of a sharded cluster.
+     *
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name
+     * @param u the updates to apply
+     * @return true if the entity was updated, false otherwise
+     */
+    public default boolean update(K id, Map<String, Object> shardKey, Updates u) {
+        return update(id, u);
+    }
+
     /**
      * Updating collection through query. this will be helpful in scenario
      * where one would like to filter and then update.
@@ -211,6 +327,7 @@ public interface IgniteBaseDAO<K, E extends IgniteEntity> {
      * This method throws UnSupportedOperationException when getOverridingCollectionName()
      * returns a value. AdvancedDataStore does not
      * support distinct with dynamic collection name.
+     * Use {@link #distinct(IgniteQuery, String, Class)} for typed values and dynamic collections.
      * </p>
      *
      * @param igniteQuery
@@ -221,6 +338,39 @@ public interface IgniteBaseDAO<K, E extends IgniteEntity> {
      */
     List<K> distinct(IgniteQuery igniteQuery, String field);
 
+    /**
+     * Finds the distinct values of a field among the entities matching the given query, decoded as the
+     * given type. Dynamic collections, the read preference and the maximum execution time of the query are
+     * supported. If the distinct values exceed the maximum document size, they are computed by an
+     * aggregation instead, which does not return null values.
+     *
+     * @param <T> the type of the values
+     * @param igniteQuery the query to match
+     * @param field the field name for which to find distinct values
+     * @param resultType the class the values are decoded into
+     * @return the list of distinct values
+     * @throws UnsupportedOperationException if the implementation does not support typed distinct values
+     */
+    default <T> List<T> distinct(IgniteQuery igniteQuery, String field, Class<T> resultType) {
+        throw new UnsupportedOperationException("Typed distinct values are not supported by "
+                + getClass().getSimpleName());
+    }
+
+    /**
+     * Streams the distinct values of a field among the entities matching the given query, decoded as the
+     * given type, as {@link #distinct(IgniteQuery, String, Class)} does. The default implementation streams
+     * the result of that method.
+     *
+     * @param <T> the type of the values
+     * @param igniteQuery the query to match
+     * @param field the field name for which to find distinct values
+     * @param resultType the class the values are decoded into
+     * @return a Flux of the distinct values
+     */
+    default <T> Flux<T> streamDistinct(IgniteQuery igniteQuery, String field, Class<T> resultType) {
+        return Flux.defer(() -> Flux.fromIterable(distinct(igniteQuery, field, resultType)));
+    }
+
     /**
      * This method can be used by services to override collection name provided with @Entity annotation
      * or when collection name is not provided.
@@ -232,6 +382,18 @@ public interface IgniteBaseDAO<K, E extends IgniteEntity> {
         return null;
     }
 
+    /**
+     * Gets a view of this DAO whose operations target another collection of the entity, so that one DAO
+     * serves many collections with the same entity, such as one collection per tenant.
+     *
+     * @param collectionName the name of the collection
+     * @return the view targeting the collection
+     * @throws UnsupportedOperationException if the implementation does not support collection views
+     */
+    default IgniteBaseDAO<K, E> withCollection(String collectionName) {
+        throw new UnsupportedOperationException("Collection views are not supported by " + getClass().getSimpleName());
+    }
+
     /**
      * Return the total count for given query.
      *
@@ -249,12 +411,24 @@ public interface IgniteBaseDAO<K, E extends IgniteEntity> {
     Flux<E> streamFind(IgniteQuery igniteQuery);
 
     /**
-     * Returns the total count of all entities.
+     * Returns the total count of all entities. Depending on the configuration of the entity, the count is
+     * exact, possibly cached for a short time, or estimated from the collection metadata.
      *
      * @return the total count of all entities
      */
     long countAll();
 
+    /**
+     * Returns the count of all entities estimated from the collection metadata, without scanning the
+     * collection. The estimate may be inaccurate after an unclean shutdown or during chunk migrations. The
+     * default implementation, for stores without such metadata, returns {@link #countAll()}.
+     *
+     * @return the estimated count of all entities
+     */
+    default long estimatedCount() {
+        return countAll();
+    }
+
     /**
      * Streams all entities.
      *
@@ -262,6 +436,50 @@ public interface IgniteBaseDAO<K, E extends IgniteEntity> {
      */
     Flux<E> streamFindAll();
 
+    /**
+     * Runs an aggregation pipeline on the collection of the entity.
+     *
+     * @param <R> the type of the result documents
+     * @param aggregation the aggregation pipeline
+     * @param resultType the class the result documents are decoded into, such as Document or a mapped entity
+     * @return the result documents
+     * @throws UnsupportedOperationException if the implementation does not support aggregations
+     */
+    default <R> List<R> aggregate(IgniteAggregation aggregation, Class<R> resultType) {
+        throw new UnsupportedOperationException("Aggregations are not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Streams the results of an aggregation pipeline on the collection of the entity. The results are read
+     * from the cursor in batches as they are requested, and the cursor is closed when the Flux terminates
+     * or is cancelled. The default implementation streams the result of
+     * {@link #aggregate(IgniteAggregation, Class)}.
+     *
+     * @param <R> the type of the result documents
+     * @param aggregation the aggregation pipeline
+     * @param resultType the class the result documents are decoded into, such as Document or a mapped entity
+     * @return a Flux of the result documents
+     */
+    default <R> Flux<R> streamAggregate(IgniteAggregation aggregation, Class<R> resultType) {
+        return Flux.defer(() -> Flux.fromIterable(aggregate(aggregation, resultType)));
+    }
+
+    /**
+     * Finds the entities nearest to a point, nearest first, with their distance from it. The radius of the
+     * coordinate, in meters, is the maximum distance, 0 for none. The criteria of the query filter the
+     * entities and its page number and size page the results; its sort is ignored. The field needs a
+     * 2dsphere index.
+     *
+     * @param field the field holding the GeoJSON point of the entities
+     * @param near the point, with the maximum distance as radius
+     * @param query the query filtering and paging the entities
+     * @return the entities with their distance, nearest first
+     * @throws UnsupportedOperationException if the implementation does not support geoNear queries
+     */
+    default List<GeoNearResult<E>> geoNear(String field, Coordinate near, IgniteQuery query) {
+        throw new UnsupportedOperationException("geoNear is not supported by " + getClass().getSimpleName());
+    }
+
     /**
      * This method can be used by services to check if the collection exists in the database or not.
      *
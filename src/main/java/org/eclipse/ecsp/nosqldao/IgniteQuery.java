@@ -40,9 +40,12 @@
 
 package org.eclipse.ecsp.nosqldao;
 
+import com.mongodb.ReadConcern;
 import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 import org.eclipse.ecsp.nosqldao.utils.IgniteQueryUtils;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -86,6 +89,31 @@ public class IgniteQuery extends IgniteQueryUtils {
      */
     private ReadPreference readPreference;
 
+    /**
+     * The read concern, null for the default of the entity.
+     */
+    private ReadConcern readConcern;
+
+    /**
+     * The write concern of the updates and deletes by query, null for the default of the entity.
+     */
+    private WriteConcern writeConcern;
+
+    /**
+     * The workload of the query, null for the default of the operation.
+     */
+    private Workload workload;
+
+    /**
+     * The maximum server execution time, in milliseconds, 0 for none.
+     */
+    private long maxTimeMs;
+
+    /**
+     * The client deadline of the operation, null for none.
+     */
+    private Instant deadline;
+
     /**
      * Default constructor for IgniteQuery.
      */
@@ -265,6 +293,103 @@ public class IgniteQuery extends IgniteQueryUtils {
         this.readPreference = readPreference;
     }
 
+    /**
+     * Gets read concern.
+     *
+     * @return the read concern, null for the default of the entity
+     */
+    public ReadConcern getReadConcern() {
+        return readConcern;
+    }
+
+    /**
+     * Sets read concern, overriding the default of the entity.
+     *
+     * @param readConcern
+     *         the read concern
+     */
+    public void setReadConcern(ReadConcern readConcern) {
+        this.readConcern = readConcern;
+    }
+
+    /**
+     * Gets write concern.
+     *
+     * @return the write concern, null for the default of the entity
+     */
+    public WriteConcern getWriteConcern() {
+        return writeConcern;
+    }
+
+    /**
+     * Sets write concern of the updates and deletes by this query, overriding the default of the entity.
+     *
+     * @param writeConcern
+     *         the write concern
+     */
+    public void setWriteConcern(WriteConcern writeConcern) {
+        this.writeConcern = writeConcern;
+    }
+
+    /**
+     * Gets workload.
+     *
+     * @return the workload, null for the default of the operation
+     */
+    public Workload getWorkload() {
+        return workload;
+    }
+
+    /**
+     * Sets workload. Analytical queries run on the analytical client, if one is configured.
+     *
+     * @param workload
+     *         the workload
+     */
+    public void setWorkload(Workload workload) {
+        this.workload = workload;
+    }
+
+    /**
+     * Gets the maximum server execution time.
+     *
+     * @return the maximum server execution time, in milliseconds, 0 for none
+     */
+    public long getMaxTimeMs() {
+        return maxTimeMs;
+    }
+
+    /**
+     * Sets the maximum server execution time, after which the server aborts the operation. It overrides the
+     * default maximum execution time of the operation type.
+     *
+     * @param maxTimeMs
+     *         the maximum server execution time, in milliseconds, 0 for none
+     */
+    public void setMaxTimeMs(long maxTimeMs) {
+        this.maxTimeMs = maxTimeMs;
+    }
+
+    /**
+     * Gets the client deadline of the operation.
+     *
+     * @return the deadline, null for none
+     */
+    public Instant getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Sets the client deadline of the operation. An operation started after its deadline fails without
+     * being sent, and the time left before the deadline bounds the maximum server execution time.
+     *
+     * @param deadline
+     *         the deadline, null for none
+     */
+    public void setDeadline(Instant deadline) {
+        this.deadline = deadline;
+    }
+
     @Override
     public String toString() {
         StringBuilder buffer = new StringBuilder();
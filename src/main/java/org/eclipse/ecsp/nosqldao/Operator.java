@@ -104,7 +104,15 @@ public enum Operator {
     /**
      * Near operator.
      */
-    NEAR("near");
+    NEAR("near"),
+    /**
+     * Geo within operator, its value is the {@link GeoShape} holding the points.
+     */
+    GEO_WITHIN("geoWithin"),
+    /**
+     * Geo intersects operator, its value is the {@link GeoShape} intersecting the geometries.
+     */
+    GEO_INTERSECTS("geoIntersects");
 
     /**
      * The Op.
@@ -0,0 +1,89 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao;
+
+import com.mongodb.client.model.TimeSeriesGranularity;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the collection of an entity as a MongoDB time-series collection, which stores the documents in
+ * buckets by time and meta field value. The DAO of the entity creates the collection with these options
+ * instead of creating the indexes of the entity, and only inserts documents into it: saving an entity
+ * always adds a measurement, even if its ID is set. Time-series collections need MongoDB 5.0 or later.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface TimeSeries {
+
+    /**
+     * The entity property holding the time of the measurement, stored as a BSON date.
+     *
+     * @return the name of the time property
+     */
+    String timeField();
+
+    /**
+     * The entity property identifying the source of the measurement, such as the vehicle.
+     *
+     * @return the name of the meta property, empty for none
+     */
+    String metaField() default "";
+
+    /**
+     * The interval between two measurements of a source, which sizes the buckets.
+     *
+     * @return the granularity
+     */
+    TimeSeriesGranularity granularity() default TimeSeriesGranularity.SECONDS;
+
+    /**
+     * The age after which the measurements are deleted.
+     *
+     * @return the age in seconds, -1 to keep the measurements
+     */
+    long expireAfterSeconds() default -1L;
+}
@@ -183,6 +183,22 @@ public class Updates {
         return this;
     }
 
+    /**
+     * Checks whether applying these updates twice leaves the document as applying them once.
+     * Increments, decrements and list appends are not idempotent, so an update containing one of
+     * them must not be retried blindly.
+     *
+     * @return true if the updates are idempotent
+     */
+    public boolean isIdempotent() {
+        for (UpdateOp o : updateOps) {
+            if (o instanceof IncOp || o instanceof DecOp || o instanceof PushOp || o instanceof PushMultiOp) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Traverse.
      *
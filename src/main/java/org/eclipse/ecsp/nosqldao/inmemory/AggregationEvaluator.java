@@ -0,0 +1,510 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.inmemory;
+
+import org.bson.Document;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.Accumulator;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.FacetStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.GroupStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.LimitStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.LookupStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.MatchStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.ProjectStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.SkipStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.SortStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.Stage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.UnwindStage;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Runs the stages of an {@link IgniteAggregation} over documents with the semantics MongoDB gives the pipeline
+ * the aggregation translates to. Field paths are resolved against the stored field names: through embedded
+ * documents, and element by element through arrays of embedded documents. Group keys and accumulators treat
+ * missing fields as null, and {@link org.eclipse.ecsp.nosqldao.IgniteAggregation.AccumulatorType#SUM} and
+ * {@link org.eclipse.ecsp.nosqldao.IgniteAggregation.AccumulatorType#AVG} ignore values that are not numbers.
+ */
+final class AggregationEvaluator implements IgniteAggregation.StageVisitor {
+
+    /**
+     * The documents of the collections a lookup can join, by collection name.
+     */
+    private final Function<String, List<Document>> collections;
+
+    /**
+     * The documents output by the stages run so far.
+     */
+    private List<Document> documents;
+
+    /**
+     * Instantiates a new aggregation evaluator.
+     *
+     * @param documents the input documents
+     * @param collections the documents of the collections a lookup can join, by collection name
+     */
+    private AggregationEvaluator(List<Document> documents, Function<String, List<Document>> collections) {
+        this.documents = documents;
+        this.collections = collections;
+    }
+
+    /**
+     * Runs pipeline stages over documents.
+     *
+     * @param stages the stages
+     * @param documents the input documents, which the stages may modify
+     * @param collections the documents of the collections a lookup can join, by collection name; empty when the
+     *        collection does not exist
+     * @return the output documents
+     * @throws IllegalArgumentException if a projection mixes included and excluded fields other than
+     *         {@code _id}
+     */
+    static List<Document> evaluate(List<Stage> stages, List<Document> documents,
+            Function<String, List<Document>> collections) {
+        AggregationEvaluator evaluator = new AggregationEvaluator(new ArrayList<>(documents), collections);
+        for (Stage stage : stages) {
+            stage.accept(evaluator);
+        }
+        return evaluator.documents;
+    }
+
+    /**
+     * Returns a document with only the {@code _id} and the given fields of another, as an inclusion projection
+     * does. A dotted field includes the field of the embedded document, or of each embedded document of an
+     * array.
+     *
+     * @param document the document
+     * @param fields the included fields
+     * @param includeId whether {@code _id} is included
+     * @return the projected document
+     */
+    static Document include(Document document, List<String> fields, boolean includeId) {
+        Document projected = new Document();
+        if (includeId && document.containsKey(EntityPaths.ID_FIELD)) {
+            projected.put(EntityPaths.ID_FIELD, EntityCopier.copy(document.get(EntityPaths.ID_FIELD)));
+        }
+        for (String field : fields) {
+            include(document, projected, field.split("\\."), 0);
+        }
+        return projected;
+    }
+
+    /**
+     * Copies the remaining segments of an included field path into a projected document.
+     *
+     * @param source the document the path is resolved against
+     * @param target the projected document
+     * @param segments the path segments
+     * @param index the index of the next segment
+     */
+    private static void include(Map<?, ?> source, Map<String, Object> target, String[] segments, int index) {
+        String name = segments[index];
+        if (!source.containsKey(name)) {
+            return;
+        }
+        Object value = source.get(name);
+        if (index == segments.length - 1) {
+            target.put(name, EntityCopier.copy(value));
+            return;
+        }
+        Object projected = includeNested(value, target.get(name), segments, index + 1);
+        if (projected != null) {
+            target.put(name, projected);
+        }
+    }
+
+    /**
+     * Projects an embedded document, or the embedded documents of an array, onto the remaining segments of an
+     * included field path, merging with what earlier included paths already projected.
+     *
+     * @param value the embedded document or array
+     * @param existing the projection made so far, null if none
+     * @param segments the path segments
+     * @param index the index of the next segment
+     * @return the projection, null for values that are neither embedded documents nor arrays
+     */
+    @SuppressWarnings("unchecked")
+    private static Object includeNested(Object value, Object existing, String[] segments, int index) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> nested = existing instanceof Map ? (Map<String, Object>) existing : new Document();
+            include(map, nested, segments, index);
+            return nested;
+        }
+        if (!(value instanceof List<?> list)) {
+            return null;
+        }
+        List<Object> previous = existing instanceof List ? (List<Object>) existing : Collections.emptyList();
+        List<Object> projected = new ArrayList<>();
+        for (Object element : list) {
+            if (element instanceof Map || element instanceof List) {
+                Object prior = projected.size() < previous.size() ? previous.get(projected.size()) : null;
+                projected.add(includeNested(element, prior, segments, index));
+            }
+        }
+        return projected;
+    }
+
+    @Override
+    public void visit(MatchStage stage) {
+        documents.removeIf(document -> !QueryEvaluator.matches(document, stage.getQuery()));
+    }
+
+    @Override
+    public void visit(ProjectStage stage) {
+        List<String> includes = stage.getIncludes();
+        List<String> excludes = stage.getExcludes();
+        boolean inclusion = !includes.isEmpty() || !stage.getAliases().isEmpty();
+        if (inclusion && excludes.stream().anyMatch(field -> !EntityPaths.ID_FIELD.equals(field))) {
+            throw new IllegalArgumentException("Cannot exclude fields other than _id in an inclusion projection");
+        }
+        List<Document> projected = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            if (inclusion) {
+                Document output = include(document, includes, !excludes.contains(EntityPaths.ID_FIELD));
+                stage.getAliases().forEach((name, field) -> set(output, name, valueAt(document, field)));
+                projected.add(output);
+            } else {
+                excludes.forEach(field -> exclude(document, field.split("\\."), 0));
+                projected.add(document);
+            }
+        }
+        documents = projected;
+    }
+
+    @Override
+    public void visit(GroupStage stage) {
+        List<String> groupBy = stage.getGroupBy() == null ? Collections.emptyList() : stage.getGroupBy();
+        Map<List<Object>, List<Document>> groups = new LinkedHashMap<>();
+        for (Document document : documents) {
+            List<Object> key = new ArrayList<>();
+            groupBy.forEach(field -> key.add(QueryEvaluator.key(valueAt(document, field))));
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(document);
+        }
+        List<Document> grouped = new ArrayList<>(groups.size());
+        for (List<Document> group : groups.values()) {
+            Document output = new Document(EntityPaths.ID_FIELD, groupId(group.get(0), groupBy));
+            for (Accumulator accumulator : stage.getAccumulators()) {
+                output.put(accumulator.getName(), accumulate(accumulator, group));
+            }
+            grouped.add(output);
+        }
+        documents = grouped;
+    }
+
+    @Override
+    public void visit(SortStage stage) {
+        documents.sort(QueryEvaluator.comparator(stage.getOrderBys()));
+    }
+
+    @Override
+    public void visit(SkipStage stage) {
+        documents = new ArrayList<>(documents.subList(Math.min(documents.size(), stage.getSkip()),
+                documents.size()));
+    }
+
+    @Override
+    public void visit(LimitStage stage) {
+        documents = new ArrayList<>(documents.subList(0, Math.min(documents.size(), stage.getLimit())));
+    }
+
+    @Override
+    public void visit(UnwindStage stage) {
+        List<Document> unwound = new ArrayList<>();
+        for (Document document : documents) {
+            Object value = valueAt(document, stage.getField());
+            if (!(value instanceof List<?> elements)) {
+                if (value != null || stage.isPreserveNullAndEmptyArrays()) {
+                    unwound.add(document);
+                }
+            } else if (elements.isEmpty()) {
+                if (stage.isPreserveNullAndEmptyArrays()) {
+                    exclude(document, stage.getField().split("\\."), 0);
+                    unwound.add(document);
+                }
+            } else {
+                for (Object element : elements) {
+                    Document copy = EntityCopier.copy(document);
+                    set(copy, stage.getField(), EntityCopier.copy(element));
+                    unwound.add(copy);
+                }
+            }
+        }
+        documents = unwound;
+    }
+
+    @Override
+    public void visit(LookupStage stage) {
+        List<Document> foreignDocuments = collections.apply(stage.getFrom());
+        for (Document document : documents) {
+            Object local = valueAt(document, stage.getLocalField());
+            List<Object> localValues = local instanceof List<?> list ? new ArrayList<>(list)
+                    : Collections.singletonList(local);
+            List<Document> joined = new ArrayList<>();
+            for (Document foreign : foreignDocuments) {
+                if (joins(localValues, foreign, stage.getForeignField())) {
+                    joined.add(EntityCopier.copy(foreign));
+                }
+            }
+            set(document, stage.getAs(), joined);
+        }
+    }
+
+    @Override
+    public void visit(FacetStage stage) {
+        Document output = new Document();
+        stage.getFacets().forEach((name, facet) -> output.put(name,
+                evaluate(facet.getStages(), EntityCopier.copy(documents), collections)));
+        documents = new ArrayList<>(Collections.singletonList(output));
+    }
+
+    /**
+     * Returns the value of a field path the way an aggregation expression resolves it: an array met along the
+     * path yields the array of the values found in its embedded documents.
+     *
+     * @param document the document
+     * @param path the dotted field path
+     * @return the value, null when the path is missing
+     */
+    private static Object valueAt(Object document, String path) {
+        return valueAt(document, path.split("\\."), 0);
+    }
+
+    /**
+     * Resolves the remaining segments of a field path.
+     *
+     * @param value the value reached so far
+     * @param segments the path segments
+     * @param index the index of the next segment
+     * @return the value, null when the path is missing
+     */
+    private static Object valueAt(Object value, String[] segments, int index) {
+        if (index == segments.length || value == null) {
+            return value;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> values = new ArrayList<>();
+            for (Object element : list) {
+                Object found = element instanceof Map ? valueAt(element, segments, index) : null;
+                if (found != null) {
+                    values.add(found);
+                }
+            }
+            return values;
+        }
+        return value instanceof Map<?, ?> map ? valueAt(map.get(segments[index]), segments, index + 1) : null;
+    }
+
+    /**
+     * Sets the value of a field path, creating the missing embedded documents along it. A null value leaves
+     * the field out, as for a computed field of a missing path.
+     *
+     * @param document the document
+     * @param path the dotted field path
+     * @param value the value
+     */
+    @SuppressWarnings("unchecked")
+    private static void set(Map<String, Object> document, String path, Object value) {
+        if (value == null) {
+            return;
+        }
+        String[] segments = path.split("\\.");
+        Map<String, Object> current = document;
+        for (int i = 0; i < segments.length - 1; i++) {
+            if (!(current.get(segments[i]) instanceof Map)) {
+                current.put(segments[i], new Document());
+            }
+            current = (Map<String, Object>) current.get(segments[i]);
+        }
+        current.put(segments[segments.length - 1], value);
+    }
+
+    /**
+     * Removes the remaining segments of an excluded field path, from each embedded document of the arrays met
+     * along it.
+     *
+     * @param value the value reached so far
+     * @param segments the path segments
+     * @param index the index of the next segment
+     */
+    private static void exclude(Object value, String[] segments, int index) {
+        if (value instanceof List<?> list) {
+            list.forEach(element -> exclude(element, segments, index));
+        } else if (value instanceof Map<?, ?> map) {
+            if (index == segments.length - 1) {
+                map.remove(segments[index]);
+            } else {
+                exclude(map.get(segments[index]), segments, index + 1);
+            }
+        }
+    }
+
+    /**
+     * Returns the {@code _id} of the group of a document: null when grouping all documents, the value of the
+     * field when grouping by one field, or a document of the values keyed by field, dots replaced by
+     * underscores.
+     *
+     * @param document a document of the group
+     * @param groupBy the fields to group by
+     * @return the group id
+     */
+    private static Object groupId(Document document, List<String> groupBy) {
+        if (groupBy.isEmpty()) {
+            return null;
+        }
+        if (groupBy.size() == 1) {
+            return EntityCopier.copy(valueAt(document, groupBy.get(0)));
+        }
+        Document id = new Document();
+        for (String field : groupBy) {
+            id.put(field.replace('.', '_'), EntityCopier.copy(valueAt(document, field)));
+        }
+        return id;
+    }
+
+    /**
+     * Computes the output field of an accumulator over the documents of a group.
+     *
+     * @param accumulator the accumulator
+     * @param group the documents of the group
+     * @return the value of the output field
+     */
+    private static Object accumulate(Accumulator accumulator, List<Document> group) {
+        List<Object> values = new ArrayList<>();
+        if (accumulator.getField() != null) {
+            group.forEach(document -> values.add(EntityCopier.copy(valueAt(document, accumulator.getField()))));
+        }
+        List<Object> present = new ArrayList<>(values);
+        present.removeIf(value -> value == null);
+        switch (accumulator.getType()) {
+            case COUNT:
+                return group.size();
+            case SUM:
+                return sum(present);
+            case AVG:
+                return average(present);
+            case MIN:
+                return present.stream().min(QueryEvaluator::compare).orElse(null);
+            case MAX:
+                return present.stream().max(QueryEvaluator::compare).orElse(null);
+            case FIRST:
+                return values.isEmpty() ? null : values.get(0);
+            case LAST:
+                return values.isEmpty() ? null : values.get(values.size() - 1);
+            case PUSH:
+                return present;
+            case ADD_TO_SET:
+                Map<Object, Object> set = new LinkedHashMap<>();
+                present.forEach(value -> set.putIfAbsent(QueryEvaluator.key(value), value));
+                return new ArrayList<>(set.values());
+            default:
+                throw new IllegalArgumentException("Invalid accumulator " + accumulator.getType());
+        }
+    }
+
+    /**
+     * Sums the numbers among values: an int while all of them are ints and the sum fits, a long while all of
+     * them are ints or longs, a decimal if any of them is one, and a double otherwise.
+     *
+     * @param values the values
+     * @return the sum, 0 if there are no numbers
+     */
+    private static Number sum(List<Object> values) {
+        List<Number> numbers = new ArrayList<>();
+        values.stream().filter(Number.class::isInstance).forEach(value -> numbers.add((Number) value));
+        if (numbers.stream().anyMatch(BigDecimal.class::isInstance)) {
+            BigDecimal total = BigDecimal.ZERO;
+            for (Number number : numbers) {
+                total = total.add(new BigDecimal(number.toString()));
+            }
+            return total;
+        }
+        if (numbers.stream().allMatch(number -> number instanceof Integer || number instanceof Long)) {
+            long total = numbers.stream().mapToLong(Number::longValue).sum();
+            boolean ints = numbers.stream().allMatch(Integer.class::isInstance);
+            return ints && total == (int) total ? (Number) (int) total : (Number) total;
+        }
+        return numbers.stream().mapToDouble(Number::doubleValue).sum();
+    }
+
+    /**
+     * Averages the numbers among values.
+     *
+     * @param values the values
+     * @return the average as a double, null if there are no numbers
+     */
+    private static Double average(List<Object> values) {
+        double total = 0;
+        int count = 0;
+        for (Object value : values) {
+            if (value instanceof Number number) {
+                total += number.doubleValue();
+                count++;
+            }
+        }
+        return count == 0 ? null : total / count;
+    }
+
+    /**
+     * Returns whether a foreign document joins a document, having at its foreign field a value equal to one of
+     * the local values. A null local value joins the documents where the foreign field is null or missing.
+     *
+     * @param localValues the values of the local field, an array being matched element by element
+     * @param foreign the foreign document
+     * @param foreignField the foreign field
+     * @return true if the documents join
+     */
+    private static boolean joins(List<Object> localValues, Document foreign, String foreignField) {
+        List<Object> foreignValues = QueryEvaluator.flatten(EntityPaths.resolve(foreign, foreignField));
+        for (Object local : localValues) {
+            if (local == null ? foreignValues.isEmpty()
+                    : foreignValues.stream().anyMatch(value -> QueryEvaluator.valuesEqual(value, local))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
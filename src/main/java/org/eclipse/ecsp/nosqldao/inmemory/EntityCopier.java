@@ -0,0 +1,218 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.inmemory;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deep-copies entities so that the in-memory store never shares mutable state with its callers, just as every
+ * read from MongoDB decodes a fresh object graph.
+ */
+final class EntityCopier {
+
+    /**
+     * Immutable value classes, besides primitives, enums and the types of the java.time and java.math packages.
+     */
+    private static final Set<String> IMMUTABLE_CLASSES = Set.of("java.lang.String", "java.lang.Boolean",
+            "java.lang.Character", "java.lang.Byte", "java.lang.Short", "java.lang.Integer", "java.lang.Long",
+            "java.lang.Float", "java.lang.Double", "java.lang.Class", "java.util.UUID", "java.util.Locale",
+            "java.util.regex.Pattern", "org.bson.types.ObjectId", "org.bson.types.Decimal128");
+
+    /**
+     * Instantiates a new entity copier.
+     */
+    private EntityCopier() {
+    }
+
+    /**
+     * Returns a deep copy of a value.
+     *
+     * @param value the value to copy
+     * @param <T> the type of the value
+     * @return the copy
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T copy(T value) {
+        return (T) copy(value, new IdentityHashMap<>());
+    }
+
+    /**
+     * Copies a value, reusing the copies already made for shared or cyclic references.
+     *
+     * @param value the value to copy
+     * @param copies the copies made so far, by original
+     * @return the copy
+     */
+    private static Object copy(Object value, Map<Object, Object> copies) {
+        if (value == null || isImmutable(value.getClass())) {
+            return value;
+        }
+        Object existing = copies.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (value.getClass().isArray()) {
+            return copyArray(value, copies);
+        } else if (value instanceof Collection) {
+            return copyCollection((Collection<?>) value, copies);
+        } else if (value instanceof Map) {
+            return copyMap((Map<?, ?>) value, copies);
+        } else if (value instanceof Date date) {
+            return date.clone();
+        }
+        return copyObject(value, copies);
+    }
+
+    /**
+     * Copies an array and its elements.
+     *
+     * @param value the array
+     * @param copies the copies made so far, by original
+     * @return the copy
+     */
+    private static Object copyArray(Object value, Map<Object, Object> copies) {
+        int length = Array.getLength(value);
+        Object array = Array.newInstance(value.getClass().getComponentType(), length);
+        copies.put(value, array);
+        for (int i = 0; i < length; i++) {
+            Array.set(array, i, copy(Array.get(value, i), copies));
+        }
+        return array;
+    }
+
+    /**
+     * Copies a collection and its elements into a collection of the same class, or of a standard class when
+     * that class cannot be instantiated, as for unmodifiable collections.
+     *
+     * @param value the collection
+     * @param copies the copies made so far, by original
+     * @return the copy
+     */
+    private static Collection<Object> copyCollection(Collection<?> value, Map<Object, Object> copies) {
+        Collection<Object> collection = EntityPaths.newCollection(value.getClass());
+        copies.put(value, collection);
+        for (Object element : value) {
+            collection.add(copy(element, copies));
+        }
+        return collection;
+    }
+
+    /**
+     * Copies a map and its entries into a map of the same class, or of a standard class when that class cannot
+     * be instantiated.
+     *
+     * @param value the map
+     * @param copies the copies made so far, by original
+     * @return the copy
+     */
+    private static Map<Object, Object> copyMap(Map<?, ?> value, Map<Object, Object> copies) {
+        Map<Object, Object> map = EntityPaths.newMap(value.getClass());
+        copies.put(value, map);
+        for (Map.Entry<?, ?> entry : value.entrySet()) {
+            map.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+        }
+        return map;
+    }
+
+    /**
+     * Copies an object field by field. Objects that cannot be instantiated through a no-arg constructor, and
+     * objects of JDK classes, are shared instead.
+     *
+     * @param value the object
+     * @param copies the copies made so far, by original
+     * @return the copy
+     */
+    private static Object copyObject(Object value, Map<Object, Object> copies) {
+        Class<?> type = value.getClass();
+        Object copy = EntityPaths.isJdkType(type) ? null : EntityPaths.instantiate(type);
+        if (copy == null) {
+            return value;
+        }
+        copies.put(value, copy);
+        for (Field field : EntityPaths.declaredFields(type)) {
+            try {
+                field.set(copy, copy(field.get(value), copies));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot copy field " + field.getName(), e);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Copies the non-static fields of one object onto another object of the same class.
+     *
+     * @param source the object to copy from
+     * @param target the object to copy to
+     * @param fieldNames the names of the fields to copy
+     */
+    static void copyFields(Object source, Object target, Collection<String> fieldNames) {
+        Map<Object, Object> copies = new IdentityHashMap<>();
+        for (Field field : EntityPaths.declaredFields(source.getClass())) {
+            if (fieldNames.contains(field.getName())) {
+                try {
+                    field.set(target, copy(field.get(source), copies));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot copy field " + field.getName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether instances of a class can be shared instead of copied.
+     *
+     * @param type the class
+     * @return true for primitives, strings, enums and the immutable value types of the JDK and of BSON
+     */
+    private static boolean isImmutable(Class<?> type) {
+        String name = type.getName();
+        return type.isPrimitive() || type.isEnum() || type.getSuperclass() != null && type.getSuperclass().isEnum()
+                || IMMUTABLE_CLASSES.contains(name) || name.startsWith("java.time.")
+                || name.startsWith("java.math.");
+    }
+}
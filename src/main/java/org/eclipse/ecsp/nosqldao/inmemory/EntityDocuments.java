@@ -0,0 +1,411 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.inmemory;
+
+import com.mongodb.MongoClientSettings;
+import dev.morphia.annotations.Embedded;
+import dev.morphia.annotations.Entity;
+import dev.morphia.annotations.Id;
+import dev.morphia.annotations.Property;
+import dev.morphia.annotations.Transient;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.eclipse.ecsp.nosqldao.utils.Constants;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Converts entities to and from the documents Morphia stores for them, for the raw reads and the aggregation
+ * pipelines of the in-memory DAO. The {@code @Id} field is stored as {@code _id}, followed by the class name
+ * under the {@link Constants#DISCRIMINATOR_KEY} discriminator and by the other fields under their
+ * {@code @Property} names. Null fields, empty collections and empty maps are left out, enums and classes are
+ * stored by name, optionals by their value, and other JDK values are kept as they are for the default codecs
+ * of the driver to encode, or stored as strings when the driver has no codec for them.
+ */
+final class EntityDocuments {
+
+    /**
+     * The default codecs of the driver.
+     */
+    private static final CodecRegistry CODEC_REGISTRY = MongoClientSettings.getDefaultCodecRegistry();
+
+    /**
+     * Codec encoding documents into raw BSON with the default codecs of the driver.
+     */
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec(CODEC_REGISTRY);
+
+    /**
+     * Value of {@code @Property} when no name is given.
+     */
+    private static final String DEFAULT_PROPERTY_NAME = ".";
+
+    /**
+     * Instantiates a new entity documents converter.
+     */
+    private EntityDocuments() {
+    }
+
+    /**
+     * Returns the document stored for an entity or an embedded object.
+     *
+     * @param entity the entity
+     * @return the document
+     */
+    static Document toDocument(Object entity) {
+        Class<?> type = entity.getClass();
+        Document document = new Document();
+        Field idField = EntityPaths.idField(type);
+        if (idField != null) {
+            put(document, EntityPaths.ID_FIELD, read(entity, idField));
+        }
+        if (useDiscriminator(type)) {
+            document.put(Constants.DISCRIMINATOR_KEY, type.getName());
+        }
+        for (Field field : EntityPaths.declaredFields(type)) {
+            if (field != idField && isPersistent(field) && !document.containsKey(mappedName(field))) {
+                put(document, mappedName(field), read(entity, field));
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Encodes a document into raw BSON.
+     *
+     * @param document the document
+     * @return the raw document
+     */
+    static RawBsonDocument toRaw(Document document) {
+        return new RawBsonDocument(document, DOCUMENT_CODEC);
+    }
+
+    /**
+     * Decodes a document into a result type, as the driver decodes aggregation results. Documents, maps and
+     * objects are returned as they are, raw documents are encoded, and other types are instantiated and have
+     * the fields stored in the document set, embedded objects and their collections included. The class named
+     * by the discriminator is instantiated instead when it is a subclass of the result type.
+     *
+     * @param <T> the result type
+     * @param document the document
+     * @param type the result type
+     * @return the decoded document
+     * @throws IllegalArgumentException if the result type cannot be instantiated or a field cannot be converted
+     *         to its declared type
+     */
+    static <T> T fromDocument(Document document, Class<T> type) {
+        if (type.isInstance(document)) {
+            return type.cast(document);
+        }
+        if (type == RawBsonDocument.class) {
+            return type.cast(toRaw(document));
+        }
+        Class<?> actualType = discriminatedType(document, type);
+        Object target = EntityPaths.instantiate(actualType);
+        if (target == null || EntityPaths.isJdkType(actualType)) {
+            throw new IllegalArgumentException("Cannot decode a document into " + type.getName());
+        }
+        for (Field field : EntityPaths.declaredFields(actualType)) {
+            String name = storedName(field);
+            if (isPersistent(field) && document.containsKey(name)) {
+                write(target, field, decode(document.get(name), field.getGenericType()));
+            }
+        }
+        return type.cast(target);
+    }
+
+    /**
+     * Returns a dotted field path with each segment that names a field of the entity type replaced by its
+     * stored name, as Morphia maps the field names of a query.
+     *
+     * @param type the entity type
+     * @param path the dotted field path
+     * @return the stored field path
+     */
+    static String mappedPath(Class<?> type, String path) {
+        StringBuilder mapped = new StringBuilder();
+        Class<?> current = type;
+        for (String segment : path.split("\\.")) {
+            Field field = current == null ? null : findField(current, segment);
+            if (mapped.length() > 0) {
+                mapped.append('.');
+            }
+            mapped.append(field == null ? segment : storedName(field));
+            current = field == null ? null : field.getType();
+        }
+        return mapped.toString();
+    }
+
+    /**
+     * Encodes a value as Morphia stores it.
+     *
+     * @param value the value
+     * @return the stored value
+     */
+    private static Object encode(Object value) {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Enum<?> constant) {
+            return constant.name();
+        } else if (value instanceof Class<?> type) {
+            return type.getName();
+        } else if (value instanceof Optional<?> optional) {
+            return encode(optional.orElse(null));
+        } else if (value instanceof Map<?, ?> map) {
+            Document document = new Document();
+            map.forEach((key, element) -> document.put(String.valueOf(key), encode(element)));
+            return document;
+        } else if (EntityPaths.isArray(value)) {
+            List<Object> list = new ArrayList<>();
+            EntityPaths.elements(value).forEach(element -> list.add(encode(element)));
+            return list;
+        } else if (EntityPaths.isJdkType(value.getClass()) || value.getClass().getName().startsWith("org.bson.")) {
+            return hasCodec(value.getClass()) ? value : value.toString();
+        }
+        return toDocument(value);
+    }
+
+    /**
+     * Returns whether the driver has a default codec for a class.
+     *
+     * @param type the class
+     * @return true if the default codec registry encodes it
+     */
+    private static boolean hasCodec(Class<?> type) {
+        try {
+            CODEC_REGISTRY.get(type);
+            return true;
+        } catch (CodecConfigurationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Decodes a stored value into a declared type.
+     *
+     * @param value the stored value
+     * @param type the declared type
+     * @return the decoded value
+     */
+    private static Object decode(Object value, Type type) {
+        Class<?> rawType = rawType(type);
+        if (rawType == Optional.class) {
+            return Optional.ofNullable(decode(value, typeArgument(type, 0)));
+        }
+        if (value instanceof List<?> list && (rawType.isArray() || Collection.class.isAssignableFrom(rawType))) {
+            Type elementType = rawType.isArray() ? rawType.getComponentType() : typeArgument(type, 0);
+            List<Object> elements = new ArrayList<>();
+            list.forEach(element -> elements.add(decode(element, elementType)));
+            return EntityPaths.coerce(elements, rawType);
+        }
+        if (value instanceof Document document && Map.class.isAssignableFrom(rawType)) {
+            Map<Object, Object> map = EntityPaths.newMap(rawType);
+            document.forEach((key, element) -> map.put(key, decode(element, typeArgument(type, 1))));
+            return map;
+        }
+        if (value instanceof Document document && !rawType.isInstance(document)) {
+            return fromDocument(document, rawType);
+        }
+        return EntityPaths.coerce(value, rawType);
+    }
+
+    /**
+     * Stores a value in a document, unless Morphia would leave it out.
+     *
+     * @param document the document
+     * @param name the stored name
+     * @param value the value
+     */
+    private static void put(Document document, String name, Object value) {
+        Object encoded = encode(value);
+        boolean empty = encoded instanceof Collection<?> collection && collection.isEmpty()
+                || encoded instanceof Map<?, ?> map && map.isEmpty();
+        if (encoded != null && !empty) {
+            document.put(name, encoded);
+        }
+    }
+
+    /**
+     * Returns the field of a class stored under a name or named so in Java.
+     *
+     * @param type the class
+     * @param name the name
+     * @return the field, null if the class has none
+     */
+    private static Field findField(Class<?> type, String name) {
+        for (Field field : EntityPaths.declaredFields(type)) {
+            if (isPersistent(field) && (field.getName().equals(name) || storedName(field).equals(name))) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name a field is stored under, {@code _id} for the {@code @Id} field.
+     *
+     * @param field the field
+     * @return the stored name
+     */
+    private static String storedName(Field field) {
+        return field.isAnnotationPresent(Id.class) ? EntityPaths.ID_FIELD : mappedName(field);
+    }
+
+    /**
+     * Returns the {@code @Property} name of a field, or its Java name.
+     *
+     * @param field the field
+     * @return the mapped name
+     */
+    private static String mappedName(Field field) {
+        Property property = field.getAnnotation(Property.class);
+        return property != null && !DEFAULT_PROPERTY_NAME.equals(property.value()) ? property.value()
+                : field.getName();
+    }
+
+    /**
+     * Returns whether Morphia stores a field: transient fields are left out.
+     *
+     * @param field the field
+     * @return true if the field is stored
+     */
+    private static boolean isPersistent(Field field) {
+        return !Modifier.isTransient(field.getModifiers()) && !field.isAnnotationPresent(Transient.class);
+    }
+
+    /**
+     * Returns whether Morphia stores the discriminator of a class.
+     *
+     * @param type the class
+     * @return false if its {@code @Entity} or {@code @Embedded} annotation turns the discriminator off
+     */
+    private static boolean useDiscriminator(Class<?> type) {
+        Entity entity = type.getAnnotation(Entity.class);
+        Embedded embedded = type.getAnnotation(Embedded.class);
+        return (entity == null || entity.useDiscriminator()) && (embedded == null || embedded.useDiscriminator());
+    }
+
+    /**
+     * Returns the class named by the discriminator of a document, if it is a subclass of the result type.
+     *
+     * @param document the document
+     * @param type the result type
+     * @return the discriminated class, or the result type
+     */
+    private static Class<?> discriminatedType(Document document, Class<?> type) {
+        if (document.get(Constants.DISCRIMINATOR_KEY) instanceof String className) {
+            try {
+                Class<?> discriminated = Class.forName(className, false, type.getClassLoader());
+                return type.isAssignableFrom(discriminated) ? discriminated : type;
+            } catch (ClassNotFoundException | LinkageError e) {
+                return type;
+            }
+        }
+        return type;
+    }
+
+    /**
+     * Returns the class of a declared type.
+     *
+     * @param type the declared type
+     * @return its class, {@code Object} for type variables and wildcards
+     */
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class<?> c) {
+            return c;
+        }
+        return type instanceof ParameterizedType parameterized ? rawType(parameterized.getRawType()) : Object.class;
+    }
+
+    /**
+     * Returns a type argument of a declared type.
+     *
+     * @param type the declared type
+     * @param index the index of the type argument
+     * @return the type argument, {@code Object} if the type has none
+     */
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType parameterized && parameterized.getActualTypeArguments().length > index) {
+            return parameterized.getActualTypeArguments()[index];
+        }
+        return Object.class;
+    }
+
+    /**
+     * Reads a field of an object.
+     *
+     * @param target the object
+     * @param field the field
+     * @return the value
+     */
+    private static Object read(Object target, Field field) {
+        try {
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read field " + field.getName(), e);
+        }
+    }
+
+    /**
+     * Writes a field of an object.
+     *
+     * @param target the object
+     * @param field the field
+     * @param value the value
+     */
+    private static void write(Object target, Field field, Object value) {
+        try {
+            field.set(target, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot write field " + field.getName(), e);
+        }
+    }
+}
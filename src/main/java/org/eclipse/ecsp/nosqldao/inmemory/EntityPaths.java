@@ -0,0 +1,655 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.inmemory;
+
+import dev.morphia.annotations.Id;
+import dev.morphia.annotations.Property;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves dotted field paths against entity object graphs the way MongoDB resolves them against the stored
+ * documents: lists, sets and arrays met along a path are traversed element by element, maps are looked up by
+ * key, {@code _id} resolves to the {@code @Id} field and {@code @Property} names resolve to their Java field.
+ * Null fields are treated as missing, as Morphia does not store them.
+ */
+final class EntityPaths {
+
+    /**
+     * Name of the identifier field in MongoDB documents.
+     */
+    static final String ID_FIELD = "_id";
+
+    /**
+     * Value of {@code @Property} when no explicit name is given.
+     */
+    private static final String DEFAULT_PROPERTY_NAME = ".";
+
+    /**
+     * Persistent fields of each class, in declaration order from the class up to its root superclass.
+     */
+    private static final Map<Class<?>, List<Field>> DECLARED_FIELDS = new ConcurrentHashMap<>();
+
+    /**
+     * Persistent fields of each class by every name a query may use for them.
+     */
+    private static final Map<Class<?>, Map<String, Field>> NAMED_FIELDS = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new entity paths.
+     */
+    private EntityPaths() {
+    }
+
+    /**
+     * Returns the non-null values found at the path. Collections and arrays met before the last segment are
+     * traversed; a collection or array found at the last segment is returned as a single value.
+     *
+     * @param root the object to resolve the path against
+     * @param path the dotted path
+     * @return the values found, empty when the path is missing
+     */
+    static List<Object> resolve(Object root, String path) {
+        List<Object> values = new ArrayList<>();
+        resolve(root, path.split("\\."), 0, values);
+        return values;
+    }
+
+    /**
+     * Resolves the remaining segments of a path.
+     *
+     * @param current the object reached so far
+     * @param segments the path segments
+     * @param index the index of the next segment
+     * @param values the values found
+     */
+    private static void resolve(Object current, String[] segments, int index, List<Object> values) {
+        if (current == null) {
+            return;
+        }
+        if (index == segments.length) {
+            values.add(current);
+            return;
+        }
+        if (isArray(current) && !isIndex(segments[index])) {
+            for (Object element : elements(current)) {
+                if (element != null && !isArray(element)) {
+                    resolve(element, segments, index, values);
+                }
+            }
+            return;
+        }
+        Slot slot = childSlot(current, segments[index]);
+        if (slot != null) {
+            resolve(slot.get(), segments, index + 1, values);
+        }
+    }
+
+    /**
+     * Returns the slot holding the value at the path, for writing.
+     *
+     * @param root the object to resolve the path against
+     * @param path the dotted path
+     * @param create whether missing intermediate objects are created, as MongoDB does for update operators
+     * @return the slot, or null when the path cannot be reached
+     */
+    static Slot slot(Object root, String path, boolean create) {
+        String[] segments = path.split("\\.");
+        Object current = root;
+        for (int i = 0; i < segments.length - 1; i++) {
+            Slot slot = childSlot(current, segments[i]);
+            if (slot == null) {
+                return null;
+            }
+            Object next = slot.get();
+            if (next == null) {
+                next = create ? newContainer(slot.getType()) : null;
+                if (next == null) {
+                    return null;
+                }
+                slot.set(next);
+            }
+            current = next;
+        }
+        return childSlot(current, segments[segments.length - 1]);
+    }
+
+    /**
+     * Returns the slot of a direct child of an object.
+     *
+     * @param owner the object
+     * @param segment the child name, or an index into a list or an array
+     * @return the slot, or null when the object has no such child
+     */
+    @SuppressWarnings("unchecked")
+    private static Slot childSlot(Object owner, String segment) {
+        if (owner instanceof Map) {
+            return new MapSlot((Map<Object, Object>) owner, segment);
+        }
+        if (isArray(owner)) {
+            if (!isIndex(segment)) {
+                return null;
+            }
+            int index = Integer.parseInt(segment);
+            if (owner instanceof List) {
+                List<Object> list = (List<Object>) owner;
+                return index < list.size() ? new ListSlot(list, index) : null;
+            }
+            return owner.getClass().isArray() && index < Array.getLength(owner)
+                    ? new ArraySlot(owner, index) : null;
+        }
+        Field field = namedFields(owner.getClass()).get(segment);
+        return field == null ? null : new FieldSlot(owner, field);
+    }
+
+    /**
+     * Returns whether a value is stored as a BSON array. Byte arrays are stored as binary data instead.
+     *
+     * @param value the value
+     * @return true for collections and arrays other than byte arrays
+     */
+    static boolean isArray(Object value) {
+        return value instanceof Collection || value != null && value.getClass().isArray()
+                && value.getClass() != byte[].class;
+    }
+
+    /**
+     * Returns the elements of a collection or an array.
+     *
+     * @param value the collection or array
+     * @return the elements, in iteration order
+     */
+    static List<Object> elements(Object value) {
+        if (value instanceof Collection) {
+            return new ArrayList<>((Collection<?>) value);
+        }
+        int length = Array.getLength(value);
+        List<Object> elements = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            elements.add(Array.get(value, i));
+        }
+        return elements;
+    }
+
+    /**
+     * Returns whether a path segment is a positional index.
+     *
+     * @param segment the path segment
+     * @return true if the segment only has digits
+     */
+    private static boolean isIndex(String segment) {
+        return !segment.isEmpty() && segment.chars().allMatch(Character::isDigit);
+    }
+
+    /**
+     * Returns the persistent fields of a class and its superclasses. Static and synthetic fields are left out,
+     * as are the fields of JDK classes, which are treated as opaque values.
+     *
+     * @param type the class
+     * @return the fields, made accessible
+     */
+    static List<Field> declaredFields(Class<?> type) {
+        return DECLARED_FIELDS.computeIfAbsent(type, t -> {
+            if (isJdkType(t)) {
+                return Collections.emptyList();
+            }
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return Collections.unmodifiableList(fields);
+        });
+    }
+
+    /**
+     * Returns the persistent fields of a class by Java name, by {@code @Property} name and, for the
+     * {@code @Id} field, by {@code _id}. Fields of subclasses hide same-named fields of superclasses.
+     *
+     * @param type the class
+     * @return the fields by name
+     */
+    private static Map<String, Field> namedFields(Class<?> type) {
+        return NAMED_FIELDS.computeIfAbsent(type, t -> {
+            Map<String, Field> fields = new HashMap<>();
+            for (Field field : declaredFields(t)) {
+                fields.putIfAbsent(field.getName(), field);
+                Property property = field.getAnnotation(Property.class);
+                if (property != null && !DEFAULT_PROPERTY_NAME.equals(property.value())) {
+                    fields.putIfAbsent(property.value(), field);
+                }
+                if (field.isAnnotationPresent(Id.class)) {
+                    fields.putIfAbsent(ID_FIELD, field);
+                }
+            }
+            return fields;
+        });
+    }
+
+    /**
+     * Returns the {@code @Id} field of an entity class.
+     *
+     * @param type the entity class
+     * @return the id field, or null if the class has none
+     */
+    static Field idField(Class<?> type) {
+        for (Field field : declaredFields(type)) {
+            if (field.isAnnotationPresent(Id.class)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether a class belongs to the JDK, whose internals are not reflectively accessible.
+     *
+     * @param type the class
+     * @return true for JDK classes
+     */
+    static boolean isJdkType(Class<?> type) {
+        String name = type.getName();
+        return type.isPrimitive() || name.startsWith("java.") || name.startsWith("javax.")
+                || name.startsWith("jdk.") || name.startsWith("sun.");
+    }
+
+    /**
+     * Instantiates a class through its no-arg constructor.
+     *
+     * @param type the class
+     * @param <T> the type
+     * @return the new instance, or null if the class cannot be instantiated that way
+     */
+    static <T> T instantiate(Class<T> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type.isArray() || type.isEnum()) {
+            return null;
+        }
+        try {
+            Constructor<T> constructor = type.getDeclaredConstructor();
+            if (isJdkType(type) && !Modifier.isPublic(constructor.getModifiers())) {
+                return null;
+            }
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+                 | InvocationTargetException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates an empty collection that can be assigned to a field of the given type.
+     *
+     * @param type the declared type
+     * @return the collection
+     */
+    @SuppressWarnings("unchecked")
+    static Collection<Object> newCollection(Class<?> type) {
+        Collection<Object> collection = Collection.class.isAssignableFrom(type)
+                ? (Collection<Object>) instantiate(type) : null;
+        if (collection != null) {
+            return collection;
+        }
+        if (SortedSet.class.isAssignableFrom(type)) {
+            return new TreeSet<>();
+        }
+        return Set.class.isAssignableFrom(type) ? new LinkedHashSet<>() : new ArrayList<>();
+    }
+
+    /**
+     * Creates an empty map that can be assigned to a field of the given type.
+     *
+     * @param type the declared type
+     * @return the map
+     */
+    @SuppressWarnings("unchecked")
+    static Map<Object, Object> newMap(Class<?> type) {
+        Map<Object, Object> map = Map.class.isAssignableFrom(type) ? (Map<Object, Object>) instantiate(type) : null;
+        if (map != null) {
+            return map;
+        }
+        return SortedMap.class.isAssignableFrom(type) ? new TreeMap<>() : new LinkedHashMap<>();
+    }
+
+    /**
+     * Creates the empty object MongoDB would create for a missing path segment.
+     *
+     * @param type the declared type of the missing value
+     * @return the new object, or null if no object of that type can be created
+     */
+    private static Object newContainer(Class<?> type) {
+        if (type == Object.class || Map.class.isAssignableFrom(type)) {
+            return newMap(type);
+        }
+        if (type.isArray() || Collection.class.isAssignableFrom(type) || isJdkType(type)) {
+            return null;
+        }
+        return instantiate(type);
+    }
+
+    /**
+     * Converts a value so that it can be assigned to a field of the given type, the way the value would be
+     * decoded into that field after a round trip through MongoDB.
+     *
+     * @param value the value
+     * @param type the declared type
+     * @return the converted value
+     * @throws IllegalArgumentException if the value cannot be converted
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object coerce(Object value, Class<?> type) {
+        if (value == null) {
+            return type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+        }
+        Class<?> boxed = type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0).getClass() : type;
+        if (boxed.isInstance(value)) {
+            return value;
+        }
+        if (type == String.class && value instanceof Enum<?> constant) {
+            return constant.name();
+        }
+        if (value instanceof Number number && Number.class.isAssignableFrom(boxed)) {
+            return convertNumber(number, boxed);
+        }
+        if (type.isEnum() && value instanceof String name) {
+            return Enum.valueOf((Class<Enum>) type, name);
+        }
+        if (isArray(value) && (type.isArray() || Collection.class.isAssignableFrom(type))) {
+            return coerceElements(elements(value), type);
+        }
+        throw new IllegalArgumentException("Cannot assign a value of type " + value.getClass().getName()
+                + " to a field of type " + type.getName());
+    }
+
+    /**
+     * Converts array elements into an array or a collection of the given type.
+     *
+     * @param elements the elements
+     * @param type the declared array or collection type
+     * @return the array or collection
+     */
+    private static Object coerceElements(List<Object> elements, Class<?> type) {
+        if (type.isArray()) {
+            Object array = Array.newInstance(type.getComponentType(), elements.size());
+            for (int i = 0; i < elements.size(); i++) {
+                Array.set(array, i, coerce(elements.get(i), type.getComponentType()));
+            }
+            return array;
+        }
+        Collection<Object> collection = newCollection(type);
+        collection.addAll(elements);
+        return collection;
+    }
+
+    /**
+     * Converts a number to the given numeric type.
+     *
+     * @param number the number
+     * @param type the boxed numeric type
+     * @return the converted number
+     */
+    private static Number convertNumber(Number number, Class<?> type) {
+        if (type == Long.class) {
+            return number.longValue();
+        } else if (type == Integer.class) {
+            return number.intValue();
+        } else if (type == Double.class) {
+            return number.doubleValue();
+        } else if (type == Float.class) {
+            return number.floatValue();
+        } else if (type == Short.class) {
+            return number.shortValue();
+        } else if (type == Byte.class) {
+            return number.byteValue();
+        } else if (type == BigDecimal.class) {
+            return new BigDecimal(number.toString());
+        } else if (type == BigInteger.class) {
+            return new BigDecimal(number.toString()).toBigInteger();
+        } else if (type == Number.class) {
+            return number;
+        }
+        throw new IllegalArgumentException("Cannot convert a number to " + type.getName());
+    }
+
+    /**
+     * A place holding a value: a field of an object, an entry of a map or an element of a list or an array.
+     */
+    interface Slot {
+
+        /**
+         * Returns the value held.
+         *
+         * @return the value, null when missing
+         */
+        Object get();
+
+        /**
+         * Replaces the value held, converting it to the declared type of the slot.
+         *
+         * @param value the new value
+         */
+        void set(Object value);
+
+        /**
+         * Removes the value held.
+         */
+        void unset();
+
+        /**
+         * Returns the declared type of the slot.
+         *
+         * @return the type
+         */
+        Class<?> getType();
+    }
+
+    /**
+     * Slot of an object field.
+     */
+    private static final class FieldSlot implements Slot {
+
+        private final Object owner;
+
+        private final Field field;
+
+        FieldSlot(Object owner, Field field) {
+            this.owner = owner;
+            this.field = field;
+        }
+
+        @Override
+        public Object get() {
+            try {
+                return field.get(owner);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read field " + field.getName(), e);
+            }
+        }
+
+        @Override
+        public void set(Object value) {
+            try {
+                field.set(owner, coerce(value, field.getType()));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot write field " + field.getName(), e);
+            }
+        }
+
+        @Override
+        public void unset() {
+            set(null);
+        }
+
+        @Override
+        public Class<?> getType() {
+            return field.getType();
+        }
+    }
+
+    /**
+     * Slot of a map entry.
+     */
+    private static final class MapSlot implements Slot {
+
+        private final Map<Object, Object> map;
+
+        private final String key;
+
+        MapSlot(Map<Object, Object> map, String key) {
+            this.map = map;
+            this.key = key;
+        }
+
+        @Override
+        public Object get() {
+            return map.get(key);
+        }
+
+        @Override
+        public void set(Object value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public void unset() {
+            map.remove(key);
+        }
+
+        @Override
+        public Class<?> getType() {
+            return Object.class;
+        }
+    }
+
+    /**
+     * Slot of a list element.
+     */
+    private static final class ListSlot implements Slot {
+
+        private final List<Object> list;
+
+        private final int index;
+
+        ListSlot(List<Object> list, int index) {
+            this.list = list;
+            this.index = index;
+        }
+
+        @Override
+        public Object get() {
+            return list.get(index);
+        }
+
+        @Override
+        public void set(Object value) {
+            list.set(index, value);
+        }
+
+        @Override
+        public void unset() {
+            set(null);
+        }
+
+        @Override
+        public Class<?> getType() {
+            return Object.class;
+        }
+    }
+
+    /**
+     * Slot of an array element.
+     */
+    private static final class ArraySlot implements Slot {
+
+        private final Object array;
+
+        private final int index;
+
+        ArraySlot(Object array, int index) {
+            this.array = array;
+            this.index = index;
+        }
+
+        @Override
+        public Object get() {
+            return Array.get(array, index);
+        }
+
+        @Override
+        public void set(Object value) {
+            Array.set(array, index, coerce(value, getType()));
+        }
+
+        @Override
+        public void unset() {
+            set(null);
+        }
+
+        @Override
+        public Class<?> getType() {
+            return array.getClass().getComponentType();
+        }
+    }
+}
@@ -0,0 +1,1109 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.inmemory;
+
+import com.google.common.reflect.TypeToken;
+import com.mongodb.WriteConcern;
+import dev.morphia.annotations.Entity;
+import dev.morphia.annotations.Index;
+import dev.morphia.annotations.Indexed;
+import dev.morphia.annotations.Indexes;
+import dev.morphia.utils.IndexType;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+import org.eclipse.ecsp.entities.AuditableIgniteEntity;
+import org.eclipse.ecsp.entities.IgniteEntity;
+import org.eclipse.ecsp.nosqldao.Coordinate;
+import org.eclipse.ecsp.nosqldao.GeoNearResult;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.MatchStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.Stage;
+import org.eclipse.ecsp.nosqldao.IgniteBaseDAO;
+import org.eclipse.ecsp.nosqldao.IgniteCriteria;
+import org.eclipse.ecsp.nosqldao.IgniteCriteriaGroup;
+import org.eclipse.ecsp.nosqldao.IgnitePagingInfoResponse;
+import org.eclipse.ecsp.nosqldao.IgniteQuery;
+import org.eclipse.ecsp.nosqldao.Operator;
+import org.eclipse.ecsp.nosqldao.Updates;
+import org.eclipse.ecsp.utils.logger.IgniteLogger;
+import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
+import reactor.core.publisher.Flux;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory implementation of {@link IgniteBaseDAO}, for unit tests and local runs that should not need a
+ * MongoDB server. Entities are kept per collection in concurrent maps and every query, update, sort, page,
+ * projection and distinct is evaluated with the semantics MongoDB gives the translated query, including
+ * {@link Operator#ELEMENT_MATCH} and {@link Operator#NEAR}, which orders results by distance when the query
+ * has no sort of its own. {@link Operator#GEO_WITHIN} and {@link Operator#GEO_INTERSECTS} match the points
+ * stored at a field, not lines or polygons.
+ *
+ * <p>Entities are deep-copied on the way in and on the way out, so callers never share state with the store.
+ * The fields of the {@code @Indexes} and {@code @Indexed} annotations of the entity get secondary indexes,
+ * ordered or hashed as declared, that conjunctive queries use to avoid a full scan; further indexes can be
+ * added with {@link #createIndex(String, boolean)}. Collection views share the store of the DAO they come from.
+ *
+ * <p>Raw BSON reads return the documents Morphia would store for the entities, and aggregation pipelines run
+ * over those documents, every stage evaluated as MongoDB evaluates it. Read and write concerns, read
+ * preferences, workloads and time limits have no meaning in memory and are ignored.
+ *
+ * @param <K> the type of the entity ids
+ * @param <E> the entity type
+ */
+public class IgniteBaseDAOInMemoryImpl<K, E extends IgniteEntity> implements IgniteBaseDAO<K, E> {
+
+    private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(IgniteBaseDAOInMemoryImpl.class);
+
+    /**
+     * Value of {@code @Entity} when no collection name is given.
+     */
+    private static final String DEFAULT_ENTITY_NAME = ".";
+
+    private final Class<E> entityClass;
+
+    private final Field idField;
+
+    private final String defaultCollectionName;
+
+    private final boolean isAuditable;
+
+    /**
+     * Collections by name, shared with the collection views of this DAO.
+     */
+    private final Map<String, InMemoryCollection<E>> collections;
+
+    /**
+     * Indexed fields, mapped to whether their index is ordered, shared with the collection views of this DAO.
+     */
+    private final Map<String, Boolean> indexedFields;
+
+    /**
+     * Name of the collection this DAO is a view of, null if it is not a view.
+     */
+    private final String viewCollectionName;
+
+    /**
+     * Instantiates a new in-memory DAO for the entity type given by the type arguments of a subclass.
+     */
+    protected IgniteBaseDAOInMemoryImpl() {
+        this(null, new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), null);
+    }
+
+    /**
+     * Instantiates a new in-memory DAO for an entity type.
+     *
+     * @param entityClass the entity type
+     */
+    public IgniteBaseDAOInMemoryImpl(Class<E> entityClass) {
+        this(entityClass, new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), null);
+    }
+
+    /**
+     * Instantiates a new in-memory DAO.
+     *
+     * @param entityClass the entity type, null to take it from the type arguments of the subclass
+     * @param collections the collections by name
+     * @param indexedFields the indexed fields
+     * @param viewCollectionName the name of the collection this DAO is a view of, null if it is not a view
+     * @throws IllegalArgumentException if the entity type has no {@code @Id} field
+     */
+    @SuppressWarnings("unchecked")
+    private IgniteBaseDAOInMemoryImpl(Class<E> entityClass, Map<String, InMemoryCollection<E>> collections,
+            Map<String, Boolean> indexedFields, String viewCollectionName) {
+        if (entityClass == null) {
+            ParameterizedType pt = (ParameterizedType) TypeToken.of(getClass())
+                    .getSupertype(IgniteBaseDAOInMemoryImpl.class).getType();
+            entityClass = (Class<E>) pt.getActualTypeArguments()[1];
+        }
+        this.entityClass = entityClass;
+        this.idField = EntityPaths.idField(entityClass);
+        if (idField == null) {
+            throw new IllegalArgumentException("Entity " + entityClass.getName() + " has no @Id field");
+        }
+        Entity entity = entityClass.getAnnotation(Entity.class);
+        this.defaultCollectionName = entity != null && !DEFAULT_ENTITY_NAME.equals(entity.value())
+                ? entity.value() : entityClass.getSimpleName();
+        this.isAuditable = AuditableIgniteEntity.class.isAssignableFrom(entityClass);
+        this.collections = collections;
+        this.indexedFields = indexedFields;
+        this.viewCollectionName = viewCollectionName;
+        if (viewCollectionName == null) {
+            declareIndexes();
+        }
+        LOGGER.debug("entity class:{}, collection:{}, indexes:{}", entityClass, defaultCollectionName,
+                indexedFields);
+    }
+
+    /**
+     * Declares the indexes of the {@code @Indexes} and {@code @Indexed} annotations of the entity type. Only the
+     * first field of a compound index is indexed, as that prefix is the only part MongoDB can use on its own;
+     * geospatial and text indexes are left out.
+     */
+    private void declareIndexes() {
+        for (Class<?> c = entityClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            Indexes indexes = c.getAnnotation(Indexes.class);
+            for (Index index : indexes == null ? new Index[0] : indexes.value()) {
+                if (index.fields().length > 0) {
+                    IndexType type = index.fields()[0].type();
+                    if (type == IndexType.ASC || type == IndexType.DESC || type == IndexType.HASHED) {
+                        indexedFields.putIfAbsent(index.fields()[0].value(), type != IndexType.HASHED);
+                    }
+                }
+            }
+        }
+        for (Field field : EntityPaths.declaredFields(entityClass)) {
+            if (field.isAnnotationPresent(Indexed.class)) {
+                indexedFields.putIfAbsent(field.getName(), true);
+            }
+        }
+    }
+
+    /**
+     * Creates a secondary index on a field of the entities, in every collection of this DAO and its views.
+     *
+     * @param field the dotted path of the field
+     * @param ordered true for an index that also answers range criteria, false for a hash index
+     */
+    public void createIndex(String field, boolean ordered) {
+        indexedFields.putIfAbsent(field, ordered);
+        collections.values().forEach(collection -> collection.createIndex(field, indexedFields.get(field)));
+    }
+
+    /**
+     * Returns the name of the collection operations are applied to.
+     *
+     * @return the overriding collection name if set, the collection name of the entity type otherwise
+     */
+    private String getTargetCollectionName() {
+        String collectionName = getOverridingCollectionName();
+        return StringUtils.isNotEmpty(collectionName) ? collectionName : defaultCollectionName;
+    }
+
+    /**
+     * Returns the collection operations are applied to.
+     *
+     * @param create whether to create the collection when missing, as a first write does in MongoDB
+     * @return the collection, null if it does not exist and is not created
+     */
+    private InMemoryCollection<E> getCollection(boolean create) {
+        String collectionName = getTargetCollectionName();
+        if (!create) {
+            return collections.get(collectionName);
+        }
+        return collections.computeIfAbsent(collectionName, name -> {
+            InMemoryCollection<E> collection = new InMemoryCollection<>(idField.getName());
+            indexedFields.forEach(collection::createIndex);
+            return collection;
+        });
+    }
+
+    /**
+     * Returns the id of an entity.
+     *
+     * @param entity the entity
+     * @return the id, null if not set
+     */
+    private Object getId(E entity) {
+        try {
+            return idField.get(entity);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read the id of " + entityClass.getName(), e);
+        }
+    }
+
+    /**
+     * Sets the id of an entity.
+     *
+     * @param entity the entity
+     * @param id the id
+     */
+    private void setId(E entity, Object id) {
+        try {
+            idField.set(entity, id);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot set the id of " + entityClass.getName(), e);
+        }
+    }
+
+    /**
+     * Generates an id for an entity without one, as the driver does on insert.
+     *
+     * @return an object id, or its hex string for string ids
+     * @throws IllegalArgumentException if ids of the type of the id field cannot be generated
+     */
+    private Object generateId() {
+        if (idField.getType() == ObjectId.class) {
+            return new ObjectId();
+        } else if (idField.getType() == String.class) {
+            return new ObjectId().toHexString();
+        }
+        throw new IllegalArgumentException("Ids of type " + idField.getType().getName() + " of entity "
+                + entityClass.getName() + " cannot be generated, the id must be set");
+    }
+
+    /**
+     * Saves the specified entity.
+     *
+     * @param entity the entity to save
+     * @return the saved entity
+     */
+    @Override
+    public E save(E entity) {
+        Object id = getId(entity);
+        if (id == null) {
+            id = generateId();
+            setId(entity, id);
+        }
+        if (isAuditable) {
+            ((AuditableIgniteEntity) entity).setLastUpdatedTime(LocalDateTime.now());
+        }
+        getCollection(true).put(id, EntityCopier.copy(entity));
+        LOGGER.debug("Saved entity with id {} to collection {}", id, getTargetCollectionName());
+        return entity;
+    }
+
+    /**
+     * Saves the specified entity. The write concern has no meaning in memory.
+     *
+     * @param entity the entity to save
+     * @param writeConcern the write concern
+     * @return the saved entity
+     */
+    @Override
+    public E save(E entity, WriteConcern writeConcern) {
+        return save(entity);
+    }
+
+    /**
+     * Saves all the specified entities.
+     *
+     * @param entities the entities to save
+     * @return the saved entities
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<E> saveAll(E... entities) {
+        List<E> saved = new ArrayList<>(entities.length);
+        for (E entity : entities) {
+            saved.add(save(entity));
+        }
+        return saved;
+    }
+
+    /**
+     * Finds an entity by its ID.
+     *
+     * @param id the ID of the entity
+     * @return the found entity, or null if not found
+     */
+    @Override
+    public E findById(K id) {
+        InMemoryCollection<E> collection = getCollection(false);
+        return collection == null ? null : EntityCopier.copy(collection.get(id));
+    }
+
+    /**
+     * Finds entities by their IDs.
+     *
+     * @param ids the IDs of the entities
+     * @return a list of found entities
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<E> findByIds(K... ids) {
+        return find(new IgniteQuery(new IgniteCriteriaGroup(new IgniteCriteria(EntityPaths.ID_FIELD, Operator.IN,
+                Arrays.asList(ids)))));
+    }
+
+    /**
+     * Finds all entities.
+     *
+     * @return a list of all entities
+     */
+    @Override
+    public List<E> findAll() {
+        return find(new IgniteQuery());
+    }
+
+    /**
+     * Finds entities based on the specified query.
+     *
+     * @param c the query to match
+     * @return a list of found entities
+     */
+    @Override
+    public List<E> find(IgniteQuery c) {
+        List<E> result = new ArrayList<>();
+        for (E entity : select(c)) {
+            result.add(c.getFieldNames().length == 0 ? EntityCopier.copy(entity) : project(entity, c.getFieldNames()));
+        }
+        return result;
+    }
+
+    /**
+     * Finds entities matching the specified query, copying only the fields of a projection type. Each field of
+     * the projection type, or each component of a record, takes the entity field with the same name.
+     *
+     * @param <P> the projection type
+     * @param c the query to match
+     * @param projectionType the projection type
+     * @return a list of projections of the matching entities
+     */
+    @Override
+    public <P> List<P> find(IgniteQuery c, Class<P> projectionType) {
+        List<P> result = new ArrayList<>();
+        for (E entity : select(c)) {
+            result.add(project(entity, projectionType));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the documents stored for the entities matching the specified query as raw BSON. The field names of
+     * the query, if any, restrict the returned fields.
+     *
+     * @param c the query to match
+     * @return a list of the raw matching documents
+     */
+    @Override
+    public List<RawBsonDocument> findRaw(IgniteQuery c) {
+        List<String> fields = new ArrayList<>();
+        for (String fieldName : c.getFieldNames()) {
+            fields.add(EntityDocuments.mappedPath(entityClass, fieldName));
+        }
+        List<RawBsonDocument> result = new ArrayList<>();
+        for (E entity : select(c)) {
+            Document document = EntityDocuments.toDocument(entity);
+            result.add(EntityDocuments.toRaw(fields.isEmpty() ? document
+                    : AggregationEvaluator.include(document, fields, true)));
+        }
+        return result;
+    }
+
+    /**
+     * Streams the documents stored for the entities matching the specified query as raw BSON.
+     *
+     * @param c the query to match
+     * @return a Flux of the raw matching documents
+     */
+    @Override
+    public Flux<RawBsonDocument> streamFindRaw(IgniteQuery c) {
+        return Flux.defer(() -> Flux.fromIterable(findRaw(c)));
+    }
+
+    /**
+     * Finds entities with paging information based on the specified query.
+     *
+     * @param query the query to match
+     * @return a response containing the found entities and paging information
+     */
+    @Override
+    public IgnitePagingInfoResponse<E> findWithPagingInfo(IgniteQuery query) {
+        long count = countByQuery(query);
+        List<E> result = find(query);
+        return new IgnitePagingInfoResponse<>(result, count);
+    }
+
+    /**
+     * Deletes an entity by its ID.
+     *
+     * @param id the ID of the entity
+     * @return true if the entity was deleted, false otherwise
+     */
+    @Override
+    public boolean deleteById(K id) {
+        InMemoryCollection<E> collection = getCollection(false);
+        return collection != null && collection.remove(id);
+    }
+
+    /**
+     * Deletes entities by their IDs.
+     *
+     * @param ids the IDs of the entities
+     * @return the number of deleted entities
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public int deleteByIds(K... ids) {
+        int deleted = 0;
+        for (K id : new HashSet<>(Arrays.asList(ids))) {
+            deleted += deleteById(id) ? 1 : 0;
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes entities based on the specified query.
+     *
+     * @param igniteQuery the query to match
+     * @return the number of deleted entities
+     */
+    @Override
+    public int deleteByQuery(IgniteQuery igniteQuery) {
+        InMemoryCollection<E> collection = getCollection(false);
+        int deleted = 0;
+        for (E entity : matching(igniteQuery)) {
+            deleted += collection.remove(getId(entity)) ? 1 : 0;
+        }
+        return deleted;
+    }
+
+    /**
+     * Deletes all entities.
+     *
+     * @return true if any entity was deleted, false otherwise
+     */
+    @Override
+    public boolean deleteAll() {
+        InMemoryCollection<E> collection = getCollection(false);
+        if (collection == null || collection.size() == 0) {
+            return false;
+        }
+        collection.clear();
+        return true;
+    }
+
+    /**
+     * Updates the specified entity.
+     *
+     * @param entity the entity to update
+     * @return true
+     */
+    @Override
+    public boolean update(E entity) {
+        save(entity);
+        return true;
+    }
+
+    /**
+     * Updates the entity with the specified ID.
+     *
+     * @param id the ID of the entity to update
+     * @param updates the updates to apply
+     * @return true if the entity was modified, false otherwise
+     */
+    @Override
+    public boolean update(K id, Updates updates) {
+        InMemoryCollection<E> collection = getCollection(false);
+        return collection != null && collection.modify(id, entity -> apply(entity, updates, true));
+    }
+
+    /**
+     * Updates entities based on the specified query and updates.
+     *
+     * @param c the query to match
+     * @param updates the updates to apply
+     * @return true if any entity was modified, false otherwise
+     */
+    @Override
+    public boolean update(IgniteQuery c, Updates updates) {
+        return updateMatching(c, updates, true);
+    }
+
+    /**
+     * Updates all the specified entities.
+     *
+     * @param entities the entities to update
+     * @return an array of booleans indicating whether each entity was updated
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean[] updateAll(E... entities) {
+        saveAll(entities);
+        boolean[] results = new boolean[entities.length];
+        Arrays.fill(results, true);
+        return results;
+    }
+
+    /**
+     * Replaces the first entity matching the specified query with an entity, or saves the entity when none
+     * matches. The entity takes the id of the entity it replaces when it has none.
+     *
+     * @param igniteQuery the query to match
+     * @param entity the entity to upsert
+     * @return true if an entity was modified or inserted, false otherwise
+     * @throws IllegalArgumentException if the entity would change the id of the entity it replaces
+     */
+    @Override
+    public boolean upsert(IgniteQuery igniteQuery, E entity) {
+        List<E> matched = matching(igniteQuery);
+        if (matched.isEmpty()) {
+            save(entity);
+            return true;
+        }
+        E existing = matched.get(0);
+        Object id = getId(existing);
+        Object entityId = getId(entity);
+        if (entityId == null) {
+            setId(entity, id);
+        } else if (!QueryEvaluator.valuesEqual(entityId, id)) {
+            throw new IllegalArgumentException("Upsert cannot change the id " + id + " of the matched entity to "
+                    + entityId);
+        }
+        save(entity);
+        return !QueryEvaluator.valuesEqual(existing, entity);
+    }
+
+    /**
+     * Applies updates to the entities matching the specified query, without touching their last updated time.
+     *
+     * @param c the query to match
+     * @param updates the updates to apply
+     * @return true if any entity was modified, false otherwise
+     */
+    @Override
+    public boolean removeAll(IgniteQuery c, Updates updates) {
+        return updateMatching(c, updates, false);
+    }
+
+    /**
+     * Deletes the specified entity.
+     *
+     * @param entity the entity to delete
+     * @return true if the entity was deleted, false otherwise
+     */
+    @Override
+    public boolean delete(E entity) {
+        InMemoryCollection<E> collection = getCollection(false);
+        return collection != null && collection.remove(getId(entity));
+    }
+
+    /**
+     * Finds the distinct values of a field among the entities matching the specified query. Array fields
+     * contribute their elements.
+     *
+     * @param igniteQuery the query to match
+     * @param field the field to find distinct values for
+     * @return a list of distinct values
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<K> distinct(IgniteQuery igniteQuery, String field) {
+        return (List<K>) distinctValues(igniteQuery, field, Object.class);
+    }
+
+    /**
+     * Finds the distinct values of a field among the entities matching the specified query, converted to a
+     * result type.
+     *
+     * @param <T> the result type
+     * @param igniteQuery the query to match
+     * @param field the field to find distinct values for
+     * @param resultType the result type
+     * @return a list of distinct values
+     */
+    @Override
+    public <T> List<T> distinct(IgniteQuery igniteQuery, String field, Class<T> resultType) {
+        return distinctValues(igniteQuery, field, resultType);
+    }
+
+    /**
+     * Streams the distinct values of a field among the entities matching the specified query. The values are
+     * found when the flux is subscribed to.
+     *
+     * @param <T> the result type
+     * @param igniteQuery the query to match
+     * @param field the field to find distinct values for
+     * @param resultType the result type
+     * @return a flux of distinct values
+     */
+    @Override
+    public <T> Flux<T> streamDistinct(IgniteQuery igniteQuery, String field, Class<T> resultType) {
+        return Flux.defer(() -> Flux.fromIterable(distinctValues(igniteQuery, field, resultType)));
+    }
+
+    /**
+     * Returns the name of the collection this DAO is a view of.
+     *
+     * @return the collection name, null if this DAO is not a view
+     */
+    @Override
+    public String getOverridingCollectionName() {
+        return viewCollectionName;
+    }
+
+    /**
+     * Returns a view of this DAO on another collection. The view shares the store and the indexes of this DAO.
+     *
+     * @param collectionName the name of the collection
+     * @return the view
+     * @throws IllegalArgumentException if the collection name is empty
+     */
+    @Override
+    public IgniteBaseDAO<K, E> withCollection(String collectionName) {
+        if (StringUtils.isEmpty(collectionName)) {
+            throw new IllegalArgumentException("Collection name of a collection view must be set");
+        }
+        return new IgniteBaseDAOInMemoryImpl<>(entityClass, collections, indexedFields, collectionName);
+    }
+
+    /**
+     * Counts entities based on the specified query.
+     *
+     * @param igniteQuery the query to match
+     * @return the number of matching entities
+     */
+    @Override
+    public long countByQuery(IgniteQuery igniteQuery) {
+        return matching(igniteQuery).size();
+    }
+
+    /**
+     * Streams entities based on the specified query. The entities are found when the flux is subscribed to.
+     *
+     * @param igniteQuery the query to match
+     * @return a flux of matching entities
+     */
+    @Override
+    public Flux<E> streamFind(IgniteQuery igniteQuery) {
+        return Flux.defer(() -> Flux.fromIterable(find(igniteQuery)));
+    }
+
+    /**
+     * Counts all entities.
+     *
+     * @return the number of entities
+     */
+    @Override
+    public long countAll() {
+        InMemoryCollection<E> collection = getCollection(false);
+        return collection == null ? 0 : collection.size();
+    }
+
+    /**
+     * Counts all entities. The count is always exact in memory.
+     *
+     * @return the number of entities
+     */
+    @Override
+    public long estimatedCount() {
+        return countAll();
+    }
+
+    /**
+     * Streams all entities. The entities are found when the flux is subscribed to.
+     *
+     * @return a flux of all entities
+     */
+    @Override
+    public Flux<E> streamFindAll() {
+        return Flux.defer(() -> Flux.fromIterable(findAll()));
+    }
+
+    /**
+     * Runs an aggregation pipeline on the documents stored for the entities. The match stages leading the
+     * pipeline are evaluated against the entities, as MongoDB maps their field names through the entity; later
+     * stages address the stored field names. A lookup joins the documents of another collection of this DAO.
+     *
+     * @param <R> the type of the result documents
+     * @param aggregation the aggregation pipeline
+     * @param resultType the class the result documents are decoded into
+     * @return the result documents
+     * @throws IllegalArgumentException if a projection mixes included and excluded fields other than
+     *         {@code _id}, or if a result document cannot be decoded into the result type
+     */
+    @Override
+    public <R> List<R> aggregate(IgniteAggregation aggregation, Class<R> resultType) {
+        List<Stage> stages = aggregation.getStages();
+        List<E> entities = matching(new IgniteQuery());
+        int start = 0;
+        while (start < stages.size() && stages.get(start) instanceof MatchStage match) {
+            entities.removeIf(entity -> !QueryEvaluator.matches(entity, match.getQuery()));
+            start++;
+        }
+        List<Document> documents = new ArrayList<>();
+        entities.forEach(entity -> documents.add(EntityDocuments.toDocument(entity)));
+        List<R> result = new ArrayList<>();
+        for (Document document : AggregationEvaluator.evaluate(stages.subList(start, stages.size()), documents,
+                this::collectionDocuments)) {
+            result.add(EntityDocuments.fromDocument(document, resultType));
+        }
+        return result;
+    }
+
+    /**
+     * Streams the results of an aggregation pipeline on the documents stored for the entities.
+     *
+     * @param <R> the type of the result documents
+     * @param aggregation the aggregation pipeline
+     * @param resultType the class the result documents are decoded into
+     * @return a Flux of the result documents
+     */
+    @Override
+    public <R> Flux<R> streamAggregate(IgniteAggregation aggregation, Class<R> resultType) {
+        return Flux.defer(() -> Flux.fromIterable(aggregate(aggregation, resultType)));
+    }
+
+    /**
+     * Finds the entities nearest to a point, nearest first, with their distance from it. Entities without a
+     * point at the field are left out.
+     *
+     * @param field the field holding the GeoJSON point of the entities
+     * @param near the point, with the maximum distance as radius, 0 for none
+     * @param query the query filtering and paging the entities
+     * @return the entities with their distance, nearest first
+     * @throws IllegalArgumentException if only one of page number and page size is set
+     */
+    @Override
+    public List<GeoNearResult<E>> geoNear(String field, Coordinate near, IgniteQuery query) {
+        List<GeoNearResult<E>> results = new ArrayList<>();
+        for (E entity : matching(query)) {
+            double distance = QueryEvaluator.distance(entity, field, near);
+            if (distance != Double.MAX_VALUE && (near.getRadius() <= 0 || distance <= near.getRadius())) {
+                results.add(new GeoNearResult<>(entity, distance));
+            }
+        }
+        results.sort(Comparator.comparingDouble(GeoNearResult::getDistance));
+        List<GeoNearResult<E>> selected = new ArrayList<>();
+        for (GeoNearResult<E> result : page(results, query)) {
+            selected.add(new GeoNearResult<>(EntityCopier.copy(result.getEntity()), result.getDistance()));
+        }
+        return selected;
+    }
+
+    /**
+     * Checks if a collection exists, that is if anything was ever saved to it.
+     *
+     * @param collectionName the name of the collection
+     * @return true if the collection exists, false otherwise
+     */
+    @Override
+    public boolean collectionExists(String collectionName) {
+        return collections.containsKey(collectionName);
+    }
+
+    /**
+     * Copies the set fields of an entity onto the stored entity with the same id and saves the result. Null
+     * fields and primitive fields that are not positive are left as stored; map fields are merged key by key.
+     * An entity that is not stored yet is saved as is.
+     *
+     * @param entity the entity containing the updated values
+     * @return true
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean getAndUpdate(E entity) {
+        E existing = findById((K) getId(entity));
+        if (existing == null) {
+            save(entity);
+            return true;
+        }
+        for (Field field : EntityPaths.declaredFields(entity.getClass())) {
+            try {
+                Object value = field.get(entity);
+                if (value == null || field.getType().isPrimitive()
+                        && !(value instanceof Number number && number.doubleValue() > 0)) {
+                    continue;
+                }
+                Object current = field.get(existing);
+                if (value instanceof Map && current instanceof Map) {
+                    ((Map<Object, Object>) current).putAll(EntityCopier.copy((Map<Object, Object>) value));
+                } else {
+                    field.set(existing, EntityCopier.copy(value));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot update field " + field.getName(), e);
+            }
+        }
+        save(existing);
+        return true;
+    }
+
+    /**
+     * Returns the stored entities matching a query, in natural order, ignoring its sort and paging.
+     *
+     * @param c the query to match
+     * @return the matching entities, not copied
+     */
+    private List<E> matching(IgniteQuery c) {
+        InMemoryCollection<E> collection = getCollection(false);
+        if (collection == null) {
+            return Collections.emptyList();
+        }
+        List<E> matched = new ArrayList<>();
+        for (E entity : collection.candidates(c)) {
+            if (QueryEvaluator.matches(entity, c)) {
+                matched.add(entity);
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Returns the stored entities matching a query, sorted and paged as the query asks. Without a sort, a query
+     * with a {@link Operator#NEAR} criteria returns the nearest entities first.
+     *
+     * @param c the query to match
+     * @return the selected entities, not copied
+     * @throws IllegalArgumentException if only one of page number and page size is set
+     */
+    private List<E> select(IgniteQuery c) {
+        List<E> selected = matching(c);
+        IgniteCriteria near = findNearCriteria(c);
+        if (!c.getOrderBys().isEmpty()) {
+            selected.sort(QueryEvaluator.comparator(c.getOrderBys()));
+        } else if (near != null) {
+            selected.sort(Comparator.comparingDouble(entity -> QueryEvaluator.distance(entity, near.getField(),
+                    (Coordinate) near.getVal())));
+        }
+        return page(selected, c);
+    }
+
+    /**
+     * Returns the page of a list a query asks for.
+     *
+     * @param <T> the type of the elements
+     * @param list the list
+     * @param c the query
+     * @return the page, the whole list if the query is not paged
+     * @throws IllegalArgumentException if only one of page number and page size is set
+     */
+    private static <T> List<T> page(List<T> list, IgniteQuery c) {
+        int pageSize = c.getPageSize();
+        int pageNumber = c.getPageNumber();
+        if ((pageNumber > 0) != (pageSize > 0) || pageNumber < 0 || pageSize < 0) {
+            throw new IllegalArgumentException("Both pageSize and pageNumber should be set.");
+        }
+        if (pageNumber == 0) {
+            return list;
+        }
+        int from = Math.min(list.size(), (pageNumber - 1) * pageSize);
+        return list.subList(from, Math.min(list.size(), from + pageSize));
+    }
+
+    /**
+     * Returns the first {@link Operator#NEAR} criteria of a query.
+     *
+     * @param c the query
+     * @return the criteria, null if the query has none
+     */
+    private static IgniteCriteria findNearCriteria(IgniteQuery c) {
+        for (IgniteCriteriaGroup group : c.getCriteriaGroups()) {
+            for (IgniteCriteria criteria : group.getCriterias()) {
+                if (Operator.NEAR == criteria.getOp()) {
+                    return criteria;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Applies updates to the entities matching a query.
+     *
+     * @param c the query to match
+     * @param updates the updates to apply
+     * @param touch whether to set the last updated time of the entities
+     * @return true if any entity was modified, false otherwise
+     */
+    private boolean updateMatching(IgniteQuery c, Updates updates, boolean touch) {
+        InMemoryCollection<E> collection = getCollection(false);
+        boolean modified = false;
+        for (E entity : matching(c)) {
+            modified |= collection.modify(getId(entity), e -> apply(e, updates, touch));
+        }
+        return modified;
+    }
+
+    /**
+     * Applies updates to an entity.
+     *
+     * @param entity the entity
+     * @param updates the updates to apply
+     * @param touch whether to set the last updated time of the entity
+     */
+    private void apply(E entity, Updates updates, boolean touch) {
+        updates.traverse(new UpdatesApplier(entity));
+        if (touch && isAuditable) {
+            ((AuditableIgniteEntity) entity).setLastUpdatedTime(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Copies the id and the projected fields of an entity into a new entity. A dotted field projects its whole
+     * top-level field.
+     *
+     * @param entity the entity
+     * @param fieldNames the projected fields
+     * @return the projection
+     * @throws IllegalArgumentException if the entity type has no no-arg constructor
+     */
+    private E project(E entity, String[] fieldNames) {
+        E projection = EntityPaths.instantiate(entityClass);
+        if (projection == null) {
+            throw new IllegalArgumentException("Entity " + entityClass.getName() + " has no no-arg constructor");
+        }
+        Set<String> names = new HashSet<>();
+        names.add(idField.getName());
+        for (String fieldName : fieldNames) {
+            String name = fieldName.split("\\.")[0];
+            names.add(EntityPaths.ID_FIELD.equals(name) ? idField.getName() : name);
+        }
+        EntityCopier.copyFields(entity, projection, names);
+        return projection;
+    }
+
+    /**
+     * Copies the fields of an object that a projection type declares into a new instance of that type.
+     *
+     * @param <P> the projection type
+     * @param source the object
+     * @param projectionType the projection type, a class with a no-arg constructor or a record
+     * @return the projection
+     * @throws IllegalArgumentException if the projection type cannot be instantiated or a field cannot be
+     *         converted to the type the projection type declares
+     */
+    private static <P> P project(Object source, Class<P> projectionType) {
+        if (projectionType.isRecord()) {
+            RecordComponent[] components = projectionType.getRecordComponents();
+            Object[] values = new Object[components.length];
+            Class<?>[] types = new Class<?>[components.length];
+            for (int i = 0; i < components.length; i++) {
+                types[i] = components[i].getType();
+                values[i] = projectValue(source, components[i].getName(), types[i]);
+            }
+            try {
+                Constructor<P> constructor = projectionType.getDeclaredConstructor(types);
+                constructor.setAccessible(true);
+                return constructor.newInstance(values);
+            } catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+                     | InvocationTargetException e) {
+                throw new IllegalArgumentException("Cannot instantiate projection " + projectionType.getName(), e);
+            }
+        }
+        P projection = EntityPaths.instantiate(projectionType);
+        if (projection == null) {
+            throw new IllegalArgumentException("Projection " + projectionType.getName()
+                    + " has no no-arg constructor");
+        }
+        for (Field field : EntityPaths.declaredFields(projectionType)) {
+            try {
+                field.set(projection, projectValue(source, field.getName(), field.getType()));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot set field " + field.getName() + " of projection "
+                        + projectionType.getName(), e);
+            }
+        }
+        return projection;
+    }
+
+    /**
+     * Returns the value of a field of an object converted to the type a projection declares for it. Embedded
+     * objects are projected in turn when the projection declares a type of its own for them.
+     *
+     * @param source the object
+     * @param name the field name
+     * @param type the declared type
+     * @return the converted value
+     */
+    private static Object projectValue(Object source, String name, Class<?> type) {
+        List<Object> values = EntityPaths.resolve(source, name);
+        Object value = values.isEmpty() ? null : EntityCopier.copy(values.get(0));
+        try {
+            return EntityPaths.coerce(value, type);
+        } catch (IllegalArgumentException e) {
+            if (EntityPaths.isJdkType(type) || EntityPaths.isArray(value)) {
+                throw e;
+            }
+            return project(value, type);
+        }
+    }
+
+    /**
+     * Returns the distinct values of a field among the entities matching a query, in order of appearance.
+     *
+     * @param <T> the result type
+     * @param c the query to match
+     * @param field the field
+     * @param resultType the result type
+     * @return the distinct values
+     */
+    private <T> List<T> distinctValues(IgniteQuery c, String field, Class<T> resultType) {
+        Map<Object, Object> values = new LinkedHashMap<>();
+        for (E entity : matching(c)) {
+            for (Object value : QueryEvaluator.flatten(EntityPaths.resolve(entity, field))) {
+                if (value != null) {
+                    values.putIfAbsent(QueryEvaluator.key(value), value);
+                }
+            }
+        }
+        List<T> result = new ArrayList<>(values.size());
+        for (Object value : values.values()) {
+            result.add(resultType.cast(EntityPaths.coerce(EntityCopier.copy(value), resultType)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the documents stored for the entities of a collection of this DAO.
+     *
+     * @param collectionName the collection name
+     * @return the documents, empty if the collection does not exist
+     */
+    private List<Document> collectionDocuments(String collectionName) {
+        InMemoryCollection<E> collection = collections.get(collectionName);
+        List<Document> documents = new ArrayList<>();
+        if (collection != null) {
+            for (E entity : collection.candidates(new IgniteQuery())) {
+                documents.add(EntityDocuments.toDocument(entity));
+            }
+        }
+        return documents;
+    }
+}
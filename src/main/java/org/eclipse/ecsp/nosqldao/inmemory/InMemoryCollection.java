@@ -0,0 +1,289 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.inmemory;
+
+import org.eclipse.ecsp.nosqldao.IgniteCriteria;
+import org.eclipse.ecsp.nosqldao.IgniteCriteriaGroup;
+import org.eclipse.ecsp.nosqldao.IgniteQuery;
+import org.eclipse.ecsp.nosqldao.LogicalOperator;
+import org.eclipse.ecsp.nosqldao.Operator;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Entities of one in-memory collection, kept in insertion order like the natural order of a MongoDB collection,
+ * together with their secondary indexes. Reads are lock-free; writes are serialized so that entities and
+ * indexes change together.
+ *
+ * @param <E> the entity type
+ */
+class InMemoryCollection<E> {
+
+    /**
+     * Name of the id field of the entities.
+     */
+    private final String idField;
+
+    /**
+     * Entities by insertion sequence.
+     */
+    private final ConcurrentSkipListMap<Long, E> entities = new ConcurrentSkipListMap<>();
+
+    /**
+     * Insertion sequences by entity id key, ids being keyed like index values so that numeric ids match
+     * whatever their Java type.
+     */
+    private final Map<Object, Long> sequences = new ConcurrentHashMap<>();
+
+    /**
+     * Secondary indexes by field.
+     */
+    private final Map<String, InMemoryIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Guards writes.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * The last insertion sequence handed out.
+     */
+    private long lastSequence;
+
+    /**
+     * Instantiates a new in-memory collection.
+     *
+     * @param idField the name of the id field of the entities
+     */
+    InMemoryCollection(String idField) {
+        this.idField = idField;
+    }
+
+    /**
+     * Returns the entity with an id.
+     *
+     * @param id the id
+     * @return the stored entity, or null if there is none
+     */
+    E get(Object id) {
+        Long sequence = id == null ? null : sequences.get(QueryEvaluator.key(id));
+        return sequence == null ? null : entities.get(sequence);
+    }
+
+    /**
+     * Inserts an entity, or replaces the entity with the same id in place.
+     *
+     * @param id the id
+     * @param entity the entity to store
+     */
+    void put(Object id, E entity) {
+        Object key = QueryEvaluator.key(id);
+        synchronized (writeLock) {
+            Long sequence = sequences.get(id);
+            if (sequence == null) {
+                sequence = ++lastSequence;
+                sequences.put(key, sequence);
+            } else {
+                E previous = entities.get(sequence);
+                indexes.values().forEach(index -> index.remove(key, previous));
+            }
+            entities.put(sequence, entity);
+            indexes.values().forEach(index -> index.add(key, entity));
+        }
+    }
+
+    /**
+     * Applies a change to a copy of the entity with an id and stores the copy in its place, unless the change
+     * leaves the entity as it was.
+     *
+     * @param id the id
+     * @param change the change
+     * @return true if there was an entity with the id and the change modified it
+     */
+    boolean modify(Object id, Consumer<E> change) {
+        synchronized (writeLock) {
+            E current = get(id);
+            if (current == null) {
+                return false;
+            }
+            E changed = EntityCopier.copy(current);
+            change.accept(changed);
+            if (QueryEvaluator.valuesEqual(current, changed)) {
+                return false;
+            }
+            put(id, changed);
+            return true;
+        }
+    }
+
+    /**
+     * Removes the entity with an id.
+     *
+     * @param id the id
+     * @return true if there was an entity with the id
+     */
+    boolean remove(Object id) {
+        Object key = QueryEvaluator.key(id);
+        synchronized (writeLock) {
+            Long sequence = sequences.remove(key);
+            if (sequence == null) {
+                return false;
+            }
+            E previous = entities.remove(sequence);
+            indexes.values().forEach(index -> index.remove(key, previous));
+            return true;
+        }
+    }
+
+    /**
+     * Removes every entity.
+     */
+    void clear() {
+        synchronized (writeLock) {
+            entities.clear();
+            sequences.clear();
+            indexes.values().forEach(InMemoryIndex::clear);
+        }
+    }
+
+    /**
+     * Returns the number of entities.
+     *
+     * @return the number of entities
+     */
+    int size() {
+        return sequences.size();
+    }
+
+    /**
+     * Creates an index on a field and indexes the entities already stored, unless the field is indexed already.
+     *
+     * @param field the dotted path of the field
+     * @param ordered whether the index answers range criteria
+     */
+    void createIndex(String field, boolean ordered) {
+        synchronized (writeLock) {
+            if (!indexes.containsKey(field)) {
+                InMemoryIndex index = new InMemoryIndex(field, ordered);
+                sequences.forEach((id, sequence) -> index.add(id, entities.get(sequence)));
+                indexes.put(field, index);
+            }
+        }
+    }
+
+    /**
+     * Returns the entities that may match a query, in insertion order. When the query is a conjunction with a
+     * criteria the id or a secondary index can answer, only the entities that criteria selects are returned;
+     * otherwise every entity is. The query still has to be evaluated against each entity returned.
+     *
+     * @param query the query, or null for every entity
+     * @return the candidate entities
+     */
+    Collection<E> candidates(IgniteQuery query) {
+        Set<Object> ids = query == null ? null : plan(query);
+        if (ids == null) {
+            return entities.values();
+        }
+        Map<Long, E> selected = new TreeMap<>();
+        for (Object id : ids) {
+            Long sequence = id == null ? null : sequences.get(id);
+            E entity = sequence == null ? null : entities.get(sequence);
+            if (entity != null) {
+                selected.put(sequence, entity);
+            }
+        }
+        return selected.values();
+    }
+
+    /**
+     * Picks the criteria of a conjunctive query that selects the fewest entities.
+     *
+     * @param query the query
+     * @return the ids of the entities the best criteria selects, or null if no criteria can be used
+     */
+    private Set<Object> plan(IgniteQuery query) {
+        if (query.getIgniteQueryOperatorsList().contains(LogicalOperator.OR)) {
+            return null;
+        }
+        Set<Object> best = null;
+        for (IgniteCriteriaGroup group : query.getCriteriaGroups()) {
+            if (group.getIgniteCriteriaGroupOperatorsList().contains(LogicalOperator.OR)) {
+                continue;
+            }
+            for (IgniteCriteria criteria : group.getCriterias()) {
+                Set<Object> ids = lookup(criteria);
+                if (ids != null && (best == null || ids.size() < best.size())) {
+                    best = ids;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the ids of the entities that may match a criteria, from the ids themselves or from an index.
+     *
+     * @param criteria the criteria
+     * @return the candidate ids, or null if the criteria cannot be answered without a scan
+     */
+    private Set<Object> lookup(IgniteCriteria criteria) {
+        if (EntityPaths.ID_FIELD.equals(criteria.getField()) || criteria.getField().equals(idField)) {
+            if (Operator.EQ == criteria.getOp() && criteria.getVal() != null) {
+                return Collections.singleton(QueryEvaluator.key(criteria.getVal()));
+            }
+            if (Operator.IN == criteria.getOp() && criteria.getVal() instanceof Iterable<?> values) {
+                Set<Object> ids = new HashSet<>();
+                values.forEach(value -> ids.add(QueryEvaluator.key(value)));
+                return ids;
+            }
+        }
+        InMemoryIndex index = indexes.get(criteria.getField());
+        return index == null ? null : index.lookup(criteria);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.inmemory;
+
+import org.eclipse.ecsp.nosqldao.IgniteCriteria;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Secondary index of an in-memory collection: maps the values of one field to the ids of the entities holding
+ * them. A hash index answers equality and membership criteria; an ordered index also answers range criteria.
+ * Like MongoDB multikey indexes, an entity holding an array is indexed under each element.
+ */
+class InMemoryIndex {
+
+    /**
+     * The dotted path of the indexed field.
+     */
+    private final String field;
+
+    /**
+     * Entity ids by index key.
+     */
+    private final Map<Object, Set<Object>> entries;
+
+    /**
+     * Instantiates a new in-memory index.
+     *
+     * @param field the dotted path of the indexed field
+     * @param ordered whether the index answers range criteria
+     */
+    InMemoryIndex(String field, boolean ordered) {
+        this.field = field;
+        this.entries = ordered ? new ConcurrentSkipListMap<>(QueryEvaluator::compare) : new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Indexes an entity.
+     *
+     * @param id the id of the entity
+     * @param entity the entity
+     */
+    void add(Object id, Object entity) {
+        for (Object key : keys(entity)) {
+            entries.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    /**
+     * Removes an entity from the index.
+     *
+     * @param id the id of the entity
+     * @param entity the entity as it was indexed
+     */
+    void remove(Object id, Object entity) {
+        for (Object key : keys(entity)) {
+            entries.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Removes every entity from the index.
+     */
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the ids of the entities that may match a criteria on the indexed field. Entities missing the
+     * field are not indexed, so criteria that can match them are not answered.
+     *
+     * @param criteria the criteria
+     * @return the candidate ids, or null if the index cannot answer the criteria
+     */
+    Set<Object> lookup(IgniteCriteria criteria) {
+        Object val = criteria.getVal();
+        switch (criteria.getOp()) {
+            case EQ:
+                return isIndexable(val) ? ids(entries.get(QueryEvaluator.key(val)), new HashSet<>()) : null;
+            case IN:
+                if (!(val instanceof Iterable)) {
+                    return null;
+                }
+                Set<Object> ids = new HashSet<>();
+                for (Object candidate : (Iterable<?>) val) {
+                    if (!isIndexable(candidate)) {
+                        return null;
+                    }
+                    ids(entries.get(QueryEvaluator.key(candidate)), ids);
+                }
+                return ids;
+            case LT:
+            case LTE:
+            case GT:
+            case GTE:
+                return entries instanceof NavigableMap && isIndexable(val) ? range(criteria) : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the ids indexed under the keys in the range of a comparison criteria. The range may also hold
+     * values of other type brackets; those are filtered out when the query is evaluated.
+     *
+     * @param criteria the comparison criteria
+     * @return the candidate ids
+     */
+    @SuppressWarnings("unchecked")
+    private Set<Object> range(IgniteCriteria criteria) {
+        NavigableMap<Object, Set<Object>> ordered = (NavigableMap<Object, Set<Object>>) entries;
+        Object key = QueryEvaluator.key(criteria.getVal());
+        NavigableMap<Object, Set<Object>> range;
+        switch (criteria.getOp()) {
+            case LT:
+                range = ordered.headMap(key, false);
+                break;
+            case LTE:
+                range = ordered.headMap(key, true);
+                break;
+            case GT:
+                range = ordered.tailMap(key, false);
+                break;
+            default:
+                range = ordered.tailMap(key, true);
+                break;
+        }
+        Set<Object> ids = new HashSet<>();
+        range.values().forEach(values -> ids(values, ids));
+        return ids;
+    }
+
+    /**
+     * Adds indexed ids to a set.
+     *
+     * @param values the ids indexed under a key, possibly null
+     * @param ids the set to add to
+     * @return the set
+     */
+    private static Set<Object> ids(Collection<Object> values, Set<Object> ids) {
+        if (values != null) {
+            ids.addAll(values);
+        }
+        return ids;
+    }
+
+    /**
+     * Returns whether entities matching a value are all found under its key.
+     *
+     * @param val the value of a criteria
+     * @return true for scalar values; null values, patterns, arrays and embedded objects are not indexed
+     */
+    private static boolean isIndexable(Object val) {
+        return QueryEvaluator.isScalar(val);
+    }
+
+    /**
+     * Returns the keys an entity is indexed under.
+     *
+     * @param entity the entity
+     * @return the keys of the scalar values and array elements at the indexed field
+     */
+    private Set<Object> keys(Object entity) {
+        Set<Object> keys = new HashSet<>();
+        for (Object value : QueryEvaluator.flatten(EntityPaths.resolve(entity, field))) {
+            if (QueryEvaluator.isScalar(value)) {
+                keys.add(QueryEvaluator.key(value));
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,807 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.inmemory;
+
+import org.eclipse.ecsp.nosqldao.Coordinate;
+import org.eclipse.ecsp.nosqldao.GeoShape;
+import org.eclipse.ecsp.nosqldao.IgniteCriteria;
+import org.eclipse.ecsp.nosqldao.IgniteCriteriaGroup;
+import org.eclipse.ecsp.nosqldao.IgniteOrderBy;
+import org.eclipse.ecsp.nosqldao.IgniteQuery;
+import org.eclipse.ecsp.nosqldao.LogicalOperator;
+import org.eclipse.ecsp.nosqldao.Operator;
+import org.eclipse.ecsp.nosqldao.Order;
+import org.eclipse.ecsp.nosqldao.utils.NumericConstants;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates {@link IgniteQuery} filters, sorts and geospatial distances against entities with the semantics
+ * MongoDB applies to the documents those entities are stored as: comparisons only match values of the same BSON
+ * type bracket, numbers compare by value whatever their Java type, and a criteria on an array field matches
+ * when any element matches.
+ */
+final class QueryEvaluator {
+
+    /**
+     * Earth radius MongoDB uses for spherical geometry, in meters.
+     */
+    static final double EARTH_RADIUS_METERS = 6378100.0;
+
+    /**
+     * Sort order of the BSON type brackets.
+     */
+    private static final int NULL_BRACKET = 0;
+
+    private static final int NUMBER_BRACKET = 1;
+
+    private static final int STRING_BRACKET = 2;
+
+    private static final int OBJECT_BRACKET = 3;
+
+    private static final int ARRAY_BRACKET = 4;
+
+    private static final int BINARY_BRACKET = 5;
+
+    private static final int OBJECT_ID_BRACKET = 6;
+
+    private static final int BOOLEAN_BRACKET = 7;
+
+    private static final int DATE_BRACKET = 8;
+
+    /**
+     * Tolerance of the comparisons of coordinates, in degrees.
+     */
+    private static final double GEO_TOLERANCE = 1e-9;
+
+    private static final String OBJECT_ID_CLASS = "org.bson.types.ObjectId";
+
+    /**
+     * Java time types stored as BSON dates, besides {@link Date}.
+     */
+    private static final Set<Class<?>> DATE_CLASSES = Set.of(Instant.class, LocalDateTime.class, LocalDate.class,
+            ZonedDateTime.class, OffsetDateTime.class);
+
+    /**
+     * Instantiates a new query evaluator.
+     */
+    private QueryEvaluator() {
+    }
+
+    /**
+     * Returns whether an entity matches a query. A query without criteria matches every entity.
+     *
+     * @param entity the entity
+     * @param query the query
+     * @return true if the entity matches
+     */
+    static boolean matches(Object entity, IgniteQuery query) {
+        List<IgniteCriteriaGroup> groups = query.getCriteriaGroups();
+        return groups.isEmpty() || evaluate(groups, query.getIgniteQueryOperatorsList(),
+                group -> evaluate(group.getCriterias(), group.getIgniteCriteriaGroupOperatorsList(),
+                        criteria -> matches(entity, criteria)));
+    }
+
+    /**
+     * Returns whether an entity matches a single criteria.
+     *
+     * @param entity the entity
+     * @param criteria the criteria
+     * @return true if the entity matches
+     */
+    @SuppressWarnings("checkstyle:CyclomaticComplexity")
+    static boolean matches(Object entity, IgniteCriteria criteria) {
+        List<Object> values = EntityPaths.resolve(entity, criteria.getField());
+        Object val = criteria.getVal();
+        switch (criteria.getOp()) {
+            case EQ:
+                return equalsAny(values, val);
+            case NEQ:
+                return !equalsAny(values, val);
+            case EQI:
+                return equalsAny(values, Pattern.compile("^" + Pattern.quote(val.toString()) + "$",
+                        Pattern.CASE_INSENSITIVE));
+            case CONTAINS:
+                return equalsAny(values, Pattern.compile(Pattern.quote((String) val)));
+            case CONTAINS_IGNORE_CASE:
+                return equalsAny(values, Pattern.compile(Pattern.quote((String) val), Pattern.CASE_INSENSITIVE));
+            case IN:
+                return inAny(values, (Iterable<?>) val);
+            case NOT_IN:
+                return !inAny(values, val instanceof Iterable ? (Iterable<?>) val : Collections.singletonList(val));
+            case LT:
+                return compareAny(values, val, c -> c < 0);
+            case LTE:
+                return compareAny(values, val, c -> c <= 0);
+            case GT:
+                return compareAny(values, val, c -> c > 0);
+            case GTE:
+                return compareAny(values, val, c -> c >= 0);
+            case ELEMENT_MATCH:
+                return elementMatch(values, (IgniteQuery) val);
+            case NEAR:
+                if (val instanceof Coordinate coordinate) {
+                    return distance(values, coordinate) <= coordinate.getRadius();
+                }
+                throw new IllegalArgumentException("Value is not an instance of Coordinates");
+            case GEO_WITHIN:
+            case GEO_INTERSECTS:
+                if (val instanceof GeoShape shape) {
+                    return geoMatch(values, criteria.getOp(), shape);
+                }
+                throw new IllegalArgumentException("Value is not an instance of GeoShape");
+            default:
+                throw new IllegalArgumentException("Invalid Operator");
+        }
+    }
+
+    /**
+     * Evaluates terms joined by logical operators, AND taking precedence over OR as in the query translator.
+     *
+     * @param terms the terms
+     * @param operators the operators between consecutive terms
+     * @param predicate evaluates a single term
+     * @param <T> the type of the terms
+     * @return the result
+     */
+    private static <T> boolean evaluate(List<T> terms, List<LogicalOperator> operators, Predicate<T> predicate) {
+        boolean conjunction = predicate.test(terms.get(0));
+        for (int i = 1; i < terms.size(); i++) {
+            if (LogicalOperator.OR.equals(operators.get(i - 1))) {
+                if (conjunction) {
+                    return true;
+                }
+                conjunction = predicate.test(terms.get(i));
+            } else {
+                conjunction = conjunction && predicate.test(terms.get(i));
+            }
+        }
+        return conjunction;
+    }
+
+    /**
+     * Returns whether any value, or any element of an array value, equals the given value. A null value
+     * matches missing fields and a pattern matches strings it finds a match in.
+     *
+     * @param values the values of the field
+     * @param val the value to look for
+     * @return true on a match
+     */
+    private static boolean equalsAny(List<Object> values, Object val) {
+        if (val == null) {
+            return values.isEmpty() || values.stream().anyMatch(v -> EntityPaths.isArray(v)
+                    && EntityPaths.elements(v).contains(null));
+        }
+        for (Object value : values) {
+            if (equalsOrMatches(value, val)) {
+                return true;
+            }
+            if (EntityPaths.isArray(value)) {
+                for (Object element : EntityPaths.elements(value)) {
+                    if (equalsOrMatches(element, val)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a value equals another value or, when that value is a pattern, matches it.
+     *
+     * @param value the value of the field
+     * @param val the value or pattern to look for
+     * @return true on a match
+     */
+    private static boolean equalsOrMatches(Object value, Object val) {
+        if (val instanceof Pattern pattern) {
+            return bracket(value) == STRING_BRACKET && pattern.matcher(value.toString()).find();
+        }
+        return valuesEqual(value, val);
+    }
+
+    /**
+     * Returns whether any value matches any of the candidates.
+     *
+     * @param values the values of the field
+     * @param candidates the candidate values
+     * @return true on a match
+     */
+    private static boolean inAny(List<Object> values, Iterable<?> candidates) {
+        for (Object candidate : candidates) {
+            if (equalsAny(values, candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether any value, or any element of an array value, of the same type bracket as the given
+     * value compares to it as required.
+     *
+     * @param values the values of the field
+     * @param val the value to compare to
+     * @param test tests the comparison result
+     * @return true on a match
+     */
+    private static boolean compareAny(List<Object> values, Object val, IntPredicate test) {
+        for (Object value : values) {
+            List<Object> candidates = EntityPaths.isArray(value) && !EntityPaths.isArray(val)
+                    ? EntityPaths.elements(value) : Collections.singletonList(value);
+            for (Object candidate : candidates) {
+                if (bracket(candidate) == bracket(val) && test.test(compare(candidate, val))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether any element of an array value matches a query.
+     *
+     * @param values the values of the field
+     * @param query the query elements must match
+     * @return true on a match
+     */
+    private static boolean elementMatch(List<Object> values, IgniteQuery query) {
+        for (Object value : values) {
+            if (EntityPaths.isArray(value)) {
+                for (Object element : EntityPaths.elements(value)) {
+                    if (element != null && matches(element, query)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the distance from a coordinate to the nearest point stored at a field of an entity.
+     *
+     * @param entity the entity
+     * @param field the field holding GeoJSON points or legacy coordinate pairs
+     * @param coordinate the coordinate
+     * @return the distance in meters, {@link Double#MAX_VALUE} when the entity has no point
+     */
+    static double distance(Object entity, String field, Coordinate coordinate) {
+        return distance(EntityPaths.resolve(entity, field), coordinate);
+    }
+
+    /**
+     * Returns the distance from a coordinate to the nearest of the points held by the given values.
+     *
+     * @param values the values of the field
+     * @param coordinate the coordinate
+     * @return the distance in meters, {@link Double#MAX_VALUE} when no value holds a point
+     */
+    private static double distance(List<Object> values, Coordinate coordinate) {
+        double nearest = Double.MAX_VALUE;
+        for (Object value : values) {
+            double[] point = point(value);
+            if (point != null) {
+                nearest = Math.min(nearest, haversine(point[1], point[0], coordinate.getLatitude(),
+                        coordinate.getLongitude()));
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Returns whether any of the points held by the given values is within or intersects a shape. Polygon and
+     * line edges are straight in longitude and latitude, close to the geodesic edges MongoDB uses as long as
+     * they span a few degrees at most.
+     *
+     * @param values the values of the field
+     * @param operator {@link Operator#GEO_WITHIN} or {@link Operator#GEO_INTERSECTS}
+     * @param shape the shape
+     * @return true if a point matches
+     * @throws IllegalArgumentException if the shape is not valid with the operator
+     */
+    private static boolean geoMatch(List<Object> values, Operator operator, GeoShape shape) {
+        List<Coordinate> coordinates = shape.getCoordinates();
+        boolean within = operator == Operator.GEO_WITHIN;
+        GeoShape.Type type = shape.getType();
+        Predicate<double[]> predicate;
+        if (type == GeoShape.Type.POLYGON) {
+            predicate = point -> onLine(point, coordinates) || insidePolygon(point, coordinates);
+        } else if (within && type == GeoShape.Type.BOX) {
+            predicate = point -> inBox(point, coordinates.get(0), coordinates.get(1));
+        } else if (within && type == GeoShape.Type.CENTER_SPHERE) {
+            predicate = point -> haversine(point[1], point[0], coordinates.get(0).getLatitude(),
+                    coordinates.get(0).getLongitude()) <= shape.getRadius();
+        } else if (!within && type == GeoShape.Type.POINT) {
+            predicate = point -> inBox(point, coordinates.get(0), coordinates.get(0));
+        } else if (!within && type == GeoShape.Type.LINE_STRING) {
+            predicate = point -> onLine(point, coordinates);
+        } else {
+            throw new IllegalArgumentException("Shape " + type + " is not valid with operator " + operator);
+        }
+        for (Object value : values) {
+            double[] point = point(value);
+            if (point != null && predicate.test(point)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a point is within the rectangle between two corners.
+     *
+     * @param point the longitude and latitude of the point
+     * @param bottomLeft the bottom left corner
+     * @param upperRight the upper right corner
+     * @return true if the point is within the rectangle or on its edges
+     */
+    private static boolean inBox(double[] point, Coordinate bottomLeft, Coordinate upperRight) {
+        return point[0] >= Math.min(bottomLeft.getLongitude(), upperRight.getLongitude()) - GEO_TOLERANCE
+                && point[0] <= Math.max(bottomLeft.getLongitude(), upperRight.getLongitude()) + GEO_TOLERANCE
+                && point[1] >= Math.min(bottomLeft.getLatitude(), upperRight.getLatitude()) - GEO_TOLERANCE
+                && point[1] <= Math.max(bottomLeft.getLatitude(), upperRight.getLatitude()) + GEO_TOLERANCE;
+    }
+
+    /**
+     * Returns whether a point is on one of the segments between consecutive points of a line.
+     *
+     * @param point the longitude and latitude of the point
+     * @param line the points of the line
+     * @return true if the point is on the line
+     */
+    private static boolean onLine(double[] point, List<Coordinate> line) {
+        for (int i = 1; i < line.size(); i++) {
+            Coordinate from = line.get(i - 1);
+            Coordinate to = line.get(i);
+            double dx = to.getLongitude() - from.getLongitude();
+            double dy = to.getLatitude() - from.getLatitude();
+            double cross = (point[0] - from.getLongitude()) * dy - (point[1] - from.getLatitude()) * dx;
+            if (Math.abs(cross) <= GEO_TOLERANCE * Math.hypot(dx, dy) && inBox(point, from, to)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether a point is inside a closed ring, by counting the edges a ray from the point crosses.
+     *
+     * @param point the longitude and latitude of the point
+     * @param ring the points of the ring, the last one equal to the first
+     * @return true if the point is inside the ring
+     */
+    private static boolean insidePolygon(double[] point, List<Coordinate> ring) {
+        boolean inside = false;
+        for (int i = 1; i < ring.size(); i++) {
+            Coordinate from = ring.get(i - 1);
+            Coordinate to = ring.get(i);
+            if ((from.getLatitude() > point[1]) != (to.getLatitude() > point[1])
+                    && point[0] < from.getLongitude() + (to.getLongitude() - from.getLongitude())
+                    * (point[1] - from.getLatitude()) / (to.getLatitude() - from.getLatitude())) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Extracts the longitude and latitude of a point from a GeoJSON point, a legacy coordinate pair or a
+     * {@link Coordinate}.
+     *
+     * @param value the value
+     * @return the longitude and latitude, or null if the value is not a point
+     */
+    private static double[] point(Object value) {
+        if (value instanceof Coordinate coordinate) {
+            return new double[] {coordinate.getLongitude(), coordinate.getLatitude()};
+        }
+        List<Object> coordinates = EntityPaths.isArray(value) ? Collections.singletonList(value)
+                : EntityPaths.resolve(value, "coordinates");
+        if (coordinates.size() != 1 || !EntityPaths.isArray(coordinates.get(0))) {
+            return null;
+        }
+        List<Object> pair = EntityPaths.elements(coordinates.get(0));
+        if (pair.size() != NumericConstants.TWO || !(pair.get(0) instanceof Number longitude)
+                || !(pair.get(1) instanceof Number latitude)) {
+            return null;
+        }
+        return new double[] {longitude.doubleValue(), latitude.doubleValue()};
+    }
+
+    /**
+     * Returns the great-circle distance between two points on the sphere MongoDB models the earth as.
+     *
+     * @param lat1 the latitude of the first point, in degrees
+     * @param lon1 the longitude of the first point, in degrees
+     * @param lat2 the latitude of the second point, in degrees
+     * @param lon2 the longitude of the second point, in degrees
+     * @return the distance in meters
+     */
+    static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double deltaLat = Math.toRadians(lat2 - lat1);
+        double deltaLon = Math.toRadians(lon2 - lon1);
+        double sinLat = Math.sin(deltaLat / NumericConstants.TWO);
+        double sinLon = Math.sin(deltaLon / NumericConstants.TWO);
+        double a = sinLat * sinLat + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return NumericConstants.TWO * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Returns the comparator ordering entities by the given sort fields. Missing fields sort first and an
+     * array field sorts by its smallest element ascending and by its largest element descending.
+     *
+     * @param orderBys the sort fields
+     * @return the comparator
+     */
+    static Comparator<Object> comparator(List<IgniteOrderBy> orderBys) {
+        Comparator<Object> comparator = (a, b) -> 0;
+        for (IgniteOrderBy orderBy : orderBys) {
+            boolean descending = Order.DESC == orderBy.getOrder();
+            Comparator<Object> byField = Comparator.comparing(
+                    entity -> sortKey(entity, orderBy.getFieldName(), descending), QueryEvaluator::compare);
+            comparator = comparator.thenComparing(descending ? byField.reversed() : byField);
+        }
+        return comparator;
+    }
+
+    /**
+     * Returns the value an entity sorts by for a field.
+     *
+     * @param entity the entity
+     * @param field the sort field
+     * @param descending whether the sort is descending
+     * @return the sort key, null when the field is missing
+     */
+    private static Object sortKey(Object entity, String field, boolean descending) {
+        Object key = null;
+        boolean first = true;
+        for (Object value : flatten(EntityPaths.resolve(entity, field))) {
+            int comparison = compare(value, key);
+            if (first || (descending ? comparison > 0 : comparison < 0)) {
+                key = value;
+                first = false;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Replaces array values by their elements.
+     *
+     * @param values the values
+     * @return the flattened values
+     */
+    static List<Object> flatten(List<Object> values) {
+        List<Object> flattened = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (EntityPaths.isArray(value)) {
+                flattened.addAll(EntityPaths.elements(value));
+            } else {
+                flattened.add(value);
+            }
+        }
+        return flattened;
+    }
+
+    /**
+     * Compares two values in BSON order: by type bracket first, then by value within the bracket.
+     *
+     * @param a the first value
+     * @param b the second value
+     * @return a negative number, zero or a positive number as the first value sorts before, with or after the
+     *         second
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object a, Object b) {
+        int bracketA = bracket(a);
+        int bracketB = bracket(b);
+        if (bracketA != bracketB) {
+            return Integer.compare(bracketA, bracketB);
+        }
+        switch (bracketA) {
+            case NULL_BRACKET:
+                return 0;
+            case NUMBER_BRACKET:
+                return compareNumbers((Number) a, (Number) b);
+            case STRING_BRACKET:
+                return stringValue(a).compareTo(stringValue(b));
+            case ARRAY_BRACKET:
+                return compareArrays(EntityPaths.elements(a), EntityPaths.elements(b));
+            case BINARY_BRACKET:
+                return Arrays.compare((byte[]) a, (byte[]) b);
+            case DATE_BRACKET:
+                return toInstant(a).compareTo(toInstant(b));
+            case OBJECT_ID_BRACKET:
+            case BOOLEAN_BRACKET:
+                return ((Comparable) a).compareTo(b);
+            default:
+                if (a.getClass() == b.getClass() && a instanceof Comparable) {
+                    return ((Comparable) a).compareTo(b);
+                }
+                return valuesEqual(a, b) ? 0 : a.toString().compareTo(b.toString());
+        }
+    }
+
+    /**
+     * Compares two arrays element by element, a shorter array sorting before the arrays it is a prefix of.
+     *
+     * @param a the first array
+     * @param b the second array
+     * @return the comparison result
+     */
+    private static int compareArrays(List<Object> a, List<Object> b) {
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            int comparison = compare(a.get(i), b.get(i));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    /**
+     * Compares two numbers by value whatever their Java types.
+     *
+     * @param a the first number
+     * @param b the second number
+     * @return the comparison result
+     */
+    private static int compareNumbers(Number a, Number b) {
+        if (isIntegral(a) && isIntegral(b)) {
+            return Long.compare(a.longValue(), b.longValue());
+        }
+        double x = a.doubleValue();
+        double y = b.doubleValue();
+        if ((a instanceof BigDecimal || b instanceof BigDecimal || a instanceof BigInteger || b instanceof BigInteger)
+                && Double.isFinite(x) && Double.isFinite(y)) {
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+        }
+        return x == y ? 0 : Double.compare(x, y);
+    }
+
+    /**
+     * Returns whether a number is a primitive integral type.
+     *
+     * @param number the number
+     * @return true for longs, ints, shorts and bytes
+     */
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short
+                || number instanceof Byte;
+    }
+
+    /**
+     * Returns whether two values are equal as BSON values: numbers by value, enums by name, dates by instant,
+     * arrays element by element and embedded objects field by field.
+     *
+     * @param a the first value
+     * @param b the second value
+     * @return true if the values are equal
+     */
+    static boolean valuesEqual(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        int bracket = bracket(a);
+        if (bracket != bracket(b)) {
+            return false;
+        }
+        switch (bracket) {
+            case NUMBER_BRACKET:
+            case DATE_BRACKET:
+            case BINARY_BRACKET:
+                return compare(a, b) == 0;
+            case STRING_BRACKET:
+                return stringValue(a).equals(stringValue(b));
+            case ARRAY_BRACKET:
+                List<Object> elementsA = EntityPaths.elements(a);
+                List<Object> elementsB = EntityPaths.elements(b);
+                if (elementsA.size() != elementsB.size()) {
+                    return false;
+                }
+                for (int i = 0; i < elementsA.size(); i++) {
+                    if (!valuesEqual(elementsA.get(i), elementsB.get(i))) {
+                        return false;
+                    }
+                }
+                return true;
+            case OBJECT_BRACKET:
+                return objectsEqual(a, b);
+            default:
+                return a.equals(b);
+        }
+    }
+
+    /**
+     * Returns whether two embedded objects are equal: maps entry by entry and entities field by field.
+     *
+     * @param a the first object
+     * @param b the second object
+     * @return true if the objects are equal
+     */
+    private static boolean objectsEqual(Object a, Object b) {
+        if (a instanceof Map<?, ?> mapA && b instanceof Map<?, ?> mapB) {
+            if (mapA.size() != mapB.size()) {
+                return false;
+            }
+            for (Map.Entry<?, ?> entry : mapA.entrySet()) {
+                if (!mapB.containsKey(entry.getKey()) || !valuesEqual(entry.getValue(), mapB.get(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a.getClass() != b.getClass() || EntityPaths.isJdkType(a.getClass())) {
+            return a.equals(b);
+        }
+        for (Field field : EntityPaths.declaredFields(a.getClass())) {
+            try {
+                if (!valuesEqual(field.get(a), field.get(b))) {
+                    return false;
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot read field " + field.getName(), e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a key for a value that is equal, by {@link Object#equals}, for values that are equal as BSON
+     * values. Used to deduplicate values and to key indexes.
+     *
+     * @param value the value
+     * @return the key
+     */
+    static Object key(Object value) {
+        switch (bracket(value)) {
+            case NUMBER_BRACKET:
+                double number = ((Number) value).doubleValue();
+                if (!isIntegral((Number) value) && !Double.isFinite(number)) {
+                    return number;
+                }
+                return new BigDecimal(value.toString()).stripTrailingZeros();
+            case STRING_BRACKET:
+                return stringValue(value);
+            case DATE_BRACKET:
+                return toInstant(value);
+            case BINARY_BRACKET:
+                return Arrays.toString((byte[]) value);
+            case ARRAY_BRACKET:
+                List<Object> keys = new ArrayList<>();
+                EntityPaths.elements(value).forEach(element -> keys.add(key(element)));
+                return keys;
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Returns whether a value is a scalar: neither null, nor an array, nor an embedded object.
+     *
+     * @param value the value
+     * @return true for scalar values
+     */
+    static boolean isScalar(Object value) {
+        int bracket = bracket(value);
+        return bracket != NULL_BRACKET && bracket != ARRAY_BRACKET && bracket != OBJECT_BRACKET;
+    }
+
+    /**
+     * Returns the BSON type bracket of a value.
+     *
+     * @param value the value
+     * @return the bracket
+     */
+    private static int bracket(Object value) {
+        if (value == null) {
+            return NULL_BRACKET;
+        } else if (value instanceof Number) {
+            return NUMBER_BRACKET;
+        } else if (value instanceof CharSequence || value instanceof Character || value instanceof Enum) {
+            return STRING_BRACKET;
+        } else if (value instanceof byte[]) {
+            return BINARY_BRACKET;
+        } else if (EntityPaths.isArray(value)) {
+            return ARRAY_BRACKET;
+        } else if (value instanceof Boolean) {
+            return BOOLEAN_BRACKET;
+        } else if (value instanceof Date || DATE_CLASSES.contains(value.getClass())) {
+            return DATE_BRACKET;
+        } else if (OBJECT_ID_CLASS.equals(value.getClass().getName())) {
+            return OBJECT_ID_BRACKET;
+        }
+        return OBJECT_BRACKET;
+    }
+
+    /**
+     * Returns the string a value of the string bracket is stored as.
+     *
+     * @param value the value
+     * @return the string
+     */
+    private static String stringValue(Object value) {
+        return value instanceof Enum<?> e ? e.name() : Objects.toString(value);
+    }
+
+    /**
+     * Returns the instant a value of the date bracket is stored as, local dates and times being stored in UTC.
+     *
+     * @param value the value
+     * @return the instant
+     */
+    private static Instant toInstant(Object value) {
+        if (value instanceof Date date) {
+            return date.toInstant();
+        } else if (value instanceof LocalDateTime localDateTime) {
+            return localDateTime.toInstant(ZoneOffset.UTC);
+        } else if (value instanceof LocalDate localDate) {
+            return localDate.atStartOfDay(ZoneOffset.UTC).toInstant();
+        } else if (value instanceof ZonedDateTime zonedDateTime) {
+            return zonedDateTime.toInstant();
+        } else if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant();
+        }
+        return (Instant) value;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.inmemory;
+
+import org.eclipse.ecsp.nosqldao.Updates;
+import org.eclipse.ecsp.nosqldao.Updates.DecOp;
+import org.eclipse.ecsp.nosqldao.Updates.FieldSetOp;
+import org.eclipse.ecsp.nosqldao.Updates.IncOp;
+import org.eclipse.ecsp.nosqldao.Updates.PushMultiOp;
+import org.eclipse.ecsp.nosqldao.Updates.PushOp;
+import org.eclipse.ecsp.nosqldao.Updates.RemoveOp;
+import org.eclipse.ecsp.nosqldao.Updates.SetMultiOp;
+import org.eclipse.ecsp.nosqldao.Updates.SetOp;
+import org.eclipse.ecsp.nosqldao.Updates.UnsetOp;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Applies {@link Updates} to an entity with the semantics of the MongoDB update operators the updates
+ * translator produces: {@code $set}, {@code $unset}, {@code $push}, {@code $addToSet}, {@code $inc},
+ * {@code $pull} and {@code $pullAll}.
+ */
+class UpdatesApplier implements Updates.UpdateOpVisitor {
+
+    /**
+     * The entity being updated.
+     */
+    private final Object entity;
+
+    /**
+     * Instantiates a new updates applier.
+     *
+     * @param entity the entity to update in place
+     */
+    UpdatesApplier(Object entity) {
+        this.entity = entity;
+    }
+
+    @Override
+    public void visit(FieldSetOp op) {
+        EntityPaths.Slot slot = slot(op.getField());
+        if (slot != null) {
+            slot.set(op.getVal());
+        }
+    }
+
+    @Override
+    public void visit(UnsetOp op) {
+        EntityPaths.Slot slot = EntityPaths.slot(entity, op.getField(), false);
+        if (slot != null) {
+            slot.unset();
+        }
+    }
+
+    @Override
+    public void visit(PushOp op) {
+        Object val = op.getVal();
+        append(op.getField(), val instanceof Collection ? new ArrayList<>((Collection<?>) val)
+                : Collections.singletonList(val), false);
+    }
+
+    @Override
+    public void visit(PushMultiOp op) {
+        append(op.getField(), op.getValues(), false);
+    }
+
+    @Override
+    public void visit(SetOp op) {
+        append(op.getField(), Collections.singletonList(op.getVal()), true);
+    }
+
+    @Override
+    public void visit(@SuppressWarnings("rawtypes") SetMultiOp op) {
+        append(op.getField(), op.getValues(), true);
+    }
+
+    @Override
+    public void visit(IncOp op) {
+        increment(op.getField(), op.getBy() > 0 ? op.getBy() : 1);
+    }
+
+    @Override
+    public void visit(DecOp op) {
+        increment(op.getField(), op.getBy() > 0 ? -op.getBy() : -1);
+    }
+
+    @Override
+    public void visit(RemoveOp op) {
+        if (op.getVal() instanceof Collection) {
+            Collection<?> removed = (Collection<?>) op.getVal();
+            pull(op.getField(), element -> removed.stream().anyMatch(r -> QueryEvaluator.valuesEqual(element, r)));
+        } else {
+            String[] fieldArray = op.getField().split("\\.", 2);
+            pull(fieldArray[0], element -> fieldArray.length > 1 && EntityPaths.resolve(element, fieldArray[1])
+                    .stream().anyMatch(value -> QueryEvaluator.valuesEqual(value, op.getVal())));
+        }
+    }
+
+    /**
+     * Returns the slot of a field, creating missing intermediate objects.
+     *
+     * @param field the dotted field path
+     * @return the slot, or null if the path cannot be created
+     */
+    private EntityPaths.Slot slot(String field) {
+        return EntityPaths.slot(entity, field, true);
+    }
+
+    /**
+     * Appends values to an array field, creating the array when missing.
+     *
+     * @param field the dotted field path
+     * @param values the values to append
+     * @param unique whether values already in the array are skipped, as {@code $addToSet} does
+     */
+    private void append(String field, List<?> values, boolean unique) {
+        EntityPaths.Slot slot = slot(field);
+        if (slot == null) {
+            return;
+        }
+        Object current = slot.get();
+        if (current != null && !EntityPaths.isArray(current)) {
+            throw new IllegalArgumentException("Cannot apply an array update to non-array field " + field);
+        }
+        List<Object> elements = current == null ? new ArrayList<>() : EntityPaths.elements(current);
+        for (Object value : values) {
+            if (!unique || elements.stream().noneMatch(element -> QueryEvaluator.valuesEqual(element, value))) {
+                elements.add(value);
+            }
+        }
+        slot.set(elements);
+    }
+
+    /**
+     * Removes the elements of an array field that match a condition.
+     *
+     * @param field the dotted field path
+     * @param condition the condition
+     */
+    private void pull(String field, Predicate<Object> condition) {
+        EntityPaths.Slot slot = EntityPaths.slot(entity, field, false);
+        if (slot == null || !EntityPaths.isArray(slot.get())) {
+            return;
+        }
+        List<Object> elements = EntityPaths.elements(slot.get());
+        elements.removeIf(condition);
+        slot.set(elements);
+    }
+
+    /**
+     * Adds an amount to a numeric field, a missing field counting as zero. Integers stay integers unless the
+     * result overflows.
+     *
+     * @param field the dotted field path
+     * @param by the amount
+     */
+    private void increment(String field, long by) {
+        EntityPaths.Slot slot = slot(field);
+        if (slot == null) {
+            return;
+        }
+        Object current = slot.get();
+        if (current != null && !(current instanceof Number)) {
+            throw new IllegalArgumentException("Cannot increment non-numeric field " + field);
+        }
+        Number number = current == null ? 0L : (Number) current;
+        if (number instanceof BigDecimal || number instanceof BigInteger) {
+            slot.set(new BigDecimal(number.toString()).add(BigDecimal.valueOf(by)));
+        } else if (number instanceof Double || number instanceof Float) {
+            slot.set(number.doubleValue() + by);
+        } else if (number instanceof Integer && (int) (number.longValue() + by) == number.longValue() + by) {
+            slot.set((int) (number.longValue() + by));
+        } else {
+            slot.set(number.longValue() + by);
+        }
+    }
+}
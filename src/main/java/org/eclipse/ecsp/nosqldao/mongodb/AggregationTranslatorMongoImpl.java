@@ -0,0 +1,238 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BsonField;
+import com.mongodb.client.model.Facet;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UnwindOptions;
+import dev.morphia.query.Query;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.eclipse.ecsp.entities.IgniteEntity;
+import org.eclipse.ecsp.nosqldao.AggregationTranslator;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.Accumulator;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.FacetStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.GroupStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.LimitStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.LookupStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.MatchStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.ProjectStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.SkipStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.SortStage;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.UnwindStage;
+import org.eclipse.ecsp.nosqldao.IgniteOrderBy;
+import org.eclipse.ecsp.nosqldao.Order;
+import org.eclipse.ecsp.nosqldao.QueryTranslator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Translates an {@link IgniteAggregation} into a MongoDB aggregation pipeline. The match stages are
+ * translated by the query translator of the DAO, so that their field names are mapped like in find.
+ *
+ * @param <E> the type of the entity
+ */
+public class AggregationTranslatorMongoImpl<E extends IgniteEntity> implements AggregationTranslator<List<Bson>> {
+
+    /**
+     * Prefix of a field path in an aggregation expression.
+     */
+    private static final String FIELD_PATH_PREFIX = "$";
+
+    /**
+     * The query translator for the match stages.
+     */
+    private final QueryTranslator<Query<E>> queryTranslator;
+
+    /**
+     * Instantiates a new aggregation translator.
+     *
+     * @param queryTranslator the query translator for the match stages
+     */
+    public AggregationTranslatorMongoImpl(QueryTranslator<Query<E>> queryTranslator) {
+        this.queryTranslator = queryTranslator;
+    }
+
+    /**
+     * Translate the aggregation into pipeline stages.
+     *
+     * @param aggregation    the aggregation
+     * @param collectionName the collection name
+     * @return the pipeline stages
+     */
+    @Override
+    public List<Bson> translate(IgniteAggregation aggregation, Optional<String> collectionName) {
+        List<Bson> pipeline = new ArrayList<>();
+        aggregation.traverse(new IgniteAggregation.StageVisitor() {
+            @Override
+            public void visit(MatchStage stage) {
+                pipeline.add(Aggregates.match(queryTranslator.translate(stage.getQuery(), collectionName)
+                        .toDocument()));
+            }
+
+            @Override
+            public void visit(ProjectStage stage) {
+                List<Bson> projections = new ArrayList<>();
+                if (!stage.getIncludes().isEmpty()) {
+                    projections.add(Projections.include(stage.getIncludes()));
+                }
+                if (!stage.getExcludes().isEmpty()) {
+                    projections.add(Projections.exclude(stage.getExcludes()));
+                }
+                stage.getAliases().forEach((name, field) ->
+                        projections.add(Projections.computed(name, FIELD_PATH_PREFIX + field)));
+                pipeline.add(Aggregates.project(Projections.fields(projections)));
+            }
+
+            @Override
+            public void visit(GroupStage stage) {
+                List<BsonField> accumulators = new ArrayList<>();
+                for (Accumulator accumulator : stage.getAccumulators()) {
+                    accumulators.add(translate(accumulator));
+                }
+                pipeline.add(Aggregates.group(getGroupId(stage.getGroupBy()), accumulators));
+            }
+
+            @Override
+            public void visit(SortStage stage) {
+                List<Bson> sorts = new ArrayList<>();
+                for (IgniteOrderBy orderBy : stage.getOrderBys()) {
+                    sorts.add(Order.DESC.equals(orderBy.getOrder()) ? Sorts.descending(orderBy.getFieldName())
+                            : Sorts.ascending(orderBy.getFieldName()));
+                }
+                pipeline.add(Aggregates.sort(Sorts.orderBy(sorts)));
+            }
+
+            @Override
+            public void visit(SkipStage stage) {
+                pipeline.add(Aggregates.skip(stage.getSkip()));
+            }
+
+            @Override
+            public void visit(LimitStage stage) {
+                pipeline.add(Aggregates.limit(stage.getLimit()));
+            }
+
+            @Override
+            public void visit(UnwindStage stage) {
+                pipeline.add(Aggregates.unwind(FIELD_PATH_PREFIX + stage.getField(),
+                        new UnwindOptions().preserveNullAndEmptyArrays(stage.isPreserveNullAndEmptyArrays())));
+            }
+
+            @Override
+            public void visit(LookupStage stage) {
+                pipeline.add(Aggregates.lookup(stage.getFrom(), stage.getLocalField(), stage.getForeignField(),
+                        stage.getAs()));
+            }
+
+            @Override
+            public void visit(FacetStage stage) {
+                List<Facet> facets = new ArrayList<>();
+                for (Map.Entry<String, IgniteAggregation> facet : stage.getFacets().entrySet()) {
+                    facets.add(new Facet(facet.getKey(), translate(facet.getValue(), collectionName)));
+                }
+                pipeline.add(Aggregates.facet(facets));
+            }
+        });
+        return pipeline;
+    }
+
+    /**
+     * Builds the group key.
+     *
+     * @param groupBy the fields to group by
+     * @return null to group all documents, the field path of a single field, or a document of field paths
+     */
+    private static Object getGroupId(List<String> groupBy) {
+        if (groupBy == null || groupBy.isEmpty()) {
+            return null;
+        }
+        if (groupBy.size() == 1) {
+            return FIELD_PATH_PREFIX + groupBy.get(0);
+        }
+        Document id = new Document();
+        for (String field : groupBy) {
+            id.append(field.replace('.', '_'), FIELD_PATH_PREFIX + field);
+        }
+        return id;
+    }
+
+    /**
+     * Translates an accumulator.
+     *
+     * @param accumulator the accumulator
+     * @return the accumulator field of the group stage
+     */
+    private static BsonField translate(Accumulator accumulator) {
+        String name = accumulator.getName();
+        String field = FIELD_PATH_PREFIX + accumulator.getField();
+        switch (accumulator.getType()) {
+            case COUNT:
+                return Accumulators.sum(name, 1);
+            case SUM:
+                return Accumulators.sum(name, field);
+            case AVG:
+                return Accumulators.avg(name, field);
+            case MIN:
+                return Accumulators.min(name, field);
+            case MAX:
+                return Accumulators.max(name, field);
+            case FIRST:
+                return Accumulators.first(name, field);
+            case LAST:
+                return Accumulators.last(name, field);
+            case PUSH:
+                return Accumulators.push(name, field);
+            case ADD_TO_SET:
+                return Accumulators.addToSet(name, field);
+            default:
+                throw new IllegalArgumentException("Invalid accumulator " + accumulator.getType());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.client.MongoClient;
+import dev.morphia.AdvancedDatastore;
+
+/**
+ * The datastore of the analytical mongo client, which has its own connection pool, timeouts and read
+ * preference, so that long scans and aggregations do not starve the latency critical operations. The
+ * datastore is absent when no analytical client is configured.
+ */
+public final class AnalyticalDatastore {
+
+    /**
+     * The analytical client, null if none is configured.
+     */
+    private final MongoClient mongoClient;
+
+    /**
+     * The datastore of the analytical client, null if none is configured.
+     */
+    @SuppressWarnings("removal")
+    private final AdvancedDatastore datastore;
+
+    /**
+     * Instantiates a new analytical datastore.
+     *
+     * @param mongoClient the analytical client, null if none is configured
+     * @param datastore the datastore of the analytical client, null if none is configured
+     */
+    @SuppressWarnings("removal")
+    public AnalyticalDatastore(MongoClient mongoClient, AdvancedDatastore datastore) {
+        this.mongoClient = mongoClient;
+        this.datastore = datastore;
+    }
+
+    /**
+     * Gets the datastore of the analytical client.
+     *
+     * @return the datastore, null if no analytical client is configured
+     */
+    @SuppressWarnings("removal")
+    public AdvancedDatastore getDatastore() {
+        return datastore;
+    }
+
+    /**
+     * Closes the analytical client.
+     */
+    public void close() {
+        if (mongoClient != null) {
+            mongoClient.close();
+        }
+    }
+}
@@ -0,0 +1,827 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.eclipse.ecsp.nosqldao.IgniteBaseDAO;
+import org.eclipse.ecsp.nosqldao.IgniteCriteria;
+import org.eclipse.ecsp.nosqldao.IgniteCriteriaGroup;
+import org.eclipse.ecsp.nosqldao.IgniteOrderBy;
+import org.eclipse.ecsp.nosqldao.IgniteQuery;
+import org.eclipse.ecsp.nosqldao.LogicalOperator;
+import org.eclipse.ecsp.nosqldao.Operator;
+import org.eclipse.ecsp.nosqldao.Workload;
+import org.eclipse.ecsp.nosqldao.utils.Constants;
+import org.eclipse.ecsp.utils.logger.IgniteLogger;
+import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Exports the documents of a collection to a dump file and imports them back, streaming them as raw BSON
+ * through bounded buffers without decoding entities. An export reads the documents in _id order with an
+ * analytical workload. An import writes batches of documents with unordered bulk writes on parallel
+ * workers, replacing the documents with the same _id, so importing a dump again is idempotent.
+ *
+ * <p>Every checkpoint interval, both save a checkpoint file next to the dump file. A transfer that fails
+ * or is killed resumes from its last checkpoint when run again with the same format and compression, and
+ * deletes the checkpoint once it completes. The checkpoint of an export is {@code <dump>.checkpoint},
+ * the checkpoint of an import is {@code <dump>.import.checkpoint}.
+ */
+public class CollectionTransfer {
+
+    /**
+     * Logger.
+     */
+    private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(CollectionTransfer.class);
+
+    /**
+     * The default size of the file buffers, in bytes.
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The default number of documents written by a bulk write.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * The default number of workers running the bulk writes.
+     */
+    private static final int DEFAULT_WORKERS = 4;
+
+    /**
+     * The default number of documents between two checkpoints.
+     */
+    private static final long DEFAULT_CHECKPOINT_INTERVAL = 10_000L;
+
+    /**
+     * The suffix of the checkpoint file of an export.
+     */
+    private static final String EXPORT_CHECKPOINT_SUFFIX = ".checkpoint";
+
+    /**
+     * The suffix of the checkpoint file of an import.
+     */
+    private static final String IMPORT_CHECKPOINT_SUFFIX = ".import.checkpoint";
+
+    /**
+     * The size of the length prefix of a BSON document.
+     */
+    private static final int LENGTH_SIZE = 4;
+
+    /**
+     * The size of the smallest BSON document, the empty one.
+     */
+    private static final int MIN_DOCUMENT_SIZE = 5;
+
+    /**
+     * The settings of the NDJSON documents, canonical extended JSON so that no BSON type is lost.
+     */
+    private static final JsonWriterSettings NDJSON_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.EXTENDED).build();
+
+    /**
+     * The format of the dump.
+     */
+    private final DumpFormat format;
+
+    /**
+     * The compression of the dump.
+     */
+    private final DumpCompression compression;
+
+    /**
+     * The size of the file buffers, in bytes.
+     */
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    /**
+     * The number of documents written by a bulk write.
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * The number of workers running the bulk writes.
+     */
+    private int workers = DEFAULT_WORKERS;
+
+    /**
+     * The number of documents between two checkpoints.
+     */
+    private long checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+
+    /**
+     * Notified of the progress at each checkpoint and when a transfer completes.
+     */
+    private Consumer<TransferProgress> progressListener = progress -> { };
+
+    /**
+     * Creates a transfer of dumps in a format and compression.
+     *
+     * @param format the format of the dumps
+     * @param compression the compression of the dumps
+     */
+    public CollectionTransfer(DumpFormat format, DumpCompression compression) {
+        this.format = format;
+        this.compression = compression;
+    }
+
+    /**
+     * Sets the size of the file buffers, 64 KiB by default.
+     *
+     * @param bufferSize the size in bytes
+     * @return this transfer
+     */
+    public CollectionTransfer bufferSize(int bufferSize) {
+        this.bufferSize = checkPositive(bufferSize, "bufferSize");
+        return this;
+    }
+
+    /**
+     * Sets the number of documents written by a bulk write of an import, 1000 by default. It is also the
+     * number of documents an export prefetches from the cursor.
+     *
+     * @param batchSize the number of documents
+     * @return this transfer
+     */
+    public CollectionTransfer batchSize(int batchSize) {
+        this.batchSize = checkPositive(batchSize, "batchSize");
+        return this;
+    }
+
+    /**
+     * Sets the number of workers running the bulk writes of an import, 4 by default. At most twice as many
+     * batches are held in memory.
+     *
+     * @param workers the number of workers
+     * @return this transfer
+     */
+    public CollectionTransfer workers(int workers) {
+        this.workers = checkPositive(workers, "workers");
+        return this;
+    }
+
+    /**
+     * Sets the number of documents between two checkpoints, 10000 by default.
+     *
+     * @param checkpointInterval the number of documents
+     * @return this transfer
+     */
+    public CollectionTransfer checkpointInterval(long checkpointInterval) {
+        this.checkpointInterval = checkPositive(checkpointInterval, "checkpointInterval");
+        return this;
+    }
+
+    /**
+     * Sets the listener notified of the progress at each checkpoint and when a transfer completes.
+     *
+     * @param progressListener the listener
+     * @return this transfer
+     */
+    public CollectionTransfer progressListener(Consumer<TransferProgress> progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    /**
+     * Exports the documents matching a query to a dump file, resuming an interrupted export of the file.
+     * The sort and paging of the query are ignored, as documents are exported in _id order.
+     *
+     * @param dao the DAO of the collection
+     * @param query the query to match, null for all the documents
+     * @param file the dump file
+     * @return the progress of this run
+     * @throws IOException if the dump or the checkpoint cannot be written
+     * @throws IllegalArgumentException if a document has no _id
+     */
+    public TransferProgress exportTo(IgniteBaseDAO<?, ?> dao, IgniteQuery query, Path file) throws IOException {
+        Path checkpointFile = file.resolveSibling(file.getFileName() + EXPORT_CHECKPOINT_SUFFIX);
+        TransferCheckpoint resumed = TransferCheckpoint.read(checkpointFile, format, compression);
+        long start = System.nanoTime();
+        TransferCheckpoint reached = resumed;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                DumpWriter writer = new DumpWriter(channel, resumed.getPosition());
+                Stream<RawBsonDocument> documents = dao.streamFindRaw(exportQuery(query, resumed.getLastIdValue()))
+                        .toStream(batchSize)) {
+            long count = resumed.getDocuments();
+            long bytes = resumed.getBytes();
+            BsonValue lastId = resumed.getLastId();
+            Iterator<RawBsonDocument> iterator = documents.iterator();
+            while (iterator.hasNext()) {
+                RawBsonDocument document = iterator.next();
+                lastId = document.get(Constants.ID_FILTER_CONSTANT);
+                if (lastId == null) {
+                    throw new IllegalArgumentException("Exported documents must include their _id");
+                }
+                writer.write(document);
+                count++;
+                bytes += document.getByteBuffer().remaining();
+                if ((count - resumed.getDocuments()) % checkpointInterval == 0) {
+                    reached = new TransferCheckpoint(lastId, count, bytes, writer.endSegment());
+                    checkpoint(checkpointFile, reached, resumed, start);
+                }
+            }
+            reached = new TransferCheckpoint(lastId, count, bytes, writer.endSegment());
+        }
+        Files.deleteIfExists(checkpointFile);
+        return complete("Exported", file, reached, resumed, start);
+    }
+
+    /**
+     * Imports the documents of a dump file, resuming an interrupted import of the file.
+     *
+     * @param dao the DAO of the collection
+     * @param file the dump file
+     * @return the progress of this run
+     * @throws IOException if the dump cannot be read or the checkpoint cannot be written
+     * @throws IllegalStateException if the checkpoint is past the end of the dump
+     */
+    public TransferProgress importFrom(IgniteBaseDAO<?, ?> dao, Path file) throws IOException {
+        Path checkpointFile = file.resolveSibling(file.getFileName() + IMPORT_CHECKPOINT_SUFFIX);
+        TransferCheckpoint resumed = TransferCheckpoint.read(checkpointFile, format, compression);
+        long start = System.nanoTime();
+        TransferCheckpoint reached;
+        try (DumpReader reader = new DumpReader(file);
+                BatchImporter importer = new BatchImporter(dao, checkpointFile, resumed, start)) {
+            for (long skipped = 0; skipped < resumed.getDocuments(); skipped++) {
+                if (reader.next() == null) {
+                    throw new IllegalStateException("Checkpoint " + checkpointFile + " is past the end of " + file);
+                }
+            }
+            List<RawBsonDocument> batch = new ArrayList<>(batchSize);
+            RawBsonDocument document;
+            while ((document = reader.next()) != null) {
+                batch.add(document);
+                if (batch.size() == batchSize) {
+                    importer.submit(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                importer.submit(batch);
+            }
+            reached = importer.finish();
+        }
+        Files.deleteIfExists(checkpointFile);
+        return complete("Imported", file, reached, resumed, start);
+    }
+
+    /**
+     * Builds the query of an export: the criteria of the query, restricted to the documents after the last
+     * one exported, in _id order and routed to the analytical client. The restriction is added to each
+     * OR branch of the query, as AND binds tighter than OR.
+     *
+     * @param query the query to match, null for all the documents
+     * @param lastId the _id of the last document exported, null if none
+     * @return the query of the export
+     */
+    private static IgniteQuery exportQuery(IgniteQuery query, Object lastId) {
+        // Every document has a non-null _id; the criterion only gives the query a filter.
+        IgniteCriteriaGroup after = new IgniteCriteriaGroup(lastId == null
+                ? new IgniteCriteria(Constants.ID_FILTER_CONSTANT, Operator.NEQ, null)
+                : new IgniteCriteria(Constants.ID_FILTER_CONSTANT, Operator.GT, lastId));
+        IgniteQuery exportQuery;
+        if (query == null || query.getCriteriaGroups().isEmpty()) {
+            exportQuery = new IgniteQuery(after);
+        } else {
+            List<IgniteCriteriaGroup> groups = query.getCriteriaGroups();
+            List<LogicalOperator> operators = query.getIgniteQueryOperatorsList();
+            int offset = operators.size() - groups.size();
+            exportQuery = new IgniteQuery(groups.get(0));
+            for (int i = 1; i < groups.size(); i++) {
+                if (LogicalOperator.OR.equals(operators.get(i + offset))) {
+                    exportQuery.and(after).or(groups.get(i));
+                } else {
+                    exportQuery.and(groups.get(i));
+                }
+            }
+            exportQuery.and(after);
+            exportQuery.setFieldNames(query.getFieldNames());
+            exportQuery.setReadPreference(query.getReadPreference());
+            exportQuery.setReadConcern(query.getReadConcern());
+        }
+        exportQuery.orderBy(new IgniteOrderBy().byfield(Constants.ID_FILTER_CONSTANT).asc());
+        exportQuery.setWorkload(Workload.ANALYTICAL);
+        return exportQuery;
+    }
+
+    /**
+     * Saves a checkpoint and notifies the progress.
+     *
+     * @param file the checkpoint file
+     * @param reached the checkpoint reached
+     * @param resumed the checkpoint the transfer resumed from
+     * @param start the start of the transfer, in nanoseconds
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private void checkpoint(Path file, TransferCheckpoint reached, TransferCheckpoint resumed, long start)
+            throws IOException {
+        reached.write(file, format, compression);
+        progressListener.accept(progress(reached, resumed, start));
+    }
+
+    /**
+     * Reports a completed transfer.
+     *
+     * @param operation the name of the transfer
+     * @param file the dump file
+     * @param reached the checkpoint reached
+     * @param resumed the checkpoint the transfer resumed from
+     * @param start the start of the transfer, in nanoseconds
+     * @return the progress of the transfer
+     */
+    private TransferProgress complete(String operation, Path file, TransferCheckpoint reached,
+            TransferCheckpoint resumed, long start) {
+        TransferProgress progress = progress(reached, resumed, start);
+        progressListener.accept(progress);
+        LOGGER.info("{} {} as {} with {} compression: {}, resumed after {} documents", operation, file, format,
+                compression, progress, resumed.getDocuments());
+        return progress;
+    }
+
+    /**
+     * Gets the progress of a transfer.
+     *
+     * @param reached the checkpoint reached
+     * @param resumed the checkpoint the transfer resumed from
+     * @param start the start of the transfer, in nanoseconds
+     * @return the progress since the transfer resumed
+     */
+    private static TransferProgress progress(TransferCheckpoint reached, TransferCheckpoint resumed, long start) {
+        return new TransferProgress(reached.getDocuments() - resumed.getDocuments(),
+                reached.getBytes() - resumed.getBytes(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Checks that a setting is positive.
+     *
+     * @param <T> the type of the setting
+     * @param value the value of the setting
+     * @param name the name of the setting
+     * @return the value
+     * @throws IllegalArgumentException if the value is not positive
+     */
+    private static <T extends Number> T checkPositive(T value, String name) {
+        if (value.longValue() <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Writes the documents of an export to the dump file, as a sequence of compressed segments. A segment
+     * ends at each checkpoint, so that the file can be truncated to a checkpoint and appended to.
+     */
+    private final class DumpWriter implements Closeable {
+
+        /**
+         * The channel of the dump file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * The buffered stream of the dump file.
+         */
+        private final OutputStream file;
+
+        /**
+         * The current segment, null before the first document of a segment.
+         */
+        private OutputStream segment;
+
+        /**
+         * The writer of the NDJSON documents of the current segment, null for BSON.
+         */
+        private Writer text;
+
+        /**
+         * Opens the dump file for writing after a position.
+         *
+         * @param channel the channel of the dump file
+         * @param position the position, the end of the last checkpoint
+         * @throws IOException if the file cannot be truncated
+         */
+        DumpWriter(FileChannel channel, long position) throws IOException {
+            this.channel = channel;
+            channel.truncate(position);
+            channel.position(position);
+            this.file = new BufferedOutputStream(Channels.newOutputStream(channel), bufferSize);
+        }
+
+        /**
+         * Writes a document, starting a segment if needed.
+         *
+         * @param document the document
+         * @throws IOException if the document cannot be written
+         */
+        void write(RawBsonDocument document) throws IOException {
+            if (segment == null) {
+                segment = compression.compress(new SegmentOutputStream(file));
+                if (format == DumpFormat.NDJSON) {
+                    text = new OutputStreamWriter(segment, StandardCharsets.UTF_8);
+                }
+            }
+            if (text != null) {
+                RawBsonJsonWriter.write(document, text, NDJSON_SETTINGS);
+                text.write('\n');
+            } else {
+                ByteBuffer buffer = document.getByteBuffer().asNIO();
+                segment.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            }
+        }
+
+        /**
+         * Ends the current segment and forces the dump file to the disk.
+         *
+         * @return the length of the dump file
+         * @throws IOException if the file cannot be written
+         */
+        long endSegment() throws IOException {
+            if (text != null) {
+                text.close();
+            } else if (segment != null) {
+                segment.close();
+            }
+            segment = null;
+            text = null;
+            file.flush();
+            channel.force(false);
+            return channel.position();
+        }
+
+        @Override
+        public void close() throws IOException {
+            file.close();
+        }
+    }
+
+    /**
+     * The stream of a segment of the dump file: closing it ends the segment, not the dump file.
+     */
+    private static final class SegmentOutputStream extends FilterOutputStream {
+
+        /**
+         * Creates the stream of a segment.
+         *
+         * @param out the stream of the dump file
+         */
+        SegmentOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * Reads the documents of a dump file.
+     */
+    private final class DumpReader implements Closeable {
+
+        /**
+         * The decompressed stream of the dump file.
+         */
+        private final InputStream in;
+
+        /**
+         * The lines of the NDJSON documents, null for BSON.
+         */
+        private final BufferedReader lines;
+
+        /**
+         * Opens a dump file.
+         *
+         * @param file the dump file
+         * @throws IOException if the file cannot be opened
+         */
+        DumpReader(Path file) throws IOException {
+            if (Files.size(file) == 0) {
+                in = InputStream.nullInputStream();
+            } else {
+                InputStream stream = new BufferedInputStream(
+                        Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)), bufferSize);
+                try {
+                    in = compression.decompress(stream);
+                } catch (IOException | RuntimeException e) {
+                    stream.close();
+                    throw e;
+                }
+            }
+            lines = format == DumpFormat.NDJSON
+                    ? new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), bufferSize) : null;
+        }
+
+        /**
+         * Reads the next document.
+         *
+         * @return the document, null at the end of the dump
+         * @throws IOException if the dump cannot be read or is truncated
+         */
+        RawBsonDocument next() throws IOException {
+            if (lines == null) {
+                return nextBson();
+            }
+            String line = lines.readLine();
+            while (line != null && line.isBlank()) {
+                line = lines.readLine();
+            }
+            return line == null ? null : RawBsonDocument.parse(line);
+        }
+
+        /**
+         * Reads the next BSON document, prefixed by its length.
+         *
+         * @return the document, null at the end of the dump
+         * @throws IOException if the dump cannot be read or is truncated
+         */
+        private RawBsonDocument nextBson() throws IOException {
+            byte[] prefix = new byte[LENGTH_SIZE];
+            int read = in.readNBytes(prefix, 0, LENGTH_SIZE);
+            if (read == 0) {
+                return null;
+            }
+            int length = read < LENGTH_SIZE ? 0 : ByteBuffer.wrap(prefix).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            if (length < MIN_DOCUMENT_SIZE) {
+                throw new EOFException("Truncated or corrupt BSON document in dump");
+            }
+            byte[] bytes = Arrays.copyOf(prefix, length);
+            if (in.readNBytes(bytes, LENGTH_SIZE, length - LENGTH_SIZE) < length - LENGTH_SIZE) {
+                throw new EOFException("Truncated BSON document in dump");
+            }
+            return new RawBsonDocument(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Runs the bulk writes of an import on parallel workers. When all workers are busy and their queue is
+     * full, a batch is written on the calling thread, which bounds the batches held in memory. Batches
+     * complete out of order; the checkpoint covers the batches that completed without a gap.
+     */
+    private final class BatchImporter implements AutoCloseable {
+
+        /**
+         * The DAO of the collection.
+         */
+        private final IgniteBaseDAO<?, ?> dao;
+
+        /**
+         * The checkpoint file.
+         */
+        private final Path checkpointFile;
+
+        /**
+         * The checkpoint the import resumed from.
+         */
+        private final TransferCheckpoint resumed;
+
+        /**
+         * The start of the import, in nanoseconds.
+         */
+        private final long start;
+
+        /**
+         * The workers.
+         */
+        private final ThreadPoolExecutor executor;
+
+        /**
+         * The batches submitted and not yet checkpointed, in the order of the dump.
+         */
+        private final Deque<PendingBatch> pending = new ArrayDeque<>();
+
+        /**
+         * The checkpoint reached.
+         */
+        private TransferCheckpoint reached;
+
+        /**
+         * The number of documents at which the next checkpoint is saved.
+         */
+        private long nextCheckpoint;
+
+        /**
+         * Starts the workers.
+         *
+         * @param dao the DAO of the collection
+         * @param checkpointFile the checkpoint file
+         * @param resumed the checkpoint the import resumed from
+         * @param start the start of the import, in nanoseconds
+         */
+        BatchImporter(IgniteBaseDAO<?, ?> dao, Path checkpointFile, TransferCheckpoint resumed, long start) {
+            this.dao = dao;
+            this.checkpointFile = checkpointFile;
+            this.resumed = resumed;
+            this.start = start;
+            this.reached = resumed;
+            this.nextCheckpoint = resumed.getDocuments() + checkpointInterval;
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(workers), runnable -> {
+                        Thread thread = new Thread(runnable, "dao-import-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+
+        /**
+         * Submits a batch, then checkpoints the batches completed.
+         *
+         * @param batch the documents of the batch
+         * @throws IOException if the checkpoint cannot be written or the import is interrupted
+         */
+        void submit(List<RawBsonDocument> batch) throws IOException {
+            long bytes = 0;
+            for (RawBsonDocument document : batch) {
+                bytes += document.getByteBuffer().remaining();
+            }
+            BsonValue lastId = batch.get(batch.size() - 1).get(Constants.ID_FILTER_CONSTANT);
+            pending.add(new PendingBatch(executor.submit(() -> dao.saveAllRaw(batch)), batch.size(), bytes, lastId));
+            commit(false);
+        }
+
+        /**
+         * Waits for all the batches to complete.
+         *
+         * @return the checkpoint reached
+         * @throws IOException if a checkpoint cannot be written or the import is interrupted
+         */
+        TransferCheckpoint finish() throws IOException {
+            commit(true);
+            return reached;
+        }
+
+        /**
+         * Checkpoints the batches completed without a gap.
+         *
+         * @param wait whether to wait for the batches still running
+         * @throws IOException if the checkpoint cannot be written or the import is interrupted
+         */
+        private void commit(boolean wait) throws IOException {
+            while (!pending.isEmpty() && (wait || pending.peek().future.isDone())) {
+                PendingBatch batch = pending.poll();
+                await(batch.future);
+                reached = new TransferCheckpoint(batch.lastId, reached.getDocuments() + batch.documents,
+                        reached.getBytes() + batch.bytes, 0);
+                if (reached.getDocuments() >= nextCheckpoint) {
+                    checkpoint(checkpointFile, reached, resumed, start);
+                    nextCheckpoint = reached.getDocuments() + checkpointInterval;
+                }
+            }
+        }
+
+        /**
+         * Waits for a batch to complete.
+         *
+         * @param future the batch
+         * @throws InterruptedIOException if the import is interrupted
+         */
+        private void await(Future<Integer> future) throws InterruptedIOException {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while importing");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("Bulk write of an import failed", e.getCause());
+            }
+        }
+
+        @Override
+        public void close() {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A batch submitted to the workers.
+     */
+    private static final class PendingBatch {
+
+        /**
+         * The bulk write of the batch.
+         */
+        private final Future<Integer> future;
+
+        /**
+         * The number of documents of the batch.
+         */
+        private final int documents;
+
+        /**
+         * The number of BSON bytes of the batch.
+         */
+        private final long bytes;
+
+        /**
+         * The _id of the last document of the batch.
+         */
+        private final BsonValue lastId;
+
+        /**
+         * Creates a batch submitted to the workers.
+         *
+         * @param future the bulk write of the batch
+         * @param documents the number of documents of the batch
+         * @param bytes the number of BSON bytes of the batch
+         * @param lastId the _id of the last document of the batch
+         */
+        PendingBatch(Future<Integer> future, int documents, long bytes, BsonValue lastId) {
+            this.future = future;
+            this.documents = documents;
+            this.bytes = bytes;
+            this.lastId = lastId;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoInterruptedException;
+import com.mongodb.client.MongoDatabase;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.eclipse.ecsp.nosqldao.NoSqlDatabaseType;
+import org.eclipse.ecsp.nosqldao.utils.Constants;
+import org.eclipse.ecsp.nosqldao.utils.PropertyNames;
+import org.eclipse.ecsp.utils.logger.IgniteLogger;
+import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tracks the request units (RU) consumed by DAO operations on CosmosDB and shapes the traffic to the
+ * provisioned throughput.
+ *
+ * <p>The tracker is active when {@code no.sql.database.type} is cosmosDB and
+ * {@code cosmosdb.ru.tracking.enabled} is true. After an operation the request charge is read with the
+ * getLastRequestStatistics command, for the configured sample of operations, by default one in a hundred,
+ * and observed in a histogram per entity and query shape. The charges also feed a per shape moving average
+ * which sizes the units each operation takes from a token bucket sized to
+ * {@code cosmosdb.provisioned.ru.per.second}, so that bursts are delayed on the client instead of being
+ * throttled by the server. When the server still throttles a request (error 16500) the bucket is paused
+ * for the RetryAfterMs returned with the error.</p>
+ *
+ * <p>getLastRequestStatistics reports the last request of the connection it is sent on, and the driver
+ * cannot pin it to the connection of the operation. With a pool of more than one connection it usually
+ * reports another request of the same pool, so the sampled charges are approximate: they are only used as
+ * a statistical view, in the histogram and the moving averages, and are not settled against the bucket
+ * as the charge of the operation.</p>
+ */
+@Component
+public class CosmosRequestUnitTracker {
+
+    /**
+     * Returned by {@link #getRetryAfterMs(MongoException)} when the error carries no RetryAfterMs.
+     */
+    public static final long NO_RETRY_AFTER = -1L;
+
+    /**
+     * Logger.
+     */
+    private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(CosmosRequestUnitTracker.class);
+
+    /**
+     * Error code of CosmosDB when the request rate is large.
+     */
+    private static final int REQUEST_RATE_IS_LARGE = 16500;
+
+    /**
+     * Pattern of the retry delay in the CosmosDB error message.
+     */
+    private static final Pattern RETRY_AFTER_PATTERN = Pattern.compile("RetryAfterMs=(\\d+)");
+
+    /**
+     * Command returning the statistics of the last request of the connection.
+     */
+    private static final String GET_LAST_REQUEST_STATISTICS = "getLastRequestStatistics";
+
+    /**
+     * Field of the request charge in the statistics.
+     */
+    private static final String REQUEST_CHARGE = "RequestCharge";
+
+    /**
+     * Weight of a new sample in the moving average of the charge estimates.
+     */
+    private static final double ESTIMATE_WEIGHT = 0.2;
+
+    /**
+     * Histogram of the request units charged per operation.
+     */
+    private static volatile Histogram requestUnitsHisto;
+
+    /**
+     * Counter of throttled requests.
+     */
+    private static volatile Counter throttledCounter;
+
+    /**
+     * Counter of the time spent waiting for request units.
+     */
+    private static volatile Counter limiterWaitCounter;
+
+    /**
+     * The configured database type.
+     */
+    @Value("${" + PropertyNames.NO_SQL_DATABASE_TYPE + ":}")
+    private String noSqlDatabaseType;
+
+    /**
+     * Indicates whether request unit tracking is enabled.
+     */
+    @Value("${" + PropertyNames.COSMOSDB_RU_TRACKING_ENABLED + ":false}")
+    private boolean trackingEnabled;
+
+    /**
+     * Fraction of operations whose request charge is read, each read being an extra command.
+     */
+    @Value("${" + PropertyNames.COSMOSDB_RU_STATISTICS_SAMPLE_RATE + ":0.01}")
+    private double sampleRate;
+
+    /**
+     * Provisioned request units per second, 0 disables the rate limiter.
+     */
+    @Value("${" + PropertyNames.COSMOSDB_PROVISIONED_RU_PER_SECOND + ":0}")
+    private double provisionedRuPerSecond;
+
+    /**
+     * Seconds of provisioned throughput which may be spent in a single burst.
+     */
+    @Value("${" + PropertyNames.COSMOSDB_RU_LIMITER_BURST_SECONDS + ":1.0}")
+    private double burstSeconds;
+
+    /**
+     * Maximum time an operation waits for request units, in milliseconds.
+     */
+    @Value("${" + PropertyNames.COSMOSDB_RU_LIMITER_MAX_WAIT_MS + ":5000}")
+    private long maxWaitMs;
+
+    /**
+     * Request charge assumed before the charge of an operation has been sampled.
+     */
+    @Value("${" + PropertyNames.COSMOSDB_RU_DEFAULT_CHARGE + ":5.0}")
+    private double defaultCharge;
+
+    /**
+     * The histogram buckets for the request units.
+     */
+    @Value("#{'${prometheus.dao.ru.histogram.buckets:1, 2, 5, 10, 20, 50, 100, 200, 500, 1000}'.split(',')}")
+    private double[] histogramBuckets;
+
+    /**
+     * The service where this DAO library is embedded.
+     */
+    @Value("${service.name:}")
+    private String serviceName;
+
+    /**
+     * Indicates whether Prometheus is enabled.
+     */
+    @Value("${" + PropertyNames.ENABLE_PROMETHEUS + ":false}")
+    private boolean prometheusEnabled;
+
+    /**
+     * Indicates whether DAO metrics are enabled.
+     */
+    @Value("${" + PropertyNames.DAO_METRICS_ENABLED + ": true }")
+    private boolean daoMetricsEnabled;
+
+    /**
+     * Moving average of the request charge per entity and query shape.
+     */
+    private final Map<String, Double> chargeEstimates = new ConcurrentHashMap<>();
+
+    /**
+     * Indicates whether the tracker is active.
+     */
+    private boolean active;
+
+    /**
+     * The rate limiter, null when no throughput is provisioned.
+     */
+    private RequestUnitRateLimiter rateLimiter;
+
+    /**
+     * Activates the tracker for CosmosDB and creates the rate limiter and the metrics objects.
+     */
+    @PostConstruct
+    public void init() {
+        active = trackingEnabled && NoSqlDatabaseType.COSMOSDB.toString().equalsIgnoreCase(noSqlDatabaseType);
+        if (!active) {
+            return;
+        }
+        if (provisionedRuPerSecond > 0) {
+            rateLimiter = new RequestUnitRateLimiter(provisionedRuPerSecond, burstSeconds);
+        }
+        if (prometheusEnabled && daoMetricsEnabled) {
+            initializeMetricsObjects();
+        }
+        LOGGER.info("CosmosDB request unit tracking enabled, sampleRate : {}, provisionedRuPerSecond : {}",
+                sampleRate, provisionedRuPerSecond);
+    }
+
+    /**
+     * Checks whether the tracker is active.
+     *
+     * @return true if request units are tracked
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Executes an operation once its estimated request units are available, then records its charge.
+     *
+     * @param <T> the type of the result
+     * @param database the database the operation runs on
+     * @param operationType the operation type, used as metrics label
+     * @param entity the entity name, used as metrics label
+     * @param queryShape the templated query, used as metrics label
+     * @param operation the operation
+     * @return the result of the operation
+     */
+    public <T> T execute(MongoDatabase database, String operationType, String entity, String queryShape,
+            Supplier<T> operation) {
+        if (!active) {
+            return operation.get();
+        }
+        String key = operationType + ':' + entity + ':' + queryShape;
+        double estimate = chargeEstimates.getOrDefault(key, defaultCharge);
+        acquire(operationType, entity, estimate);
+        T result;
+        try {
+            result = operation.get();
+        } catch (MongoException e) {
+            onError(operationType, entity, e);
+            throw e;
+        }
+        if (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            recordRequestCharge(database, operationType, entity, queryShape, key);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the estimated request charge of an operation.
+     *
+     * @param operationType the operation type
+     * @param entity the entity name
+     * @param queryShape the templated query
+     * @return the moving average of the sampled charges, or the default charge if none was sampled
+     */
+    public double getChargeEstimate(String operationType, String entity, String queryShape) {
+        return chargeEstimates.getOrDefault(operationType + ':' + entity + ':' + queryShape, defaultCharge);
+    }
+
+    /**
+     * Gets the retry delay requested by CosmosDB for a throttled request.
+     *
+     * @param e the error
+     * @return the delay in milliseconds, or {@link #NO_RETRY_AFTER} if the error is not a throttling error
+     *      or carries no delay
+     */
+    public static long getRetryAfterMs(MongoException e) {
+        if (e.getCode() != REQUEST_RATE_IS_LARGE || e.getMessage() == null) {
+            return NO_RETRY_AFTER;
+        }
+        Matcher matcher = RETRY_AFTER_PATTERN.matcher(e.getMessage());
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : NO_RETRY_AFTER;
+    }
+
+    /**
+     * Takes the estimated request units from the rate limiter.
+     *
+     * @param operationType the operation type
+     * @param entity the entity name
+     * @param estimate the estimated request units
+     */
+    private void acquire(String operationType, String entity, double estimate) {
+        if (rateLimiter == null) {
+            return;
+        }
+        try {
+            long waitedMs = rateLimiter.acquire(estimate, maxWaitMs);
+            if (waitedMs > 0 && limiterWaitCounter != null) {
+                limiterWaitCounter.labels(serviceName, operationType, entity).inc(waitedMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoInterruptedException("Interrupted while waiting for request units", e);
+        }
+    }
+
+    /**
+     * Pauses the rate limiter when the server throttled the request.
+     *
+     * @param operationType the operation type
+     * @param entity the entity name
+     * @param e the error
+     */
+    private void onError(String operationType, String entity, MongoException e) {
+        if (e.getCode() != REQUEST_RATE_IS_LARGE) {
+            return;
+        }
+        if (throttledCounter != null) {
+            throttledCounter.labels(serviceName, operationType, entity).inc();
+        }
+        long retryAfterMs = getRetryAfterMs(e);
+        LOGGER.warn("Request rate is large for {} on {}, retry after {} ms", operationType, entity, retryAfterMs);
+        if (rateLimiter != null && retryAfterMs > 0) {
+            rateLimiter.pause(retryAfterMs);
+        }
+    }
+
+    /**
+     * Reads the request charge of the last request of a pooled connection, approximately that of the
+     * operation, and records it.
+     *
+     * @param database the database the operation ran on
+     * @param operationType the operation type
+     * @param entity the entity name
+     * @param queryShape the templated query
+     * @param key the key of the charge estimate
+     */
+    private void recordRequestCharge(MongoDatabase database, String operationType, String entity,
+            String queryShape, String key) {
+        Object charge;
+        try {
+            charge = database.runCommand(new Document(GET_LAST_REQUEST_STATISTICS, 1)).get(REQUEST_CHARGE);
+        } catch (MongoException e) {
+            LOGGER.debug("Could not read the request charge of {} on {} : {}", operationType, entity,
+                    e.getMessage());
+            return;
+        }
+        if (!(charge instanceof Number)) {
+            return;
+        }
+        double requestUnits = ((Number) charge).doubleValue();
+        chargeEstimates.merge(key, requestUnits, (old, sample) -> old + ESTIMATE_WEIGHT * (sample - old));
+        if (requestUnitsHisto != null) {
+            requestUnitsHisto.labels(serviceName, operationType, entity, queryShape).observe(requestUnits);
+        }
+    }
+
+    /**
+     * Creates and registers the request unit metrics.
+     */
+    private void initializeMetricsObjects() {
+        synchronized (CosmosRequestUnitTracker.class) {
+            if (requestUnitsHisto == null) {
+                requestUnitsHisto = Histogram.build(Constants.RU_HISTO_NAME, Constants.RU_HISTO_HELP_STR)
+                        .labelNames(Constants.SVC, Constants.OPERATION_TYPE_LABEL, Constants.ENTITY_LABEL,
+                                Constants.FULL_QUERY_LABEL)
+                        .buckets(histogramBuckets)
+                        .register(CollectorRegistry.defaultRegistry);
+            }
+            if (throttledCounter == null) {
+                throttledCounter = Counter.build(Constants.THROTTLED_COUNTER_NAME,
+                                Constants.THROTTLED_COUNTER_HELP_STR)
+                        .labelNames(Constants.SVC, Constants.OPERATION_TYPE_LABEL, Constants.ENTITY_LABEL)
+                        .register(CollectorRegistry.defaultRegistry);
+            }
+            if (limiterWaitCounter == null) {
+                limiterWaitCounter = Counter.build(Constants.RU_LIMITER_WAIT_COUNTER_NAME,
+                                Constants.RU_LIMITER_WAIT_COUNTER_HELP_STR)
+                        .labelNames(Constants.SVC, Constants.OPERATION_TYPE_LABEL, Constants.ENTITY_LABEL)
+                        .register(CollectorRegistry.defaultRegistry);
+            }
+        }
+    }
+}
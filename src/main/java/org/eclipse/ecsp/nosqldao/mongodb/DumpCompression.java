@@ -0,0 +1,127 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The compression of a collection dump. A dump is written as a sequence of independently compressed
+ * segments, one per checkpoint, which gzip and zstd both read back as a single stream.
+ */
+public enum DumpCompression {
+
+    /**
+     * No compression.
+     */
+    NONE,
+
+    /**
+     * Gzip compression, available on every JVM.
+     */
+    GZIP,
+
+    /**
+     * Zstandard compression, faster and smaller than gzip. Needs com.github.luben:zstd-jni at runtime.
+     */
+    ZSTD;
+
+    /**
+     * Size of the buffer of the gzip streams, in bytes.
+     */
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Opens a compressed segment writing to a stream. Closing the segment ends it and closes the stream.
+     *
+     * @param out the stream
+     * @return the segment
+     * @throws IOException if the segment cannot be started
+     */
+    public OutputStream compress(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+            case ZSTD:
+                checkZstdAvailable();
+                return new ZstdCompressorOutputStream(out);
+            default:
+                return out;
+        }
+    }
+
+    /**
+     * Opens a stream decompressing all the segments read from a stream.
+     *
+     * @param in the stream
+     * @return the decompressing stream
+     * @throws IOException if the stream is not in this compression
+     */
+    public InputStream decompress(InputStream in) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(in, GZIP_BUFFER_SIZE);
+            case ZSTD:
+                checkZstdAvailable();
+                return new ZstdCompressorInputStream(in);
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * Checks that the native zstd library is on the classpath.
+     *
+     * @throws IllegalStateException if it is not
+     */
+    private static void checkZstdAvailable() {
+        if (!ZstdUtils.isZstdCompressionAvailable()) {
+            throw new IllegalStateException("ZSTD compression needs com.github.luben:zstd-jni on the classpath");
+        }
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoInterruptedException;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.eclipse.ecsp.nosqldao.utils.Constants;
+import org.eclipse.ecsp.nosqldao.utils.PropertyNames;
+import org.eclipse.ecsp.utils.logger.IgniteLogger;
+import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedges latency sensitive reads on secondaries: when a read has not answered within an adaptive delay,
+ * the observed latency percentile of the operation, the same read is sent a second time, and the first
+ * response wins.
+ *
+ * <p>The second read goes through server selection again, which picks a member at random among the
+ * eligible members within the latency window, so it usually reaches another member than the slow one.
+ * The sync driver cannot abort a read in flight, and interrupting its thread makes the driver close the
+ * pooled connection, so the losing read is left to complete without interruption and its result is
+ * discarded. Hedged reads are bounded by a maximum execution time instead, {@link #getMaxTimeMs()} when
+ * the query sets none. A hedge budget caps the extra load: each read gives back the configured percentage
+ * of a token, and each hedge takes a whole token.</p>
+ */
+@Component
+public class HedgedReadExecutor {
+
+    /**
+     * Logger.
+     */
+    private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(HedgedReadExecutor.class);
+
+    /**
+     * Budget tokens are kept in thousandths of a token.
+     */
+    private static final long MILLI_TOKENS = 1000L;
+
+    /**
+     * Hundred percent.
+     */
+    private static final double PERCENT = 100.0;
+
+    /**
+     * Maximum number of hedge tokens saved up by the budget.
+     */
+    private static final long BUDGET_MAX_TOKENS = 10L;
+
+    /**
+     * Time an idle hedging thread is kept, in seconds.
+     */
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60L;
+
+    /**
+     * Counter of hedged reads.
+     */
+    private static volatile Counter hedgeCounter;
+
+    /**
+     * Indicates whether reads are hedged.
+     */
+    @Value("${" + PropertyNames.MONGODB_HEDGED_READS_ENABLED + ":false}")
+    private boolean hedgingEnabled;
+
+    /**
+     * Latency percentile, between 0 and 1, after which a read is hedged.
+     */
+    @Value("${" + PropertyNames.MONGODB_HEDGED_READS_DELAY_PERCENTILE + ":0.95}")
+    private double delayPercentile;
+
+    /**
+     * Hedge delay used until enough latencies are observed, in milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_HEDGED_READS_INITIAL_DELAY_MS + ":20}")
+    private long initialDelayMs;
+
+    /**
+     * Lower bound of the hedge delay, in milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_HEDGED_READS_MIN_DELAY_MS + ":2}")
+    private long minDelayMs;
+
+    /**
+     * Maximum percentage of reads which are hedged.
+     */
+    @Value("${" + PropertyNames.MONGODB_HEDGED_READS_BUDGET_PERCENT + ":5}")
+    private double budgetPercent;
+
+    /**
+     * Maximum number of threads running reads.
+     */
+    @Value("${" + PropertyNames.MONGODB_HEDGED_READS_MAX_THREADS + ":64}")
+    private int maxThreads;
+
+    /**
+     * Maximum page size of a find to be hedged.
+     */
+    @Value("${" + PropertyNames.MONGODB_HEDGED_READS_MAX_PAGE_SIZE + ":100}")
+    private int maxPageSize;
+
+    /**
+     * Maximum execution time of a hedged read whose query sets none, in milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_HEDGED_READS_MAX_TIME_MS + ":1000}")
+    private long maxTimeMs;
+
+    /**
+     * The service where this DAO library is embedded.
+     */
+    @Value("${service.name:}")
+    private String serviceName;
+
+    /**
+     * Indicates whether Prometheus is enabled.
+     */
+    @Value("${" + PropertyNames.ENABLE_PROMETHEUS + ":false}")
+    private boolean prometheusEnabled;
+
+    /**
+     * Indicates whether DAO metrics are enabled.
+     */
+    @Value("${" + PropertyNames.DAO_METRICS_ENABLED + ": true }")
+    private boolean daoMetricsEnabled;
+
+    /**
+     * Tokens left in the hedge budget, in thousandths of a token.
+     */
+    private final AtomicLong budget = new AtomicLong();
+
+    /**
+     * The observed latencies, by operation type and entity.
+     */
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * The threads running the reads.
+     */
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Creates the threads and the metrics objects.
+     */
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(0, maxThreads, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "dao-hedged-read-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        if (prometheusEnabled && daoMetricsEnabled) {
+            synchronized (HedgedReadExecutor.class) {
+                if (hedgeCounter == null) {
+                    hedgeCounter = Counter.build(Constants.HEDGE_COUNTER_NAME, Constants.HEDGE_COUNTER_HELP_STR)
+                            .labelNames(Constants.SVC, Constants.OPERATION_TYPE_LABEL, Constants.ENTITY_LABEL,
+                                    Constants.HEDGE_OUTCOME_LABEL)
+                            .register(CollectorRegistry.defaultRegistry);
+                }
+            }
+        }
+        LOGGER.info("Mongo hedged reads enabled : {}, delayPercentile : {}, budgetPercent : {}, maxThreads : {}",
+                hedgingEnabled, delayPercentile, budgetPercent, maxThreads);
+    }
+
+    /**
+     * Stops the threads running the reads.
+     */
+    @PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks whether a read of the given size may be hedged.
+     *
+     * @param resultSize the maximum number of documents read
+     * @return true if hedging is enabled and the read is small enough
+     */
+    public boolean isHedged(int resultSize) {
+        return hedgingEnabled && resultSize > 0 && resultSize <= maxPageSize;
+    }
+
+    /**
+     * Gets the maximum execution time of a hedged read whose query sets none.
+     *
+     * @return the maximum execution time, in milliseconds
+     */
+    public long getMaxTimeMs() {
+        return maxTimeMs;
+    }
+
+    /**
+     * Executes a read, sending it a second time if it has not answered within the hedge delay and the
+     * budget allows it. The read must not depend on the calling thread, since it runs on another thread,
+     * and each run must use its own query and options, since both runs may be in flight at once.
+     *
+     * @param <T> the type of the result
+     * @param operationType the operation type, used as metrics label
+     * @param entity the entity name, used as metrics label
+     * @param read the read
+     * @return the result of the first read which succeeded
+     */
+    public <T> T execute(String operationType, String entity, Supplier<T> read) {
+        if (!hedgingEnabled) {
+            return read.get();
+        }
+        LatencyWindow window = latencies.computeIfAbsent(operationType + ":" + entity, key -> new LatencyWindow());
+        depositToken();
+        CompletionService<T> completionService = new ExecutorCompletionService<>(executor);
+        long start = System.nanoTime();
+        Future<T> first;
+        try {
+            first = completionService.submit(read::get);
+        } catch (RejectedExecutionException e) {
+            return read.get();
+        }
+        Future<T> hedge = null;
+        boolean delayElapsed = false;
+        int pending = 1;
+        RuntimeException failure = null;
+        try {
+            while (pending > 0) {
+                Future<T> done = delayElapsed ? completionService.take()
+                        : completionService.poll(window.getDelayMs(initialDelayMs, minDelayMs), TimeUnit.MILLISECONDS);
+                if (done == null) {
+                    delayElapsed = true;
+                    hedge = submitHedge(completionService, read, operationType, entity);
+                    pending += hedge == null ? 0 : 1;
+                    continue;
+                }
+                pending--;
+                try {
+                    T result = done.get();
+                    window.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), delayPercentile);
+                    if (hedge != null) {
+                        count(operationType, entity, done == hedge ? Constants.HEDGE_OUTCOME_HEDGE_WON
+                                : Constants.HEDGE_OUTCOME_FIRST_WON);
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    failure = unwrap(e);
+                }
+            }
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoInterruptedException("Interrupted while waiting for a hedged read", e);
+        } finally {
+            // not interrupted, which would close the pooled connection of the losing read
+            first.cancel(false);
+            if (hedge != null) {
+                hedge.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Sends the hedge of a read, if the budget allows it.
+     *
+     * @param <T> the type of the result
+     * @param completionService the completion service of the read
+     * @param read the read
+     * @param operationType the operation type
+     * @param entity the entity name
+     * @return the hedge, null if it was not sent
+     */
+    private <T> Future<T> submitHedge(CompletionService<T> completionService, Supplier<T> read,
+            String operationType, String entity) {
+        if (!withdrawToken()) {
+            count(operationType, entity, Constants.HEDGE_OUTCOME_BUDGET_EXHAUSTED);
+            return null;
+        }
+        try {
+            Future<T> hedge = completionService.submit(read::get);
+            count(operationType, entity, Constants.HEDGE_OUTCOME_HEDGED);
+            return hedge;
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("No thread left to hedge {} on {}", operationType, entity);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the error of a failed read.
+     *
+     * @param e the exception of the read future
+     * @return the error
+     */
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new MongoException("Hedged read failed", cause);
+    }
+
+    /**
+     * Gives back a fraction of a token to the budget for each read.
+     */
+    private void depositToken() {
+        long max = BUDGET_MAX_TOKENS * MILLI_TOKENS;
+        long deposit = (long) (budgetPercent * MILLI_TOKENS / PERCENT);
+        budget.getAndUpdate(tokens -> Math.min(max, tokens + deposit));
+    }
+
+    /**
+     * Takes a token from the budget for a hedge.
+     *
+     * @return true if a token was taken
+     */
+    private boolean withdrawToken() {
+        return budget.getAndUpdate(tokens -> tokens >= MILLI_TOKENS ? tokens - MILLI_TOKENS : tokens)
+                >= MILLI_TOKENS;
+    }
+
+    /**
+     * Increments the hedge counter.
+     *
+     * @param operationType the operation type
+     * @param entity the entity name
+     * @param outcome the outcome of the hedge
+     */
+    private void count(String operationType, String entity, String outcome) {
+        if (hedgeCounter != null) {
+            hedgeCounter.labels(serviceName, operationType, entity, outcome).inc();
+        }
+    }
+
+    /**
+     * Window of the latest latencies of an operation, whose percentile is recomputed periodically.
+     */
+    static final class LatencyWindow {
+
+        /**
+         * Number of latencies kept.
+         */
+        private static final int SIZE = 256;
+
+        /**
+         * Number of latencies recorded between two computations of the percentile.
+         */
+        private static final int RECOMPUTE_INTERVAL = 32;
+
+        /**
+         * The latencies, in milliseconds, as a ring.
+         */
+        private final long[] samples = new long[SIZE];
+
+        /**
+         * The number of latencies recorded.
+         */
+        private long recorded;
+
+        /**
+         * The latency percentile last computed, in milliseconds, -1 until enough latencies are recorded.
+         */
+        private volatile long percentileMs = -1L;
+
+        /**
+         * Records a latency.
+         *
+         * @param latencyMs the latency, in milliseconds
+         * @param percentile the percentile to compute, between 0 and 1
+         */
+        synchronized void record(long latencyMs, double percentile) {
+            samples[(int) (recorded % SIZE)] = latencyMs;
+            recorded++;
+            if (recorded % RECOMPUTE_INTERVAL == 0) {
+                int count = (int) Math.min(recorded, SIZE);
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(percentile * count) - 1;
+                percentileMs = sorted[Math.max(0, Math.min(count - 1, index))];
+            }
+        }
+
+        /**
+         * Gets the hedge delay.
+         *
+         * @param initialDelayMs the delay until the percentile is computed, in milliseconds
+         * @param minDelayMs the lower bound of the delay, in milliseconds
+         * @return the delay, in milliseconds
+         */
+        long getDelayMs(long initialDelayMs, long minDelayMs) {
+            long delay = percentileMs;
+            return Math.max(minDelayMs, delay < 0 ? initialDelayMs : delay);
+        }
+    }
+}
@@ -41,45 +41,93 @@
 package org.eclipse.ecsp.nosqldao.mongodb;
 
 import com.google.common.reflect.TypeToken;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.MongoSocketReadTimeoutException;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadConcernLevel;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.DistinctIterable;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.ListIndexesIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.EstimatedDocumentCountOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.TimeSeriesOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 import dev.morphia.AdvancedDatastore;
+import dev.morphia.Datastore;
 import dev.morphia.DeleteOptions;
 import dev.morphia.InsertOneOptions;
 import dev.morphia.UpdateOptions;
 import dev.morphia.annotations.Id;
+import dev.morphia.annotations.Index;
+import dev.morphia.annotations.Indexed;
+import dev.morphia.annotations.Indexes;
 import dev.morphia.annotations.builders.IndexHelper;
 import dev.morphia.mapping.codec.pojo.EntityModel;
+import dev.morphia.mapping.codec.pojo.PropertyModel;
+import dev.morphia.query.CountOptions;
+import dev.morphia.query.FindOptions;
 import dev.morphia.query.Query;
+import dev.morphia.query.experimental.filters.Filter;
 import dev.morphia.query.experimental.filters.Filters;
 import dev.morphia.query.experimental.updates.UpdateOperator;
+import dev.morphia.transactions.MorphiaSession;
+import dev.morphia.utils.IndexType;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
 import jakarta.annotation.PostConstruct;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.RawBsonDocumentCodec;
+import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.conversions.Bson;
 import org.eclipse.ecsp.diagnostic.DiagnosticData;
 import org.eclipse.ecsp.diagnostic.DiagnosticResult;
 import org.eclipse.ecsp.entities.AuditableIgniteEntity;
 import org.eclipse.ecsp.entities.IgniteEntity;
+import org.eclipse.ecsp.nosqldao.AggregationTranslator;
+import org.eclipse.ecsp.nosqldao.Coordinate;
+import org.eclipse.ecsp.nosqldao.GeoNearResult;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation;
 import org.eclipse.ecsp.nosqldao.IgniteBaseDAO;
-import org.eclipse.ecsp.nosqldao.IgniteCriteria;
-import org.eclipse.ecsp.nosqldao.IgniteCriteriaGroup;
+import org.eclipse.ecsp.nosqldao.IgniteOrderBy;
 import org.eclipse.ecsp.nosqldao.IgnitePagingInfoResponse;
 import org.eclipse.ecsp.nosqldao.IgniteQuery;
 import org.eclipse.ecsp.nosqldao.MongoDiagnosticReporterImpl;
-import org.eclipse.ecsp.nosqldao.Operator;
+import org.eclipse.ecsp.nosqldao.MongoRetryExhaustException;
+import org.eclipse.ecsp.nosqldao.Order;
 import org.eclipse.ecsp.nosqldao.QueryTranslator;
+import org.eclipse.ecsp.nosqldao.TimeSeries;
 import org.eclipse.ecsp.nosqldao.Updates;
 import org.eclipse.ecsp.nosqldao.UpdatesTranslator;
+import org.eclipse.ecsp.nosqldao.Workload;
+import org.eclipse.ecsp.nosqldao.spring.config.MongoClientLeases;
 import org.eclipse.ecsp.nosqldao.utils.Constants;
 import org.eclipse.ecsp.nosqldao.utils.MetricsUtil;
 import org.eclipse.ecsp.nosqldao.utils.NumericConstants;
@@ -87,24 +135,44 @@ import org.eclipse.ecsp.nosqldao.utils.PropertyNames;
 import org.eclipse.ecsp.utils.logger.IgniteLogger;
 import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
 import org.eclipse.ecsp.utils.metrics.GenericIgniteHistogram;
-import org.springframework.beans.PropertyAccessorFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import reactor.core.publisher.Flux;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -115,7 +183,8 @@ import java.util.stream.Collectors;
  * @param <E> the type of the entity extending IgniteEntity
  */
 @SuppressWarnings("checkstyle:MatchXpath")
-public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implements IgniteBaseDAO<K, E> {
+public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implements IgniteBaseDAO<K, E>,
+        TransactionParticipant<K, E> {
 
     private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(IgniteBaseDAOMongoImpl.class);
 
@@ -123,6 +192,8 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
     private static volatile GenericIgniteHistogram requestLatencyHisto;
     private static volatile Counter requestCounter;
     private static volatile Gauge requestGauge;
+    private static volatile Counter shardRoutingCounter;
+    private static volatile Counter timeoutCounter;
     private static volatile boolean metricsInitialized = false;
     private final boolean isAuditable;
 
@@ -139,6 +210,53 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
     private static final String EXCEPTION_MESSAGE = "Exception while accessing a field. Exception is: {}";
     private static final String FIELD_UPDATED_WITH_VALUE = "Field: {} updated with new value: {}";
 
+    /**
+     * The codec of raw BSON documents, which keeps the documents as read from the wire.
+     */
+    private static final RawBsonDocumentCodec RAW_BSON_DOCUMENT_CODEC = new RawBsonDocumentCodec();
+
+    /**
+     * Error codes of a distinct command whose result exceeds the maximum document size.
+     */
+    private static final Set<Integer> DISTINCT_TOO_LARGE_ERROR_CODES = Set.of(17217, 10334);
+
+    /**
+     * The field the $geoNear stage of a geoNear query outputs the distance of each document to.
+     */
+    private static final String GEO_NEAR_DISTANCE_FIELD = "_geoNearDistance";
+
+    /**
+     * The type of a 2dsphere key in the key document of an index.
+     */
+    private static final String GEO_2DSPHERE = "2dsphere";
+
+    /**
+     * Error code of an operation which exceeded its maximum execution time.
+     */
+    private static final int MAX_TIME_EXPIRED_ERROR_CODE = 50;
+
+    /**
+     * Error code of a create command for a collection which already exists.
+     */
+    private static final int NAMESPACE_EXISTS_ERROR_CODE = 48;
+
+    /**
+     * Initial capacity of the collection views map.
+     */
+    private static final int VIEWS_INITIAL_CAPACITY = 16;
+
+    /**
+     * Load factor of the collection views map.
+     */
+    private static final float MAP_LOAD_FACTOR = 0.75f;
+
+    /**
+     * Read preferences whose reads may go to several members, and so may be hedged.
+     */
+    private static final Set<String> HEDGED_READ_PREFERENCES = Set.of(
+            MongoReadPreference.SECONDARY.toString(), MongoReadPreference.SECONDARY_PREFERRED.toString(),
+            MongoReadPreference.NEAREST.toString());
+
     /**
      * The Mongo datastore.
      */
@@ -156,11 +274,40 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
      */
     private QueryTranslator<Query<E>> queryTranslator;
 
+    /**
+     * The datastore of the analytical client, if one is configured.
+     */
+    @Autowired(required = false)
+    private AnalyticalDatastore analyticalDatastore;
+
+    /**
+     * The leases on the mongo client of the datastore, held for the whole of each operation, cursors and
+     * streams included, so a client replaced by a hot swap is only closed once drained. Null when the
+     * datastore is not hot swapped.
+     */
+    @Autowired(required = false)
+    private MongoClientLeases mongoClientLeases;
+
+    /**
+     * The query translator of the analytical datastore, the query translator if there is none.
+     */
+    private QueryTranslator<Query<E>> analyticalQueryTranslator;
+
     /**
      * The updates translator for translating Ignite updates.
      */
     private UpdatesTranslator<List<UpdateOperator>> updatesTranslator;
 
+    /**
+     * The aggregation translator for translating Ignite aggregations.
+     */
+    private AggregationTranslator<List<Bson>> aggregationTranslator;
+
+    /**
+     * The codecs of the projection types, by projection type.
+     */
+    private final Map<Class<?>, ProjectionCodec<?>> projectionCodecs = new ConcurrentHashMap<>();
+
     /**
      * Indicates whether the Mongo diagnostic reporter is enabled.
      */
@@ -202,6 +349,161 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
      */
     private Map<String, List<String>> shardKeyMap;
 
+    /**
+     * The shard keys of the shard key map which are fields of the entity class.
+     */
+    private Map<String, ShardKeyExtractor> shardKeyExtractors = Collections.emptyMap();
+
+    /**
+     * The field of the entity annotated with @Id.
+     */
+    private final Field idField;
+
+    /**
+     * The time-series options of the entity, null if its collection is not a time-series collection.
+     */
+    private final TimeSeries timeSeries;
+
+    /**
+     * The time partitioning of the collection of the entity, null if it is not partitioned.
+     */
+    private TimePartitioning partitioning;
+
+    /**
+     * Reads the partition time of an entity, null if the collection is not partitioned.
+     */
+    private ShardKeyExtractor partitionTimeExtractor;
+
+    /**
+     * The partitions whose indexes, or time-series collection, were created by this DAO.
+     */
+    private final Set<String> preparedPartitions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Time the collection names listed to find the partitions are cached, in milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_PARTITIONS_CACHE_TTL_MS + ":5000}")
+    private long partitionsCacheTtlMs;
+
+    /**
+     * The collection names last listed to find the partitions, null if not listed or invalidated.
+     */
+    private volatile CachedCollectionNames cachedCollectionNames;
+
+    /**
+     * The collection the operations of the current thread target, set while a collection view runs one.
+     */
+    private final ThreadLocal<String> collectionScope = new ThreadLocal<>();
+
+    /**
+     * The fields with a 2dsphere index, by collection name, loaded at init and again when a geoNear query does
+     * not find its field, as the index may have been created since.
+     */
+    private final Map<String, Set<String>> geoIndexedFields = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum number of collection views kept, least recently used first out.
+     */
+    @Value("${" + PropertyNames.MONGODB_COLLECTION_VIEWS_CACHE_SIZE + ":1000}")
+    private int collectionViewsCacheSize;
+
+    /**
+     * The collection views, by collection name, whose indexes were created; access ordered.
+     */
+    private Map<String, IgniteBaseDAO<K, E>> collectionViews;
+
+    /**
+     * Default maximum server execution time of find operations, in milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_FIND_MAX_TIME_MS + ":0}")
+    private long findMaxTimeMs;
+
+    /**
+     * Default maximum server execution time of count operations, in milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_COUNT_MAX_TIME_MS + ":0}")
+    private long countMaxTimeMs;
+
+    /**
+     * Default maximum server execution time of distinct operations, in milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_DISTINCT_MAX_TIME_MS + ":0}")
+    private long distinctMaxTimeMs;
+
+    /**
+     * Default maximum server execution time of aggregations, in milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_AGGREGATE_MAX_TIME_MS + ":0}")
+    private long aggregateMaxTimeMs;
+
+    /**
+     * The collections whose countAll uses the estimated count.
+     */
+    private Set<String> estimatedCountCollections = Collections.emptySet();
+
+    /**
+     * Comma separated collections whose countAll uses the estimated count.
+     */
+    @Value("${" + PropertyNames.MONGODB_COUNT_ALL_ESTIMATED_COLLECTIONS + ":}")
+    private String estimatedCountCollectionList;
+
+    /**
+     * Time an exact countAll result is cached, in milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_COUNT_ALL_CACHE_TTL_MS + ":0}")
+    private long countAllCacheTtlMs;
+
+    /**
+     * The cached exact countAll results, by collection name.
+     */
+    private final Map<String, CachedCount> countAllCache = new ConcurrentHashMap<>();
+
+    /**
+     * The default read concerns, by collection name.
+     */
+    private Map<String, ReadConcern> readConcerns = Collections.emptyMap();
+
+    /**
+     * Comma separated collection:level pairs of the default read concerns.
+     */
+    @Value("${" + PropertyNames.MONGODB_COLLECTION_READ_CONCERNS + ":}")
+    private String readConcernList;
+
+    /**
+     * The default write concerns, by collection name.
+     */
+    private Map<String, WriteConcern> writeConcerns = Collections.emptyMap();
+
+    /**
+     * Comma separated collection:name pairs of the default write concerns.
+     */
+    @Value("${" + PropertyNames.MONGODB_COLLECTION_WRITE_CONCERNS + ":}")
+    private String writeConcernList;
+
+    /**
+     * Retries operations which failed with a transient error.
+     */
+    @Autowired(required = false)
+    private MongoRetryExecutor mongoRetryExecutor;
+
+    /**
+     * Hedges small reads on secondaries.
+     */
+    @Autowired(required = false)
+    private HedgedReadExecutor hedgedReadExecutor;
+
+    /**
+     * Reads the partitions of a time-partitioned collection in parallel.
+     */
+    @Autowired(required = false)
+    private PartitionQueryExecutor partitionQueryExecutor;
+
+    /**
+     * Meters and shapes the request units consumed on CosmosDB.
+     */
+    @Autowired(required = false)
+    private CosmosRequestUnitTracker cosmosRequestUnitTracker;
+
     /**
      * Instantiates a new Ignite base DAO Mongo.
      */
@@ -214,6 +516,12 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
         this.entityClass = (Class<E>) pt.getActualTypeArguments()[1];
         this.entityClassName = this.entityClass.getSimpleName();
         this.isAuditable = this.isAuditableEntity(this.entityClass);
+        this.timeSeries = this.entityClass.getAnnotation(TimeSeries.class);
+        List<Field> idFields = FieldUtils.getFieldsListWithAnnotation(this.entityClass, Id.class);
+        this.idField = idFields.isEmpty() ? null : idFields.get(0);
+        if (this.idField != null) {
+            this.idField.setAccessible(true);
+        }
         LOGGER.debug("entity class:{}, isAuditable:{}", this.entityClass, this.isAuditable);
     }
 
@@ -254,9 +562,35 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
         @SuppressWarnings("rawtypes")
         MongoCollection collection = null;
         queryTranslator = new QueryTranslatorMorphiaImpl<>(mongoDatastore, entityClass);
+        analyticalQueryTranslator = getDatastore(true) == mongoDatastore ? queryTranslator
+                : new QueryTranslatorMorphiaImpl<>(getDatastore(true), entityClass);
         updatesTranslator = new UpdatesTranslatorMorphiaImpl();
+        aggregationTranslator = new AggregationTranslatorMongoImpl<>(queryTranslator);
+        collectionViews = new LinkedHashMap<>(VIEWS_INITIAL_CAPACITY, MAP_LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IgniteBaseDAO<K, E>> eldest) {
+                return size() > collectionViewsCacheSize;
+            }
+        };
         String overridingCollection = getOverridingCollectionName();
-        if (StringUtils.isEmpty(overridingCollection)) {
+        partitioning = getTimePartitioning();
+        if (partitioning != null) {
+            partitionTimeExtractor = ShardKeyExtractor.compile(entityClass, partitioning.getTimeField(), null);
+            if (partitionTimeExtractor == null) {
+                throw new IllegalArgumentException("Partition time field " + partitioning.getTimeField()
+                        + " not found on " + entityClassName);
+            }
+            String currentPartition = partitioning.getPartition(Instant.now());
+            preparePartition(currentPartition);
+            if (diagnosticMongoReporterEnabled) {
+                collection = getMongoCollection(currentPartition);
+            }
+        } else if (timeSeries != null) {
+            createTimeSeriesCollection(getCollectionName());
+            if (diagnosticMongoReporterEnabled) {
+                collection = getMongoCollection(overridingCollection);
+            }
+        } else if (StringUtils.isEmpty(overridingCollection)) {
             mongoDatastore.ensureIndexes(entityClass);
             if (diagnosticMongoReporterEnabled) {
                 collection = mongoDatastore.getMapper().getCollection(entityClass);
@@ -270,6 +604,9 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
                 collection = mongoDatastore.getDatabase().getCollection(overridingCollection);
             }
         }
+        if (partitioning == null) {
+            verifyGeoIndexes();
+        }
 
         if (diagnosticMongoReporterEnabled) {
             boolean isIndexed = false;
@@ -290,6 +627,44 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
         }
         initializeMetricsObjects();
         loadShardKeys();
+        if (StringUtils.isNotBlank(estimatedCountCollectionList)) {
+            estimatedCountCollections = Arrays.stream(estimatedCountCollectionList.split(","))
+                    .map(String::trim).filter(StringUtils::isNotEmpty).collect(Collectors.toSet());
+        }
+        readConcerns = parseConcerns(readConcernList,
+                level -> new ReadConcern(ReadConcernLevel.fromString(level)));
+        writeConcerns = parseConcerns(writeConcernList, name -> {
+            WriteConcern writeConcern = WriteConcern.valueOf(name);
+            if (writeConcern == null) {
+                throw new IllegalArgumentException("Unknown write concern " + name);
+            }
+            return writeConcern;
+        });
+    }
+
+    /**
+     * Parses comma separated collection:value pairs.
+     *
+     * @param <T> the type of the values
+     * @param list the pairs
+     * @param parser the parser of the values
+     * @return the values, by collection name
+     * @throws IllegalArgumentException if a pair or a value is invalid
+     */
+    private static <T> Map<String, T> parseConcerns(String list, Function<String, T> parser) {
+        if (StringUtils.isBlank(list)) {
+            return Collections.emptyMap();
+        }
+        Map<String, T> concerns = new HashMap<>();
+        for (String pair : list.split(",")) {
+            String[] parts = pair.split(":");
+            if (parts.length != NumericConstants.TWO || StringUtils.isAnyBlank(parts)) {
+                throw new IllegalArgumentException("Invalid collection concern " + pair
+                        + ", expected collection:value");
+            }
+            concerns.put(parts[0].trim(), parser.apply(parts[1].trim()));
+        }
+        return concerns;
     }
 
     /**
@@ -353,9 +728,27 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
             }
             LOGGER.info("ShardKeyMap : {}, loaded from properties parsing ShardKeyList : {} ",
                     shardKeyMap.toString(), mongoShardKeyList);
+            compileShardKeyExtractors();
         }
     }
 
+    /**
+     * Resolves the shard keys of the shard key map on the entity class, so that saves read the shard key
+     * values through fields resolved once. Shard keys of other entities are skipped.
+     */
+    private void compileShardKeyExtractors() {
+        Map<String, ShardKeyExtractor> extractors = new HashMap<>();
+        EntityModel model = mongoDatastore.getMapper().getEntityModel(entityClass);
+        shardKeyMap.values().stream().flatMap(List::stream).distinct().forEach(shardKey -> {
+            ShardKeyExtractor extractor = ShardKeyExtractor.compile(entityClass, shardKey, model);
+            if (extractor != null) {
+                extractors.put(shardKey, extractor);
+            }
+        });
+        LOGGER.debug("Shard keys resolved on entity {} : {}", entityClassName, extractors.keySet());
+        shardKeyExtractors = extractors;
+    }
+
     /**
      * Finds all entities.
      *
@@ -363,20 +756,26 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
      */
     @Override
     public List<E> findAll() {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+        return executeWithRetry(Constants.OPERATION_TYPE_FIND_ALL, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
                 requestCounter, requestGauge, () -> {
+                    if (partitioning != null) {
+                        return findAllInPartitions();
+                    }
                     Query<E> query = null;
-                    String collection = getOverridingCollectionName();
+                    String collection = getTargetCollectionName();
+                    AdvancedDatastore datastore = getDatastore(true);
                     if (StringUtils.isNotEmpty(collection)) {
-                        query = mongoDatastore.find(collection, entityClass);
+                        query = datastore.find(collection, entityClass);
                     } else {
-                        query = mongoDatastore.find(entityClass);
+                        query = datastore.find(entityClass);
                     }
-                    return query.iterator().toList();
+                    FindOptions options = createFindOptions(null);
+                    return (options == null ? query.iterator() : query.iterator(options)).toList();
                 }, () ->
                         new String[] {serviceName, Constants.OPERATION_TYPE_FIND_ALL,
                             entityClassName, FALSE, Constants.FULL_QUERY_NA}
-        );
+        ));
     }
 
     /**
@@ -387,8 +786,28 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
      */
     @Override
     public E save(E entity) {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+        return save(entity, null);
+    }
+
+    /**
+     * Saves the specified entity with a write concern. The entity is inserted as a new measurement if
+     * its collection is a time-series collection.
+     *
+     * @param entity the entity to save
+     * @param writeConcern the write concern, null for the default of the entity
+     * @return the saved entity
+     */
+    @Override
+    public E save(E entity, WriteConcern writeConcern) {
+        WriteConcern concern = getWriteConcern(writeConcern);
+        return executeWithRetry(Constants.OPERATION_TYPE_SAVE, timeSeries == null && isIdSet(entity),
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
                 requestCounter, requestGauge, () -> {
+                    if (timeSeries != null) {
+                        insertMeasurements(getWriteCollectionName(entity), Collections.singletonList(entity),
+                                concern);
+                        return entity;
+                    }
                     /*
                      * adding/updating LastUpdatedTime of entity - to be used for data
                      * retention
@@ -398,7 +817,7 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
                     }
 
                     String collectionName;
-                    String dynamicCollectionName = getOverridingCollectionName();
+                    String dynamicCollectionName = getWriteCollectionName(entity);
                     if (StringUtils.isNotEmpty(dynamicCollectionName)) {
                         collectionName = dynamicCollectionName;
                     } else {
@@ -409,13 +828,15 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
                     if (isSharded(collectionName)) {
                         LOGGER.debug("Performing save operation for entity : {}, with shard "
                                 + "key map populated", entity.toString());
-                        executeSaveOperationForShardKeyCollection(collectionName, entity);
+                        executeSaveOperationForShardKeyCollection(collectionName, entity, concern);
                     } else {
                         LOGGER.debug("No shard key map configured when saving entity : {}",
                                 entity.toString());
                         if (StringUtils.isNotEmpty(dynamicCollectionName)) {
                             executeSaveOperationForDynamicCollectionName(dynamicCollectionName,
-                                    entity);
+                                    entity, concern);
+                        } else if (concern != null) {
+                            mongoDatastore.save(entity, new InsertOneOptions().writeConcern(concern));
                         } else {
                             mongoDatastore.save(entity);
                         }
@@ -423,7 +844,7 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
                     return entity;
                 }, () -> new String[]{serviceName, Constants.OPERATION_TYPE_SAVE,
                     entityClassName, FALSE, Constants.FULL_QUERY_NA}
-        );
+        ));
     }
 
     /**
@@ -439,19 +860,39 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
     }
 
     /**
-     * Saves all the specified entities.
+     * Saves all the specified entities. The entities are inserted as new measurements with a single
+     * unordered insert if their collection is a time-series collection.
      *
      * @param entities the entities to save
      * @return a list of saved entities
      */
     @Override
     public List<E> saveAll(@SuppressWarnings("unchecked") E... entities) {
+        if (timeSeries != null) {
+            WriteConcern concern = getWriteConcern(null);
+            return executeWithRetry(Constants.OPERATION_TYPE_SAVE, false,
+                    () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                    requestCounter, requestGauge, () -> {
+                        List<E> entitiesList = Arrays.asList(entities);
+                        Map<String, List<E>> entitiesByCollection = new LinkedHashMap<>();
+                        for (E entity : entitiesList) {
+                            entitiesByCollection.computeIfAbsent(getWriteCollectionName(entity),
+                                    collection -> new ArrayList<>()).add(entity);
+                        }
+                        entitiesByCollection.forEach((collection, measurements) ->
+                                insertMeasurements(collection, measurements, concern));
+                        return new ArrayList<>(entitiesList);
+                    }, () -> new String[] {serviceName, Constants.OPERATION_TYPE_SAVE,
+                        entityClassName, FALSE, Constants.FULL_QUERY_NA}
+            ));
+        }
         return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
                 requestCounter, requestGauge, () -> {
                     List<E> entitiesList = Arrays.asList(entities);
                     List<E> savedEntities = new ArrayList<>();
+                    String scope = collectionScope.get();
                     entitiesList.parallelStream().forEach(entity ->
-                            savedEntities.add(save(entity))
+                            savedEntities.add(inCollectionScope(scope, () -> save(entity)))
                     );
                     return savedEntities;
                 }, () ->
@@ -460,6 +901,54 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
         );
     }
 
+    /**
+     * Saves raw BSON documents with a single unordered bulk write that replaces, or inserts, the document
+     * with the same _id, so that saving the same documents again is idempotent. Measurements of a
+     * time-series collection are inserted instead, as they cannot be replaced.
+     *
+     * @param documents the documents, each with an _id
+     * @return the number of documents saved
+     * @throws IllegalArgumentException if a document has no _id
+     * @throws UnsupportedOperationException if the collection is partitioned by time
+     */
+    @Override
+    public int saveAllRaw(List<RawBsonDocument> documents) {
+        if (partitioning != null) {
+            throw new UnsupportedOperationException("Raw writes are not supported on collections partitioned by time");
+        }
+        if (documents.isEmpty()) {
+            return 0;
+        }
+        List<WriteModel<RawBsonDocument>> models = new ArrayList<>(documents.size());
+        for (RawBsonDocument document : documents) {
+            if (timeSeries != null) {
+                models.add(new InsertOneModel<>(document));
+            } else if (document.containsKey(Constants.ID_FILTER_CONSTANT)) {
+                models.add(new ReplaceOneModel<>(new BsonDocument(Constants.ID_FILTER_CONSTANT,
+                        document.get(Constants.ID_FILTER_CONSTANT)), document, new ReplaceOptions().upsert(true)));
+            } else {
+                throw new IllegalArgumentException("Raw documents must have an _id to be saved");
+            }
+        }
+        WriteConcern concern = getWriteConcern(null);
+        return executeWithRetry(Constants.OPERATION_TYPE_SAVE_RAW, timeSeries == null,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge, () -> {
+                    MongoCollection<RawBsonDocument> collection = getMongoCollection(getTargetCollectionName())
+                            .withDocumentClass(RawBsonDocument.class)
+                            .withCodecRegistry(CodecRegistries.fromRegistries(
+                                    CodecRegistries.fromCodecs(RAW_BSON_DOCUMENT_CODEC),
+                                    mongoDatastore.getDatabase().getCodecRegistry()));
+                    if (concern != null) {
+                        collection = collection.withWriteConcern(concern);
+                    }
+                    BulkWriteResult result = collection.bulkWrite(models, new BulkWriteOptions().ordered(false));
+                    return result.getInsertedCount() + result.getMatchedCount() + result.getUpserts().size();
+                }, () -> new String[]{serviceName, Constants.OPERATION_TYPE_SAVE_RAW,
+                    entityClassName, FALSE, Constants.FULL_QUERY_NA}
+        ));
+    }
+
     /**
      * Finds an entity by its ID.
      *
@@ -468,20 +957,31 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
      */
     @Override
     public E findById(K id) {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
-                requestCounter, requestGauge, () -> {
-                    String collection = getOverridingCollectionName();
-                    if (StringUtils.isNotEmpty(collection)) {
-                        return mongoDatastore.find(collection, entityClass).filter(Filters.eq(
-                                Constants.ID_FILTER_CONSTANT, id)).first();
-                    } else {
-                        return mongoDatastore.find(entityClass).filter(Filters.eq(
-                                Constants.ID_FILTER_CONSTANT, id)).first();
-                    }
-                }, () ->
+        return findById(id, null);
+    }
+
+    /**
+     * Finds an entity by its ID and shard key.
+     *
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name
+     * @return the found entity, or null if not found
+     */
+    @Override
+    public E findById(K id, Map<String, Object> shardKey) {
+        if (isPartitionFanOut()) {
+            return inFirstPartition(() -> findById(id, shardKey), Objects::nonNull, null);
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_FIND, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge,
+                    () -> executeHedged(Constants.OPERATION_TYPE_FIND, null, 1,
+                            () -> createIdQuery(Constants.OPERATION_TYPE_FIND, id, shardKey),
+                            createFindOptions(null), (query, options) -> options == null ? query.first()
+                                    : query.first(options)), () ->
                         new String[] {serviceName, Constants.OPERATION_TYPE_FIND,
                             entityClassName, FALSE, Constants.FULL_QUERY_NA}
-        );
+        ));
     }
 
     /**
@@ -492,23 +992,33 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
      */
     @Override
     public List<E> findByIds(@SuppressWarnings("unchecked") K... ids) {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+        if (isPartitionFanOut()) {
+            return inEachPartition(null, () -> findByIds(ids), new ArrayList<>(), (found, next) -> {
+                found.addAll(next);
+                return found;
+            });
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_FIND, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
                 requestCounter, requestGauge, () -> {
                     List<E> result = new ArrayList<>();
-                    String collection = getOverridingCollectionName();
+                    String collection = getTargetCollectionName();
                     if (StringUtils.isNotEmpty(collection)) {
                         List<K> idList = Arrays.asList(ids);
-                        idList.parallelStream().forEach(id -> result.add(findById(id)));
+                        String scope = collectionScope.get();
+                        idList.parallelStream().forEach(id ->
+                                result.add(inCollectionScope(scope, () -> findById(id))));
                         return result;
                     } else {
                         Query<E> entities = mongoDatastore.find(entityClass).filter(Filters.in(
                                 Constants.ID_FILTER_CONSTANT, Arrays.asList(ids)));
-                        return entities.iterator().toList();
+                        FindOptions options = createFindOptions(null);
+                        return (options == null ? entities.iterator() : entities.iterator(options)).toList();
                     }
                 }, () ->
                         new String[]{serviceName, Constants.OPERATION_TYPE_FIND,
                             entityClassName, FALSE, Constants.FULL_QUERY_NA}
-        );
+        ));
     }
 
     /**
@@ -520,10 +1030,15 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
      */
     @Override
     public boolean upsert(IgniteQuery igniteQuery, E entity) {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+        if (isPartitionFanOut()) {
+            return inCollectionScope(getWriteCollectionName(entity), () -> upsert(igniteQuery, entity));
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_UPSERT, igniteQuery, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
                 requestCounter, requestGauge, () -> {
+                    checkDeadline(igniteQuery);
                     Query<E> query = queryTranslator.translate(igniteQuery, Optional.ofNullable(
-                            getOverridingCollectionName()));
+                            getTargetCollectionName()));
                     LOGGER.debug("Executing upsert operation with the following query on mongoDB "
                             + ": {}", query);
                     /*
@@ -533,7 +1048,7 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
                     if (null != entity && isAuditable) {
                         ((AuditableIgniteEntity) entity).setLastUpdatedTime(LocalDateTime.now());
                     }
-                    String collectionName = getOverridingCollectionName();
+                    String collectionName = getTargetCollectionName();
                     MongoCollection<E> collection;
                     if (StringUtils.isNotEmpty(collectionName)) {
                         collection = mongoDatastore.getDatabase().getCollection(collectionName,
@@ -541,13 +1056,17 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
                     } else {
                         collection = mongoDatastore.getMapper().getCollection(entityClass);
                     }
+                    WriteConcern writeConcern = getWriteConcern(igniteQuery.getWriteConcern());
+                    if (writeConcern != null) {
+                        collection = collection.withWriteConcern(writeConcern);
+                    }
                     UpdateResult updateResult = collection.replaceOne(query.toDocument(), entity,
                             new ReplaceOptions().upsert(true));
                     return updateResult.getModifiedCount() > 0 || updateResult.getUpsertedId() != null;
                 }, () ->
                         new String[]{serviceName, Constants.OPERATION_TYPE_UPSERT,
                             entityClassName, FALSE, igniteQuery.toTemplatedQueryString()}
-        );
+        ));
     }
 
     /**
@@ -563,711 +1082,2563 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
         var readPreference = c.getReadPreference() != null ? c.getReadPreference()
                 : mongoDatastore.getDatabase().getReadPreference();
 
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+        return executeWithRetry(Constants.OPERATION_TYPE_FIND_QUERY, c, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
                 requestCounter, requestGauge, () -> {
-                    Query<E> query = queryTranslator.translate(c, Optional
-                            .ofNullable(getOverridingCollectionName()));
+                    long maxTimeMs = getMaxTimeMs(c, findMaxTimeMs);
+                    if (partitioning != null) {
+                        return findInPartitions(c, maxTimeMs, readPreference);
+                    }
+                    QueryTranslator<Query<E>> translator = getQueryTranslator(isAnalytical(c.getWorkload(), false));
+                    Query<E> query = translator.translate(c, Optional
+                            .ofNullable(getTargetCollectionName()));
+                    // the translator is shared, the per query settings go on a copy of its options
+                    FindOptions findOptions = new FindOptions().copy(translator.getFindOptions());
+                    if (maxTimeMs > 0) {
+                        findOptions.maxTime(maxTimeMs, TimeUnit.MILLISECONDS);
+                    }
+                    ReadConcern readConcern = getReadConcern(c.getReadConcern());
+                    if (readConcern != null) {
+                        findOptions.readConcern(readConcern);
+                    }
                     LOGGER.debug("Executing find operation with query {}, and pageNumber : {} "
                                     + ", pageSize  : {}, readPreference : {}",
                             query, pageNumber, pageSize, readPreference.getName());
                     if (pageNumber > 0 && pageSize > 0) {
                         int offset = (pageNumber - 1) * pageSize;
-                        return query.iterator(queryTranslator.getFindOptions().skip(offset).limit(pageSize)
-                                        .readPreference(readPreference))
-                                .toList();
+                        FindOptions options = findOptions.skip(offset).limit(pageSize)
+                                .readPreference(readPreference);
+                        AtomicBoolean translated = new AtomicBoolean(true);
+                        // the first run reads with the query translated above, a hedge translates its own
+                        return executeHedged(Constants.OPERATION_TYPE_FIND_QUERY, readPreference, pageSize,
+                                () -> translated.getAndSet(false) ? query
+                                        : translator.translate(c, Optional.ofNullable(getTargetCollectionName())),
+                                options, (run, runOptions) -> run.iterator(runOptions).toList());
                     } else if (pageNumber == 0 && pageSize == 0) {
-                        return query.iterator(queryTranslator.getFindOptions()).toList();
+                        return query.iterator(findOptions).toList();
                     } else {
                         throw new IllegalArgumentException("Both pageSize and pageNumber should be set.");
                     }
                 }, () ->
                         new String[]{serviceName, Constants.OPERATION_TYPE_FIND_QUERY,
                             entityClassName, String.valueOf(pageNumber > 0), c.toTemplatedQueryString()}
-        );
+        ));
     }
 
     /**
-     * Finds entities with paging information based on the specified query.
+     * Finds entities matching the specified query, decoding only the fields of a projection type.
      *
-     * @param query the query to match
-     * @return a response containing the found entities and paging information
+     * @param <P> the projection type
+     * @param c the query to match
+     * @param projectionType the projection type
+     * @return a list of projections of the matching entities
      */
     @Override
-    public IgnitePagingInfoResponse<E> findWithPagingInfo(IgniteQuery query) {
-        long count = countByQuery(query);
-        List<E> result = find(query);
-        return new IgnitePagingInfoResponse<>(result, count);
+    public <P> List<P> find(IgniteQuery c, Class<P> projectionType) {
+        checkNotPartitioned("Projected and raw finds");
+        return executeWithRetry(Constants.OPERATION_TYPE_FIND_PROJECTION, c, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge, () -> {
+                    ProjectionCodec<P> codec = getProjectionCodec(projectionType);
+                    return createFindIterable(c, codec, codec.getProjection(), null).into(new ArrayList<>());
+                }, () ->
+                        new String[]{serviceName, Constants.OPERATION_TYPE_FIND_PROJECTION,
+                            entityClassName, String.valueOf(c.getPageNumber() > 0), c.toTemplatedQueryString()}
+        ));
     }
 
     /**
-     * Deletes an entity by its ID.
+     * Finds the documents matching the specified query as raw BSON, without decoding them. The field
+     * names of the query, if any, restrict the returned fields.
      *
-     * @param id the ID of the entity
-     * @return true if the entity was deleted, false otherwise
+     * @param c the query to match
+     * @return a list of the raw matching documents
      */
-    @SuppressWarnings("unchecked")
     @Override
-    public boolean deleteById(K id) {
-        return deleteByIds(id) > 0;
+    public List<RawBsonDocument> findRaw(IgniteQuery c) {
+        checkNotPartitioned("Projected and raw finds");
+        return executeWithRetry(Constants.OPERATION_TYPE_FIND_RAW, c, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge,
+                    () -> createRawFindIterable(c).into(new ArrayList<>()), () ->
+                        new String[]{serviceName, Constants.OPERATION_TYPE_FIND_RAW,
+                            entityClassName, String.valueOf(c.getPageNumber() > 0), c.toTemplatedQueryString()}
+        ));
     }
 
     /**
-     * Deletes entities by their IDs.
+     * Streams the documents matching the specified query as raw BSON, without decoding them. The latency
+     * metric covers the execution of the query up to the first batch.
      *
-     * @param ids the IDs of the entities
-     * @return the number of deleted entities
+     * @param c the query to match
+     * @return a Flux of the raw matching documents
      */
-    @SuppressWarnings({ "unchecked", "removal" })
     @Override
-    public int deleteByIds(K... ids) {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
-                requestCounter, requestGauge, () -> {
-                DeleteResult result = null;
-                int count = 0;
-                String collection = getOverridingCollectionName();
-                if (StringUtils.isNotEmpty(collection)) {
-                    Arrays.asList(ids).parallelStream().forEach(id -> {
-                        Query<?> filterByIdQuery = mongoDatastore.find(collection, entityClass)
-                                .filter(Filters.eq(Constants.ID_FILTER_CONSTANT, id));
-                        mongoDatastore.delete(filterByIdQuery, new DeleteOptions().multi(false));
-                    });
-                } else {
-                    Query<?> filterByIdQuery = mongoDatastore.createQuery(entityClass)
-                            .filter(Filters.in(Constants.ID_FILTER_CONSTANT, Arrays.asList(ids)));
-                    result = mongoDatastore.delete(filterByIdQuery, new DeleteOptions().multi(true));
-                    count = (int) result.getDeletedCount();
-                }
+    public Flux<RawBsonDocument> streamFindRaw(IgniteQuery c) {
+        checkNotPartitioned("Projected and raw finds");
+        String scope = collectionScope.get();
+        return streamCursor(() -> inCollectionScope(scope, () -> executeWithRetry(
+                Constants.OPERATION_TYPE_STREAM_FIND_RAW, c, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge,
+                    () -> createRawFindIterable(c).iterator(), () ->
+                        new String[]{serviceName, Constants.OPERATION_TYPE_STREAM_FIND_RAW,
+                            entityClassName, String.valueOf(c.getPageNumber() > 0), c.toTemplatedQueryString()}
+        ))));
+    }
 
-                return count;
-            }, () ->
-                 new String[]{serviceName, Constants.OPERATION_TYPE_DELETE,
-                     entityClassName, FALSE, Constants.FULL_QUERY_NA}
-            );
+    /**
+     * Creates the find iterable of a query returning raw BSON documents.
+     *
+     * @param c the query
+     * @return the find iterable
+     */
+    private FindIterable<RawBsonDocument> createRawFindIterable(IgniteQuery c) {
+        return createFindIterable(c, RAW_BSON_DOCUMENT_CODEC, createProjection(c), null);
     }
 
     /**
-     * Deletes entities based on the specified query.
+     * Creates the projection including the field names of a query.
      *
-     * @param igniteQuery the query to match
-     * @return the number of deleted entities
+     * @param c the query
+     * @return the projection, null if the query has no field names
+     */
+    private Bson createProjection(IgniteQuery c) {
+        if (c.getFieldNames().length == 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        for (String fieldName : c.getFieldNames()) {
+            fields.add(getMappedFieldName(fieldName));
+        }
+        return Projections.include(fields);
+    }
+
+    /**
+     * Applies the read preference and read concern of a query to a collection.
+     *
+     * @param <T> the document type
+     * @param collection the collection
+     * @param c the query
+     * @return the collection with the read settings of the query
+     */
+    private <T> MongoCollection<T> withReadSettings(MongoCollection<T> collection, IgniteQuery c) {
+        MongoCollection<T> readCollection = collection;
+        if (c.getReadPreference() != null) {
+            readCollection = readCollection.withReadPreference(c.getReadPreference());
+        }
+        ReadConcern readConcern = getReadConcern(c.getReadConcern());
+        if (readConcern != null) {
+            readCollection = readCollection.withReadConcern(readConcern);
+        }
+        return readCollection;
+    }
+
+    /**
+     * Creates the find iterable of a query, decoding the documents with the given codec. The filter is the
+     * one Morphia builds for the query; read preference, sort and paging are those of the query. In a
+     * session, the read preference and read concern are those of its transaction.
+     *
+     * @param <T> the document type
+     * @param c the query
+     * @param codec the codec of the documents
+     * @param projection the projection, null for all fields
+     * @param session the session of a transaction, whose database the collection is read from, null for none
+     * @return the find iterable
+     * @throws IllegalArgumentException if only one of page number and page size is set
+     */
+    private <T> FindIterable<T> createFindIterable(IgniteQuery c, Codec<T> codec, Bson projection,
+            MorphiaSession session) {
+        int pageSize = c.getPageSize();
+        int pageNumber = c.getPageNumber();
+        String collectionName = getTargetCollectionName();
+        MongoCollection<E> entityCollection = session != null ? getMongoCollection(session, collectionName)
+                : getMongoCollection(collectionName, isAnalytical(c.getWorkload(), false));
+        MongoCollection<T> collection = entityCollection.withDocumentClass(codec.getEncoderClass())
+                .withCodecRegistry(CodecRegistries.fromRegistries(CodecRegistries.fromCodecs(codec),
+                        mongoDatastore.getDatabase().getCodecRegistry()));
+        Document filter = queryTranslator.translate(c, Optional.ofNullable(collectionName)).toDocument();
+        LOGGER.debug("Executing find operation with filter {}, projection {}, pageNumber : {}, pageSize : {}",
+                filter, projection, pageNumber, pageSize);
+        FindIterable<T> iterable = session != null ? collection.find(session.getSession(), filter)
+                : withReadSettings(collection, c).find(filter);
+        long maxTimeMs = getMaxTimeMs(c, findMaxTimeMs);
+        if (maxTimeMs > 0) {
+            iterable.maxTime(maxTimeMs, TimeUnit.MILLISECONDS);
+        }
+        if (projection != null) {
+            iterable.projection(projection);
+        }
+        if (!c.getOrderBys().isEmpty()) {
+            List<Bson> sorts = new ArrayList<>();
+            for (IgniteOrderBy orderBy : c.getOrderBys()) {
+                String field = getMappedFieldName(orderBy.getFieldName());
+                sorts.add(Order.DESC.equals(orderBy.getOrder()) ? Sorts.descending(field) : Sorts.ascending(field));
+            }
+            iterable.sort(Sorts.orderBy(sorts));
+        }
+        if (pageNumber > 0 && pageSize > 0) {
+            iterable.skip((pageNumber - 1) * pageSize).limit(pageSize);
+        } else if (pageNumber != 0 || pageSize != 0) {
+            throw new IllegalArgumentException("Both pageSize and pageNumber should be set.");
+        }
+        return iterable;
+    }
+
+    /**
+     * Gets the codec of a projection type, created on first use.
+     *
+     * @param <P> the projection type
+     * @param projectionType the projection type
+     * @return the codec
+     */
+    @SuppressWarnings("unchecked")
+    private <P> ProjectionCodec<P> getProjectionCodec(Class<P> projectionType) {
+        return (ProjectionCodec<P>) projectionCodecs.computeIfAbsent(projectionType,
+                type -> ProjectionCodec.create(type, mongoDatastore.getMapper().getEntityModel(entityClass),
+                        mongoDatastore.getDatabase().getCodecRegistry()));
+    }
+
+    /**
+     * Gets the document field name of an entity property, the name itself if it is not a property.
+     *
+     * @param fieldName the property name
+     * @return the document field name
+     */
+    private String getMappedFieldName(String fieldName) {
+        PropertyModel property = mongoDatastore.getMapper().getEntityModel(entityClass).getProperty(fieldName);
+        return property == null ? fieldName : property.getMappedName();
+    }
+
+    /**
+     * Gets the time partitioning of the collection of the entity. The default implementation returns null,
+     * for a collection which is not partitioned; a DAO overrides it to partition its documents by month.
+     * With a partitioning, save and saveAll write to the partition of the time of each entity, find,
+     * findWithPagingInfo and countByQuery read the partitions matching the time range of the query in
+     * parallel, and findAll reads all partitions. The operations by ID run on each partition, newest first,
+     * until one holds the document, the updates, deletes, counts and distinct on each partition they may
+     * match, upsert and delete on the partition of the entity. Projected and raw finds and aggregations are not
+     * supported.
+     *
+     * @return the time partitioning, or null
+     */
+    protected TimePartitioning getTimePartitioning() {
+        return null;
+    }
+
+    /**
+     * Drops the partitions whose whole month is before a time, for a time-partitioned collection.
+     *
+     * @param cutoff the time
+     * @return the names of the dropped partitions
+     * @throws UnsupportedOperationException if the collection is not partitioned
+     */
+    public List<String> dropPartitionsBefore(Instant cutoff) {
+        if (partitioning == null) {
+            throw new UnsupportedOperationException("Collection of " + entityClassName + " is not partitioned");
+        }
+        List<String> partitions = partitioning.getPartitionsBefore(listCollectionNames(), cutoff);
+        for (String partition : partitions) {
+            mongoDatastore.getDatabase().getCollection(partition).drop();
+            preparedPartitions.remove(partition);
+            LOGGER.info("Dropped partition {} of {}", partition, entityClassName);
+        }
+        cachedCollectionNames = null;
+        return partitions;
+    }
+
+    /**
+     * Gets the collection an entity is written to: its partition if the collection is partitioned, the
+     * overriding collection name otherwise.
+     *
+     * @param entity the entity
+     * @return the collection name, null or empty for the mapped collection
+     * @throws IllegalArgumentException if the partition time of the entity is not set
+     */
+    private String getWriteCollectionName(E entity) {
+        if (partitioning == null) {
+            return getTargetCollectionName();
+        }
+        Instant time = TimePartitioning.toInstant(partitionTimeExtractor.getValue(entity));
+        if (time == null) {
+            throw new IllegalArgumentException("Partition time field " + partitioning.getTimeField()
+                    + " of " + entityClassName + " is not set");
+        }
+        String partition = partitioning.getPartition(time);
+        preparePartition(partition);
+        CachedCollectionNames cached = cachedCollectionNames;
+        if (cached != null && !cached.names.contains(partition)) {
+            // a new month, read from now on without waiting for the TTL
+            Set<String> names = new HashSet<>(cached.names);
+            names.add(partition);
+            cachedCollectionNames = new CachedCollectionNames(names, cached.expiresAt);
+        }
+        return partition;
+    }
+
+    /**
+     * Creates the indexes of a partition, or its time-series collection, the first time it is used.
+     *
+     * @param partition the name of the partition
+     */
+    private void preparePartition(String partition) {
+        if (!preparedPartitions.add(partition)) {
+            return;
+        }
+        try {
+            prepareCollection(partition);
+        } catch (RuntimeException e) {
+            preparedPartitions.remove(partition);
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the indexes of a collection of the entity, or the collection itself if it is a time-series
+     * collection.
+     *
+     * @param collectionName the name of the collection
+     */
+    private void prepareCollection(String collectionName) {
+        if (timeSeries != null) {
+            createTimeSeriesCollection(collectionName);
+        } else {
+            EntityModel model = mongoDatastore.getMapper().getEntityModel(entityClass);
+            new IndexHelper(mongoDatastore.getMapper()).createIndex(mongoDatastore.getDatabase()
+                    .getCollection(collectionName, entityClass), model);
+        }
+    }
+
+    /**
+     * Gets a view of this DAO whose operations target another collection of the entity. The view shares
+     * the translators, metrics and configuration of this DAO, so one DAO serves any number of collections,
+     * such as one collection per tenant. The indexes of the collection are created the first time a view
+     * on it is requested; views are cached, up to mongodb.collection.views.cache.size collections, and
+     * the indexes are created again when the view of an evicted collection is requested. The view only
+     * implements IgniteBaseDAO, not the other interfaces of the DAO, and takes part in a MongoUnitOfWork.
+     *
+     * @param collectionName the name of the collection
+     * @return the view targeting the collection
+     * @throws UnsupportedOperationException if the collection of the entity is partitioned by time
+     */
+    @Override
+    public IgniteBaseDAO<K, E> withCollection(String collectionName) {
+        if (StringUtils.isEmpty(collectionName)) {
+            throw new IllegalArgumentException("Collection name of a collection view must be set");
+        }
+        if (partitioning != null) {
+            throw new UnsupportedOperationException("Collection of " + entityClassName + " is partitioned by time");
+        }
+        synchronized (collectionViews) {
+            IgniteBaseDAO<K, E> view = collectionViews.get(collectionName);
+            if (view != null) {
+                return view;
+            }
+        }
+        prepareCollection(collectionName);
+        @SuppressWarnings("unchecked")
+        IgniteBaseDAO<K, E> view = (IgniteBaseDAO<K, E>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { IgniteBaseDAO.class, TransactionParticipant.class },
+                new CollectionScopeInvocationHandler(collectionName));
+        synchronized (collectionViews) {
+            collectionViews.putIfAbsent(collectionName, view);
+            return collectionViews.get(collectionName);
+        }
+    }
+
+    /**
+     * Gets the collection targeted by the operation running on the current thread: the collection of the
+     * view running it, else the overriding collection name.
+     *
+     * @return the collection name, null or empty for the mapped collection
+     */
+    private String getTargetCollectionName() {
+        String scope = collectionScope.get();
+        return scope != null ? scope : getOverridingCollectionName();
+    }
+
+    /**
+     * Runs an operation targeting a collection on the current thread, used to carry the collection of a
+     * view to another thread.
+     *
+     * @param <T> the type of the result
+     * @param collectionName the collection of the view, null to target the overriding collection name
+     * @param operation the operation
+     * @return the result of the operation
+     */
+    private <T> T inCollectionScope(String collectionName, Supplier<T> operation) {
+        String previous = collectionScope.get();
+        if (Objects.equals(previous, collectionName)) {
+            return operation.get();
+        }
+        setCollectionScope(collectionName);
+        try {
+            return operation.get();
+        } finally {
+            setCollectionScope(previous);
+        }
+    }
+
+    /**
+     * Sets the collection targeted by the operations of the current thread.
+     *
+     * @param collectionName the collection, null to target the overriding collection name
+     */
+    private void setCollectionScope(String collectionName) {
+        if (collectionName == null) {
+            collectionScope.remove();
+        } else {
+            collectionScope.set(collectionName);
+        }
+    }
+
+    /**
+     * Prepares the save of an entity in a unit of work: an insert if its ID is not set or its collection is
+     * a time-series collection, else an upsert replacing the document with the same ID, and shard key when
+     * the collection is sharded.
+     *
+     * @param entity the entity to save
+     * @return the write
+     */
+    @Override
+    public TransactionWrite<E> prepareSave(E entity) {
+        if (isAuditable) {
+            ((AuditableIgniteEntity) entity).setLastUpdatedTime(LocalDateTime.now());
+        }
+        String collection = partitioning != null ? getWriteCollectionName(entity) : getCollectionName();
+        if (timeSeries != null || !isIdSet(entity)) {
+            return new TransactionWrite<>(collection, new InsertOneModel<>(entity));
+        }
+        Object id = mongoDatastore.getMapper().findIdProperty(entityClass).getValue(entity);
+        Document filter = isSharded(collection) ? createShardKeyFilter(collection, id, entity)
+                : new Document(Constants.ID_FILTER_CONSTANT, id);
+        return new TransactionWrite<>(collection, new ReplaceOneModel<>(filter, entity,
+                new ReplaceOptions().upsert(true)));
+    }
+
+    /**
+     * Prepares the update of the entity with an ID in a unit of work, setting its last updated time.
+     *
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name, may be null
+     * @param updates the updates to apply
+     * @return the write
+     * @throws UnsupportedOperationException if the collection is partitioned by time
+     */
+    @Override
+    public TransactionWrite<E> prepareUpdate(K id, Map<String, Object> shardKey, Updates updates) {
+        checkNotPartitioned("Transactional reads, updates and deletes by ID");
+        Query<E> q = createIdQuery(Constants.OPERATION_TYPE_SAVE, id, shardKey).disableValidation();
+        List<UpdateOperator> updateOperations = updatesTranslator.translate(updates,
+                Optional.ofNullable(getTargetCollectionName()));
+        Bson bsonUpdates = com.mongodb.client.model.Updates.combine(q.update(updateOperations).toDocument(),
+                com.mongodb.client.model.Updates.set(LAST_UPDATED_TIME, LocalDateTime.now()));
+        return new TransactionWrite<>(getCollectionName(), new UpdateOneModel<>(q.toDocument(), bsonUpdates));
+    }
+
+    /**
+     * Prepares the delete of the entity with an ID in a unit of work.
+     *
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name, may be null
+     * @return the write
+     * @throws UnsupportedOperationException if the collection is partitioned by time
+     */
+    @Override
+    public TransactionWrite<E> prepareDelete(K id, Map<String, Object> shardKey) {
+        checkNotPartitioned("Transactional reads, updates and deletes by ID");
+        return new TransactionWrite<>(getCollectionName(), new DeleteOneModel<>(
+                createIdQuery(Constants.OPERATION_TYPE_DELETE, id, shardKey).toDocument()));
+    }
+
+    /**
+     * Runs the writes of a unit of work on a collection in the session of its transaction, in order, with
+     * a single bulk write. The write is not retried on its own: the transaction is retried as a whole.
+     *
+     * @param session the session of the transaction, whose database the collection is written to
+     * @param collectionName the collection of the writes
+     * @param writes the writes
+     * @return the result of the bulk write
+     */
+    @Override
+    public BulkWriteResult bulkWrite(MorphiaSession session, String collectionName, List<WriteModel<E>> writes) {
+        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto, requestCounter, requestGauge,
+                () -> getMongoCollection(session, collectionName).bulkWrite(session.getSession(), writes,
+                        new BulkWriteOptions().ordered(true)), () ->
+                        new String[]{serviceName, Constants.OPERATION_TYPE_TRANSACTION_WRITE,
+                            entityClassName, FALSE, Constants.FULL_QUERY_NA});
+    }
+
+    /**
+     * Finds the entities matching a query in the session of a transaction, seeing its writes.
+     *
+     * @param session the session of the transaction
+     * @param query the query to match
+     * @return the matching entities
+     * @throws UnsupportedOperationException if the collection is partitioned by time
+     */
+    @Override
+    public List<E> findInSession(MorphiaSession session, IgniteQuery query) {
+        checkNotPartitioned("Transactional reads, updates and deletes by ID");
+        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto, requestCounter, requestGauge,
+                () -> createFindIterable(query, session.getDatabase().getCodecRegistry().get(entityClass),
+                        createProjection(query), session).into(new ArrayList<>()), () ->
+                        new String[]{serviceName, Constants.OPERATION_TYPE_TRANSACTION_FIND,
+                            entityClassName, String.valueOf(query.getPageNumber() > 0),
+                            query.toTemplatedQueryString()});
+    }
+
+    /**
+     * Finds the entity with an ID in the session of a transaction, seeing its writes.
+     *
+     * @param session the session of the transaction
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name, may be null
+     * @return the entity, or null if not found
+     * @throws UnsupportedOperationException if the collection is partitioned by time
+     */
+    @Override
+    public E findByIdInSession(MorphiaSession session, K id, Map<String, Object> shardKey) {
+        checkNotPartitioned("Transactional reads, updates and deletes by ID");
+        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto, requestCounter, requestGauge,
+                () -> getMongoCollection(session, getTargetCollectionName()).find(session.getSession(),
+                        createIdQuery(Constants.OPERATION_TYPE_FIND, id, shardKey).toDocument()).first(), () ->
+                        new String[]{serviceName, Constants.OPERATION_TYPE_TRANSACTION_FIND,
+                            entityClassName, FALSE, Constants.FULL_QUERY_NA});
+    }
+
+    /**
+     * Checks that the collection of the entity is not partitioned by time, for the operations which cannot
+     * be run on each partition and merged.
+     *
+     * @param operations the operations, as named in the message of the exception
+     * @throws UnsupportedOperationException if the collection is partitioned by time
+     */
+    private void checkNotPartitioned(String operations) {
+        if (partitioning != null) {
+            throw new UnsupportedOperationException(operations + " are not supported on collections partitioned "
+                    + "by time");
+        }
+    }
+
+    /**
+     * Checks whether an operation must run on each partition: the collection is partitioned by time and
+     * the current thread does not target a partition already.
+     *
+     * @return true if the operation runs on each partition
+     */
+    private boolean isPartitionFanOut() {
+        return partitioning != null && collectionScope.get() == null;
+    }
+
+    /**
+     * Runs an operation on each partition a query may match, newest first, and folds the results. It is
+     * used by the operations whose documents may be in any of these partitions, as by ID or by a query.
+     *
+     * @param <T> the type of the result
+     * @param query the query, null for all partitions
+     * @param operation the operation, run with each partition as the target collection
+     * @param identity the result if there is no partition
+     * @param accumulator folds the result of a partition into the result of the previous ones
+     * @return the folded result
+     */
+    private <T> T inEachPartition(IgniteQuery query, Supplier<T> operation, T identity,
+            BinaryOperator<T> accumulator) {
+        List<String> partitions = partitioning.getPartitions(getPartitionCollectionNames(), query);
+        T result = identity;
+        for (int i = partitions.size() - 1; i >= 0; i--) {
+            result = accumulator.apply(result, inCollectionScope(partitions.get(i), operation));
+        }
+        return result;
+    }
+
+    /**
+     * Runs an operation by ID on each partition, newest first, until it matches the document. An ID is
+     * in a single partition, so the older partitions are not read once it is found.
+     *
+     * @param <T> the type of the result
+     * @param operation the operation, run with each partition as the target collection
+     * @param matched checks whether the result of a partition matched the document
+     * @param notMatched the result if no partition matched the document
+     * @return the result of the partition which matched the document, or notMatched
+     */
+    private <T> T inFirstPartition(Supplier<T> operation, Predicate<T> matched, T notMatched) {
+        List<String> partitions = partitioning.getPartitions(getPartitionCollectionNames(), null);
+        for (int i = partitions.size() - 1; i >= 0; i--) {
+            T result = inCollectionScope(partitions.get(i), operation);
+            if (matched.test(result)) {
+                return result;
+            }
+        }
+        return notMatched;
+    }
+
+    /**
+     * Gets the names of the collections of the database to find the partitions of an operation in, cached
+     * for the partitions cache TTL. A partition written to by this DAO is added at once and the cache is
+     * invalidated when partitions are dropped, while a partition created by another instance is found once
+     * the TTL is over.
+     *
+     * @return the collection names
+     */
+    private Set<String> getPartitionCollectionNames() {
+        if (partitionsCacheTtlMs <= 0) {
+            return listCollectionNames();
+        }
+        long now = System.currentTimeMillis();
+        CachedCollectionNames cached = cachedCollectionNames;
+        if (cached != null && cached.expiresAt > now) {
+            return cached.names;
+        }
+        Set<String> names = listCollectionNames();
+        cachedCollectionNames = new CachedCollectionNames(names, now + partitionsCacheTtlMs);
+        return names;
+    }
+
+    /**
+     * Gets the names of the collections of the database.
+     *
+     * @return the collection names
+     */
+    private Set<String> listCollectionNames() {
+        return mongoDatastore.getDatabase().listCollectionNames().into(new HashSet<>());
+    }
+
+    /**
+     * Finds the entities matching a query in the partitions its time range may match. Each partition
+     * returns at most the documents up to the end of the requested page, and the results are merged in
+     * the order of the query before the page is taken.
+     *
+     * @param c the query
+     * @param maxTimeMs the maximum execution time of each partition read, 0 for none
+     * @param readPreference the read preference
+     * @return the matching entities
+     * @throws IllegalArgumentException if only one of page number and page size is set
+     */
+    private List<E> findInPartitions(IgniteQuery c, long maxTimeMs, ReadPreference readPreference) {
+        int pageSize = c.getPageSize();
+        int pageNumber = c.getPageNumber();
+        if ((pageNumber > 0) != (pageSize > 0)) {
+            throw new IllegalArgumentException("Both pageSize and pageNumber should be set.");
+        }
+        int offset = pageSize > 0 ? (pageNumber - 1) * pageSize : 0;
+        QueryTranslator<Query<E>> translator = getQueryTranslator(isAnalytical(c.getWorkload(), false));
+        ReadConcern readConcern = getReadConcern(c.getReadConcern());
+        long readMaxTimeMs = getPartitionReadMaxTimeMs(maxTimeMs);
+        List<Supplier<List<E>>> reads = new ArrayList<>();
+        for (String partition : partitioning.getPartitions(getPartitionCollectionNames(), c)) {
+            Query<E> query = translator.translate(c, Optional.of(partition));
+            FindOptions options = new FindOptions().copy(translator.getFindOptions()).readPreference(readPreference);
+            if (readMaxTimeMs > 0) {
+                options.maxTime(readMaxTimeMs, TimeUnit.MILLISECONDS);
+            }
+            if (readConcern != null) {
+                options.readConcern(readConcern);
+            }
+            if (pageSize > 0) {
+                options.limit(offset + pageSize);
+            }
+            reads.add(() -> query.iterator(options).toList());
+        }
+        LOGGER.debug("Executing find operation with query {} on {} partitions", c, reads.size());
+        List<List<E>> results = partitionQueryExecutor == null ? reads.stream().map(Supplier::get).toList()
+                : partitionQueryExecutor.executeAll(reads);
+        return mergePartitionResults(results, getPartitionComparator(c.getOrderBys()), offset,
+                pageSize > 0 ? offset + pageSize : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Counts the entities matching a query in the partitions its time range may match.
+     *
+     * @param igniteQuery the query
+     * @param maxTimeMs the maximum execution time of each partition count, 0 for none
+     * @return the number of matching entities
+     */
+    private long countInPartitions(IgniteQuery igniteQuery, long maxTimeMs) {
+        QueryTranslator<Query<E>> translator = getQueryTranslator(isAnalytical(igniteQuery.getWorkload(), false));
+        CountOptions options = createCountOptions(getPartitionReadMaxTimeMs(maxTimeMs),
+                getReadConcern(igniteQuery.getReadConcern()));
+        List<Supplier<Long>> counts = new ArrayList<>();
+        for (String partition : partitioning.getPartitions(getPartitionCollectionNames(), igniteQuery)) {
+            Query<E> query = translator.translate(igniteQuery, Optional.of(partition));
+            counts.add(() -> options == null ? query.count() : query.count(options));
+        }
+        List<Long> results = partitionQueryExecutor == null ? counts.stream().map(Supplier::get).toList()
+                : partitionQueryExecutor.executeAll(counts);
+        return results.stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Gets the maximum execution time of each read of a partition: the one of the operation if set, else
+     * the one of the parallel partition reads, so that the reads left running once another one failed do
+     * not keep running on the server.
+     *
+     * @param maxTimeMs the maximum execution time of the operation, 0 for none
+     * @return the maximum execution time, in milliseconds, 0 for none
+     */
+    private long getPartitionReadMaxTimeMs(long maxTimeMs) {
+        if (maxTimeMs > 0 || partitionQueryExecutor == null) {
+            return maxTimeMs;
+        }
+        return partitionQueryExecutor.getMaxTimeMs();
+    }
+
+    /**
+     * Finds all the entities of all partitions, oldest partition first.
+     *
+     * @return all the entities
+     */
+    private List<E> findAllInPartitions() {
+        AdvancedDatastore datastore = getDatastore(true);
+        FindOptions options = createFindOptions(null);
+        List<E> result = new ArrayList<>();
+        for (String partition : partitioning.getPartitions(getPartitionCollectionNames(), null)) {
+            Query<E> query = datastore.find(partition, entityClass);
+            result.addAll((options == null ? query.iterator() : query.iterator(options)).toList());
+        }
+        return result;
+    }
+
+    /**
+     * Gets the comparator of the entities in the order of a query, as sorted by MongoDB for values of the
+     * same type: nulls first and numbers by value.
+     *
+     * @param orderBys the order of the query
+     * @return the comparator, or null if the query is not ordered
+     * @throws IllegalArgumentException if an order field is not a field of the entity
+     */
+    private Comparator<E> getPartitionComparator(List<IgniteOrderBy> orderBys) {
+        Comparator<E> comparator = null;
+        for (IgniteOrderBy orderBy : orderBys) {
+            ShardKeyExtractor extractor = ShardKeyExtractor.compile(entityClass, orderBy.getFieldName(), null);
+            if (extractor == null) {
+                throw new IllegalArgumentException("Cannot merge partitions ordered by " + orderBy.getFieldName());
+            }
+            Comparator<E> fieldComparator = Comparator.comparing(extractor::getValue,
+                    Comparator.nullsFirst(IgniteBaseDAOMongoImpl::compareValues));
+            if (orderBy.getOrder() == Order.DESC) {
+                fieldComparator = fieldComparator.reversed();
+            }
+            comparator = comparator == null ? fieldComparator : comparator.thenComparing(fieldComparator);
+        }
+        return comparator;
+    }
+
+    /**
+     * Compares two non null values of an order field.
+     *
+     * @param a the first value
+     * @param b the second value
+     * @return a negative number, zero or a positive number as the first value is less than, equal to or
+     *         greater than the second
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object a, Object b) {
+        if (a instanceof Number first && b instanceof Number second) {
+            return Double.compare(first.doubleValue(), second.doubleValue());
+        }
+        if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable<Object>) a).compareTo(b);
+        }
+        return a.getClass().getName().compareTo(b.getClass().getName());
+    }
+
+    /**
+     * Merges the sorted results of the partitions, keeping the entities from an offset up to an end.
+     *
+     * @param results the results of the partitions, oldest partition first
+     * @param comparator the order of the results, null to concatenate them
+     * @param offset the index of the first entity kept
+     * @param end the index after the last entity kept
+     * @return the merged entities
+     */
+    private List<E> mergePartitionResults(List<List<E>> results, Comparator<E> comparator, int offset, int end) {
+        List<E> merged = new ArrayList<>();
+        if (comparator == null) {
+            results.forEach(merged::addAll);
+        } else {
+            PriorityQueue<int[]> heads = new PriorityQueue<>((first, second) -> comparator.compare(
+                    results.get(first[0]).get(first[1]), results.get(second[0]).get(second[1])));
+            for (int i = 0; i < results.size(); i++) {
+                if (!results.get(i).isEmpty()) {
+                    heads.add(new int[]{i, 0});
+                }
+            }
+            while (!heads.isEmpty() && merged.size() < end) {
+                int[] head = heads.poll();
+                List<E> partitionResult = results.get(head[0]);
+                merged.add(partitionResult.get(head[1]));
+                if (head[1] + 1 < partitionResult.size()) {
+                    heads.add(new int[]{head[0], head[1] + 1});
+                }
+            }
+        }
+        return new ArrayList<>(merged.subList(Math.min(offset, merged.size()), Math.min(end, merged.size())));
+    }
+
+    /**
+     * Creates the time-series collection of the entity if it does not exist yet.
+     *
+     * @param collectionName the name of the collection
+     */
+    private void createTimeSeriesCollection(String collectionName) {
+        if (collectionExists(collectionName)) {
+            LOGGER.debug("Time-series collection {} already exists", collectionName);
+            return;
+        }
+        TimeSeriesOptions options = new TimeSeriesOptions(getMappedFieldName(timeSeries.timeField()))
+                .granularity(timeSeries.granularity());
+        if (StringUtils.isNotEmpty(timeSeries.metaField())) {
+            options.metaField(getMappedFieldName(timeSeries.metaField()));
+        }
+        CreateCollectionOptions createOptions = new CreateCollectionOptions().timeSeriesOptions(options);
+        if (timeSeries.expireAfterSeconds() >= 0) {
+            createOptions.expireAfter(timeSeries.expireAfterSeconds(), TimeUnit.SECONDS);
+        }
+        try {
+            mongoDatastore.getDatabase().createCollection(collectionName, createOptions);
+            LOGGER.info("Created time-series collection {} with options {}", collectionName, options);
+        } catch (MongoCommandException e) {
+            if (e.getErrorCode() != NAMESPACE_EXISTS_ERROR_CODE) {
+                throw e;
+            }
+            LOGGER.debug("Time-series collection {} was created concurrently", collectionName);
+        }
+    }
+
+    /**
+     * Inserts measurements into the time-series collection of the entity.
+     *
+     * @param collectionName the overriding collection name, null or empty for the mapped collection
+     * @param entities the measurements to insert
+     * @param writeConcern the write concern, may be null
+     */
+    private void insertMeasurements(String collectionName, List<E> entities, WriteConcern writeConcern) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        if (isAuditable) {
+            LocalDateTime now = LocalDateTime.now();
+            entities.forEach(entity -> ((AuditableIgniteEntity) entity).setLastUpdatedTime(now));
+        }
+        MongoCollection<E> mongoCollection = getMongoCollection(collectionName);
+        if (writeConcern != null) {
+            mongoCollection = mongoCollection.withWriteConcern(writeConcern);
+        }
+        if (entities.size() == 1) {
+            mongoCollection.insertOne(entities.get(0));
+        } else {
+            mongoCollection.insertMany(entities, new InsertManyOptions().ordered(false));
+        }
+    }
+
+    /**
+     * Finds entities with paging information based on the specified query.
+     *
+     * @param query the query to match
+     * @return a response containing the found entities and paging information
+     */
+    @Override
+    public IgnitePagingInfoResponse<E> findWithPagingInfo(IgniteQuery query) {
+        long count = countByQuery(query);
+        List<E> result = find(query);
+        return new IgnitePagingInfoResponse<>(result, count);
+    }
+
+    /**
+     * Deletes an entity by its ID.
+     *
+     * @param id the ID of the entity
+     * @return true if the entity was deleted, false otherwise
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean deleteById(K id) {
+        if (isPartitionFanOut()) {
+            return deleteById(id, null);
+        }
+        return deleteByIds(id) > 0;
+    }
+
+    /**
+     * Deletes an entity by its ID and shard key.
+     *
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name
+     * @return true if the entity was deleted, false otherwise
+     */
+    @Override
+    public boolean deleteById(K id, Map<String, Object> shardKey) {
+        if (isPartitionFanOut()) {
+            return inFirstPartition(() -> deleteById(id, shardKey), Boolean::booleanValue, false);
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_DELETE, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge,
+                    () -> createIdQuery(Constants.OPERATION_TYPE_DELETE, id, shardKey)
+                        .delete(createDeleteOptions(false, null)).getDeletedCount() > 0, () ->
+                        new String[] {serviceName, Constants.OPERATION_TYPE_DELETE,
+                            entityClassName, FALSE, Constants.FULL_QUERY_NA}
+        ));
+    }
+
+    /**
+     * Deletes entities by their IDs.
+     *
+     * @param ids the IDs of the entities
+     * @return the number of deleted entities
+     */
+    @SuppressWarnings({ "unchecked", "removal" })
+    @Override
+    public int deleteByIds(K... ids) {
+        if (isPartitionFanOut()) {
+            return inEachPartition(null, () -> deleteByIds(ids), 0, Integer::sum);
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_DELETE, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge, () -> {
+                DeleteResult result = null;
+                int count = 0;
+                String collection = getTargetCollectionName();
+                if (StringUtils.isNotEmpty(collection)) {
+                    String scope = collectionScope.get();
+                    count = Arrays.asList(ids).parallelStream().mapToInt(id -> inCollectionScope(scope, () -> {
+                        Query<?> filterByIdQuery = mongoDatastore.find(collection, entityClass)
+                                .filter(Filters.eq(Constants.ID_FILTER_CONSTANT, id));
+                        return (int) mongoDatastore.delete(filterByIdQuery, createDeleteOptions(false, null))
+                                .getDeletedCount();
+                    })).sum();
+                } else {
+                    Query<?> filterByIdQuery = mongoDatastore.createQuery(entityClass)
+                            .filter(Filters.in(Constants.ID_FILTER_CONSTANT, Arrays.asList(ids)));
+                    result = mongoDatastore.delete(filterByIdQuery, createDeleteOptions(true, null));
+                    count = (int) result.getDeletedCount();
+                }
+
+                return count;
+            }, () ->
+                 new String[]{serviceName, Constants.OPERATION_TYPE_DELETE,
+                     entityClassName, FALSE, Constants.FULL_QUERY_NA}
+            ));
+    }
+
+    /**
+     * Deletes entities based on the specified query.
+     *
+     * @param igniteQuery the query to match
+     * @return the number of deleted entities
+     */
+    @SuppressWarnings("removal")
+    @Override
+    public int deleteByQuery(IgniteQuery igniteQuery) {
+        if (isPartitionFanOut()) {
+            return inEachPartition(igniteQuery, () -> deleteByQuery(igniteQuery), 0, Integer::sum);
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_DELETE_QUERY, igniteQuery, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge, () -> {
+                checkDeadline(igniteQuery);
+                Optional<String> collection = Optional.ofNullable(getTargetCollectionName());
+                Query<E> query = queryTranslator.translate(igniteQuery, collection);
+                LOGGER.debug("Executing delete operation with the following query on mongoDB : {}",
+                        query);
+                return (int) mongoDatastore.delete(query, createDeleteOptions(true, igniteQuery.getWriteConcern()))
+                        .getDeletedCount();
+            }, () ->
+                 new String[]{serviceName, Constants.OPERATION_TYPE_DELETE_QUERY,
+                     entityClassName, FALSE, igniteQuery.toTemplatedQueryString()}
+            ));
+    }
+
+    /**
+     * Counts the number of entities that match the specified query.
+     *
+     * @param igniteQuery the query to match
+     * @return the number of entities that match the query
+     */
+    @Override
+    public long countByQuery(IgniteQuery igniteQuery) {
+        return executeWithRetry(Constants.OPERATION_TYPE_COUNT_QUERY, igniteQuery, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                    requestCounter, requestGauge, () -> {
+                long maxTimeMs = getMaxTimeMs(igniteQuery, countMaxTimeMs);
+                if (partitioning != null) {
+                    return countInPartitions(igniteQuery, maxTimeMs);
+                }
+                Optional<String> collection = Optional.ofNullable(getTargetCollectionName());
+
+                Query<E> query = getQueryTranslator(isAnalytical(igniteQuery.getWorkload(), false))
+                        .translate(igniteQuery, collection);
+                LOGGER.debug("Executing count operation with the following query on mongoDB : {}",
+                        query);
+                CountOptions options = createCountOptions(maxTimeMs, getReadConcern(igniteQuery.getReadConcern()));
+                return options == null ? query.count() : query.count(options);
+            }, () ->
+                     new String[] {serviceName, Constants.OPERATION_TYPE_COUNT_QUERY,
+                       entityClassName, FALSE, igniteQuery.toTemplatedQueryString()}
+        ));
+    }
+
+    /**
+     * Retrieves an existing record by its ID and updates its fields with the values from the provided entity.
+     *
+     * @param entity the entity containing the updated values
+     * @return true if the update was successful, false otherwise
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean getAndUpdate(E entity) {
+        K id = null;
+        Class<?> clazz = entity.getClass();
+        while (clazz != null) {
+            Field[] newEntityFields = clazz.getDeclaredFields();
+            LOGGER.debug("New entity fields are {}", Arrays.toString(newEntityFields));
+            for (Field field : newEntityFields) {
+                if (field.isAnnotationPresent(Id.class)) {
+                    field.setAccessible(true);
+                    try {
+                        id = (K) field.get(entity);
+                    } catch (IllegalArgumentException | IllegalAccessException e) {
+                        LOGGER.error("Exception while accessing the entity annotated with @Id. "
+                                + "Exception is: {}", e);
+                    }
+                    LOGGER.debug("Entity annotated with @Id is {}. Fetching record from database "
+                            + "with this ID.", id);
+                }
+            }
+            clazz = clazz.getSuperclass();
+        }
+
+        E existingRecord = findById(id, getShardKey(entity));
+        LOGGER.debug("Fetched record: {} from database with ID: {}", existingRecord != null
+                ? existingRecord.toString() : "", id);
+
+        clazz = entity.getClass();
+        while (clazz != null) {
+            Field[] newEntityFields = getNonStaticsFieldsFrom(clazz);
+            for (Field f : newEntityFields) {
+                updateEntityField(entity, clazz, existingRecord, f);
+            }
+            clazz = clazz.getSuperclass();
+        }
+        save(existingRecord);
+        return true;
+    }
+
+    /**
+     * Updates a field of the existing record with the value from the new entity.
+     *
+     * @param entity the new entity containing updated values
+     * @param clazz the class of the entity
+     * @param existingRecord the existing record to be updated
+     * @param f the field to be updated
+     */
+    private void updateEntityField(E entity, Class<?> clazz, E existingRecord, Field f) {
+        f.setAccessible(true);
+        LOGGER.debug("Field: {} of class: {}", f.getName(), clazz.getCanonicalName());
+        try {
+            //if the new field is not null or primitive, if the field needs to be updated.
+            if (f.get(entity) != null && !isFieldPrimitiveValueAndZero(f, entity)) {
+                checkFieldExistsInSavedRecordAndUpdate(f, entity, existingRecord, clazz);
+            }
+        } catch (IllegalArgumentException | IllegalAccessException | SecurityException e) {
+            LOGGER.error(EXCEPTION_MESSAGE, e);
+        }
+    }
+    
+    /*
+     * This method checks:
+     *
+     */
+    /**
+     * Check field exists in saved record and update.
+     * If it is an object that exists in the record that is saved.
+     * then update in the existing record.
+     * else Add it to the existing record.
+     *
+     * @param f
+     *         the f
+     * @param entity
+     *         the entity
+     * @param existingRecord
+     *         the existing record
+     * @param clazz
+     *         the clazz
+     */
+    @SuppressWarnings("unchecked")
+    private void checkFieldExistsInSavedRecordAndUpdate(Field f, E entity, E existingRecord, Class<?> clazz) {
+        try {
+            //if it is an object that exists in the one that is saved
+            if (f.get(entity) instanceof Map && existingRecord != null && f.get(existingRecord)
+                    != null) {
+                //scroll through the attributes
+                for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) f.get(entity))
+                        .entrySet()) {
+                    //if the attribute exists in the one that is saved
+                    if (((Map<Object, Object>) f.get(existingRecord)).get(entry.getKey()) != null) {
+                        LOGGER.debug("Field: {} exists with value {} and will be updated with "
+                                        + "value {}", f.getName(),
+                                ((Map<Object, Object>) f.get(existingRecord)).get(entry.getKey()),
+                                entry.getValue());
+                        updateInExistingRecord(entry, existingRecord, f);
+                    } else {
+                        //if the attribute does not exist in the one that is saved
+                        Field existingField = clazz.getDeclaredField(f.getName());
+                        existingField.setAccessible(true);
+                        Map<Object, Object> existingMap = ((Map<Object, Object>) existingField.get(
+                                existingRecord));
+                        existingMap.put(entry.getKey(), entry.getValue());
+                        LOGGER.debug(FIELD_UPDATED_WITH_VALUE, f.getName(),
+                                existingMap.toString());
+                    }
+                }
+            } else {
+                //if it is an object that does not exist in the one that is saved
+                Field existingField = clazz.getDeclaredField(f.getName());
+                existingField.setAccessible(true);
+                existingField.set(existingRecord, f.get(entity));
+                LOGGER.debug(FIELD_UPDATED_WITH_VALUE, f.getName(),
+                        f.get(entity).toString());
+            }
+        } catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException
+                | SecurityException e) {
+            LOGGER.error(EXCEPTION_MESSAGE, e);
+        }
+    }
+
+    /**
+     * Update in existing record.
+     *
+     * @param entry
+     *         the entry
+     * @param existingRecord
+     *         the existing record
+     * @param f
+     *         the f
+     */
+    @SuppressWarnings("unchecked")
+    private void updateInExistingRecord(Map.Entry<Object, Object> entry, E existingRecord, Field f) {
+        try {
+            //if there's no mapping to a class.
+            if (entry.getValue() instanceof Map) {
+                Map<Object, Object> existingMap = ((Map<Object, Object>) f.get(existingRecord));
+                for (Map.Entry<Object, Object> e : ((Map<Object, Object>) entry.getValue())
+                        .entrySet()) {
+                    ((Map<Object, Object>) existingMap.get(entry.getKey())).put(e.getKey(),
+                            e.getValue());
+                }
+                LOGGER.debug(FIELD_UPDATED_WITH_VALUE, f.getName(),
+                        existingMap.toString());
+            } else {
+                //if there is mapping to a class
+                getAndUpdateInner(entry.getValue(), ((Map<Object, Object>) f.get(existingRecord))
+                        .get(entry.getKey()));
+            }
+        } catch (IllegalArgumentException | IllegalAccessException | SecurityException e) {
+            LOGGER.error(EXCEPTION_MESSAGE, e);
+        }
+    }
+
+    /**
+     * Gets and update inner.
+     *
+     * @param entity
+     *         the entity
+     * @param existingRecord
+     *         the existing record
+     */
+    public void getAndUpdateInner(Object entity, Object existingRecord) {
+        Class<?> clazz = entity.getClass();
+        while (clazz != null) {
+            Field[] newEntityFields = clazz.getDeclaredFields();
+            for (Field f : newEntityFields) {
+                f.setAccessible(true);
+                LOGGER.debug("Field: {} of class: {}", f.getName(), clazz.getCanonicalName());
+                try {
+                    //if the new field is not null or primitive
+                    if (f.get(entity) != null && !isInnerFieldPrimitiveValueAndZero(f, entity)) {
+                        getAndUpdateFieldValue(entity, existingRecord, clazz, f);
+                    }
+                } catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException
+                         | SecurityException e) {
+                    LOGGER.error(EXCEPTION_MESSAGE, e);
+                }
+            }
+            clazz = clazz.getSuperclass();
+        }
+    }
+
+    /**
+     * Gets and update field value.
+     *
+     * @param entity
+     *         the entity
+     * @param existingRecord
+     *         the existing record
+     * @param clazz
+     *         the clazz
+     * @param f
+     *         the f
+     */
+    @SuppressWarnings("unchecked")
+    private void getAndUpdateFieldValue(Object entity, Object existingRecord, Class<?> clazz,
+             Field f)
+            throws IllegalAccessException, NoSuchFieldException {
+        //if it is an object that exists in the one that is saved
+        if (f.get(entity) instanceof Map && existingRecord != null && f.get(existingRecord) != null) {
+            //scroll through the attributes
+            for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) f.get(entity))
+                    .entrySet()) {
+                getAndUpdateInnerHelper(entry, f, existingRecord, clazz);
+            }
+            //if it is an Object
+        } else if (f.get(entity).getClass().isAnnotationPresent(
+                dev.morphia.annotations.Entity.class)
+                && existingRecord != null && f.get(
+                existingRecord) != null) {
+            //if there is mapping to a class
+            getAndUpdateInner(f.get(entity), f.get(existingRecord));
+        } else {
+            //if it is an object that does not exist in the one that is saved
+            Field existingField = clazz.getDeclaredField(f.getName());
+            existingField.setAccessible(true);
+            existingField.set(existingRecord, f.get(entity));
+            LOGGER.debug(FIELD_UPDATED_WITH_VALUE, f.getName(), f.get(entity)
+                    .toString());
+        }
+    }
+
+    /**
+     * Gets and update inner helper.
+     *
+     * @param entry
+     *         the entry
+     * @param f
+     *         the f
+     * @param existingRecord
+     *         the existing record
+     * @param clazz
+     *         the clazz
+     */
+    @SuppressWarnings("unchecked")
+    private void getAndUpdateInnerHelper(Map.Entry<Object, Object> entry, Field f,
+             Object existingRecord, Class<?> clazz) {
+        try {
+            //if the attribute exists in the one that is saved
+            if ((( Map<Object, Object>) f.get(existingRecord)).get(entry.getKey()) != null) {
+                LOGGER.debug("Field: {} exists with value {} and will be updated with value {}", f.getName(),
+                      ((Map<Object, Object>) f.get(existingRecord)).get(entry.getKey()), entry.getValue());
+                getAndUpdateInner(entry.getValue(), ((Map<Object, Object>) f.get(existingRecord)).get(entry.getKey()));
+            } else {
+                //if the attribute does not exist in the one that is saved
+                Field existingField = clazz.getDeclaredField(f.getName());
+                existingField.setAccessible(true);
+                Map<Object, Object> existingMap = ((Map<Object, Object>) existingField.get(existingRecord));
+                existingMap.put(entry.getKey(), entry.getValue());
+                LOGGER.debug(FIELD_UPDATED_WITH_VALUE, f.getName(), existingMap.toString());
+            }
+        } catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException
+                | SecurityException e) {
+            LOGGER.error(EXCEPTION_MESSAGE, e);
+        }
+    }
+
+    /**
+     * Checks if the field is a primitive value and zero.
+     *
+     * @param field the field to check
+     * @param entity the entity to check
+     * @return true if the field is a primitive value and zero, false otherwise
+     * @throws IllegalAccessException if the field is inaccessible
+     */
+    private boolean isInnerFieldPrimitiveValueAndZero(Field field, Object entity)
+            throws IllegalAccessException {
+        Class<? extends Object> fieldType = field.getType();
+        if (fieldType.isPrimitive()) {
+            return Double.parseDouble(field.get(entity).toString()) <= 0.0d;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the field is a primitive value and zero.
+     *
+     * @param field the field to check
+     * @param entity the entity to check
+     * @return true if the field is a primitive value and zero, false otherwise
+     * @throws IllegalAccessException if the field is inaccessible
+     */
+    private boolean isFieldPrimitiveValueAndZero(Field field, E entity)
+            throws IllegalAccessException {
+        Class<? extends Object> fieldType = field.getType();
+        if (fieldType.isPrimitive()) {
+            return Double.parseDouble(field.get(entity).toString()) <= 0.0d;
+        }
+        return false;
+    }
+
+    /**
+     * Updates all the specified entities.
+     *
+     * @param entities the entities to update
+     * @return an array of booleans indicating whether each entity was updated
+     */
+    @Override
+    public boolean[] updateAll(@SuppressWarnings("unchecked") E... entities) {
+        saveAll(entities);
+        boolean[] results = new boolean[entities.length];
+        Arrays.fill(results, true);
+        return results;
+    }
+
+    /**
+     * Deletes all entities.
+     *
+     * @return true if the entities were deleted, false otherwise
+     */
+    @SuppressWarnings("removal")
+    @Override
+    public boolean deleteAll() {
+        if (isPartitionFanOut()) {
+            return inEachPartition(null, this::deleteAll, false, Boolean::logicalOr);
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_DELETE, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+            requestCounter, requestGauge, () -> {
+                Query<E> query = null;
+                String collection = getTargetCollectionName();
+                if (StringUtils.isNotEmpty(collection)) {
+                    query = mongoDatastore.find(collection, entityClass);
+                } else {
+                    query = mongoDatastore.find(entityClass);
+                }
+                DeleteResult deleteResult = mongoDatastore.delete(query, createDeleteOptions(true, null));
+                return deleteResult.getDeletedCount() > 0;
+            }, () ->
+                 new String[] {serviceName, Constants.OPERATION_TYPE_DELETE,
+                     entityClassName, FALSE, Constants.FULL_QUERY_NA }
+        ));
+    }
+
+    /**
+     * Updates the specified entity.
+     *
+     * @param entity the entity to update
+     * @return true if the entity was updated, false otherwise
+     */
+    @Override
+    public boolean update(E entity) {
+        save(entity);
+        return true;
+    }
+
+    /**
+     * Updates entities based on the specified query and updates.
+     *
+     * @param c the query to match
+     * @param updates the updates to apply
+     * @return true if the entities were updated, false otherwise
+     */
+    @Override
+    public boolean update(IgniteQuery c, Updates updates) {
+        if (isPartitionFanOut()) {
+            return inEachPartition(c, () -> update(c, updates), false, Boolean::logicalOr);
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_UPDATE_QUERY, c, updates.isIdempotent(),
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge, () -> {
+                checkDeadline(c);
+                Optional<String> collection = Optional.ofNullable(getTargetCollectionName());
+                Query<E> query = queryTranslator.translate(c, collection);
+                LOGGER.debug("Executing update operation with the following query on mongoDB : {}",
+                        query);
+                MongoCollection<E> mongoCollection = null;
+                if (collection.isPresent()) {
+                    mongoCollection = mongoDatastore.getDatabase().getCollection(collection.get(),
+                            entityClass);
+                } else {
+                    mongoCollection = mongoDatastore.getMapper().getCollection(entityClass);
+                }
+                WriteConcern writeConcern = getWriteConcern(c.getWriteConcern());
+                if (writeConcern != null) {
+                    mongoCollection = mongoCollection.withWriteConcern(writeConcern);
+                }
+                List<UpdateOperator> updateOperations = updatesTranslator.translate(updates,
+                        collection);
+                /*
+                 * adding/updating LastUpdatedTime of entity - to be used for data
+                 * retention
+                 */
+                Bson bsonUpdates = com.mongodb.client.model.Updates.combine(query.update(
+                        updateOperations).toDocument(),
+                        com.mongodb.client.model.Updates.set(LAST_UPDATED_TIME, LocalDateTime.now()));
+                UpdateResult ur = mongoCollection.updateMany(query.toDocument(), bsonUpdates,
+                        new UpdateOptions().multi(true).upsert(false));
+                return ur.getModifiedCount() > 0;
+            }, () ->
+                 new String[] {serviceName, Constants.OPERATION_TYPE_UPDATE_QUERY,
+                     entityClassName, FALSE, c.toTemplatedQueryString()}
+            ));
+    }
+
+    /**
+     * Updates the specified entity.
+     *
+     * @param id the ID of the entity to update
+     * @param updates the updates to apply
+     * @return true if the entity was updated, false otherwise
+     */
+    @Override
+    public boolean update(K id, Updates updates) {
+        return update(id, null, updates);
+    }
+
+    /**
+     * Updates the entity with the specified ID and shard key.
+     *
+     * @param id the ID of the entity to update
+     * @param shardKey the shard key values of the entity, by field name
+     * @param updates the updates to apply
+     * @return true if the entity was updated, false otherwise
+     */
+    @Override
+    public boolean update(K id, Map<String, Object> shardKey, Updates updates) {
+        if (isPartitionFanOut()) {
+            return inFirstPartition(() -> update(id, shardKey, updates), Boolean::booleanValue, false);
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_SAVE, updates.isIdempotent(),
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge, () -> {
+                    Query<E> q = createIdQuery(Constants.OPERATION_TYPE_SAVE, id, shardKey).disableValidation();
+                    String collection = getTargetCollectionName();
+                    MongoCollection<E> mongoCollection = null;
+                    if (StringUtils.isNotEmpty(collection)) {
+                        mongoCollection = mongoDatastore.getDatabase().getCollection(collection,
+                                entityClass);
+                    } else {
+                        mongoCollection = mongoDatastore.getMapper().getCollection(entityClass);
+                    }
+                    WriteConcern writeConcern = getWriteConcern(null);
+                    if (writeConcern != null) {
+                        mongoCollection = mongoCollection.withWriteConcern(writeConcern);
+                    }
+                    List<UpdateOperator> updateOperations = updatesTranslator.translate(updates,
+                            Optional.ofNullable(collection));
+                    /*
+                     * adding/updating LastUpdatedTime of entity - to be used for data
+                     * retention
+                     */
+                    Bson bsonUpdates = com.mongodb.client.model.Updates.combine(q.update(updateOperations).toDocument(),
+                            com.mongodb.client.model.Updates.set(LAST_UPDATED_TIME, LocalDateTime.now()));
+                    UpdateResult ur = mongoCollection.updateMany(q.toDocument(), bsonUpdates, new UpdateOptions()
+                            .multi(true).upsert(false));
+                    return ur.getModifiedCount() > 0;
+                }, () ->
+                        new String[]{serviceName, Constants.OPERATION_TYPE_SAVE,
+                            entityClassName, FALSE, Constants.FULL_QUERY_NA}
+        ));
+    }
+
+    /**
+     * Removes all entities based on the specified query.
+     *
+     * @param c the query to match
+     * @return true if the entities were removed, false otherwise
+     */
+    @Override
+    public boolean removeAll(IgniteQuery c, Updates updates) {
+        if (isPartitionFanOut()) {
+            return inEachPartition(c, () -> removeAll(c, updates), false, Boolean::logicalOr);
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_UPDATE_QUERY, c, updates.isIdempotent(), () -> {
+            checkDeadline(c);
+            Optional<String> collection = Optional.ofNullable(getTargetCollectionName());
+            Query<E> query = queryTranslator.translate(c, collection);
+            LOGGER.debug("Executing removeAll operation with the following query on mongoDB : {}",
+                    query);
+            List<UpdateOperator> updateOperations = updatesTranslator
+                    .translate(updates, collection);
+            UpdateOptions options = new UpdateOptions().multi(true);
+            WriteConcern writeConcern = getWriteConcern(c.getWriteConcern());
+            if (writeConcern != null) {
+                options.writeConcern(writeConcern);
+            }
+            UpdateResult ur = query.update(updateOperations).execute(options);
+            return ur.getModifiedCount() > 0;
+        });
+    }
+
+    /**
+     * Deletes the specified entity.
+     * Delete of Entity E is not supported by advanced datastore for custom collection.
+     * Hence, if a custom collection is set then it throws.
+     * UnsupportedOperationException. Instead, use deleteById.
+     * On a collection partitioned by time, the entity is deleted by ID from its partition.
+     *
+     * @param entity the entity to delete
+     * @return true if the entity was deleted, false otherwise
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean delete(E entity) throws UnsupportedOperationException {
+        if (isPartitionFanOut()) {
+            return inCollectionScope(getWriteCollectionName(entity),
+                    () -> deleteById((K) mongoDatastore.getMapper().getId(entity), getShardKey(entity)));
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_DELETE, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge, () -> {
+                DeleteResult deleteResult = null;
+                String collection = getTargetCollectionName();
+                if (StringUtils.isNotEmpty(collection)) {
+                    throw new UnsupportedOperationException("Delete entity is not supported "
+                            + "for dynamic collection name.");
+                } else {
+                    deleteResult = mongoDatastore.delete(entity);
+                }
+                return deleteResult.getDeletedCount() > 0;
+            }, () ->
+                 new String[] {serviceName, Constants.OPERATION_TYPE_DELETE,
+                     entityClassName, FALSE, Constants.FULL_QUERY_NA }));
+    }
+
+    /**
+     * Finds distinct values based on the specified query.
+     * Distinct is not supported by advanced datastore for custom collection.
+     * Hence, if a custom collection is set then it throws UnsupportedOperationException.
+     * On a collection partitioned by time, the values of the partitions are merged as by the typed distinct.
+     * @param igniteQuery the query to match
+     * @param field the field to find distinct values for
+     * @return a list of distinct values
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<K> distinct(IgniteQuery igniteQuery, String field) throws
+            UnsupportedOperationException {
+        if (isPartitionFanOut()) {
+            return (List<K>) distinctInPartitions(igniteQuery, field, String.class);
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_FIND_DISTINCT, igniteQuery, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge, () -> {
+                String collection = getTargetCollectionName();
+                if (StringUtils.isNotEmpty(collection)) {
+                    throw new UnsupportedOperationException("Distinct is not supported for dynamic collection name.");
+                } else {
+                    MongoCollection<?> dbCollection = getMongoCollection(null,
+                            isAnalytical(igniteQuery.getWorkload(), true));
+                    Query<E> query = queryTranslator.translate(igniteQuery,
+                            Optional.empty());
+                    LOGGER.debug("Executing distinct operation with the following query on mongoDB : {}", query);
+                    DistinctIterable<K> distinctDocs  = (DistinctIterable<K>) dbCollection.distinct(field,
+                            query.toDocument()
+                                    .toBsonDocument(), String.class);
+                    MongoCursor<K> results = distinctDocs.iterator();
+                    List<K> resultList = new ArrayList<>();
+                    while (results.hasNext()) {
+                        resultList.add(results.next());
+                    }
+                        return resultList;
+                }
+                }, () ->
+                 new String[]{serviceName, Constants.OPERATION_TYPE_FIND_DISTINCT,
+                     entityClassName, FALSE, igniteQuery.toTemplatedQueryString()}
+            ));
+    }
+
+    /**
+     * Finds the distinct values of a field based on the specified query, decoded as the given type. If the
+     * distinct command fails because its result exceeds the maximum document size, the values are computed
+     * by an aggregation instead. On a collection partitioned by time, the values of the partitions the
+     * query may match are merged, each value once.
+     *
+     * @param <T> the type of the values
+     * @param igniteQuery the query to match
+     * @param field the field to find distinct values for
+     * @param resultType the class the values are decoded into
+     * @return a list of distinct values
      */
-    @SuppressWarnings("removal")
     @Override
-    public int deleteByQuery(IgniteQuery igniteQuery) {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+    public <T> List<T> distinct(IgniteQuery igniteQuery, String field, Class<T> resultType) {
+        if (isPartitionFanOut()) {
+            return distinctInPartitions(igniteQuery, field, resultType);
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_FIND_DISTINCT, igniteQuery, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
                 requestCounter, requestGauge, () -> {
-                Optional<String> collection = Optional.ofNullable(getOverridingCollectionName());
-                Query<E> query = queryTranslator.translate(igniteQuery, collection);
-                LOGGER.debug("Executing delete operation with the following query on mongoDB : {}",
-                        query);
-                return (int) mongoDatastore.delete(query, new DeleteOptions().multi(true))
-                        .getDeletedCount();
-            }, () ->
-                 new String[]{serviceName, Constants.OPERATION_TYPE_DELETE_QUERY,
-                     entityClassName, FALSE, igniteQuery.toTemplatedQueryString()}
-            );
+                    List<T> values = new ArrayList<>();
+                    try (MongoCursor<T> cursor = openDistinctCursor(igniteQuery, field, resultType)) {
+                        cursor.forEachRemaining(values::add);
+                    }
+                    return values;
+                }, () ->
+                        new String[]{serviceName, Constants.OPERATION_TYPE_FIND_DISTINCT,
+                            entityClassName, FALSE, igniteQuery.toTemplatedQueryString()}
+        ));
     }
 
     /**
-     * Counts the number of entities that match the specified query.
+     * Streams the distinct values of a field based on the specified query, decoded as the given type. The
+     * latency metric covers the execution of the distinct command. On a collection partitioned by time, the
+     * partitions the query may match are streamed one after the other, newest first, each value once.
      *
+     * @param <T> the type of the values
      * @param igniteQuery the query to match
-     * @return the number of entities that match the query
+     * @param field the field to find distinct values for
+     * @param resultType the class the values are decoded into
+     * @return a Flux of the distinct values
      */
     @Override
-    public long countByQuery(IgniteQuery igniteQuery) {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
-                    requestCounter, requestGauge, () -> {
-                Optional<String> collection = Optional.ofNullable(getOverridingCollectionName());
+    public <T> Flux<T> streamDistinct(IgniteQuery igniteQuery, String field, Class<T> resultType) {
+        if (isPartitionFanOut()) {
+            List<String> partitions = partitioning.getPartitions(getPartitionCollectionNames(), igniteQuery);
+            List<Flux<T>> streams = new ArrayList<>(partitions.size());
+            for (int i = partitions.size() - 1; i >= 0; i--) {
+                streams.add(inCollectionScope(partitions.get(i), () -> streamDistinct(igniteQuery, field,
+                        resultType)));
+            }
+            return Flux.concat(streams).distinct();
+        }
+        String scope = collectionScope.get();
+        return streamCursor(() -> inCollectionScope(scope, () -> executeWithRetry(
+                Constants.OPERATION_TYPE_STREAM_DISTINCT, igniteQuery, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge,
+                    () -> openDistinctCursor(igniteQuery, field, resultType), () ->
+                        new String[]{serviceName, Constants.OPERATION_TYPE_STREAM_DISTINCT,
+                            entityClassName, FALSE, igniteQuery.toTemplatedQueryString()}
+        ))));
+    }
 
-                Query<E> query = queryTranslator.translate(igniteQuery, collection);
-                LOGGER.debug("Executing count operation with the following query on mongoDB : {}",
-                        query);
-                return query.count();
-            }, () ->
-                     new String[] {serviceName, Constants.OPERATION_TYPE_COUNT_QUERY,
-                       entityClassName, FALSE, igniteQuery.toTemplatedQueryString()}
-        );
+    /**
+     * Finds the distinct values of a field in the partitions a query may match, newest partition first,
+     * each value once.
+     *
+     * @param <T> the type of the values
+     * @param igniteQuery the query to match
+     * @param field the field to find distinct values for
+     * @param resultType the class the values are decoded into
+     * @return the union of the distinct values of the partitions
+     */
+    private <T> List<T> distinctInPartitions(IgniteQuery igniteQuery, String field, Class<T> resultType) {
+        Set<T> values = new LinkedHashSet<>();
+        List<String> partitions = partitioning.getPartitions(getPartitionCollectionNames(), igniteQuery);
+        for (int i = partitions.size() - 1; i >= 0; i--) {
+            values.addAll(inCollectionScope(partitions.get(i), () -> distinct(igniteQuery, field, resultType)));
+        }
+        return new ArrayList<>(values);
     }
 
     /**
-     * Retrieves an existing record by its ID and updates its fields with the values from the provided entity.
+     * Opens a cursor on the distinct values of a field, with the distinct command, or with an aggregation
+     * grouping on the field if the result of the distinct command exceeds the maximum document size.
      *
-     * @param entity the entity containing the updated values
-     * @return true if the update was successful, false otherwise
+     * @param <T> the type of the values
+     * @param igniteQuery the query to match
+     * @param field the field to find distinct values for
+     * @param resultType the class the values are decoded into
+     * @return the cursor
+     */
+    private <T> MongoCursor<T> openDistinctCursor(IgniteQuery igniteQuery, String field, Class<T> resultType) {
+        String collectionName = getTargetCollectionName();
+        MongoCollection<E> collection = getMongoCollection(collectionName,
+                isAnalytical(igniteQuery.getWorkload(), true));
+        if (igniteQuery.getReadPreference() != null) {
+            collection = collection.withReadPreference(igniteQuery.getReadPreference());
+        }
+        ReadConcern readConcern = getReadConcern(igniteQuery.getReadConcern());
+        if (readConcern != null) {
+            collection = collection.withReadConcern(readConcern);
+        }
+        Document filter = queryTranslator.translate(igniteQuery, Optional.ofNullable(collectionName)).toDocument();
+        String mappedField = getMappedFieldName(field);
+        LOGGER.debug("Executing distinct operation on field {} with filter {}", mappedField, filter);
+        DistinctIterable<T> distinct = collection.distinct(mappedField, filter, resultType);
+        long maxTimeMs = getMaxTimeMs(igniteQuery, distinctMaxTimeMs);
+        if (maxTimeMs > 0) {
+            distinct.maxTime(maxTimeMs, TimeUnit.MILLISECONDS);
+        }
+        try {
+            return distinct.iterator();
+        } catch (MongoCommandException e) {
+            if (!DISTINCT_TOO_LARGE_ERROR_CODES.contains(e.getErrorCode())) {
+                throw e;
+            }
+            LOGGER.info("Distinct values of field {} exceed the maximum document size, using an aggregation",
+                    mappedField);
+        }
+        List<Bson> pipeline = List.of(Aggregates.match(filter), Aggregates.unwind("$" + mappedField),
+                Aggregates.group("$" + mappedField));
+        AggregateIterable<BsonDocument> aggregate = collection.aggregate(pipeline, BsonDocument.class)
+                .allowDiskUse(true);
+        if (maxTimeMs > 0) {
+            aggregate.maxTime(maxTimeMs, TimeUnit.MILLISECONDS);
+        }
+        Codec<T> codec = mongoDatastore.getDatabase().getCodecRegistry().get(resultType);
+        return aggregate.map(group -> decodeValue(group, codec)).iterator();
+    }
+
+    /**
+     * Decodes the ID of a document with a codec.
+     *
+     * @param <T> the type of the value
+     * @param document the document
+     * @param codec the codec of the value
+     * @return the decoded value
+     */
+    private static <T> T decodeValue(BsonDocument document, Codec<T> codec) {
+        try (BsonDocumentReader reader = new BsonDocumentReader(document)) {
+            reader.readStartDocument();
+            reader.readName();
+            return codec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    /**
+     * Streams all entities as a Flux.
+     *
+     * @return a Flux containing all entities
      */
-    @SuppressWarnings("unchecked")
     @Override
-    public boolean getAndUpdate(E entity) {
-        K id = null;
-        Class<?> clazz = entity.getClass();
-        while (clazz != null) {
-            Field[] newEntityFields = clazz.getDeclaredFields();
-            LOGGER.debug("New entity fields are {}", Arrays.toString(newEntityFields));
-            for (Field field : newEntityFields) {
-                if (field.isAnnotationPresent(Id.class)) {
-                    field.setAccessible(true);
-                    try {
-                        id = (K) field.get(entity);
-                    } catch (IllegalArgumentException | IllegalAccessException e) {
-                        LOGGER.error("Exception while accessing the entity annotated with @Id. "
-                                + "Exception is: {}", e);
+    public Flux<E> streamFindAll() {
+        return Flux.fromStream(this.findAll().stream());
+    }
+
+    /**
+     * Streams entities based on the specified query.
+     *
+     * @param igniteQuery the query to match
+     * @return a Flux containing the found entities
+     */
+    @Override
+    public Flux<E> streamFind(IgniteQuery igniteQuery) {
+        return Flux.fromStream(this.find(igniteQuery).stream());
+    }
+
+    /**
+     * Counts all entities in the collection. The count is estimated from the collection metadata if the
+     * collection is listed in the estimated count collections, else it is exact and, if a cache TTL is set,
+     * served from a cache refreshed once the TTL is over. The cache is not invalidated by writes.
+     *
+     * @return the total number of entities
+     */
+    @Override
+    public long countAll() {
+        if (estimatedCountCollections.isEmpty() && countAllCacheTtlMs <= 0) {
+            return countAllExact();
+        }
+        String collectionName = getCollectionName();
+        if (estimatedCountCollections.contains(collectionName)) {
+            return estimatedCount();
+        }
+        if (countAllCacheTtlMs <= 0) {
+            return countAllExact();
+        }
+        long now = System.currentTimeMillis();
+        CachedCount cached = countAllCache.get(collectionName);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.count;
+        }
+        long count = countAllExact();
+        countAllCache.put(collectionName, new CachedCount(count, now + countAllCacheTtlMs));
+        return count;
+    }
+
+    /**
+     * Counts all entities in the collection from the collection metadata.
+     *
+     * @return the estimated number of entities
+     */
+    @Override
+    public long estimatedCount() {
+        if (isPartitionFanOut()) {
+            return inEachPartition(null, this::estimatedCount, 0L, Long::sum);
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_ESTIMATED_COUNT, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge,
+                    () -> getMongoCollection(getTargetCollectionName()).estimatedDocumentCount(
+                            new EstimatedDocumentCountOptions().maxTime(countMaxTimeMs, TimeUnit.MILLISECONDS)), () ->
+                        new String[] {serviceName, Constants.OPERATION_TYPE_ESTIMATED_COUNT,
+                            entityClassName, FALSE, Constants.FULL_QUERY_NA}
+                    ));
+    }
+
+    /**
+     * Counts all entities in the collection exactly.
+     *
+     * @return the total number of entities
+     */
+    @SuppressWarnings("removal")
+    private long countAllExact() {
+        if (isPartitionFanOut()) {
+            return inEachPartition(null, this::countAllExact, 0L, Long::sum);
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_COUNT_ALL, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge, () -> {
+                    Query<E> query;
+                    if (getTargetCollectionName() != null) {
+                        query = mongoDatastore.find(getTargetCollectionName(),
+                                entityClass).disableValidation();
+                    } else {
+                        query = mongoDatastore.createQuery(entityClass).disableValidation();
                     }
-                    LOGGER.debug("Entity annotated with @Id is {}. Fetching record from database "
-                            + "with this ID.", id);
-                }
+                    LOGGER.debug("Query is {}", query);
+                    CountOptions options = createCountOptions(countMaxTimeMs, getReadConcern(null));
+                    return options == null ? query.count() : query.count(options);
+                }, () ->
+                        new String[] {serviceName, Constants.OPERATION_TYPE_COUNT_ALL,
+                            entityClassName, FALSE, Constants.FULL_QUERY_NA}
+                    ));
+    }
+
+    /**
+     * Runs an aggregation pipeline on the collection of the entity.
+     *
+     * @param <R> the type of the result documents
+     * @param aggregation the aggregation pipeline
+     * @param resultType the class the result documents are decoded into
+     * @return the result documents
+     */
+    @Override
+    public <R> List<R> aggregate(IgniteAggregation aggregation, Class<R> resultType) {
+        checkNotPartitioned("Aggregations");
+        return executeWithRetry(Constants.OPERATION_TYPE_AGGREGATE, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge,
+                    () -> createAggregateIterable(aggregation, resultType).into(new ArrayList<>()), () ->
+                        new String[] {serviceName, Constants.OPERATION_TYPE_AGGREGATE,
+                            entityClassName, FALSE, aggregation.toTemplatedString()}
+        ));
+    }
+
+    /**
+     * Streams the results of an aggregation pipeline on the collection of the entity. The latency metric
+     * covers the execution of the pipeline up to the first batch.
+     *
+     * @param <R> the type of the result documents
+     * @param aggregation the aggregation pipeline
+     * @param resultType the class the result documents are decoded into
+     * @return a Flux of the result documents
+     */
+    @Override
+    public <R> Flux<R> streamAggregate(IgniteAggregation aggregation, Class<R> resultType) {
+        checkNotPartitioned("Aggregations");
+        String scope = collectionScope.get();
+        return streamCursor(() -> inCollectionScope(scope, () -> executeWithRetry(
+                Constants.OPERATION_TYPE_STREAM_AGGREGATE, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge,
+                    () -> createAggregateIterable(aggregation, resultType).iterator(), () ->
+                        new String[] {serviceName, Constants.OPERATION_TYPE_STREAM_AGGREGATE,
+                            entityClassName, FALSE, aggregation.toTemplatedString()}
+        ))));
+    }
+
+    /**
+     * Creates the aggregate iterable of a pipeline on the collection of the entity.
+     *
+     * @param <R> the type of the result documents
+     * @param aggregation the aggregation pipeline
+     * @param resultType the class the result documents are decoded into
+     * @return the aggregate iterable
+     */
+    private <R> AggregateIterable<R> createAggregateIterable(IgniteAggregation aggregation, Class<R> resultType) {
+        String collectionName = getTargetCollectionName();
+        MongoCollection<E> collection = getMongoCollection(collectionName,
+                isAnalytical(aggregation.getWorkload(), true));
+        if (aggregation.getReadPreference() != null) {
+            collection = collection.withReadPreference(aggregation.getReadPreference());
+        }
+        ReadConcern readConcern = getReadConcern(aggregation.getReadConcern());
+        if (readConcern != null) {
+            collection = collection.withReadConcern(readConcern);
+        }
+        List<Bson> pipeline = aggregationTranslator.translate(aggregation, Optional.ofNullable(collectionName));
+        LOGGER.debug("Executing aggregate operation with the following pipeline on mongoDB : {}", pipeline);
+        AggregateIterable<R> iterable = collection.aggregate(pipeline, resultType);
+        if (aggregation.getAllowDiskUse() != null) {
+            iterable.allowDiskUse(aggregation.getAllowDiskUse());
+        }
+        if (aggregation.getBatchSize() > 0) {
+            iterable.batchSize(aggregation.getBatchSize());
+        }
+        long maxTimeMs = aggregation.getMaxTimeMs() > 0 ? aggregation.getMaxTimeMs() : aggregateMaxTimeMs;
+        if (maxTimeMs > 0) {
+            iterable.maxTime(maxTimeMs, TimeUnit.MILLISECONDS);
+        }
+        return iterable;
+    }
+
+    /**
+     * Finds the entities nearest to a point with a $geoNear aggregation stage, which outputs the distance of
+     * each document. The criteria of the query become the query of the stage and its page number and size a
+     * $skip and a $limit stage. The read preference, read concern, workload and maximum execution time of the
+     * query apply; its sort and projection are ignored.
+     *
+     * @param field the field holding the GeoJSON point of the entities
+     * @param near the point, with the maximum distance in meters as radius, 0 for none
+     * @param query the query filtering and paging the entities
+     * @return the entities with their distance in meters, nearest first
+     * @throws IllegalArgumentException if only one of page number and page size is set
+     * @throws IllegalStateException if the collection has no 2dsphere index on the field
+     * @throws UnsupportedOperationException if the collection is partitioned by time
+     */
+    @Override
+    public List<GeoNearResult<E>> geoNear(String field, Coordinate near, IgniteQuery query) {
+        if (partitioning != null) {
+            throw new UnsupportedOperationException("geoNear is not supported on collections partitioned by time");
+        }
+        int pageSize = query.getPageSize();
+        int pageNumber = query.getPageNumber();
+        if ((pageNumber > 0) != (pageSize > 0) || pageNumber < 0 || pageSize < 0) {
+            throw new IllegalArgumentException("Both pageSize and pageNumber should be set.");
+        }
+        return executeWithRetry(Constants.OPERATION_TYPE_GEO_NEAR, query, true,
+                () -> MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
+                requestCounter, requestGauge,
+                    () -> runGeoNear(field, near, query), () ->
+                        new String[] {serviceName, Constants.OPERATION_TYPE_GEO_NEAR,
+                            entityClassName, String.valueOf(pageNumber > 0), query.toTemplatedQueryString()}
+        ));
+    }
+
+    /**
+     * Runs the $geoNear aggregation of a geoNear query and decodes its results.
+     *
+     * @param field the field holding the GeoJSON point of the entities
+     * @param near the point, with the maximum distance in meters as radius, 0 for none
+     * @param query the query filtering and paging the entities
+     * @return the entities with their distance in meters, nearest first
+     * @throws IllegalStateException if the collection has no 2dsphere index on the field
+     */
+    private List<GeoNearResult<E>> runGeoNear(String field, Coordinate near, IgniteQuery query) {
+        String collectionName = getCollectionName();
+        String key = getMappedFieldName(field);
+        checkGeoIndexed(collectionName, key);
+        Document geoNear = new Document("near", new Document("type", "Point")
+                .append("coordinates", Arrays.asList(near.getLongitude(), near.getLatitude())))
+                .append("distanceField", GEO_NEAR_DISTANCE_FIELD)
+                .append("spherical", true)
+                .append("key", key);
+        if (near.getRadius() > 0) {
+            geoNear.append("maxDistance", near.getRadius());
+        }
+        boolean analytical = isAnalytical(query.getWorkload(), false);
+        if (!query.getCriteriaGroups().isEmpty()) {
+            geoNear.append("query", getQueryTranslator(analytical)
+                    .translate(query, Optional.ofNullable(getTargetCollectionName())).toDocument());
+        }
+        List<Bson> pipeline = new ArrayList<>();
+        pipeline.add(new Document("$geoNear", geoNear));
+        if (query.getPageNumber() > 0) {
+            pipeline.add(Aggregates.skip((query.getPageNumber() - 1) * query.getPageSize()));
+            pipeline.add(Aggregates.limit(query.getPageSize()));
+        }
+        LOGGER.debug("Executing geoNear operation with the following pipeline on mongoDB : {}", pipeline);
+        MongoCollection<E> collection = withReadSettings(getMongoCollection(getTargetCollectionName(),
+                analytical), query);
+        AggregateIterable<BsonDocument> iterable = collection.aggregate(pipeline, BsonDocument.class);
+        long maxTimeMs = getMaxTimeMs(query, aggregateMaxTimeMs);
+        if (maxTimeMs > 0) {
+            iterable.maxTime(maxTimeMs, TimeUnit.MILLISECONDS);
+        }
+        Codec<E> codec = collection.getCodecRegistry().get(entityClass);
+        List<GeoNearResult<E>> results = new ArrayList<>();
+        for (BsonDocument document : iterable) {
+            double distance = document.remove(GEO_NEAR_DISTANCE_FIELD).asNumber().doubleValue();
+            try (BsonDocumentReader reader = new BsonDocumentReader(document)) {
+                results.add(new GeoNearResult<>(codec.decode(reader, DecoderContext.builder().build()), distance));
             }
-            clazz = clazz.getSuperclass();
         }
+        return results;
+    }
 
-        E existingRecord = findById(id);
-        LOGGER.debug("Fetched record: {} from database with ID: {}", existingRecord != null
-                ? existingRecord.toString() : "", id);
+    /**
+     * Checks that a collection has a 2dsphere index on a field, which a $geoNear stage needs. The indexes are
+     * listed again when the field is not known to be indexed, in case the index was created since.
+     *
+     * @param collectionName the name of the collection
+     * @param field the document field name
+     * @throws IllegalStateException if the collection has no 2dsphere index on the field
+     */
+    private void checkGeoIndexed(String collectionName, String field) {
+        Set<String> indexed = geoIndexedFields.get(collectionName);
+        if (indexed == null || !indexed.contains(field)) {
+            indexed = loadGeoIndexedFields(collectionName);
+        }
+        if (!indexed.contains(field)) {
+            throw new IllegalStateException("geoNear on " + field + " needs a 2dsphere index on it in collection "
+                    + collectionName);
+        }
+    }
 
-        clazz = entity.getClass();
-        while (clazz != null) {
-            Field[] newEntityFields = getNonStaticsFieldsFrom(clazz);
-            for (Field f : newEntityFields) {
-                updateEntityField(entity, clazz, existingRecord, f);
+    /**
+     * Checks that the collection of the entity has the 2dsphere indexes it declares with {@code @Indexes} and
+     * {@code @Indexed}, logging a warning for each missing one, as geoNear queries and near criteria on its
+     * field fail.
+     */
+    private void verifyGeoIndexes() {
+        Set<String> declared = getDeclaredGeoFields();
+        if (declared.isEmpty()) {
+            return;
+        }
+        String collectionName = getCollectionName();
+        Set<String> indexed = loadGeoIndexedFields(collectionName);
+        for (String field : declared) {
+            if (!indexed.contains(field)) {
+                LOGGER.warn("Collection {} has no 2dsphere index on field {} declared by {}, geospatial queries "
+                        + "on it will fail", collectionName, field, entityClassName);
             }
-            clazz = clazz.getSuperclass();
         }
-        save(existingRecord);
-        return true;
     }
 
     /**
-     * Updates a field of the existing record with the value from the new entity.
+     * Gets the fields of the 2dsphere indexes the entity declares with {@code @Indexes} and {@code @Indexed}.
+     *
+     * @return the document field names
+     */
+    private Set<String> getDeclaredGeoFields() {
+        Set<String> fields = new HashSet<>();
+        for (Class<?> c = entityClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            Indexes indexes = c.getAnnotation(Indexes.class);
+            for (Index index : indexes == null ? new Index[0] : indexes.value()) {
+                for (dev.morphia.annotations.Field indexField : index.fields()) {
+                    if (indexField.type() == IndexType.GEO2DSPHERE) {
+                        fields.add(getMappedFieldName(indexField.value()));
+                    }
+                }
+            }
+            for (Field field : c.getDeclaredFields()) {
+                Indexed indexed = field.getAnnotation(Indexed.class);
+                if (indexed != null && indexed.value() == IndexType.GEO2DSPHERE) {
+                    fields.add(getMappedFieldName(field.getName()));
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Lists the fields with a 2dsphere index in a collection, and caches them.
+     *
+     * @param collectionName the name of the collection
+     * @return the document field names
+     */
+    private Set<String> loadGeoIndexedFields(String collectionName) {
+        Set<String> fields = new HashSet<>();
+        for (Document index : getMongoCollection(collectionName).listIndexes()) {
+            Document key = index.get("key", Document.class);
+            if (key != null) {
+                key.forEach((name, type) -> {
+                    if (GEO_2DSPHERE.equals(type)) {
+                        fields.add(name);
+                    }
+                });
+            }
+        }
+        geoIndexedFields.put(collectionName, fields);
+        return fields;
+    }
+
+    /**
+     * Gets the driver collection of the entity.
+     *
+     * @param collectionName the overriding collection name, null or empty for the mapped collection
+     * @return the collection
+     */
+    private MongoCollection<E> getMongoCollection(String collectionName) {
+        return getMongoCollection(collectionName, false);
+    }
+
+    /**
+     * Gets the driver collection of the entity on the client of a workload.
+     *
+     * @param collectionName the overriding collection name, null or empty for the mapped collection
+     * @param analytical whether the collection is read by an analytical operation
+     * @return the collection
+     */
+    private MongoCollection<E> getMongoCollection(String collectionName, boolean analytical) {
+        return getMongoCollection(getDatastore(analytical), collectionName);
+    }
+
+    /**
+     * Gets the driver collection of the entity in the database of a datastore, such as the session of a
+     * transaction.
+     *
+     * @param datastore the datastore
+     * @param collectionName the overriding collection name, null or empty for the mapped collection
+     * @return the collection
+     */
+    private MongoCollection<E> getMongoCollection(Datastore datastore, String collectionName) {
+        if (StringUtils.isNotEmpty(collectionName)) {
+            return datastore.getDatabase().getCollection(collectionName, entityClass);
+        }
+        return datastore.getMapper().getCollection(entityClass);
+    }
+
+    /**
+     * Checks whether an operation runs on the analytical client.
+     *
+     * @param workload the workload requested by the caller, may be null
+     * @param scan whether the operation is a scan or an aggregation, analytical unless requested otherwise
+     * @return true if the operation is analytical
+     */
+    private static boolean isAnalytical(Workload workload, boolean scan) {
+        return workload == null ? scan : workload == Workload.ANALYTICAL;
+    }
+
+    /**
+     * Gets the datastore of a workload.
+     *
+     * @param analytical whether the operation is analytical
+     * @return the analytical datastore if the operation is analytical and one is configured, else the datastore
+     */
+    @SuppressWarnings("removal")
+    private AdvancedDatastore getDatastore(boolean analytical) {
+        if (analytical && analyticalDatastore != null && analyticalDatastore.getDatastore() != null) {
+            return analyticalDatastore.getDatastore();
+        }
+        return mongoDatastore;
+    }
+
+    /**
+     * Gets the query translator of a workload.
+     *
+     * @param analytical whether the operation is analytical
+     * @return the query translator of the datastore of the workload
+     */
+    private QueryTranslator<Query<E>> getQueryTranslator(boolean analytical) {
+        return analytical && analyticalQueryTranslator != null ? analyticalQueryTranslator : queryTranslator;
+    }
+
+    /**
+     * Checks if a collection exists.
      *
-     * @param entity the new entity containing updated values
-     * @param clazz the class of the entity
-     * @param existingRecord the existing record to be updated
-     * @param f the field to be updated
+     * @param collectionName the name of the collection
+     * @return true if the collection exists, false otherwise
      */
-    private void updateEntityField(E entity, Class<?> clazz, E existingRecord, Field f) {
-        f.setAccessible(true);
-        LOGGER.debug("Field: {} of class: {}", f.getName(), clazz.getCanonicalName());
-        try {
-            //if the new field is not null or primitive, if the field needs to be updated.
-            if (f.get(entity) != null && !isFieldPrimitiveValueAndZero(f, entity)) {
-                checkFieldExistsInSavedRecordAndUpdate(f, entity, existingRecord, clazz);
+    @Override
+    public boolean collectionExists(String collectionName) {
+        Set<String> collectionNames = mongoDatastore.getDatabase().listCollectionNames()
+                .into(new HashSet<>());
+        for (final String name : collectionNames) {
+            if (name.equals(collectionName)) {
+                return true;
             }
-        } catch (IllegalArgumentException | IllegalAccessException | SecurityException e) {
-            LOGGER.error(EXCEPTION_MESSAGE, e);
         }
+        return false;
     }
-    
-    /*
-     * This method checks:
-     *
-     */
+
     /**
-     * Check field exists in saved record and update.
-     * If it is an object that exists in the record that is saved.
-     * then update in the existing record.
-     * else Add it to the existing record.
+     * Gets the shard key values of the entity, for the shard keys configured for its collection.
+     * Shard keys whose value is not set are left out.
      *
-     * @param f
-     *         the f
-     * @param entity
-     *         the entity
-     * @param existingRecord
-     *         the existing record
-     * @param clazz
-     *         the clazz
+     * @param entity the entity
+     * @return the shard key values by field name, empty if the collection has no shard key
      */
-    @SuppressWarnings("unchecked")
-    private void checkFieldExistsInSavedRecordAndUpdate(Field f, E entity, E existingRecord, Class<?> clazz) {
-        try {
-            //if it is an object that exists in the one that is saved
-            if (f.get(entity) instanceof Map && existingRecord != null && f.get(existingRecord)
-                    != null) {
-                //scroll through the attributes
-                for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) f.get(entity))
-                        .entrySet()) {
-                    //if the attribute exists in the one that is saved
-                    if (((Map<Object, Object>) f.get(existingRecord)).get(entry.getKey()) != null) {
-                        LOGGER.debug("Field: {} exists with value {} and will be updated with "
-                                        + "value {}", f.getName(),
-                                ((Map<Object, Object>) f.get(existingRecord)).get(entry.getKey()),
-                                entry.getValue());
-                        updateInExistingRecord(entry, existingRecord, f);
-                    } else {
-                        //if the attribute does not exist in the one that is saved
-                        Field existingField = clazz.getDeclaredField(f.getName());
-                        existingField.setAccessible(true);
-                        Map<Object, Object> existingMap = ((Map<Object, Object>) existingField.get(
-                                existingRecord));
-                        existingMap.put(entry.getKey(), entry.getValue());
-                        LOGGER.debug(FIELD_UPDATED_WITH_VALUE, f.getName(),
-                                existingMap.toString());
-                    }
+    @Override
+    public Map<String, Object> getShardKey(E entity) {
+        Map<String, Object> shardKey = new HashMap<>();
+        if (entity == null || shardKeyMap == null || shardKeyMap.isEmpty()) {
+            return shardKey;
+        }
+        List<String> shardKeysList = shardKeyMap.get(getCollectionName());
+        if (shardKeysList != null) {
+            for (String key : shardKeysList) {
+                ShardKeyExtractor extractor = shardKeyExtractors.get(key);
+                Object value = extractor == null ? null : extractor.getValue(entity);
+                if (value != null) {
+                    shardKey.put(key, value);
                 }
-            } else {
-                //if it is an object that does not exist in the one that is saved
-                Field existingField = clazz.getDeclaredField(f.getName());
-                existingField.setAccessible(true);
-                existingField.set(existingRecord, f.get(entity));
-                LOGGER.debug(FIELD_UPDATED_WITH_VALUE, f.getName(),
-                        f.get(entity).toString());
             }
-        } catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException
-                | SecurityException e) {
-            LOGGER.error(EXCEPTION_MESSAGE, e);
         }
+        return shardKey;
     }
 
     /**
-     * Update in existing record.
+     * Gets the name of the collection of the entity.
      *
-     * @param entry
-     *         the entry
-     * @param existingRecord
-     *         the existing record
-     * @param f
-     *         the f
+     * @return the overriding collection name if set, else the mapped collection name
      */
-    @SuppressWarnings("unchecked")
-    private void updateInExistingRecord(Map.Entry<Object, Object> entry, E existingRecord, Field f) {
-        try {
-            //if there's no mapping to a class.
-            if (entry.getValue() instanceof Map) {
-                Map<Object, Object> existingMap = ((Map<Object, Object>) f.get(existingRecord));
-                for (Map.Entry<Object, Object> e : ((Map<Object, Object>) entry.getValue())
-                        .entrySet()) {
-                    ((Map<Object, Object>) existingMap.get(entry.getKey())).put(e.getKey(),
-                            e.getValue());
-                }
-                LOGGER.debug(FIELD_UPDATED_WITH_VALUE, f.getName(),
-                        existingMap.toString());
-            } else {
-                //if there is mapping to a class
-                getAndUpdateInner(entry.getValue(), ((Map<Object, Object>) f.get(existingRecord))
-                        .get(entry.getKey()));
-            }
-        } catch (IllegalArgumentException | IllegalAccessException | SecurityException e) {
-            LOGGER.error(EXCEPTION_MESSAGE, e);
+    private String getCollectionName() {
+        String collection = getTargetCollectionName();
+        if (StringUtils.isNotEmpty(collection)) {
+            return collection;
         }
+        return mongoDatastore.getMapper().getCollection(entityClass).getNamespace().getCollectionName();
     }
 
     /**
-     * Gets and update inner.
+     * Creates a query on the ID of the entity, with equality filters on the shard key when the collection
+     * is sharded and all its shard key values are given.
      *
-     * @param entity
-     *         the entity
-     * @param existingRecord
-     *         the existing record
+     * @param operationType the operation type
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name, may be null
+     * @return the query
      */
-    public void getAndUpdateInner(Object entity, Object existingRecord) {
-        Class<?> clazz = entity.getClass();
-        while (clazz != null) {
-            Field[] newEntityFields = clazz.getDeclaredFields();
-            for (Field f : newEntityFields) {
-                f.setAccessible(true);
-                LOGGER.debug("Field: {} of class: {}", f.getName(), clazz.getCanonicalName());
-                try {
-                    //if the new field is not null or primitive
-                    if (f.get(entity) != null && !isInnerFieldPrimitiveValueAndZero(f, entity)) {
-                        getAndUpdateFieldValue(entity, existingRecord, clazz, f);
-                    }
-                } catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException
-                         | SecurityException e) {
-                    LOGGER.error(EXCEPTION_MESSAGE, e);
-                }
-            }
-            clazz = clazz.getSuperclass();
+    private Query<E> createIdQuery(String operationType, K id, Map<String, Object> shardKey) {
+        String collection = getTargetCollectionName();
+        Query<E> query = StringUtils.isNotEmpty(collection) ? mongoDatastore.find(collection, entityClass)
+                : mongoDatastore.find(entityClass);
+        query.filter(Filters.eq(Constants.ID_FILTER_CONSTANT, id));
+        List<Filter> shardKeyFilters = getShardKeyFilters(operationType, shardKey);
+        if (!shardKeyFilters.isEmpty()) {
+            query.filter(shardKeyFilters.toArray(new Filter[0]));
         }
+        return query;
     }
 
     /**
-     * Gets and update field value.
+     * Builds the equality filters on the shard key of the collection, and counts the operation as
+     * targeted when every shard key is given, or as broadcast otherwise. The ID is always part of the
+     * filter, so a shard key on the ID field needs no extra filter.
      *
-     * @param entity
-     *         the entity
-     * @param existingRecord
-     *         the existing record
-     * @param clazz
-     *         the clazz
-     * @param f
-     *         the f
+     * @param operationType the operation type
+     * @param shardKey the shard key values, by field name, may be null
+     * @return the filters, empty if the collection is not sharded or the operation is broadcast
      */
-    @SuppressWarnings("unchecked")
-    private void getAndUpdateFieldValue(Object entity, Object existingRecord, Class<?> clazz,
-             Field f)
-            throws IllegalAccessException, NoSuchFieldException {
-        //if it is an object that exists in the one that is saved
-        if (f.get(entity) instanceof Map && existingRecord != null && f.get(existingRecord) != null) {
-            //scroll through the attributes
-            for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) f.get(entity))
-                    .entrySet()) {
-                getAndUpdateInnerHelper(entry, f, existingRecord, clazz);
+    private List<Filter> getShardKeyFilters(String operationType, Map<String, Object> shardKey) {
+        if (shardKeyMap == null || shardKeyMap.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String collectionName = getCollectionName();
+        if (!isSharded(collectionName)) {
+            return Collections.emptyList();
+        }
+        List<Filter> filters = new ArrayList<>();
+        boolean targeted = true;
+        for (String key : shardKeyMap.get(collectionName)) {
+            ShardKeyExtractor extractor = shardKeyExtractors.get(key);
+            if (extractor != null && extractor.isId()) {
+                continue;
             }
-            //if it is an Object
-        } else if (f.get(entity).getClass().isAnnotationPresent(
-                dev.morphia.annotations.Entity.class)
-                && existingRecord != null && f.get(
-                existingRecord) != null) {
-            //if there is mapping to a class
-            getAndUpdateInner(f.get(entity), f.get(existingRecord));
-        } else {
-            //if it is an object that does not exist in the one that is saved
-            Field existingField = clazz.getDeclaredField(f.getName());
-            existingField.setAccessible(true);
-            existingField.set(existingRecord, f.get(entity));
-            LOGGER.debug(FIELD_UPDATED_WITH_VALUE, f.getName(), f.get(entity)
-                    .toString());
+            if (shardKey == null || !shardKey.containsKey(key)) {
+                targeted = false;
+                break;
+            }
+            filters.add(Filters.eq(key, shardKey.get(key)));
         }
+        if (shardRoutingCounter != null) {
+            shardRoutingCounter.labels(serviceName, operationType, entityClassName,
+                    targeted ? Constants.SHARD_ROUTING_TARGETED : Constants.SHARD_ROUTING_BROADCAST).inc();
+        }
+        if (!targeted) {
+            LOGGER.debug("Shard key of collection {} not given for {}, broadcasting to all shards",
+                    collectionName, operationType);
+            return Collections.emptyList();
+        }
+        return filters;
     }
 
     /**
-     * Gets and update inner helper.
+     * Executes a small read through the hedged read executor, if one is configured and the read goes to
+     * secondaries. A hedged read runs on other threads, each run with its own query, created in the
+     * collection scope of the caller, and its own copy of the options, bounded by the maximum execution
+     * time of hedged reads if they set none, as the losing run is left to complete.
      *
-     * @param entry
-     *         the entry
-     * @param f
-     *         the f
-     * @param existingRecord
-     *         the existing record
-     * @param clazz
-     *         the clazz
+     * @param <T> the type of the result
+     * @param operationType the operation type
+     * @param readPreference the read preference of the read, null for the read preference of the database
+     * @param resultSize the maximum number of documents read
+     * @param querySupplier creates the query of a run
+     * @param options the find options, may be null
+     * @param read runs the read with a query and options, which are null if the given options are
+     * @return the result of the read
      */
-    @SuppressWarnings("unchecked")
-    private void getAndUpdateInnerHelper(Map.Entry<Object, Object> entry, Field f,
-             Object existingRecord, Class<?> clazz) {
-        try {
-            //if the attribute exists in the one that is saved
-            if ((( Map<Object, Object>) f.get(existingRecord)).get(entry.getKey()) != null) {
-                LOGGER.debug("Field: {} exists with value {} and will be updated with value {}", f.getName(),
-                      ((Map<Object, Object>) f.get(existingRecord)).get(entry.getKey()), entry.getValue());
-                getAndUpdateInner(entry.getValue(), ((Map<Object, Object>) f.get(existingRecord)).get(entry.getKey()));
-            } else {
-                //if the attribute does not exist in the one that is saved
-                Field existingField = clazz.getDeclaredField(f.getName());
-                existingField.setAccessible(true);
-                Map<Object, Object> existingMap = ((Map<Object, Object>) existingField.get(existingRecord));
-                existingMap.put(entry.getKey(), entry.getValue());
-                LOGGER.debug(FIELD_UPDATED_WITH_VALUE, f.getName(), existingMap.toString());
-            }
-        } catch (IllegalArgumentException | IllegalAccessException | NoSuchFieldException
-                | SecurityException e) {
-            LOGGER.error(EXCEPTION_MESSAGE, e);
+    private <T> T executeHedged(String operationType, ReadPreference readPreference, int resultSize,
+            Supplier<Query<E>> querySupplier, FindOptions options, BiFunction<Query<E>, FindOptions, T> read) {
+        if (hedgedReadExecutor == null || !hedgedReadExecutor.isHedged(resultSize)) {
+            return read.apply(querySupplier.get(), options);
+        }
+        ReadPreference effective = readPreference != null ? readPreference
+                : mongoDatastore.getDatabase().getReadPreference();
+        if (!HEDGED_READ_PREFERENCES.contains(effective.getName())) {
+            return read.apply(querySupplier.get(), options);
         }
+        String scope = collectionScope.get();
+        return hedgedReadExecutor.execute(operationType, entityClassName, () -> inCollectionScope(scope,
+                () -> read.apply(querySupplier.get(), copyHedgedFindOptions(options))));
     }
 
     /**
-     * Checks if the field is a primitive value and zero.
+     * Copies the find options of a run of a hedged read, with the maximum execution time of hedged reads
+     * if they set none.
      *
-     * @param field the field to check
-     * @param entity the entity to check
-     * @return true if the field is a primitive value and zero, false otherwise
-     * @throws IllegalAccessException if the field is inaccessible
+     * @param options the find options, may be null
+     * @return the copy
      */
-    private boolean isInnerFieldPrimitiveValueAndZero(Field field, Object entity)
-            throws IllegalAccessException {
-        Class<? extends Object> fieldType = field.getType();
-        if (fieldType.isPrimitive()) {
-            return Double.parseDouble(field.get(entity).toString()) <= 0.0d;
+    private FindOptions copyHedgedFindOptions(FindOptions options) {
+        FindOptions copy = options == null ? new FindOptions() : new FindOptions().copy(options);
+        if (copy.getMaxTime(TimeUnit.MILLISECONDS) <= 0) {
+            copy.maxTime(hedgedReadExecutor.getMaxTimeMs(), TimeUnit.MILLISECONDS);
         }
-        return false;
+        return copy;
     }
 
     /**
-     * Checks if the field is a primitive value and zero.
+     * Gets the maximum server execution time of an operation: the one of the query if set, else the default
+     * of the operation type, bounded by the time left before the deadline of the query.
      *
-     * @param field the field to check
-     * @param entity the entity to check
-     * @return true if the field is a primitive value and zero, false otherwise
-     * @throws IllegalAccessException if the field is inaccessible
+     * @param igniteQuery the query of the operation, may be null
+     * @param defaultMaxTimeMs the default maximum execution time of the operation type, 0 for none
+     * @return the maximum server execution time, in milliseconds, 0 for none
+     * @throws MongoExecutionTimeoutException if the deadline of the query has passed
      */
-    private boolean isFieldPrimitiveValueAndZero(Field field, E entity)
-            throws IllegalAccessException {
-        Class<? extends Object> fieldType = field.getType();
-        if (fieldType.isPrimitive()) {
-            return Double.parseDouble(field.get(entity).toString()) <= 0.0d;
+    private long getMaxTimeMs(IgniteQuery igniteQuery, long defaultMaxTimeMs) {
+        if (igniteQuery == null) {
+            return defaultMaxTimeMs;
         }
-        return false;
+        long maxTimeMs = igniteQuery.getMaxTimeMs() > 0 ? igniteQuery.getMaxTimeMs() : defaultMaxTimeMs;
+        long remainingMs = checkDeadline(igniteQuery);
+        if (remainingMs > 0) {
+            maxTimeMs = maxTimeMs > 0 ? Math.min(maxTimeMs, remainingMs) : remainingMs;
+        }
+        return maxTimeMs;
     }
 
     /**
-     * Updates all the specified entities.
+     * Checks that the deadline of a query, if any, has not passed. Writes cannot be given a maximum server
+     * execution time, so they are only checked before being sent.
      *
-     * @param entities the entities to update
-     * @return an array of booleans indicating whether each entity was updated
+     * @param igniteQuery the query of the operation, may be null
+     * @return the time left before the deadline, in milliseconds, 0 if the query has no deadline
+     * @throws MongoExecutionTimeoutException if the deadline has passed
      */
-    @Override
-    public boolean[] updateAll(@SuppressWarnings("unchecked") E... entities) {
-        saveAll(entities);
-        boolean[] results = new boolean[entities.length];
-        Arrays.fill(results, true);
-        return results;
+    private long checkDeadline(IgniteQuery igniteQuery) {
+        if (igniteQuery == null || igniteQuery.getDeadline() == null) {
+            return 0L;
+        }
+        long remainingMs = igniteQuery.getDeadline().toEpochMilli() - System.currentTimeMillis();
+        if (remainingMs <= 0) {
+            throw new DeadlineExceededException("Deadline " + igniteQuery.getDeadline() + " of the "
+                    + entityClassName + " operation has passed");
+        }
+        return remainingMs;
     }
 
     /**
-     * Deletes all entities.
+     * Creates the find options of an operation, with its maximum server execution time and read concern.
      *
-     * @return true if the entities were deleted, false otherwise
+     * @param igniteQuery the query of the operation, may be null
+     * @return the find options, null if the operation has neither
      */
-    @SuppressWarnings("removal")
-    @Override
-    public boolean deleteAll() {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
-            requestCounter, requestGauge, () -> {
-                Query<E> query = null;
-                String collection = getOverridingCollectionName();
-                if (StringUtils.isNotEmpty(collection)) {
-                    query = mongoDatastore.find(collection, entityClass);
-                } else {
-                    query = mongoDatastore.find(entityClass);
-                }
-                DeleteResult deleteResult = mongoDatastore.delete(query, new DeleteOptions()
-                        .multi(true));
-                return deleteResult.getDeletedCount() > 0;
-            }, () ->
-                 new String[] {serviceName, Constants.OPERATION_TYPE_DELETE,
-                     entityClassName, FALSE, Constants.FULL_QUERY_NA }
-        );
+    private FindOptions createFindOptions(IgniteQuery igniteQuery) {
+        long maxTimeMs = getMaxTimeMs(igniteQuery, findMaxTimeMs);
+        ReadConcern readConcern = getReadConcern(igniteQuery == null ? null : igniteQuery.getReadConcern());
+        if (maxTimeMs <= 0 && readConcern == null) {
+            return null;
+        }
+        FindOptions options = new FindOptions();
+        if (maxTimeMs > 0) {
+            options.maxTime(maxTimeMs, TimeUnit.MILLISECONDS);
+        }
+        if (readConcern != null) {
+            options.readConcern(readConcern);
+        }
+        return options;
     }
 
     /**
-     * Updates the specified entity.
+     * Creates the count options of an operation.
      *
-     * @param entity the entity to update
-     * @return true if the entity was updated, false otherwise
+     * @param maxTimeMs the maximum server execution time, in milliseconds, 0 for none
+     * @param readConcern the read concern, may be null
+     * @return the count options, null if the operation has neither
      */
-    @Override
-    public boolean update(E entity) {
-        save(entity);
-        return true;
+    private static CountOptions createCountOptions(long maxTimeMs, ReadConcern readConcern) {
+        if (maxTimeMs <= 0 && readConcern == null) {
+            return null;
+        }
+        CountOptions options = new CountOptions();
+        if (maxTimeMs > 0) {
+            options.maxTime(maxTimeMs, TimeUnit.MILLISECONDS);
+        }
+        if (readConcern != null) {
+            options.readConcern(readConcern);
+        }
+        return options;
     }
 
     /**
-     * Updates entities based on the specified query and updates.
+     * Creates the delete options of an operation.
      *
-     * @param c the query to match
-     * @param updates the updates to apply
-     * @return true if the entities were updated, false otherwise
+     * @param multi whether all the matching documents are deleted
+     * @param writeConcern the write concern of the operation, null for the default of the entity
+     * @return the delete options
      */
-    @Override
-    public boolean update(IgniteQuery c, Updates updates) {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
-                requestCounter, requestGauge, () -> {
-                Optional<String> collection = Optional.ofNullable(getOverridingCollectionName());
-                Query<E> query = queryTranslator.translate(c, collection);
-                LOGGER.debug("Executing update operation with the following query on mongoDB : {}",
-                        query);
-                MongoCollection<E> mongoCollection = null;
-                if (collection.isPresent()) {
-                    mongoCollection = mongoDatastore.getDatabase().getCollection(collection.get(),
-                            entityClass);
-                } else {
-                    mongoCollection = mongoDatastore.getMapper().getCollection(entityClass);
-                }
-                List<UpdateOperator> updateOperations = updatesTranslator.translate(updates,
-                        collection);
-                /*
-                 * adding/updating LastUpdatedTime of entity - to be used for data
-                 * retention
-                 */
-                Bson bsonUpdates = com.mongodb.client.model.Updates.combine(query.update(
-                        updateOperations).toDocument(),
-                        com.mongodb.client.model.Updates.set(LAST_UPDATED_TIME, LocalDateTime.now()));
-                UpdateResult ur = mongoCollection.updateMany(query.toDocument(), bsonUpdates,
-                        new UpdateOptions().multi(true).upsert(false));
-                return ur.getModifiedCount() > 0;
-            }, () ->
-                 new String[] {serviceName, Constants.OPERATION_TYPE_UPDATE_QUERY,
-                     entityClassName, FALSE, c.toTemplatedQueryString()}
-            );
+    private DeleteOptions createDeleteOptions(boolean multi, WriteConcern writeConcern) {
+        DeleteOptions options = new DeleteOptions().multi(multi);
+        WriteConcern concern = getWriteConcern(writeConcern);
+        if (concern != null) {
+            options.writeConcern(concern);
+        }
+        return options;
     }
 
     /**
-     * Updates the specified entity.
+     * Gets the read concern of an operation.
      *
-     * @param id the ID of the entity to update
-     * @param updates the updates to apply
-     * @return true if the entity was updated, false otherwise
+     * @param readConcern the read concern of the operation, may be null
+     * @return the read concern of the operation if set, else the default of the entity, null if neither
      */
-    @SuppressWarnings("removal")
-    @Override
-    public boolean update(K id, Updates updates) {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
-                requestCounter, requestGauge, () -> {
-                    Query<E> q = null;
-                    String collection = getOverridingCollectionName();
-                    MongoCollection<E> mongoCollection = null;
-                    if (StringUtils.isNotEmpty(collection)) {
-                        q = mongoDatastore.find(collection, entityClass).filter(Filters.eq(
-                                Constants.ID_FILTER_CONSTANT, id)).disableValidation();
-                        mongoCollection = mongoDatastore.getDatabase().getCollection(collection,
-                                entityClass);
-                    } else {
-                        q = mongoDatastore.createQuery(entityClass).filter(Filters.eq(Constants
-                                .ID_FILTER_CONSTANT, id)).disableValidation();
-                        mongoCollection = mongoDatastore.getMapper().getCollection(entityClass);
-                    }
-                    List<UpdateOperator> updateOperations = updatesTranslator.translate(updates,
-                            Optional.ofNullable(collection));
-                    /*
-                     * adding/updating LastUpdatedTime of entity - to be used for data
-                     * retention
-                     */
-                    Bson bsonUpdates = com.mongodb.client.model.Updates.combine(q.update(updateOperations).toDocument(),
-                            com.mongodb.client.model.Updates.set(LAST_UPDATED_TIME, LocalDateTime.now()));
-                    UpdateResult ur = mongoCollection.updateMany(q.toDocument(), bsonUpdates, new UpdateOptions()
-                            .multi(true).upsert(false));
-                    return ur.getModifiedCount() > 0;
-                }, () ->
-                        new String[]{serviceName, Constants.OPERATION_TYPE_SAVE,
-                            entityClassName, FALSE, Constants.FULL_QUERY_NA}
-        );
+    private ReadConcern getReadConcern(ReadConcern readConcern) {
+        if (readConcern != null || readConcerns.isEmpty()) {
+            return readConcern;
+        }
+        return readConcerns.get(getCollectionName());
     }
 
     /**
-     * Removes all entities based on the specified query.
+     * Gets the write concern of an operation.
      *
-     * @param c the query to match
-     * @return true if the entities were removed, false otherwise
+     * @param writeConcern the write concern of the operation, may be null
+     * @return the write concern of the operation if set, else the default of the entity, null if neither
      */
-    @Override
-    public boolean removeAll(IgniteQuery c, Updates updates) {
-        Optional<String> collection = Optional.ofNullable(getOverridingCollectionName());
-        Query<E> query = queryTranslator.translate(c, collection);
-        LOGGER.debug("Executing removeAll operation with the following query on mongoDB : {}",
-                query);
-        List<UpdateOperator> updateOperations = updatesTranslator
-                .translate(updates, collection);
-        UpdateResult ur = query.update(updateOperations).execute(new UpdateOptions().multi(true));
-        return ur.getModifiedCount() > 0;
+    private WriteConcern getWriteConcern(WriteConcern writeConcern) {
+        if (writeConcern != null || writeConcerns.isEmpty()) {
+            return writeConcern;
+        }
+        return writeConcerns.get(getCollectionName());
     }
 
     /**
-     * Deletes the specified entity.
-     * Delete of Entity E is not supported by advanced datastore for custom collection.
-     * Hence, if a custom collection is set then it throws.
-     * UnsupportedOperationException. Instead, use deleteById.
+     * Counts an operation which failed, if it timed out.
      *
-     * @param entity the entity to delete
-     * @return true if the entity was deleted, false otherwise
+     * @param operationType the operation type
+     * @param failure the exception the operation failed with, may be null
      */
-    @Override
-    public boolean delete(E entity) throws UnsupportedOperationException {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
-                requestCounter, requestGauge, () -> {
-                DeleteResult deleteResult = null;
-                String collection = getOverridingCollectionName();
-                if (StringUtils.isNotEmpty(collection)) {
-                    throw new UnsupportedOperationException("Delete entity is not supported "
-                            + "for dynamic collection name.");
-                } else {
-                    deleteResult = mongoDatastore.delete(entity);
-                }
-                return deleteResult.getDeletedCount() > 0;
-            }, () ->
-                 new String[] {serviceName, Constants.OPERATION_TYPE_DELETE,
-                     entityClassName, FALSE, Constants.FULL_QUERY_NA });
+    private void countTimeout(String operationType, Throwable failure) {
+        String kind;
+        if (failure instanceof DeadlineExceededException) {
+            kind = Constants.TIMEOUT_KIND_DEADLINE;
+        } else if (failure instanceof MongoExecutionTimeoutException) {
+            kind = Constants.TIMEOUT_KIND_SERVER;
+        } else if (failure instanceof MongoSocketReadTimeoutException) {
+            kind = Constants.TIMEOUT_KIND_SOCKET;
+        } else {
+            return;
+        }
+        if (timeoutCounter != null) {
+            timeoutCounter.labels(serviceName, operationType, entityClassName, kind).inc();
+        }
     }
 
     /**
-     * Finds distinct values based on the specified query.
-     * Distinct is not supported by advanced datastore for custom collection.
-     * Hence, if a custom collection is set then it throws UnsupportedOperationException.
-     * @param igniteQuery the query to match
-     * @param field the field to find distinct values for
-     * @return a list of distinct values
+     * Executes an operation through the retry executor, if one is configured.
+     *
+     * @param <T> the type of the result
+     * @param operationType the operation type
+     * @param idempotent whether the operation can safely be executed more than once
+     * @param operation the operation
+     * @return the result of the operation
      */
-    @SuppressWarnings("unchecked")
-    @Override
-    public List<K> distinct(IgniteQuery igniteQuery, String field) throws
-            UnsupportedOperationException {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
-                requestCounter, requestGauge, () -> {
-                String collection = getOverridingCollectionName();
-                if (StringUtils.isNotEmpty(collection)) {
-                    throw new UnsupportedOperationException("Distinct is not supported for dynamic collection name.");
-                } else {
-                    MongoCollection<?> dbCollection = mongoDatastore.getMapper().getCollection(
-                            entityClass);
-                    Query<E> query = queryTranslator.translate(igniteQuery,
-                            Optional.empty());
-                    LOGGER.debug("Executing distinct operation with the following query on mongoDB : {}", query);
-                    DistinctIterable<K> distinctDocs  = (DistinctIterable<K>) dbCollection.distinct(field,
-                            query.toDocument()
-                                    .toBsonDocument(), String.class);
-                    MongoCursor<K> results = distinctDocs.iterator();
-                    List<K> resultList = new ArrayList<>();
-                    while (results.hasNext()) {
-                        resultList.add(results.next());
-                    }
-                        return resultList;
-                }
-                }, () ->
-                 new String[]{serviceName, Constants.OPERATION_TYPE_FIND_DISTINCT,
-                     entityClassName, FALSE, igniteQuery.toTemplatedQueryString()}
-            );
+    private <T> T executeWithRetry(String operationType, boolean idempotent, Supplier<T> operation) {
+        return executeWithRetry(operationType, null, idempotent, operation);
     }
 
     /**
-     * Streams all entities as a Flux.
+     * Acquires a lease on the mongo client the datastore routes operations to, if it is hot swapped.
      *
-     * @return a Flux containing all entities
+     * @return the lease, null if the datastore is not hot swapped
      */
-    @Override
-    public Flux<E> streamFindAll() {
-        return Flux.fromStream(this.findAll().stream());
+    private MongoClientLeases.Lease acquireLease() {
+        return mongoClientLeases == null ? null : mongoClientLeases.acquire();
     }
 
     /**
-     * Streams entities based on the specified query.
+     * Streams the documents of a cursor, holding a lease on the mongo client from the opening of the cursor
+     * until the stream terminates or is cancelled, so the client is not closed by a hot swap under the cursor.
      *
-     * @param igniteQuery the query to match
-     * @return a Flux containing the found entities
+     * @param <T> the type of the documents
+     * @param cursorSupplier opens the cursor
+     * @return a Flux of the documents, closing the cursor when it terminates or is cancelled
      */
-    @Override
-    public Flux<E> streamFind(IgniteQuery igniteQuery) {
-        return Flux.fromStream(this.find(igniteQuery).stream());
+    private <T> Flux<T> streamCursor(Supplier<MongoCursor<T>> cursorSupplier) {
+        return Flux.using(() -> new LeasedCursor<>(acquireLease(), cursorSupplier),
+                leased -> Flux.fromIterable(leased::iterator).doOnError(leased::fail), LeasedCursor::close);
     }
 
     /**
-     * Counts all entities in the collection.
+     * Executes an operation through the request unit tracker and the retry executor, if they are configured.
+     * Each attempt is metered separately, since the server charges every attempt. Operations which end in a
+     * timeout are counted by kind of timeout.
      *
-     * @return the total number of entities
+     * @param <T> the type of the result
+     * @param operationType the operation type
+     * @param igniteQuery the query of the operation, its shape labels the request unit metrics
+     * @param idempotent whether the operation can safely be executed more than once
+     * @param operation the operation
+     * @return the result of the operation
      */
-    @SuppressWarnings("removal")
-    @Override
-    public long countAll() {
-        return MetricsUtil.observeIfEnabled(metricsInitialized, requestLatencyHisto,
-                requestCounter, requestGauge, () -> {
-                    Query<E> query;
-                    if (getOverridingCollectionName() != null) {
-                        query = mongoDatastore.find(getOverridingCollectionName(),
-                                entityClass).disableValidation();
-                    } else {
-                        query = mongoDatastore.createQuery(entityClass).disableValidation();
-                    }
-                    LOGGER.debug("Query is {}", query);
-                    return query.count();
-                }, () ->
-                        new String[] {serviceName, Constants.OPERATION_TYPE_COUNT_ALL,
-                            entityClassName, FALSE, Constants.FULL_QUERY_NA}
-                    );
+    private <T> T executeWithRetry(String operationType, IgniteQuery igniteQuery, boolean idempotent,
+            Supplier<T> operation) {
+        MongoClientLeases.Lease lease = acquireLease();
+        Throwable failure = null;
+        try {
+            return executeAttempts(operationType, igniteQuery, idempotent, operation);
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (lease != null) {
+                lease.release(failure);
+            }
+        }
     }
 
     /**
-     * Checks if a collection exists.
+     * Executes the attempts of an operation, for {@link #executeWithRetry(String, IgniteQuery, boolean, Supplier)}.
      *
-     * @param collectionName the name of the collection
-     * @return true if the collection exists, false otherwise
+     * @param <T> the type of the result
+     * @param operationType the operation type
+     * @param igniteQuery the query of the operation, its shape labels the request unit metrics
+     * @param idempotent whether the operation can safely be executed more than once
+     * @param operation the operation
+     * @return the result of the operation
      */
-    @Override
-    public boolean collectionExists(String collectionName) {
-        Set<String> collectionNames = mongoDatastore.getDatabase().listCollectionNames()
-                .into(new HashSet<>());
-        for (final String name : collectionNames) {
-            if (name.equals(collectionName)) {
-                return true;
+    private <T> T executeAttempts(String operationType, IgniteQuery igniteQuery, boolean idempotent,
+            Supplier<T> operation) {
+        Supplier<T> attempt = operation;
+        if (cosmosRequestUnitTracker != null && cosmosRequestUnitTracker.isActive()) {
+            String queryShape = igniteQuery == null ? Constants.FULL_QUERY_NA : igniteQuery.toTemplatedQueryString();
+            attempt = () -> cosmosRequestUnitTracker.execute(mongoDatastore.getDatabase(), operationType,
+                    entityClassName, queryShape, operation);
+        }
+        try {
+            if (mongoRetryExecutor == null) {
+                return attempt.get();
             }
+            return mongoRetryExecutor.execute(operationType, entityClassName, idempotent, attempt);
+        } catch (MongoRetryExhaustException e) {
+            // the retry executor wraps the timeout of the last attempt
+            countTimeout(operationType, e.getCause());
+            throw e;
+        } catch (MongoException e) {
+            countTimeout(operationType, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether the entity has its ID set. Saving such an entity replaces the document with
+     * that ID, which is idempotent, while saving an entity without ID inserts a new document.
+     *
+     * @param entity the entity
+     * @return true if the ID of the entity is set
+     */
+    private boolean isIdSet(E entity) {
+        if (entity == null || idField == null) {
+            return false;
+        }
+        try {
+            return idField.get(entity) != null;
+        } catch (IllegalAccessException e) {
+            LOGGER.error(EXCEPTION_MESSAGE, e);
+            return false;
         }
-        return false;
     }
 
     /**
@@ -1303,6 +3674,20 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
                                     Constants.FULL_QUERY_LABEL)
                             .register(CollectorRegistry.defaultRegistry);
                 }
+                if (shardRoutingCounter == null) {
+                    shardRoutingCounter = Counter.build(Constants.SHARD_ROUTING_COUNTER_NAME,
+                                    Constants.SHARD_ROUTING_COUNTER_HELP_STR)
+                            .labelNames(Constants.SVC, Constants.OPERATION_TYPE_LABEL,
+                                    Constants.ENTITY_LABEL, Constants.SHARD_ROUTING_LABEL)
+                            .register(CollectorRegistry.defaultRegistry);
+                }
+                if (timeoutCounter == null) {
+                    timeoutCounter = Counter.build(Constants.TIMEOUT_COUNTER_NAME,
+                                    Constants.TIMEOUT_COUNTER_HELP_STR)
+                            .labelNames(Constants.SVC, Constants.OPERATION_TYPE_LABEL,
+                                    Constants.ENTITY_LABEL, Constants.TIMEOUT_KIND_LABEL)
+                            .register(CollectorRegistry.defaultRegistry);
+                }
                 metricsInitialized = true;
             }
         }
@@ -1311,49 +3696,52 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
     /**
      * Executes the save operation for a collection with shard keys.
      * This method handles the save operation for collections that have shard keys defined.
-     * It constructs the appropriate query and performs an upsert operation.
+     * It filters on the ID and the shard key values of the entity, so that the replace is routed
+     * to a single shard, and performs an upsert operation.
      *
      * @param collection the name of the collection
      * @param entity the entity to save
+     * @param writeConcern the write concern, may be null
      */
-    private void executeSaveOperationForShardKeyCollection(String collection, E entity) {
-
-        var igniteCriteriaGroup = new IgniteCriteriaGroup();
-        var isIdValueSet = false;
+    private void executeSaveOperationForShardKeyCollection(String collection, E entity, WriteConcern writeConcern) {
         List<String> shardKeysList = shardKeyMap.get(collection);
         LOGGER.debug("Performing save operation on collection present in shard key map "
                         + ": {}, with following shard keys : {} ",
-                collection, shardKeysList.toString());
+                collection, shardKeysList);
 
         Object id = mongoDatastore.getMapper().findIdProperty(entity.getClass())
                 .getValue(entity);
         if (id == null) {
-            executeSaveOperationForDynamicCollectionName(collection, entity);
+            executeSaveOperationForDynamicCollectionName(collection, entity, writeConcern);
         } else {
-            for (String shardKey : shardKeysList) {
-                Object shardKeyValue = PropertyAccessorFactory.forDirectFieldAccess(entity)
-                        .getPropertyValue(shardKey);
-                var igniteCriteria = new IgniteCriteria(shardKey, Operator.EQ,
-                        String.valueOf(shardKeyValue));
-                igniteCriteriaGroup.and(igniteCriteria);
-                var shardKeyDescriptor = PropertyAccessorFactory
-                        .forDirectFieldAccess(entity).getPropertyTypeDescriptor(shardKey);
-                if (null != shardKeyDescriptor && null != shardKeyDescriptor
-                        .getAnnotation(Id.class)) {
-                    isIdValueSet = true;
-                }
+            executeUpsertStatement(createShardKeyFilter(collection, id, entity), entity, collection, writeConcern);
+        }
+    }
+
+    /**
+     * Creates the filter of the upsert of an entity in a sharded collection: its ID and the values of its
+     * shard key.
+     *
+     * @param collection the sharded collection
+     * @param id the ID of the entity
+     * @param entity the entity
+     * @return the filter
+     * @throws IllegalArgumentException if a shard key is not a field of the entity
+     */
+    private Document createShardKeyFilter(String collection, Object id, E entity) {
+        Document filter = new Document(Constants.ID_FILTER_CONSTANT, id);
+        for (String shardKey : shardKeyMap.get(collection)) {
+            ShardKeyExtractor extractor = shardKeyExtractors.get(shardKey);
+            if (extractor == null) {
+                throw new IllegalArgumentException("Shard key " + shardKey + " of collection "
+                        + collection + " is not a field of " + entityClassName);
             }
-            // _id must be set in ignite criteria, if not mentioned as shard key for a collection in the defined map
-            if (!isIdValueSet) {
-                LOGGER.debug("ID field not set in shard key map for entity : {}, "
-                                + "collection : {}. Adding {} to ignite criteria.",
-                        entity.toString(), collection, Constants.ID_FILTER_CONSTANT);
-                var igniteCriteria = new IgniteCriteria(Constants.ID_FILTER_CONSTANT,
-                        Operator.EQ, id);
-                igniteCriteriaGroup.and(igniteCriteria);
+            // _id is always part of the filter
+            if (!extractor.isId()) {
+                filter.append(extractor.getMappedName(), extractor.getValue(entity));
             }
-            executeUpsertStatement(igniteCriteriaGroup, entity, collection);
         }
+        return filter;
     }
 
     /**
@@ -1363,9 +3751,14 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
      *
      * @param collection the name of the collection
      * @param entity the entity to save
+     * @param writeConcern the write concern, may be null
      */
-    private void executeSaveOperationForDynamicCollectionName(String collection, E entity) {
+    private void executeSaveOperationForDynamicCollectionName(String collection, E entity,
+                                                              WriteConcern writeConcern) {
         var insertOneOptions = new InsertOneOptions();
+        if (writeConcern != null) {
+            insertOneOptions.writeConcern(writeConcern);
+        }
         MongoCollection<E> collectionName = mongoDatastore.getDatabase().getCollection(
                 collection, entityClass);
         Object id = mongoDatastore.getMapper().findIdProperty(entity.getClass()).getValue(entity);
@@ -1386,24 +3779,23 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
     }
 
     /**
-     * Executes an upsert statement for the specified entity and criteria group.
+     * Executes an upsert statement for the specified entity and filter.
      *
-     * @param igniteCriteriaGroup the criteria group to match
+     * @param filter the filter on the ID and shard key of the entity
      * @param entity the entity to upsert
      * @param collection the name of the collection
+     * @param writeConcern the write concern, may be null
      */
-    private void executeUpsertStatement(IgniteCriteriaGroup igniteCriteriaGroup, E entity,
-            String collection) {
-
-        var igniteQuery = new IgniteQuery(igniteCriteriaGroup);
-        Query<E> query = queryTranslator.translate(igniteQuery, Optional.ofNullable(
-                getOverridingCollectionName()));
+    private void executeUpsertStatement(Bson filter, E entity, String collection, WriteConcern writeConcern) {
         MongoCollection<E> mongoCollection = mongoDatastore.getDatabase().getCollection(
                 collection, entityClass);
+        if (writeConcern != null) {
+            mongoCollection = mongoCollection.withWriteConcern(writeConcern);
+        }
 
         LOGGER.info("Performing upsert operation on collection : {}, entity : {}",
                 collection, entity.toString());
-        mongoCollection.replaceOne(query.toDocument(), entity, new ReplaceOptions().upsert(true));
+        mongoCollection.replaceOne(filter, entity, new ReplaceOptions().upsert(true));
         updateEntityId(entity);
     }
 
@@ -1429,4 +3821,193 @@ public abstract class IgniteBaseDAOMongoImpl<K, E extends IgniteEntity> implemen
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * InvocationHandler of a collection view, running each operation of this DAO targeting the collection
+     * of the view.
+     */
+    private class CollectionScopeInvocationHandler implements InvocationHandler {
+
+        /**
+         * The collection of the view.
+         */
+        private final String collectionName;
+
+        /**
+         * Instantiates a new collection scope invocation handler.
+         *
+         * @param collectionName the collection of the view
+         */
+        CollectionScopeInvocationHandler(String collectionName) {
+            this.collectionName = collectionName;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getOverridingCollectionName":
+                    return collectionName;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return entityClassName + " DAO on " + collectionName;
+                default:
+                    break;
+            }
+            return inCollectionScope(collectionName, () -> {
+                try {
+                    return method.invoke(IgniteBaseDAOMongoImpl.this, args);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot call " + method.getName(), e);
+                } catch (InvocationTargetException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    if (cause instanceof Error error) {
+                        throw error;
+                    }
+                    throw new UndeclaredThrowableException(cause);
+                }
+            });
+        }
+    }
+
+    /**
+     * A cursor together with the lease on the mongo client it reads from.
+     *
+     * @param <T> the type of the documents
+     */
+    private static final class LeasedCursor<T> {
+
+        private final MongoClientLeases.Lease lease;
+
+        private final MongoCursor<T> cursor;
+
+        /**
+         * The exception the stream failed with, null if it did not fail.
+         */
+        private volatile Throwable failure;
+
+        /**
+         * Opens the cursor, releasing the lease if it cannot be opened.
+         *
+         * @param lease the lease, null if the datastore is not hot swapped
+         * @param cursorSupplier opens the cursor
+         */
+        private LeasedCursor(MongoClientLeases.Lease lease, Supplier<MongoCursor<T>> cursorSupplier) {
+            this.lease = lease;
+            try {
+                this.cursor = cursorSupplier.get();
+            } catch (RuntimeException e) {
+                if (lease != null) {
+                    lease.release(e);
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Gets the cursor as an iterator.
+         *
+         * @return the cursor
+         */
+        private Iterator<T> iterator() {
+            return cursor;
+        }
+
+        /**
+         * Records the exception the stream failed with.
+         *
+         * @param e the exception
+         */
+        private void fail(Throwable e) {
+            failure = e;
+        }
+
+        /**
+         * Closes the cursor and releases the lease.
+         */
+        private void close() {
+            try {
+                cursor.close();
+            } finally {
+                if (lease != null) {
+                    lease.release(failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * The collection names of the database and the time they expire at.
+     */
+    private static final class CachedCollectionNames {
+
+        /**
+         * The collection names.
+         */
+        private final Set<String> names;
+
+        /**
+         * The time the names expire at, in epoch milliseconds.
+         */
+        private final long expiresAt;
+
+        /**
+         * Instantiates new cached collection names.
+         *
+         * @param names the collection names
+         * @param expiresAt the time the names expire at, in epoch milliseconds
+         */
+        private CachedCollectionNames(Set<String> names, long expiresAt) {
+            this.names = names;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * An exact count and the time it expires at.
+     */
+    private static final class CachedCount {
+
+        /**
+         * The count.
+         */
+        private final long count;
+
+        /**
+         * The time the count expires at, in epoch milliseconds.
+         */
+        private final long expiresAt;
+
+        /**
+         * Instantiates a new cached count.
+         *
+         * @param count the count
+         * @param expiresAt the time the count expires at, in epoch milliseconds
+         */
+        private CachedCount(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Timeout of an operation whose client deadline passed before it was sent.
+     */
+    private static final class DeadlineExceededException extends MongoExecutionTimeoutException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Instantiates a new deadline exceeded exception.
+         *
+         * @param message the message
+         */
+        private DeadlineExceededException(String message) {
+            super(MAX_TIME_EXPIRED_ERROR_CODE, message);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoNodeIsRecoveringException;
+import com.mongodb.MongoNotPrimaryException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import jakarta.annotation.PostConstruct;
+import org.eclipse.ecsp.nosqldao.MongoRetryExhaustException;
+import org.eclipse.ecsp.nosqldao.utils.Constants;
+import org.eclipse.ecsp.nosqldao.utils.NumericConstants;
+import org.eclipse.ecsp.nosqldao.utils.PropertyNames;
+import org.eclipse.ecsp.utils.logger.IgniteLogger;
+import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Retries DAO operations which failed with a transient error.
+ *
+ * <p>Transient errors are network errors, server selection timeouts, primary step downs, errors labelled
+ * as retryable by the server and CosmosDB request rate throttling (code 16500). Only idempotent
+ * operations are retried. Attempts are spaced by an exponential backoff with optional jitter, and
+ * a retry budget shared by all DAOs stops retries once too many operations fail, so that a failure
+ * storm is not amplified by retries. The budget starts full; each failure takes one token and each
+ * success gives back the configured token ratio, retries being allowed while more than half of the
+ * tokens are left. When the attempts or the budget are exhausted {@link MongoRetryExhaustException}
+ * is thrown.</p>
+ */
+@Component
+public class MongoRetryExecutor {
+
+    /**
+     * Logger.
+     */
+    private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(MongoRetryExecutor.class);
+
+    /**
+     * Server error codes which denote a transient condition.
+     * 6 HostUnreachable, 7 HostNotFound, 89 NetworkTimeout, 91 ShutdownInProgress, 189 PrimarySteppedDown,
+     * 262 ExceededTimeLimit, 9001 SocketException, 10107 NotWritablePrimary, 11600 InterruptedAtShutdown,
+     * 11602 InterruptedDueToReplStateChange, 13435 NotPrimaryNoSecondaryOk, 13436 NotPrimaryOrSecondary,
+     * 16500 CosmosDB request rate is large.
+     */
+    private static final Set<Integer> TRANSIENT_ERROR_CODES = Set.of(6, 7, 89, 91, 189, 262, 9001, 10107,
+            11600, 11602, 13435, 13436, 16500);
+
+    /**
+     * Error label set by the server on write errors which can be retried.
+     */
+    private static final String RETRYABLE_WRITE_ERROR_LABEL = "RetryableWriteError";
+
+    /**
+     * Budget tokens are kept in thousandths of a token.
+     */
+    private static final long MILLI_TOKENS = 1000L;
+
+    /**
+     * Counter of retry attempts.
+     */
+    private static volatile Counter retryCounter;
+
+    /**
+     * Indicates whether transient errors are retried.
+     */
+    @Value("${" + PropertyNames.MONGODB_RETRY_ENABLED + ":false}")
+    private boolean retryEnabled;
+
+    /**
+     * Maximum number of attempts, including the first one.
+     */
+    @Value("${" + PropertyNames.MONGODB_RETRY_MAX_ATTEMPTS + ":3}")
+    private int maxAttempts;
+
+    /**
+     * Backoff in milliseconds before the first retry.
+     */
+    @Value("${" + PropertyNames.MONGODB_RETRY_INITIAL_BACKOFF_MS + ":50}")
+    private long initialBackoffMs;
+
+    /**
+     * Upper bound in milliseconds of the backoff.
+     */
+    @Value("${" + PropertyNames.MONGODB_RETRY_MAX_BACKOFF_MS + ":2000}")
+    private long maxBackoffMs;
+
+    /**
+     * Factor by which the backoff grows after each attempt.
+     */
+    @Value("${" + PropertyNames.MONGODB_RETRY_BACKOFF_MULTIPLIER + ":2.0}")
+    private double backoffMultiplier;
+
+    /**
+     * Indicates whether a random jitter is applied to the backoff.
+     */
+    @Value("${" + PropertyNames.MONGODB_RETRY_JITTER_ENABLED + ":true}")
+    private boolean jitterEnabled;
+
+    /**
+     * Size of the retry budget in tokens.
+     */
+    @Value("${" + PropertyNames.MONGODB_RETRY_BUDGET_MAX_TOKENS + ":100}")
+    private int budgetMaxTokens;
+
+    /**
+     * Tokens given back to the budget by each successful operation.
+     */
+    @Value("${" + PropertyNames.MONGODB_RETRY_BUDGET_TOKEN_RATIO + ":0.1}")
+    private double budgetTokenRatio;
+
+    /**
+     * The service where this DAO library is embedded.
+     */
+    @Value("${service.name:}")
+    private String serviceName;
+
+    /**
+     * Indicates whether Prometheus is enabled.
+     */
+    @Value("${" + PropertyNames.ENABLE_PROMETHEUS + ":false}")
+    private boolean prometheusEnabled;
+
+    /**
+     * Indicates whether DAO metrics are enabled.
+     */
+    @Value("${" + PropertyNames.DAO_METRICS_ENABLED + ": true }")
+    private boolean daoMetricsEnabled;
+
+    /**
+     * Tokens left in the retry budget, in thousandths of a token.
+     */
+    private final AtomicLong budget = new AtomicLong();
+
+    /**
+     * Fills the retry budget and creates the metrics objects.
+     */
+    @PostConstruct
+    public void init() {
+        budget.set(budgetMaxTokens * MILLI_TOKENS);
+        if (prometheusEnabled && daoMetricsEnabled) {
+            synchronized (MongoRetryExecutor.class) {
+                if (retryCounter == null) {
+                    retryCounter = Counter.build(Constants.RETRY_COUNTER_NAME, Constants.RETRY_COUNTER_HELP_STR)
+                            .labelNames(Constants.SVC, Constants.OPERATION_TYPE_LABEL, Constants.ENTITY_LABEL,
+                                    Constants.RETRY_OUTCOME_LABEL)
+                            .register(CollectorRegistry.defaultRegistry);
+                }
+            }
+        }
+        LOGGER.info("Mongo retry enabled : {}, maxAttempts : {}, initialBackoffMs : {}, maxBackoffMs : {}",
+                retryEnabled, maxAttempts, initialBackoffMs, maxBackoffMs);
+    }
+
+    /**
+     * Executes the operation, retrying it on transient errors if it is idempotent.
+     *
+     * @param <T> the type of the result
+     * @param operationType the operation type, used as metrics label
+     * @param entity the entity name, used as metrics label
+     * @param idempotent whether the operation can safely be executed more than once
+     * @param operation the operation
+     * @return the result of the operation
+     * @throws MongoRetryExhaustException if every attempt failed or the retry budget is exhausted
+     */
+    public <T> T execute(String operationType, String entity, boolean idempotent, Supplier<T> operation) {
+        if (!retryEnabled) {
+            return operation.get();
+        }
+        int attempt = 1;
+        while (true) {
+            try {
+                T result = operation.get();
+                depositToken();
+                if (attempt > 1) {
+                    count(operationType, entity, Constants.RETRY_OUTCOME_RECOVERED);
+                }
+                return result;
+            } catch (MongoException e) {
+                if (!isTransient(e)) {
+                    throw e;
+                }
+                if (!idempotent) {
+                    // never retried, so it does not spend the retry budget
+                    count(operationType, entity, Constants.RETRY_OUTCOME_NOT_IDEMPOTENT);
+                    throw e;
+                }
+                boolean retryPermitted = withdrawToken();
+                if (attempt >= maxAttempts) {
+                    count(operationType, entity, Constants.RETRY_OUTCOME_EXHAUSTED);
+                    throw new MongoRetryExhaustException("Operation " + operationType + " on " + entity
+                            + " failed after " + attempt + " attempts", e);
+                }
+                if (!retryPermitted) {
+                    count(operationType, entity, Constants.RETRY_OUTCOME_BUDGET_EXHAUSTED);
+                    throw new MongoRetryExhaustException("Retry budget exhausted, operation " + operationType
+                            + " on " + entity + " is not retried", e);
+                }
+                count(operationType, entity, Constants.RETRY_OUTCOME_RETRIED);
+                long backoff = getBackoff(attempt, e);
+                LOGGER.warn("Attempt {} of {} on {} failed with transient error {}, retrying in {} ms",
+                        attempt, operationType, entity, e.getMessage(), backoff);
+                sleep(backoff, e);
+                attempt++;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the error is transient, meaning the same operation may succeed when retried.
+     *
+     * @param e the error
+     * @return true if the error is transient
+     */
+    public static boolean isTransient(MongoException e) {
+        return e instanceof MongoSocketException || e instanceof MongoTimeoutException
+                || e instanceof MongoNotPrimaryException || e instanceof MongoNodeIsRecoveringException
+                || e.hasErrorLabel(RETRYABLE_WRITE_ERROR_LABEL) || TRANSIENT_ERROR_CODES.contains(e.getCode());
+    }
+
+    /**
+     * Returns the backoff before the next attempt. A CosmosDB throttling error is retried after the
+     * RetryAfterMs returned by the server.
+     *
+     * @param attempt the number of the attempt which failed, starting at 1
+     * @param e the error of the failed attempt
+     * @return the backoff in milliseconds
+     */
+    protected long getBackoff(int attempt, MongoException e) {
+        long retryAfterMs = CosmosRequestUnitTracker.getRetryAfterMs(e);
+        if (retryAfterMs != CosmosRequestUnitTracker.NO_RETRY_AFTER) {
+            return retryAfterMs;
+        }
+        double exponential = initialBackoffMs * Math.pow(backoffMultiplier, (double) attempt - 1);
+        long backoff = (long) Math.min(maxBackoffMs, exponential);
+        if (jitterEnabled && backoff > 1) {
+            // equal jitter: half of the backoff is kept, the other half is random
+            long half = backoff / NumericConstants.TWO;
+            backoff = half + ThreadLocalRandom.current().nextLong(half + 1);
+        }
+        return backoff;
+    }
+
+    /**
+     * Gets the tokens left in the retry budget.
+     *
+     * @return the tokens left
+     */
+    public double getBudgetTokens() {
+        return (double) budget.get() / MILLI_TOKENS;
+    }
+
+    /**
+     * Gives back a fraction of a token to the budget after a success.
+     */
+    private void depositToken() {
+        long max = budgetMaxTokens * MILLI_TOKENS;
+        long deposit = (long) (budgetTokenRatio * MILLI_TOKENS);
+        budget.getAndUpdate(tokens -> Math.min(max, tokens + deposit));
+    }
+
+    /**
+     * Takes a token from the budget after a failure.
+     *
+     * @return true if retries are still permitted
+     */
+    private boolean withdrawToken() {
+        long left = budget.updateAndGet(tokens -> Math.max(0, tokens - MILLI_TOKENS));
+        return left > budgetMaxTokens * MILLI_TOKENS / NumericConstants.TWO;
+    }
+
+    /**
+     * Sleeps for the backoff.
+     *
+     * @param backoff the backoff in milliseconds
+     * @param cause the error of the failed attempt
+     */
+    private void sleep(long backoff, MongoException cause) {
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new MongoRetryExhaustException("Interrupted while waiting to retry", cause);
+        }
+    }
+
+    /**
+     * Increments the retry counter.
+     *
+     * @param operationType the operation type
+     * @param entity the entity name
+     * @param outcome the outcome of the attempt
+     */
+    private void count(String operationType, String entity, String outcome) {
+        if (retryCounter != null) {
+            retryCounter.labels(serviceName, operationType, entity, outcome).inc();
+        }
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.MongoException;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadConcernLevel;
+import com.mongodb.ReadPreference;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.ClientSession;
+import dev.morphia.AdvancedDatastore;
+import dev.morphia.transactions.MorphiaSession;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import jakarta.annotation.PostConstruct;
+import org.eclipse.ecsp.nosqldao.spring.config.MongoClientLeases;
+import org.eclipse.ecsp.nosqldao.utils.Constants;
+import org.eclipse.ecsp.nosqldao.utils.PropertyNames;
+import org.eclipse.ecsp.utils.logger.IgniteLogger;
+import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Runs units of work across several mongo DAOs in transactions. A transaction failing with a transient
+ * error, such as a write conflict or a primary election, is aborted and its work run again, and a commit
+ * whose result is unknown is retried, until the retry timeout. The work may therefore run more than once
+ * and must not have side effects outside the unit of work.
+ */
+@Component
+public class MongoTransactionManager {
+
+    /**
+     * Logger.
+     */
+    private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(MongoTransactionManager.class);
+
+    /**
+     * Error code of an operation exceeding its max time, not retried on commit.
+     */
+    private static final int MAX_TIME_MS_EXPIRED = 50;
+
+    /**
+     * Histogram of the commit latency.
+     */
+    private static volatile Histogram commitLatencyHisto;
+
+    /**
+     * Counter of the transactions by outcome.
+     */
+    private static volatile Counter transactionCounter;
+
+    /**
+     * The datastore starting the sessions when it is not hot swapped.
+     */
+    @Autowired
+    private AdvancedDatastore mongoDatastore;
+
+    /**
+     * The leases on the mongo client of the datastore, a transaction holds one from its first statement to its
+     * commit or abort and runs on the datastore of the leased client. Null when the datastore is not hot
+     * swapped.
+     */
+    @Autowired(required = false)
+    private MongoClientLeases mongoClientLeases;
+
+    /**
+     * Read concern level of the transactions.
+     */
+    @Value("${" + PropertyNames.MONGODB_TRANSACTION_READ_CONCERN + ":snapshot}")
+    private String readConcernLevel;
+
+    /**
+     * Write concern of the transactions.
+     */
+    @Value("${" + PropertyNames.MONGODB_TRANSACTION_WRITE_CONCERN + ":MAJORITY}")
+    private String writeConcernName;
+
+    /**
+     * Maximum time a commit may run on the server, in milliseconds, 0 for no limit.
+     */
+    @Value("${" + PropertyNames.MONGODB_TRANSACTION_MAX_COMMIT_TIME_MS + ":0}")
+    private long maxCommitTimeMs;
+
+    /**
+     * Time during which a transaction failing with a transient error is run again, in milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_TRANSACTION_RETRY_TIMEOUT_MS + ":120000}")
+    private long retryTimeoutMs;
+
+    /**
+     * Number of writes a unit of work buffers before running them.
+     */
+    @Value("${" + PropertyNames.MONGODB_TRANSACTION_MAX_PENDING_WRITES + ":1000}")
+    private int maxPendingWrites;
+
+    /**
+     * The histogram buckets of the commit latency, in milliseconds.
+     */
+    @Value("#{'${prometheus.dao.transaction.histogram.buckets:5, 10, 25, 50, 100, 250, 500, 1000, 2500}'"
+            + ".split(',')}")
+    private double[] histogramBuckets;
+
+    /**
+     * The service where this DAO library is embedded.
+     */
+    @Value("${service.name:}")
+    private String serviceName;
+
+    /**
+     * Indicates whether Prometheus is enabled.
+     */
+    @Value("${" + PropertyNames.ENABLE_PROMETHEUS + ":false}")
+    private boolean prometheusEnabled;
+
+    /**
+     * Indicates whether DAO metrics are enabled.
+     */
+    @Value("${" + PropertyNames.DAO_METRICS_ENABLED + ": true }")
+    private boolean daoMetricsEnabled;
+
+    /**
+     * The default options of the transactions.
+     */
+    private TransactionOptions defaultOptions;
+
+    /**
+     * Builds the default transaction options and creates the metrics objects.
+     *
+     * @throws IllegalArgumentException if the read or write concern is unknown
+     */
+    @PostConstruct
+    public void init() {
+        WriteConcern writeConcern = WriteConcern.valueOf(writeConcernName);
+        if (writeConcern == null) {
+            throw new IllegalArgumentException("Unknown transaction write concern " + writeConcernName);
+        }
+        TransactionOptions.Builder builder = TransactionOptions.builder()
+                .readConcern(new ReadConcern(ReadConcernLevel.fromString(readConcernLevel)))
+                .writeConcern(writeConcern)
+                .readPreference(ReadPreference.primary());
+        if (maxCommitTimeMs > 0) {
+            builder.maxCommitTime(maxCommitTimeMs, TimeUnit.MILLISECONDS);
+        }
+        defaultOptions = builder.build();
+        if (prometheusEnabled && daoMetricsEnabled) {
+            initializeMetricsObjects();
+        }
+        LOGGER.info("Mongo transactions readConcern : {}, writeConcern : {}, maxCommitTimeMs : {}, "
+                + "retryTimeoutMs : {}", readConcernLevel, writeConcernName, maxCommitTimeMs, retryTimeoutMs);
+    }
+
+    /**
+     * Gets the default options of the transactions, set by the mongodb.transaction properties.
+     *
+     * @return the default options
+     */
+    public TransactionOptions getDefaultTransactionOptions() {
+        return defaultOptions;
+    }
+
+    /**
+     * Runs a unit of work in a transaction with the default options.
+     *
+     * @param <T> the type of the result
+     * @param work the work, which may run more than once
+     * @return the result of the work
+     * @throws MongoException if the transaction fails with an error that is not transient, or keeps failing
+     *         with transient errors until the retry timeout
+     */
+    public <T> T execute(Function<MongoUnitOfWork, T> work) {
+        return execute(defaultOptions, work);
+    }
+
+    /**
+     * Runs a unit of work in a transaction. The options not set fall back to the default options.
+     *
+     * @param <T> the type of the result
+     * @param options the options of the transaction
+     * @param work the work, which may run more than once
+     * @return the result of the work
+     * @throws MongoException if the transaction fails with an error that is not transient, or keeps failing
+     *         with transient errors until the retry timeout
+     */
+    public <T> T execute(TransactionOptions options, Function<MongoUnitOfWork, T> work) {
+        MongoClientLeases.Lease lease = mongoClientLeases == null ? null : mongoClientLeases.acquire();
+        Throwable failure = null;
+        try {
+            return runTransaction(lease == null ? mongoDatastore : lease.getDatastore(), options, work);
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (lease != null) {
+                lease.release(failure);
+            }
+        }
+    }
+
+    /**
+     * Runs a unit of work in a transaction, running it again on transient errors until the retry timeout.
+     * The session is started on the datastore of a single client, whose database the DAOs of the unit of
+     * work resolve their collections from.
+     *
+     * @param <T> the type of the result
+     * @param datastore the datastore of the client the transaction runs on
+     * @param options the options of the transaction
+     * @param work the work, which may run more than once
+     * @return the result of the work
+     */
+    private <T> T runTransaction(@SuppressWarnings("removal") AdvancedDatastore datastore,
+            TransactionOptions options, Function<MongoUnitOfWork, T> work) {
+        TransactionOptions transactionOptions = TransactionOptions.merge(options, defaultOptions);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryTimeoutMs);
+        while (true) {
+            try (MorphiaSession morphiaSession = datastore.startSession()) {
+                ClientSession session = morphiaSession.getSession();
+                session.startTransaction(transactionOptions);
+                T result;
+                try {
+                    MongoUnitOfWork unitOfWork = new MongoUnitOfWork(morphiaSession, maxPendingWrites);
+                    result = work.apply(unitOfWork);
+                    unitOfWork.flush();
+                } catch (RuntimeException e) {
+                    abort(session);
+                    if (!isRetryable(e, MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL, deadline)) {
+                        countTransaction(Constants.TRANSACTION_OUTCOME_ABORTED);
+                        throw e;
+                    }
+                    LOGGER.warn("Transaction failed with a transient error, running it again", e);
+                    countTransaction(Constants.TRANSACTION_OUTCOME_RETRIED);
+                    continue;
+                }
+                if (commit(session, deadline)) {
+                    countTransaction(Constants.TRANSACTION_OUTCOME_COMMITTED);
+                    return result;
+                }
+                countTransaction(Constants.TRANSACTION_OUTCOME_RETRIED);
+            }
+        }
+    }
+
+    /**
+     * Commits a transaction, retrying the commit while its result is unknown.
+     *
+     * @param session the session of the transaction
+     * @param deadline the time until which the commit is retried, in nanoseconds
+     * @return true if committed, false if the commit failed with a transient error and the transaction
+     *         must run again
+     * @throws MongoException if the commit fails otherwise
+     */
+    private boolean commit(ClientSession session, long deadline) {
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                session.commitTransaction();
+                observeCommit(start);
+                return true;
+            } catch (MongoException e) {
+                observeCommit(start);
+                if (e.getCode() != MAX_TIME_MS_EXPIRED
+                        && isRetryable(e, MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL, deadline)) {
+                    LOGGER.warn("Transaction commit result is unknown, retrying the commit", e);
+                    continue;
+                }
+                if (isRetryable(e, MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL, deadline)) {
+                    LOGGER.warn("Transaction commit failed with a transient error, running it again", e);
+                    return false;
+                }
+                countTransaction(Constants.TRANSACTION_OUTCOME_ABORTED);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Aborts the transaction of a session if it is still active. A failed abort is only logged, as the
+     * server aborts the transaction when it times out.
+     *
+     * @param session the session of the transaction
+     */
+    private static void abort(ClientSession session) {
+        if (!session.hasActiveTransaction()) {
+            return;
+        }
+        try {
+            session.abortTransaction();
+        } catch (MongoException e) {
+            LOGGER.warn("Failed to abort transaction", e);
+        }
+    }
+
+    /**
+     * Checks whether an error has an error label and the retry timeout has not passed.
+     *
+     * @param e the error
+     * @param label the error label
+     * @param deadline the time until which the transaction is retried, in nanoseconds
+     * @return true if the transaction or its commit is retried
+     */
+    private static boolean isRetryable(RuntimeException e, String label, long deadline) {
+        return e instanceof MongoException mongoException && mongoException.hasErrorLabel(label)
+                && System.nanoTime() - deadline < 0;
+    }
+
+    /**
+     * Observes the latency of a commit.
+     *
+     * @param start the start of the commit, in nanoseconds
+     */
+    private void observeCommit(long start) {
+        if (commitLatencyHisto != null) {
+            commitLatencyHisto.labels(serviceName).observe(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Counts a transaction by outcome.
+     *
+     * @param outcome the outcome
+     */
+    private void countTransaction(String outcome) {
+        if (transactionCounter != null) {
+            transactionCounter.labels(serviceName, outcome).inc();
+        }
+    }
+
+    /**
+     * Creates and registers the transaction metrics.
+     */
+    private void initializeMetricsObjects() {
+        synchronized (MongoTransactionManager.class) {
+            if (commitLatencyHisto == null) {
+                commitLatencyHisto = Histogram.build(Constants.TRANSACTION_COMMIT_HISTO_NAME,
+                                Constants.TRANSACTION_COMMIT_HISTO_HELP_STR)
+                        .labelNames(Constants.SVC)
+                        .buckets(histogramBuckets)
+                        .register(CollectorRegistry.defaultRegistry);
+            }
+            if (transactionCounter == null) {
+                transactionCounter = Counter.build(Constants.TRANSACTION_COUNTER_NAME,
+                                Constants.TRANSACTION_COUNTER_HELP_STR)
+                        .labelNames(Constants.SVC, Constants.TRANSACTION_OUTCOME_LABEL)
+                        .register(CollectorRegistry.defaultRegistry);
+            }
+        }
+    }
+}
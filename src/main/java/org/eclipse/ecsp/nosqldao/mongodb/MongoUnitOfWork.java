@@ -0,0 +1,325 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.model.WriteModel;
+import dev.morphia.transactions.MorphiaSession;
+import org.eclipse.ecsp.entities.IgniteEntity;
+import org.eclipse.ecsp.nosqldao.IgniteBaseDAO;
+import org.eclipse.ecsp.nosqldao.IgniteQuery;
+import org.eclipse.ecsp.nosqldao.Updates;
+import org.eclipse.ecsp.utils.logger.IgniteLogger;
+import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The work of a mongo transaction across several DAOs, run by {@link MongoTransactionManager}. Writes are
+ * buffered and run as one ordered bulk write per DAO and collection when the work ends, before a read, or
+ * when max pending writes are buffered, which keeps the transaction and its locks short. Reads run in the
+ * session of the transaction and see its writes.
+ *
+ * <p>The DAOs must be mongo DAOs or their collection views.
+ */
+public final class MongoUnitOfWork {
+
+    /**
+     * Logger.
+     */
+    private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(MongoUnitOfWork.class);
+
+    /**
+     * The session of the transaction, on the datastore of the client the transaction runs on.
+     */
+    private final MorphiaSession session;
+
+    /**
+     * The number of writes buffered before they are run.
+     */
+    private final int maxPendingWrites;
+
+    /**
+     * The buffered writes, by DAO.
+     */
+    private final Map<TransactionParticipant<?, ?>, ParticipantWrites<?>> pendingWrites = new LinkedHashMap<>();
+
+    /**
+     * The number of buffered writes.
+     */
+    private int pendingCount;
+
+    /**
+     * Creates the unit of work of a transaction.
+     *
+     * @param session the session of the transaction
+     * @param maxPendingWrites the number of writes buffered before they are run
+     */
+    MongoUnitOfWork(MorphiaSession session, int maxPendingWrites) {
+        this.session = session;
+        this.maxPendingWrites = maxPendingWrites;
+    }
+
+    /**
+     * Gets the session of the transaction, to run driver operations in it.
+     *
+     * @return the session
+     */
+    public ClientSession getSession() {
+        return session.getSession();
+    }
+
+    /**
+     * Saves an entity in the transaction.
+     *
+     * @param <K> the type of the primary key
+     * @param <E> the type of the entity
+     * @param dao the DAO of the entity
+     * @param entity the entity to save
+     */
+    public <K, E extends IgniteEntity> void save(IgniteBaseDAO<K, E> dao, E entity) {
+        TransactionParticipant<K, E> participant = participant(dao);
+        add(participant, participant.prepareSave(entity));
+    }
+
+    /**
+     * Updates the entity with an ID in the transaction.
+     *
+     * @param <K> the type of the primary key
+     * @param <E> the type of the entity
+     * @param dao the DAO of the entity
+     * @param id the ID of the entity
+     * @param updates the updates to apply
+     */
+    public <K, E extends IgniteEntity> void update(IgniteBaseDAO<K, E> dao, K id, Updates updates) {
+        update(dao, id, null, updates);
+    }
+
+    /**
+     * Updates the entity with an ID and shard key in the transaction.
+     *
+     * @param <K> the type of the primary key
+     * @param <E> the type of the entity
+     * @param dao the DAO of the entity
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name, may be null
+     * @param updates the updates to apply
+     */
+    public <K, E extends IgniteEntity> void update(IgniteBaseDAO<K, E> dao, K id, Map<String, Object> shardKey,
+            Updates updates) {
+        TransactionParticipant<K, E> participant = participant(dao);
+        add(participant, participant.prepareUpdate(id, shardKey, updates));
+    }
+
+    /**
+     * Deletes the entity with an ID in the transaction.
+     *
+     * @param <K> the type of the primary key
+     * @param <E> the type of the entity
+     * @param dao the DAO of the entity
+     * @param id the ID of the entity
+     */
+    public <K, E extends IgniteEntity> void deleteById(IgniteBaseDAO<K, E> dao, K id) {
+        deleteById(dao, id, null);
+    }
+
+    /**
+     * Deletes the entity with an ID and shard key in the transaction.
+     *
+     * @param <K> the type of the primary key
+     * @param <E> the type of the entity
+     * @param dao the DAO of the entity
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name, may be null
+     */
+    public <K, E extends IgniteEntity> void deleteById(IgniteBaseDAO<K, E> dao, K id, Map<String, Object> shardKey) {
+        TransactionParticipant<K, E> participant = participant(dao);
+        add(participant, participant.prepareDelete(id, shardKey));
+    }
+
+    /**
+     * Finds the entities matching a query in the transaction, after running the buffered writes.
+     *
+     * @param <K> the type of the primary key
+     * @param <E> the type of the entity
+     * @param dao the DAO of the entity
+     * @param query the query to match
+     * @return the matching entities
+     */
+    public <K, E extends IgniteEntity> List<E> find(IgniteBaseDAO<K, E> dao, IgniteQuery query) {
+        TransactionParticipant<K, E> participant = participant(dao);
+        flush();
+        return participant.findInSession(session, query);
+    }
+
+    /**
+     * Finds the entity with an ID in the transaction, after running the buffered writes.
+     *
+     * @param <K> the type of the primary key
+     * @param <E> the type of the entity
+     * @param dao the DAO of the entity
+     * @param id the ID of the entity
+     * @return the entity, or null if not found
+     */
+    public <K, E extends IgniteEntity> E findById(IgniteBaseDAO<K, E> dao, K id) {
+        return findById(dao, id, null);
+    }
+
+    /**
+     * Finds the entity with an ID and shard key in the transaction, after running the buffered writes.
+     *
+     * @param <K> the type of the primary key
+     * @param <E> the type of the entity
+     * @param dao the DAO of the entity
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name, may be null
+     * @return the entity, or null if not found
+     */
+    public <K, E extends IgniteEntity> E findById(IgniteBaseDAO<K, E> dao, K id, Map<String, Object> shardKey) {
+        TransactionParticipant<K, E> participant = participant(dao);
+        flush();
+        return participant.findByIdInSession(session, id, shardKey);
+    }
+
+    /**
+     * Runs the buffered writes, with one bulk write per DAO and collection.
+     */
+    public void flush() {
+        if (pendingCount == 0) {
+            return;
+        }
+        int bulkWrites = 0;
+        for (ParticipantWrites<?> writes : pendingWrites.values()) {
+            bulkWrites += writes.flush(session);
+        }
+        LOGGER.debug("Ran {} transactional writes with {} bulk writes", pendingCount, bulkWrites);
+        pendingWrites.clear();
+        pendingCount = 0;
+    }
+
+    /**
+     * Buffers a write, running the buffered writes when max pending writes are buffered.
+     *
+     * @param <K> the type of the primary key
+     * @param <E> the type of the entity
+     * @param participant the DAO of the write
+     * @param write the write
+     */
+    private <K, E extends IgniteEntity> void add(TransactionParticipant<K, E> participant, TransactionWrite<E> write) {
+        @SuppressWarnings("unchecked")
+        ParticipantWrites<E> writes = (ParticipantWrites<E>) pendingWrites.computeIfAbsent(participant,
+                key -> new ParticipantWrites<>(participant));
+        writes.add(write);
+        pendingCount++;
+        if (pendingCount >= maxPendingWrites) {
+            flush();
+        }
+    }
+
+    /**
+     * Gets the transactional side of a DAO.
+     *
+     * @param <K> the type of the primary key
+     * @param <E> the type of the entity
+     * @param dao the DAO
+     * @return the DAO taking part in the transaction
+     * @throws IllegalArgumentException if the DAO is not a mongo DAO or one of its collection views
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, E extends IgniteEntity> TransactionParticipant<K, E> participant(IgniteBaseDAO<K, E> dao) {
+        if (dao instanceof TransactionParticipant<?, ?> participant) {
+            return (TransactionParticipant<K, E>) participant;
+        }
+        throw new IllegalArgumentException(dao.getClass().getSimpleName() + " cannot take part in a mongo "
+                + "transaction");
+    }
+
+    /**
+     * The buffered writes of a DAO, by collection in the order of their first write.
+     *
+     * @param <E> the type of the entity
+     */
+    private static final class ParticipantWrites<E extends IgniteEntity> {
+
+        /**
+         * The DAO of the writes.
+         */
+        private final TransactionParticipant<?, E> participant;
+
+        /**
+         * The writes, by collection.
+         */
+        private final Map<String, List<WriteModel<E>>> writesByCollection = new LinkedHashMap<>();
+
+        /**
+         * Creates the buffered writes of a DAO.
+         *
+         * @param participant the DAO of the writes
+         */
+        ParticipantWrites(TransactionParticipant<?, E> participant) {
+            this.participant = participant;
+        }
+
+        /**
+         * Buffers a write.
+         *
+         * @param write the write
+         */
+        void add(TransactionWrite<E> write) {
+            writesByCollection.computeIfAbsent(write.getCollectionName(), collection -> new ArrayList<>())
+                    .add(write.getModel());
+        }
+
+        /**
+         * Runs the writes, with one bulk write per collection.
+         *
+         * @param session the session of the transaction
+         * @return the number of bulk writes
+         */
+        int flush(MorphiaSession session) {
+            writesByCollection.forEach((collection, writes) -> participant.bulkWrite(session, collection, writes));
+            return writesByCollection.size();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoInterruptedException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.eclipse.ecsp.nosqldao.utils.PropertyNames;
+import org.eclipse.ecsp.utils.logger.IgniteLogger;
+import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the reads of the partitions of a time-partitioned collection in parallel. When all threads are
+ * busy, a read runs on the calling thread, so a burst of scatter-gather queries degrades to sequential
+ * reads instead of queueing.
+ */
+@Component
+public class PartitionQueryExecutor {
+
+    /**
+     * Logger.
+     */
+    private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(PartitionQueryExecutor.class);
+
+    /**
+     * Time an idle thread is kept, in seconds.
+     */
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60L;
+
+    /**
+     * Maximum number of threads running reads.
+     */
+    @Value("${" + PropertyNames.MONGODB_PARTITION_QUERY_MAX_THREADS + ":16}")
+    private int maxThreads;
+
+    /**
+     * Maximum execution time of a partition read whose operation sets none, in milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_PARTITION_QUERY_MAX_TIME_MS + ":30000}")
+    private long maxTimeMs;
+
+    /**
+     * The threads running the reads.
+     */
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Creates the threads.
+     */
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(0, maxThreads, THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "dao-partition-query-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        LOGGER.info("Mongo partition queries maxThreads : {}, maxTimeMs : {}", maxThreads, maxTimeMs);
+    }
+
+    /**
+     * Stops the threads running the reads.
+     */
+    @PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Executes reads in parallel, the last one on the calling thread. The reads must not depend on the
+     * calling thread. If a read fails, the reads not started yet are cancelled; the reads already running
+     * are not interrupted, which would close their pooled connection, but left to end within their maximum
+     * execution time.
+     *
+     * @param <T> the type of the results
+     * @param reads the reads
+     * @return the results, in the order of the reads
+     */
+    public <T> List<T> executeAll(List<Supplier<T>> reads) {
+        List<T> results = new ArrayList<>(reads.size());
+        if (reads.size() <= 1) {
+            reads.forEach(read -> results.add(read.get()));
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(reads.size() - 1);
+        try {
+            for (Supplier<T> read : reads.subList(0, reads.size() - 1)) {
+                futures.add(executor.submit(read::get));
+            }
+            T last = reads.get(reads.size() - 1).get();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            results.add(last);
+            return results;
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoInterruptedException("Interrupted while waiting for a partition read", e);
+        } finally {
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    /**
+     * Gets the maximum execution time of a partition read whose operation sets none.
+     *
+     * @return the maximum execution time, in milliseconds
+     */
+    public long getMaxTimeMs() {
+        return maxTimeMs;
+    }
+
+    /**
+     * Gets the error of a failed read.
+     *
+     * @param e the exception of the read future
+     * @return the error
+     */
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new MongoException("Partition read failed", cause);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.client.model.Projections;
+import dev.morphia.mapping.codec.pojo.EntityModel;
+import dev.morphia.mapping.codec.pojo.PropertyModel;
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.eclipse.ecsp.nosqldao.utils.Constants;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read only codec decoding documents straight into a projection type, a class with a no-argument
+ * constructor or a record, without decoding the full entity. Each field of the projection type, or each
+ * component of the record, takes the document field of the entity property with the same name, and only
+ * those document fields are requested from the server.
+ *
+ * @param <P> the projection type
+ */
+final class ProjectionCodec<P> implements Codec<P> {
+
+    /**
+     * The projection type.
+     */
+    private final Class<P> type;
+
+    /**
+     * The properties of the projection type, by document field name.
+     */
+    private final Map<String, ProjectionProperty> properties;
+
+    /**
+     * The constructor, canonical for a record, without argument otherwise.
+     */
+    private final Constructor<P> constructor;
+
+    /**
+     * Indicates whether the projection type is a record.
+     */
+    private final boolean isRecord;
+
+    /**
+     * The projection on the document fields of the properties.
+     */
+    private final Bson projection;
+
+    /**
+     * Instantiates a new projection codec.
+     *
+     * @param type the projection type
+     * @param properties the properties, by document field name
+     * @param constructor the constructor
+     */
+    private ProjectionCodec(Class<P> type, Map<String, ProjectionProperty> properties, Constructor<P> constructor) {
+        this.type = type;
+        this.properties = properties;
+        this.constructor = constructor;
+        this.isRecord = type.isRecord();
+        List<String> fields = new ArrayList<>(properties.keySet());
+        this.projection = fields.contains(Constants.ID_FILTER_CONSTANT) ? Projections.include(fields)
+                : Projections.fields(Projections.include(fields), Projections.excludeId());
+    }
+
+    /**
+     * Creates the codec of a projection type.
+     *
+     * @param <P> the projection type
+     * @param type the projection type
+     * @param entityModel the Morphia model of the entity, giving the document field names, may be null
+     * @param registry the registry of the codecs of the property types
+     * @return the codec
+     * @throws IllegalArgumentException if the type cannot be instantiated or a property type has no codec
+     */
+    static <P> ProjectionCodec<P> create(Class<P> type, EntityModel entityModel, CodecRegistry registry) {
+        Map<String, ProjectionProperty> properties = new LinkedHashMap<>();
+        try {
+            Constructor<P> constructor;
+            if (type.isRecord()) {
+                RecordComponent[] components = type.getRecordComponents();
+                Class<?>[] parameterTypes = new Class<?>[components.length];
+                for (int i = 0; i < components.length; i++) {
+                    parameterTypes[i] = components[i].getType();
+                    addProperty(properties, components[i].getName(), components[i].getType(), null,
+                            entityModel, registry);
+                }
+                constructor = type.getDeclaredConstructor(parameterTypes);
+            } else {
+                for (Field field : FieldUtils.getAllFieldsList(type)) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                        field.setAccessible(true);
+                        addProperty(properties, field.getName(), field.getType(), field, entityModel, registry);
+                    }
+                }
+                constructor = type.getDeclaredConstructor();
+            }
+            constructor.setAccessible(true);
+            return new ProjectionCodec<>(type, properties, constructor);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Projection type " + type.getName()
+                    + " needs a constructor without argument", e);
+        } catch (CodecConfigurationException e) {
+            throw new IllegalArgumentException("Projection type " + type.getName()
+                    + " has a property without codec", e);
+        }
+    }
+
+    /**
+     * Adds a property of the projection type.
+     *
+     * @param properties the properties, by document field name
+     * @param name the property name
+     * @param propertyType the property type
+     * @param field the field, null for a record component
+     * @param entityModel the Morphia model of the entity, may be null
+     * @param registry the codec registry
+     * @throws IllegalArgumentException if the property maps to a document field already mapped
+     */
+    private static void addProperty(Map<String, ProjectionProperty> properties, String name, Class<?> propertyType,
+            Field field, EntityModel entityModel, CodecRegistry registry) {
+        PropertyModel propertyModel = entityModel == null ? null : entityModel.getProperty(name);
+        String mappedName = propertyModel == null ? name : propertyModel.getMappedName();
+        if (properties.containsKey(mappedName)) {
+            throw new IllegalArgumentException("Projection property " + name + " maps to field " + mappedName
+                    + " more than once");
+        }
+        Codec<?> codec = registry.get(ClassUtils.primitiveToWrapper(propertyType));
+        properties.put(mappedName, new ProjectionProperty(properties.size(), propertyType, field, codec));
+    }
+
+    /**
+     * Gets the projection on the document fields of the properties.
+     *
+     * @return the projection
+     */
+    Bson getProjection() {
+        return projection;
+    }
+
+    @Override
+    public P decode(BsonReader reader, DecoderContext decoderContext) {
+        Object[] values = new Object[properties.size()];
+        boolean[] read = new boolean[values.length];
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            ProjectionProperty property = properties.get(reader.readName());
+            if (property == null) {
+                reader.skipValue();
+            } else if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+            } else {
+                values[property.position] = decoderContext.decodeWithChildContext(property.codec, reader);
+                read[property.position] = true;
+            }
+        }
+        reader.readEndDocument();
+        try {
+            return isRecord ? newRecord(values, read) : newInstance(values, read);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create projection " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Creates a record from the decoded values, missing primitive components taking their default value.
+     *
+     * @param values the decoded values, in component order
+     * @param read indicates, by component, whether the value was read from the document
+     * @return the record
+     * @throws InstantiationException if the record cannot be created
+     * @throws IllegalAccessException if the constructor is not accessible
+     * @throws InvocationTargetException if the constructor throws
+     */
+    private P newRecord(Object[] values, boolean[] read)
+            throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        for (ProjectionProperty property : properties.values()) {
+            if (!read[property.position] && property.type.isPrimitive()) {
+                values[property.position] = Array.get(Array.newInstance(property.type, 1), 0);
+            }
+        }
+        return constructor.newInstance(values);
+    }
+
+    /**
+     * Creates an instance from the decoded values, missing fields keeping their initial value.
+     *
+     * @param values the decoded values, by property position
+     * @param read indicates, by property position, whether the value was read from the document
+     * @return the instance
+     * @throws InstantiationException if the instance cannot be created
+     * @throws IllegalAccessException if the constructor or a field is not accessible
+     * @throws InvocationTargetException if the constructor throws
+     */
+    private P newInstance(Object[] values, boolean[] read)
+            throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        P instance = constructor.newInstance();
+        for (ProjectionProperty property : properties.values()) {
+            if (read[property.position]) {
+                property.field.set(instance, values[property.position]);
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, P value, EncoderContext encoderContext) {
+        throw new UnsupportedOperationException("Projection " + type.getName() + " is read only");
+    }
+
+    @Override
+    public Class<P> getEncoderClass() {
+        return type;
+    }
+
+    /**
+     * A property of the projection type.
+     */
+    private static final class ProjectionProperty {
+
+        /**
+         * The position of the property, the component index for a record.
+         */
+        private final int position;
+
+        /**
+         * The declared type.
+         */
+        private final Class<?> type;
+
+        /**
+         * The field, null for a record component.
+         */
+        private final Field field;
+
+        /**
+         * The codec of the property values.
+         */
+        private final Codec<?> codec;
+
+        /**
+         * Instantiates a new projection property.
+         *
+         * @param position the position
+         * @param type the declared type
+         * @param field the field, null for a record component
+         * @param codec the codec of the values
+         */
+        private ProjectionProperty(int position, Class<?> type, Field field, Codec<?> codec) {
+            this.position = position;
+            this.type = type;
+            this.field = field;
+            this.codec = codec;
+        }
+    }
+}
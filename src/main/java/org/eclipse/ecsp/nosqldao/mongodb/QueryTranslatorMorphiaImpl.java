@@ -40,7 +40,10 @@
 
 package org.eclipse.ecsp.nosqldao.mongodb;
 
+import com.mongodb.client.model.geojson.LineString;
 import com.mongodb.client.model.geojson.Point;
+import com.mongodb.client.model.geojson.Polygon;
+import com.mongodb.client.model.geojson.Position;
 import dev.morphia.AdvancedDatastore;
 import dev.morphia.geo.PointBuilder;
 import dev.morphia.query.FindOptions;
@@ -50,6 +53,7 @@ import dev.morphia.query.experimental.filters.Filter;
 import dev.morphia.query.experimental.filters.Filters;
 import org.eclipse.ecsp.entities.IgniteEntity;
 import org.eclipse.ecsp.nosqldao.Coordinate;
+import org.eclipse.ecsp.nosqldao.GeoShape;
 import org.eclipse.ecsp.nosqldao.IgniteCriteria;
 import org.eclipse.ecsp.nosqldao.IgniteCriteriaGroup;
 import org.eclipse.ecsp.nosqldao.IgniteOrderBy;
@@ -378,7 +382,7 @@ public class QueryTranslatorMorphiaImpl<E extends IgniteEntity> implements Query
      * @param igniteCriteria : IgniteCriteria
      * @return Filter
      */
-    @SuppressWarnings({"checkstyle:MethodLength", "removal", "deprecation"})
+    @SuppressWarnings({"checkstyle:MethodLength", "checkstyle:CyclomaticComplexity", "removal", "deprecation"})
     private Filter createCriteria(IgniteCriteria igniteCriteria) {
         Filter criteria = null;
         String field = igniteCriteria.getField();
@@ -436,6 +440,14 @@ public class QueryTranslatorMorphiaImpl<E extends IgniteEntity> implements Query
                 } else {
                     throw new IllegalArgumentException("Value is not an instance of Coordinates");
                 }
+            case GEO_WITHIN:
+            case GEO_INTERSECTS:
+                if (val instanceof GeoShape shape) {
+                    criteria = createGeoCriteria(field, operator, shape);
+                    break;
+                } else {
+                    throw new IllegalArgumentException("Value is not an instance of GeoShape");
+                }
 
             default:
                 throw new IllegalArgumentException("Invalid Operator");
@@ -443,6 +455,62 @@ public class QueryTranslatorMorphiaImpl<E extends IgniteEntity> implements Query
         return criteria;
     }
 
+    /**
+     * Creates a geo within or geo intersects criteria. Boxes and spheres are legacy shapes, only valid with
+     * geo within; points and lines are GeoJSON geometries, only valid with geo intersects.
+     *
+     * @param field the field
+     * @param operator {@link Operator#GEO_WITHIN} or {@link Operator#GEO_INTERSECTS}
+     * @param shape the shape
+     * @return the criteria
+     * @throws IllegalArgumentException if the shape is not valid with the operator
+     */
+    private static Filter createGeoCriteria(String field, Operator operator, GeoShape shape) {
+        List<Coordinate> coordinates = shape.getCoordinates();
+        if (shape.getType() == GeoShape.Type.POLYGON) {
+            Polygon polygon = new Polygon(toPositions(coordinates));
+            return operator == Operator.GEO_WITHIN ? Filters.geoWithin(field, polygon)
+                    : Filters.geoIntersects(field, polygon);
+        }
+        if (operator == Operator.GEO_WITHIN && shape.getType() == GeoShape.Type.BOX) {
+            return Filters.box(field, toPoint(coordinates.get(0)), toPoint(coordinates.get(1)));
+        }
+        if (operator == Operator.GEO_WITHIN && shape.getType() == GeoShape.Type.CENTER_SPHERE) {
+            return Filters.centerSphere(field, toPoint(coordinates.get(0)), shape.getRadiusInRadians());
+        }
+        if (operator == Operator.GEO_INTERSECTS && shape.getType() == GeoShape.Type.POINT) {
+            return Filters.geoIntersects(field, toPoint(coordinates.get(0)));
+        }
+        if (operator == Operator.GEO_INTERSECTS && shape.getType() == GeoShape.Type.LINE_STRING) {
+            return Filters.geoIntersects(field, new LineString(toPositions(coordinates)));
+        }
+        throw new IllegalArgumentException("Shape " + shape.getType() + " is not valid with operator " + operator);
+    }
+
+    /**
+     * Converts a coordinate to a GeoJSON point.
+     *
+     * @param coordinate the coordinate
+     * @return the point
+     */
+    private static Point toPoint(Coordinate coordinate) {
+        return new Point(new Position(coordinate.getLongitude(), coordinate.getLatitude()));
+    }
+
+    /**
+     * Converts coordinates to GeoJSON positions.
+     *
+     * @param coordinates the coordinates
+     * @return the positions
+     */
+    private static List<Position> toPositions(List<Coordinate> coordinates) {
+        List<Position> positions = new ArrayList<>(coordinates.size());
+        for (Coordinate coordinate : coordinates) {
+            positions.add(new Position(coordinate.getLongitude(), coordinate.getLatitude()));
+        }
+        return positions;
+    }
+
     /**
      * Get Find Options.
      *
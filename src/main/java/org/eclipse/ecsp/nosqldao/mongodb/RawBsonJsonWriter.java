@@ -0,0 +1,112 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import org.bson.BsonBinaryReader;
+import org.bson.RawBsonDocument;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriter;
+import org.bson.json.JsonWriterSettings;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes raw BSON documents as JSON by piping their bytes straight to a character stream, without building
+ * an object graph or an intermediate string for each document.
+ */
+public final class RawBsonJsonWriter {
+
+    /**
+     * The default settings, relaxed extended JSON.
+     */
+    public static final JsonWriterSettings RELAXED_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.RELAXED).build();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private RawBsonJsonWriter() {
+    }
+
+    /**
+     * Writes a raw BSON document as relaxed extended JSON.
+     *
+     * @param document the document
+     * @param writer the character stream, left open
+     */
+    public static void write(RawBsonDocument document, Writer writer) {
+        write(document, writer, RELAXED_SETTINGS);
+    }
+
+    /**
+     * Writes a raw BSON document as JSON.
+     *
+     * @param document the document
+     * @param writer the character stream, left open
+     * @param settings the JSON writer settings
+     */
+    public static void write(RawBsonDocument document, Writer writer, JsonWriterSettings settings) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(document.getByteBuffer().asNIO())) {
+            new JsonWriter(writer, settings).pipe(reader);
+        }
+    }
+
+    /**
+     * Writes raw BSON documents as a JSON array of relaxed extended JSON documents.
+     *
+     * @param documents the documents
+     * @param writer the character stream, left open
+     * @throws IOException if the character stream cannot be written
+     */
+    public static void writeArray(Iterable<RawBsonDocument> documents, Writer writer) throws IOException {
+        writer.write('[');
+        boolean first = true;
+        for (RawBsonDocument document : documents) {
+            if (!first) {
+                writer.write(',');
+            }
+            write(document, writer);
+            first = false;
+        }
+        writer.write(']');
+    }
+}
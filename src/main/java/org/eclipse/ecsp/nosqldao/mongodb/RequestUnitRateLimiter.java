@@ -0,0 +1,171 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket of CosmosDB request units, refilled at the provisioned throughput.
+ *
+ * <p>An operation takes its estimated charge from the bucket before it is sent, the estimate following
+ * the sampled charges of operations of the same shape. The bucket may go into debt
+ * so that expensive operations are not starved; the following operations then wait until the debt
+ * is paid back. When the server throttles a request the bucket is emptied and paused for the
+ * RetryAfterMs returned by the server.</p>
+ */
+final class RequestUnitRateLimiter {
+
+    /**
+     * Request units added to the bucket per nanosecond.
+     */
+    private final double unitsPerNano;
+
+    /**
+     * Maximum number of request units in the bucket.
+     */
+    private final double capacity;
+
+    /**
+     * Request units currently in the bucket, negative when in debt.
+     */
+    private double units;
+
+    /**
+     * Time of the last refill.
+     */
+    private long lastRefillNanos;
+
+    /**
+     * Time until which no request units are handed out.
+     */
+    private long pausedUntilNanos;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param unitsPerSecond the provisioned request units per second
+     * @param burstSeconds the seconds of throughput which may be spent in a single burst
+     */
+    RequestUnitRateLimiter(double unitsPerSecond, double burstSeconds) {
+        this.unitsPerNano = unitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = unitsPerSecond * burstSeconds;
+        this.units = capacity;
+        this.lastRefillNanos = System.nanoTime();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    /**
+     * Takes request units from the bucket, waiting until enough are available or the wait limit is reached.
+     *
+     * @param requestUnits the request units to take
+     * @param maxWaitMs the maximum time to wait, in milliseconds
+     * @return the time waited, in milliseconds
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    long acquire(double requestUnits, long maxWaitMs) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                waitNanos = getWaitNanos(requestUnits, now);
+                if (waitNanos <= 0 || now >= deadline) {
+                    units -= requestUnits;
+                    return TimeUnit.NANOSECONDS.toMillis(now - start);
+                }
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.min(waitNanos, Math.max(1, deadline - System.nanoTime())));
+        }
+    }
+
+    /**
+     * Empties the bucket and stops handing out request units for the given time.
+     *
+     * @param retryAfterMs the time to pause, in milliseconds
+     */
+    synchronized void pause(long retryAfterMs) {
+        long now = System.nanoTime();
+        refill(now);
+        units = Math.min(units, 0);
+        pausedUntilNanos = Math.max(pausedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(retryAfterMs));
+    }
+
+    /**
+     * Gets the request units currently in the bucket.
+     *
+     * @return the request units, negative when in debt
+     */
+    synchronized double getAvailableUnits() {
+        refill(System.nanoTime());
+        return units;
+    }
+
+    /**
+     * Refills the bucket and computes how long to wait before the request units are available.
+     *
+     * @param requestUnits the request units to take
+     * @param now the current time
+     * @return the time to wait in nanoseconds, 0 or less if the units are available
+     */
+    private long getWaitNanos(double requestUnits, long now) {
+        refill(now);
+        if (now < pausedUntilNanos) {
+            return pausedUntilNanos - now;
+        }
+        // an operation costing more than the capacity only waits for a full bucket
+        double needed = Math.min(requestUnits, capacity) - units;
+        return needed <= 0 ? 0 : (long) Math.ceil(needed / unitsPerNano);
+    }
+
+    /**
+     * Adds the request units accumulated since the last refill, nothing accumulates while paused.
+     *
+     * @param now the current time
+     */
+    private void refill(long now) {
+        long from = Math.max(lastRefillNanos, pausedUntilNanos);
+        if (now > from) {
+            units = Math.min(capacity, units + (now - from) * unitsPerNano);
+        }
+        lastRefillNanos = Math.max(lastRefillNanos, now);
+    }
+}
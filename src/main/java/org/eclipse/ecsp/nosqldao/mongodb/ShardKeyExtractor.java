@@ -0,0 +1,171 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import dev.morphia.annotations.Id;
+import dev.morphia.mapping.codec.pojo.EntityModel;
+import dev.morphia.mapping.codec.pojo.PropertyModel;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.eclipse.ecsp.nosqldao.utils.Constants;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the value of a shard key from an entity through fields resolved once, keeping the value type.
+ * A shard key may be a dotted path to a field of an embedded object.
+ */
+final class ShardKeyExtractor {
+
+    /**
+     * The shard key, as configured.
+     */
+    private final String property;
+
+    /**
+     * The name of the shard key in the stored document.
+     */
+    private final String mappedName;
+
+    /**
+     * The fields from the entity to the shard key.
+     */
+    private final List<Field> path;
+
+    /**
+     * Indicates whether the shard key is the ID of the entity.
+     */
+    private final boolean id;
+
+    /**
+     * Instantiates a new shard key extractor.
+     *
+     * @param property the shard key, as configured
+     * @param mappedName the name of the shard key in the stored document
+     * @param path the fields from the entity to the shard key
+     */
+    private ShardKeyExtractor(String property, String mappedName, List<Field> path) {
+        this.property = property;
+        this.mappedName = mappedName;
+        this.path = path;
+        this.id = path.size() == 1 && path.get(0).isAnnotationPresent(Id.class);
+    }
+
+    /**
+     * Resolves the fields of a shard key on the entity class.
+     *
+     * @param entityClass the entity class
+     * @param property the shard key, a field name or a dotted path
+     * @param entityModel the Morphia model of the entity class, used for the stored field name, may be null
+     * @return the extractor, or null if the entity class has no such field
+     */
+    static ShardKeyExtractor compile(Class<?> entityClass, String property, EntityModel entityModel) {
+        String[] segments = property.split("\\.");
+        List<Field> path = new ArrayList<>(segments.length);
+        Class<?> type = entityClass;
+        for (String segment : segments) {
+            Field field = FieldUtils.getField(type, segment, true);
+            if (field == null) {
+                return null;
+            }
+            path.add(field);
+            type = field.getType();
+        }
+        String mappedName;
+        if (path.size() == 1 && path.get(0).isAnnotationPresent(Id.class)) {
+            mappedName = Constants.ID_FILTER_CONSTANT;
+        } else {
+            PropertyModel propertyModel = entityModel == null ? null : entityModel.getProperty(segments[0]);
+            segments[0] = propertyModel == null ? segments[0] : propertyModel.getMappedName();
+            mappedName = String.join(".", segments);
+        }
+        return new ShardKeyExtractor(property, mappedName, path);
+    }
+
+    /**
+     * Reads the shard key value of the entity.
+     *
+     * @param entity the entity
+     * @return the value, or null if the value or one of the embedded objects on its path is not set
+     */
+    Object getValue(Object entity) {
+        Object value = entity;
+        try {
+            for (Field field : path) {
+                if (value == null) {
+                    return null;
+                }
+                value = field.get(value);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read shard key " + property, e);
+        }
+        return value;
+    }
+
+    /**
+     * Gets the shard key, as configured.
+     *
+     * @return the shard key
+     */
+    String getProperty() {
+        return property;
+    }
+
+    /**
+     * Gets the name of the shard key in the stored document.
+     *
+     * @return the stored field name
+     */
+    String getMappedName() {
+        return mappedName;
+    }
+
+    /**
+     * Checks whether the shard key is the ID of the entity.
+     *
+     * @return true if the shard key is the ID
+     */
+    boolean isId() {
+        return id;
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.ecsp.nosqldao.IgniteCriteria;
+import org.eclipse.ecsp.nosqldao.IgniteCriteriaGroup;
+import org.eclipse.ecsp.nosqldao.IgniteQuery;
+import org.eclipse.ecsp.nosqldao.LopContent;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Partitions the documents of an entity into one collection per month of a time field, named
+ * prefix_yyyy_MM in UTC, such as events_2026_10. Writes go to the partition of the time of the entity,
+ * and queries only read the partitions their range on the time field may match. An old partition is
+ * removed by dropping its collection, which is much cheaper than deleting its documents.
+ */
+public final class TimePartitioning {
+
+    /**
+     * Format of the month suffix of a partition.
+     */
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    /**
+     * The prefix of the partition names.
+     */
+    private final String prefix;
+
+    /**
+     * The entity property the documents are partitioned on.
+     */
+    private final String timeField;
+
+    /**
+     * Pattern of the partition names, capturing the month suffix.
+     */
+    private final Pattern partitionPattern;
+
+    /**
+     * Instantiates a new time partitioning.
+     *
+     * @param prefix the prefix of the partition names
+     * @param timeField the entity property the documents are partitioned on, a date, an instant, a local
+     *                  date time in UTC or epoch milliseconds
+     */
+    public TimePartitioning(String prefix, String timeField) {
+        if (StringUtils.isEmpty(prefix) || StringUtils.isEmpty(timeField)) {
+            throw new IllegalArgumentException("Prefix and time field of a time partitioning must be set");
+        }
+        this.prefix = prefix;
+        this.timeField = timeField;
+        this.partitionPattern = Pattern.compile(Pattern.quote(prefix) + "_(\\d{4}_\\d{2})");
+    }
+
+    /**
+     * Gets the prefix of the partition names.
+     *
+     * @return the prefix
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Gets the entity property the documents are partitioned on.
+     *
+     * @return the time property
+     */
+    public String getTimeField() {
+        return timeField;
+    }
+
+    /**
+     * Gets the partition of a time.
+     *
+     * @param time the time
+     * @return the name of the partition
+     */
+    public String getPartition(Instant time) {
+        return prefix + "_" + MONTH_FORMAT.format(YearMonth.from(time.atOffset(ZoneOffset.UTC)));
+    }
+
+    /**
+     * Gets the month of a partition.
+     *
+     * @param collectionName the name of a collection
+     * @return the month, or null if the collection is not a partition
+     */
+    public YearMonth getMonth(String collectionName) {
+        Matcher matcher = partitionPattern.matcher(collectionName);
+        return matcher.matches() ? YearMonth.parse(matcher.group(1), MONTH_FORMAT) : null;
+    }
+
+    /**
+     * Gets the partitions which may hold documents matching a query, keeping all partitions unless the
+     * query bounds the time field in a conjunction.
+     *
+     * @param collectionNames the names of the existing collections
+     * @param query the query, null for all partitions
+     * @return the names of the partitions, oldest first
+     */
+    public List<String> getPartitions(Collection<String> collectionNames, IgniteQuery query) {
+        Instant from = null;
+        Instant to = null;
+        if (query != null && isConjunction(query.getLopContent())) {
+            for (IgniteCriteriaGroup group : query.getCriteriaGroups()) {
+                if (!isConjunction(group.getLopContent())) {
+                    continue;
+                }
+                for (IgniteCriteria criteria : group.getCriterias()) {
+                    Instant bound = timeField.equals(criteria.getField()) ? toBound(criteria.getVal()) : null;
+                    if (bound == null) {
+                        continue;
+                    }
+                    switch (criteria.getOp()) {
+                        case EQ:
+                            from = max(from, bound);
+                            to = min(to, bound);
+                            break;
+                        case GT:
+                        case GTE:
+                            from = max(from, bound);
+                            break;
+                        case LT:
+                        case LTE:
+                            to = min(to, bound);
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        }
+        YearMonth first = from == null ? null : YearMonth.from(from.atOffset(ZoneOffset.UTC));
+        YearMonth last = to == null ? null : YearMonth.from(to.atOffset(ZoneOffset.UTC));
+        return collectionNames.stream()
+                .filter(name -> {
+                    YearMonth month = getMonth(name);
+                    return month != null && (first == null || !month.isBefore(first))
+                            && (last == null || !month.isAfter(last));
+                })
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Gets the partitions whose whole month is before a time.
+     *
+     * @param collectionNames the names of the existing collections
+     * @param cutoff the time
+     * @return the names of the partitions, oldest first
+     */
+    public List<String> getPartitionsBefore(Collection<String> collectionNames, Instant cutoff) {
+        return collectionNames.stream()
+                .filter(name -> {
+                    YearMonth month = getMonth(name);
+                    return month != null && !month.plusMonths(1).atDay(1).atStartOfDay()
+                            .toInstant(ZoneOffset.UTC).isAfter(cutoff);
+                })
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Converts the value of a time property to an instant.
+     *
+     * @param value the value: a date, an instant, a local date or local date time in UTC, an offset or
+     *              zoned date time, or epoch milliseconds
+     * @return the instant, or null if the value is null
+     * @throws IllegalArgumentException if the value is of another type
+     */
+    public static Instant toInstant(Object value) {
+        Instant instant = toBound(value);
+        if (instant == null && value != null) {
+            throw new IllegalArgumentException("Unsupported partition time type " + value.getClass().getName());
+        }
+        return instant;
+    }
+
+    /**
+     * Converts the value of a time property to an instant, if it is of a supported type.
+     *
+     * @param value the value
+     * @return the instant, or null if the value is null or of another type
+     */
+    private static Instant toBound(Object value) {
+        if (value instanceof Instant instant) {
+            return instant;
+        } else if (value instanceof Date date) {
+            return date.toInstant();
+        } else if (value instanceof Number number) {
+            return Instant.ofEpochMilli(number.longValue());
+        } else if (value instanceof LocalDateTime localDateTime) {
+            return localDateTime.toInstant(ZoneOffset.UTC);
+        } else if (value instanceof LocalDate localDate) {
+            return localDate.atStartOfDay().toInstant(ZoneOffset.UTC);
+        } else if (value instanceof OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant();
+        } else if (value instanceof ZonedDateTime zonedDateTime) {
+            return zonedDateTime.toInstant();
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the criteria combined with a logical operator content all have to match.
+     *
+     * @param lopContent the logical operator content, null for a single criteria
+     * @return true for a conjunction
+     */
+    private static boolean isConjunction(LopContent lopContent) {
+        return lopContent == null || lopContent == LopContent.ANDONLY;
+    }
+
+    /**
+     * Gets the later of two instants.
+     *
+     * @param current the current bound, may be null
+     * @param bound the new bound
+     * @return the later instant
+     */
+    private static Instant max(Instant current, Instant bound) {
+        return current == null || bound.isAfter(current) ? bound : current;
+    }
+
+    /**
+     * Gets the earlier of two instants.
+     *
+     * @param current the current bound, may be null
+     * @param bound the new bound
+     * @return the earlier instant
+     */
+    private static Instant min(Instant current, Instant bound) {
+        return current == null || bound.isBefore(current) ? bound : current;
+    }
+}
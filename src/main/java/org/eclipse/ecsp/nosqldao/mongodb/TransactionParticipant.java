@@ -0,0 +1,124 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.WriteModel;
+import dev.morphia.transactions.MorphiaSession;
+import org.eclipse.ecsp.entities.IgniteEntity;
+import org.eclipse.ecsp.nosqldao.IgniteQuery;
+import org.eclipse.ecsp.nosqldao.Updates;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A DAO taking part in a {@link MongoUnitOfWork}: it turns the writes of the unit of work into bulk write
+ * models on its collection and runs them, and its reads, in the session of the transaction. The collections
+ * are those of the database of the session, whose client the transaction runs on. Implemented by the mongo
+ * DAO and by its collection views, whose writes target the collection of the view.
+ *
+ * @param <K> the type of the primary key
+ * @param <E> the type of the entity
+ */
+interface TransactionParticipant<K, E extends IgniteEntity> {
+
+    /**
+     * Prepares the save of an entity: an insert if its ID is not set or its collection is a time-series
+     * collection, an upsert replacing the document with the same ID otherwise.
+     *
+     * @param entity the entity to save
+     * @return the write
+     */
+    TransactionWrite<E> prepareSave(E entity);
+
+    /**
+     * Prepares the update of the entity with an ID.
+     *
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name, may be null
+     * @param updates the updates to apply
+     * @return the write
+     * @throws UnsupportedOperationException if the collection is partitioned by time
+     */
+    TransactionWrite<E> prepareUpdate(K id, Map<String, Object> shardKey, Updates updates);
+
+    /**
+     * Prepares the delete of the entity with an ID.
+     *
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name, may be null
+     * @return the write
+     * @throws UnsupportedOperationException if the collection is partitioned by time
+     */
+    TransactionWrite<E> prepareDelete(K id, Map<String, Object> shardKey);
+
+    /**
+     * Runs writes on a collection in a session, in order, with a single bulk write.
+     *
+     * @param session the session of the transaction
+     * @param collectionName the collection of the writes
+     * @param writes the writes
+     * @return the result of the bulk write
+     */
+    BulkWriteResult bulkWrite(MorphiaSession session, String collectionName, List<WriteModel<E>> writes);
+
+    /**
+     * Finds the entities matching a query in a session.
+     *
+     * @param session the session of the transaction
+     * @param query the query to match
+     * @return the matching entities
+     * @throws UnsupportedOperationException if the collection is partitioned by time
+     */
+    List<E> findInSession(MorphiaSession session, IgniteQuery query);
+
+    /**
+     * Finds the entity with an ID in a session.
+     *
+     * @param session the session of the transaction
+     * @param id the ID of the entity
+     * @param shardKey the shard key values of the entity, by field name, may be null
+     * @return the entity, or null if not found
+     * @throws UnsupportedOperationException if the collection is partitioned by time
+     */
+    E findByIdInSession(MorphiaSession session, K id, Map<String, Object> shardKey);
+}
@@ -0,0 +1,91 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.client.model.WriteModel;
+
+/**
+ * A write of a {@link MongoUnitOfWork}, prepared by a {@link TransactionParticipant}: the bulk write model
+ * and the collection it is run on.
+ *
+ * @param <E> the type of the entity
+ */
+final class TransactionWrite<E> {
+
+    /**
+     * The collection of the write.
+     */
+    private final String collectionName;
+
+    /**
+     * The bulk write model.
+     */
+    private final WriteModel<E> model;
+
+    /**
+     * Creates a write.
+     *
+     * @param collectionName the collection of the write
+     * @param model the bulk write model
+     */
+    TransactionWrite(String collectionName, WriteModel<E> model) {
+        this.collectionName = collectionName;
+        this.model = model;
+    }
+
+    /**
+     * Gets the collection of the write.
+     *
+     * @return the collection name
+     */
+    String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Gets the bulk write model.
+     *
+     * @return the model
+     */
+    WriteModel<E> getModel() {
+        return model;
+    }
+}
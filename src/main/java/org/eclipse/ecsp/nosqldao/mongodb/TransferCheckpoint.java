@@ -0,0 +1,236 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The point an export or an import of a collection reached, saved to a file so that an interrupted
+ * transfer resumes from there: the _id of the last document transferred, the number of documents and
+ * BSON bytes transferred, and for an export the length of the dump file holding them.
+ */
+final class TransferCheckpoint {
+
+    /**
+     * The checkpoint of a transfer that has not started.
+     */
+    static final TransferCheckpoint START = new TransferCheckpoint(null, 0, 0, 0);
+
+    /**
+     * The settings of the checkpoint file, canonical so that the type of the _id is kept.
+     */
+    private static final JsonWriterSettings JSON_SETTINGS = JsonWriterSettings.builder()
+            .outputMode(JsonMode.EXTENDED).build();
+
+    /**
+     * The field of the format of the dump.
+     */
+    private static final String FORMAT = "format";
+
+    /**
+     * The field of the compression of the dump.
+     */
+    private static final String COMPRESSION = "compression";
+
+    /**
+     * The field of the _id of the last document.
+     */
+    private static final String LAST_ID = "lastId";
+
+    /**
+     * The field of the number of documents.
+     */
+    private static final String DOCUMENTS = "documents";
+
+    /**
+     * The field of the number of bytes.
+     */
+    private static final String BYTES = "bytes";
+
+    /**
+     * The field of the length of the dump file.
+     */
+    private static final String POSITION = "position";
+
+    /**
+     * The _id of the last document transferred, null if none.
+     */
+    private final BsonValue lastId;
+
+    /**
+     * The number of documents transferred.
+     */
+    private final long documents;
+
+    /**
+     * The number of BSON bytes transferred.
+     */
+    private final long bytes;
+
+    /**
+     * The length of the dump file holding the documents transferred, 0 for an import.
+     */
+    private final long position;
+
+    /**
+     * Creates a checkpoint.
+     *
+     * @param lastId the _id of the last document transferred, null if none
+     * @param documents the number of documents transferred
+     * @param bytes the number of BSON bytes transferred
+     * @param position the length of the dump file holding the documents transferred
+     */
+    TransferCheckpoint(BsonValue lastId, long documents, long bytes, long position) {
+        this.lastId = lastId;
+        this.documents = documents;
+        this.bytes = bytes;
+        this.position = position;
+    }
+
+    /**
+     * Reads a checkpoint file.
+     *
+     * @param file the checkpoint file
+     * @param format the format of the dump
+     * @param compression the compression of the dump
+     * @return the checkpoint, {@link #START} if the file does not exist
+     * @throws IOException if the file cannot be read
+     * @throws IllegalStateException if the checkpoint was saved for another format or compression
+     */
+    static TransferCheckpoint read(Path file, DumpFormat format, DumpCompression compression) throws IOException {
+        if (!Files.exists(file)) {
+            return START;
+        }
+        BsonDocument document = BsonDocument.parse(Files.readString(file));
+        if (!format.name().equals(document.getString(FORMAT).getValue())
+                || !compression.name().equals(document.getString(COMPRESSION).getValue())) {
+            throw new IllegalStateException("Checkpoint " + file + " was saved for a " + document.get(FORMAT)
+                    + " dump with " + document.get(COMPRESSION) + " compression");
+        }
+        BsonValue lastId = document.get(LAST_ID);
+        return new TransferCheckpoint(lastId.isNull() ? null : lastId, document.getInt64(DOCUMENTS).getValue(),
+                document.getInt64(BYTES).getValue(), document.getInt64(POSITION).getValue());
+    }
+
+    /**
+     * Saves the checkpoint, replacing the checkpoint file atomically so that a crash leaves either the
+     * previous checkpoint or this one.
+     *
+     * @param file the checkpoint file
+     * @param format the format of the dump
+     * @param compression the compression of the dump
+     * @throws IOException if the file cannot be written
+     */
+    void write(Path file, DumpFormat format, DumpCompression compression) throws IOException {
+        BsonDocument document = new BsonDocument(FORMAT, new BsonString(format.name()))
+                .append(COMPRESSION, new BsonString(compression.name()))
+                .append(LAST_ID, lastId == null ? BsonNull.VALUE : lastId)
+                .append(DOCUMENTS, new BsonInt64(documents))
+                .append(BYTES, new BsonInt64(bytes))
+                .append(POSITION, new BsonInt64(position));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, document.toJson(JSON_SETTINGS));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Gets the _id of the last document transferred.
+     *
+     * @return the _id, null if none
+     */
+    BsonValue getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Gets the _id of the last document transferred as the Java value a query compares it with.
+     *
+     * @return the _id, null if none
+     */
+    Object getLastIdValue() {
+        if (lastId == null) {
+            return null;
+        }
+        return new DocumentCodec().decode(new BsonDocumentReader(new BsonDocument(LAST_ID, lastId)),
+                DecoderContext.builder().build()).get(LAST_ID);
+    }
+
+    /**
+     * Gets the number of documents transferred.
+     *
+     * @return the number of documents
+     */
+    long getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Gets the number of BSON bytes transferred.
+     *
+     * @return the number of bytes
+     */
+    long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the length of the dump file holding the documents transferred.
+     *
+     * @return the length, 0 for an import
+     */
+    long getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import java.time.Duration;
+
+/**
+ * The progress of an export or an import of a collection: the documents and BSON bytes transferred by the
+ * current run, excluding those of an earlier run it resumed, and the time it took.
+ */
+public final class TransferProgress {
+
+    /**
+     * Nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    /**
+     * The number of documents transferred.
+     */
+    private final long documents;
+
+    /**
+     * The number of BSON bytes transferred.
+     */
+    private final long bytes;
+
+    /**
+     * The time of the transfer.
+     */
+    private final Duration elapsed;
+
+    /**
+     * Creates the progress of a transfer.
+     *
+     * @param documents the number of documents transferred
+     * @param bytes the number of BSON bytes transferred
+     * @param elapsed the time of the transfer
+     */
+    public TransferProgress(long documents, long bytes, Duration elapsed) {
+        this.documents = documents;
+        this.bytes = bytes;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Gets the number of documents transferred.
+     *
+     * @return the number of documents
+     */
+    public long getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Gets the number of BSON bytes transferred, before compression or JSON encoding.
+     *
+     * @return the number of bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the time of the transfer.
+     *
+     * @return the time
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Gets the throughput in documents per second.
+     *
+     * @return the documents per second, 0 if no time elapsed
+     */
+    public double getDocumentsPerSecond() {
+        return perSecond(documents);
+    }
+
+    /**
+     * Gets the throughput in BSON bytes per second.
+     *
+     * @return the bytes per second, 0 if no time elapsed
+     */
+    public double getBytesPerSecond() {
+        return perSecond(bytes);
+    }
+
+    /**
+     * Divides a count by the elapsed time.
+     *
+     * @param count the count
+     * @return the count per second
+     */
+    private double perSecond(long count) {
+        long nanos = elapsed.toNanos();
+        return nanos > 0 ? count * NANOS_PER_SECOND / nanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d documents, %d bytes in %d ms (%.0f docs/sec, %.0f bytes/sec)", documents, bytes,
+                elapsed.toMillis(), getDocumentsPerSecond(), getBytesPerSecond());
+    }
+}
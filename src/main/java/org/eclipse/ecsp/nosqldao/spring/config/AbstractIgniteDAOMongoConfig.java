@@ -42,10 +42,13 @@ package org.eclipse.ecsp.nosqldao.spring.config;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
 import com.mongodb.ServerAddress;
 import com.mongodb.client.MongoClient;
+import com.mongodb.connection.SocketStreamFactory;
 import dev.morphia.AdvancedDatastore;
 import dev.morphia.mapping.DiscriminatorFunction;
+import dev.morphia.mapping.Mapper;
 import dev.morphia.mapping.MapperOptions;
 import dev.morphia.mapping.conventions.ConfigureProperties;
 import dev.morphia.mapping.conventions.FieldDiscovery;
@@ -68,7 +71,13 @@ import org.springframework.context.annotation.Bean;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -200,6 +209,21 @@ public abstract class AbstractIgniteDAOMongoConfig implements HealthMonitor {
     @Value("${morphia.map.packages:#{org.eclipse.ecsp}}")
     protected String[] mapPackages;
 
+    /**
+     * Location of a pre-computed Morphia entity index, e.g. classpath:ignite-dao-entities.idx.
+     * When the index exists its classes are mapped explicitly and package scanning is skipped.
+     * The default value is empty.
+     */
+    @Value("${" + PropertyNames.MORPHIA_ENTITY_INDEX_LOCATION + ":}")
+    protected String entityIndexLocation;
+
+    /**
+     * File path to which the entities discovered by package scanning are written, so that the
+     * next start can use it as entity index. The default value is empty.
+     */
+    @Value("${" + PropertyNames.MORPHIA_ENTITY_INDEX_GENERATE_PATH + ":}")
+    protected String entityIndexGeneratePath;
+
     /**
      * The server selection timeout in milliseconds for MongoDB.
      * The default value is 30000 milliseconds.
@@ -298,6 +322,127 @@ public abstract class AbstractIgniteDAOMongoConfig implements HealthMonitor {
     @Value("${mongodb.maintenance.frequency.ms:}")
     protected Integer maintenanceFrequency;
 
+    /**
+     * The interval in milliseconds between two runs of the retired mongo client cleanup.
+     * The default value is 10000 milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_CLIENT_CLEANUP_INTERVAL_MS + ":10000}")
+    protected long clientCleanupInterval;
+
+    /**
+     * The time in milliseconds given to a replaced mongo client to finish its in-flight operations
+     * before it is force closed. The default value is 60000 milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_CLIENT_CLOSE_WAIT_INTERVAL_MS + ":60000}")
+    protected long clientCloseWaitInterval;
+
+    /**
+     * Indicates if a re-created mongo client is warmed up before traffic is switched to it.
+     * The default value is true.
+     */
+    @Value("${" + PropertyNames.MONGODB_CLIENT_PREWARM_ENABLED + ":true}")
+    protected boolean clientPrewarmEnabled;
+
+    /**
+     * Indicates if the mongo client created at startup is warmed up before the datastore is created, which
+     * delays startup by up to the warm-up timeout. A failed startup warm-up is only logged.
+     * The default value is false.
+     */
+    @Value("${" + PropertyNames.MONGODB_CLIENT_STARTUP_PREWARM_ENABLED + ":false}")
+    protected boolean clientStartupPrewarmEnabled;
+
+    /**
+     * JSON array of representative commands run by the warm-up, such as
+     * [{"find": "vehicles", "filter": {"vin": "x"}, "limit": 1}]. The default value is empty.
+     */
+    @Value("${" + PropertyNames.MONGODB_CLIENT_PREWARM_COMMANDS + ":}")
+    protected String clientPrewarmCommands;
+
+    /**
+     * The maximum time in milliseconds the warm-up waits for the connection pools to reach their minimum size.
+     * The default value is 30000 milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_CLIENT_PREWARM_TIMEOUT_MS + ":30000}")
+    protected long clientPrewarmTimeout;
+
+    /**
+     * Indicates if a separate analytical client runs the scans, aggregations and analytical queries.
+     * The default value is false.
+     */
+    @Value("${" + PropertyNames.MONGODB_ANALYTICS_ENABLED + ":false}")
+    protected boolean analyticsEnabled;
+
+    /**
+     * The maximum size of the connection pool of the analytical client.
+     * The default value is 10.
+     */
+    @Value("${" + PropertyNames.MONGODB_ANALYTICS_POOL_MAX_SIZE + ":10}")
+    protected int analyticsPoolMaxSize;
+
+    /**
+     * The minimum size of the connection pool of the analytical client.
+     * The default value is 0.
+     */
+    @Value("${" + PropertyNames.MONGODB_ANALYTICS_POOL_MIN_SIZE + ":0}")
+    protected int analyticsPoolMinSize;
+
+    /**
+     * The maximum wait time in milliseconds for a connection of the analytical client.
+     * The default value is 120000 milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_ANALYTICS_MAX_WAIT_TIME_MS + ":120000}")
+    protected int analyticsMaxWaitTime;
+
+    /**
+     * The socket timeout in milliseconds of the analytical client.
+     * The default value is 0 milliseconds.
+     */
+    @Value("${" + PropertyNames.MONGODB_ANALYTICS_SOCKET_TIMEOUT_MS + ":0}")
+    protected int analyticsSocketTimeout;
+
+    /**
+     * The read preference of the analytical client.
+     * The default value is secondaryPreferred.
+     */
+    @Value("${" + PropertyNames.MONGODB_ANALYTICS_READ_PREFERENCE + ":secondaryPreferred}")
+    protected String analyticsReadPreference;
+
+    /**
+     * Comma separated name:value tags of the servers read by the analytical client, such as
+     * nodeType:ANALYTICS. The default value is empty.
+     */
+    @Value("${" + PropertyNames.MONGODB_ANALYTICS_READ_PREFERENCE_TAGS + ":}")
+    protected String analyticsReadPreferenceTags;
+
+    /**
+     * Comma separated compressors of the wire protocol, in order of preference: zstd, snappy or zlib.
+     * zstd and snappy need zstd-jni and snappy-java on the classpath. The default value is empty,
+     * which disables compression.
+     */
+    @Value("${" + PropertyNames.MONGODB_COMPRESSORS + ":}")
+    protected String compressors;
+
+    /**
+     * The compression level of the zlib compressor, from 0 to 9.
+     * The default value is -1, the zlib default level.
+     */
+    @Value("${" + PropertyNames.MONGODB_COMPRESSORS_ZLIB_LEVEL + ":-1}")
+    protected int zlibCompressionLevel;
+
+    /**
+     * Indicates if the bytes of the messages before and after compression are counted.
+     * The default value is false.
+     */
+    @Value("${" + PropertyNames.MONGODB_WIRE_BYTES_METRICS_ENABLED + ":false}")
+    protected boolean wireBytesMetricsEnabled;
+
+    /**
+     * The service where this DAO library is embedded, labelling the wire bytes metrics.
+     * The default value is empty.
+     */
+    @Value("${service.name:}")
+    protected String serviceName;
+
     /**
      * Type of NoSQL database.
      */
@@ -323,6 +468,17 @@ public abstract class AbstractIgniteDAOMongoConfig implements HealthMonitor {
      */
     protected List<ServerAddress> servers;
 
+    /**
+     * Time taken in milliseconds by each startup phase, in the order the phases ran.
+     */
+    protected final Map<String, Long> startupPhaseTimings = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * Mappers which already have the configured entities mapped.
+     */
+    private final Set<Mapper> mappedMappers = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
     /**
      * The discriminator key for Morphia.
      * The default value is defined by Constants.DISCRIMINATOR_KEY.
@@ -332,10 +488,13 @@ public abstract class AbstractIgniteDAOMongoConfig implements HealthMonitor {
 
     /**
      * Sets the health status of the MongoDB connection.
+     * The volatile flag is written only when the status changes.
      * @param flag boolean value indicating the health status.
      */
     protected static void setHealthy(boolean flag) {
-        healthy = flag;
+        if (healthy != flag) {
+            healthy = flag;
+        }
     }
 
     /** 
@@ -383,13 +542,16 @@ public abstract class AbstractIgniteDAOMongoConfig implements HealthMonitor {
         AdvancedDatastore datastore = null;
         try {
             //creating code registry for custom codec-providers
+            long phaseStartTime = System.currentTimeMillis();
             if (codecRegistry == null) {
                 LOGGER.info("trying to fetch registered codecs from properties while creating mongo datastore bean");
                 codecRegistry = getCodecRegistryFromProp();
             }
+            recordStartupPhase("codecRegistry", phaseStartTime);
 
             //MapperOptions can be set via methods or fields. In 2.0 version of morphia only one can be used, 
             //in future releases an option of using both options will be provided
+            phaseStartTime = System.currentTimeMillis();
             LOGGER.info("Building Morphia mapping options. Property discovery enabled via FIELDS, "
                     + "with discriminator key as : {}", Constants.DISCRIMINATOR_KEY);
             MapperOptions.Builder mapperOptionsBuilder = MapperOptions.builder();
@@ -406,15 +568,18 @@ public abstract class AbstractIgniteDAOMongoConfig implements HealthMonitor {
                 }
             }
             this.mapperOptions = mapperOptionsBuilder.build();
+            recordStartupPhase("mapperOptions", phaseStartTime);
+
+            phaseStartTime = System.currentTimeMillis();
             datastore = getDatastore();
+            recordStartupPhase("datastore", phaseStartTime);
+            // no-op when getDatastore() has already mapped the entities on this mapper
             mapPackagesToDatastore(datastore);
-            
-            long startTime = System.currentTimeMillis();
+
             // From morphia 2.0 UTC will be available by default
             LOGGER.info("Morphia DataStorage : {}", 
                     datastore.getMapper().getOptions().getDateStorage().getZone().getId());
-            long endTimeMorpia = System.currentTimeMillis();
-            LOGGER.info("Connection time taken from Morphia in millisecs : {}", (endTimeMorpia - startTime));
+            LOGGER.info("Mongo datastore startup time taken per phase in millisecs : {}", startupPhaseTimings);
         } catch (ClassNotFoundException | InstantiationException | IllegalAccessException 
                 | InvocationTargetException | NoSuchMethodException | RuntimeException e) {
             if (null != mongoClient) {
@@ -519,13 +684,58 @@ public abstract class AbstractIgniteDAOMongoConfig implements HealthMonitor {
     protected abstract AdvancedDatastore getDatastore();
 
     /**
-     * Maps the packages to the datastore.
+     * Maps the entities to the datastore.
+     * If an entity index is configured and present, its classes are mapped explicitly, otherwise
+     * every configured package is scanned. Mapping is done only once per mapper.
+     *
      * @param datastore AdvancedDatastore instance.
      */
     @SuppressWarnings("removal")
     protected void mapPackagesToDatastore(AdvancedDatastore datastore) {
+        Mapper mapper = datastore.getMapper();
+        if (!mappedMappers.add(mapper)) {
+            LOGGER.debug("Entities are already mapped for mapper {}", mapper.hashCode());
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        List<Class<?>> indexedEntities = new ArrayList<>();
+        if (StringUtils.isNotEmpty(entityIndexLocation)) {
+            indexedEntities = MorphiaEntityIndex.load(entityIndexLocation, getClass().getClassLoader());
+        }
+        if (!indexedEntities.isEmpty()) {
+            mapper.map(indexedEntities.toArray(new Class<?>[0]));
+            recordStartupPhase("entityIndexMapping", startTime);
+            return;
+        }
         for (String mapPackage : mapPackages) {
-            datastore.getMapper().mapPackage(mapPackage);
+            mapper.mapPackage(mapPackage);
+        }
+        recordStartupPhase("packageScanMapping", startTime);
+        if (StringUtils.isNotEmpty(entityIndexGeneratePath)) {
+            MorphiaEntityIndex.write(mapper, entityIndexGeneratePath);
+        }
+    }
+
+    /**
+     * Records the time taken by a startup phase.
+     *
+     * @param phase name of the phase
+     * @param startTime start time of the phase in milliseconds
+     */
+    protected void recordStartupPhase(String phase, long startTime) {
+        long timeTaken = System.currentTimeMillis() - startTime;
+        startupPhaseTimings.put(phase, timeTaken);
+        LOGGER.info("Mongo startup phase {} took {} ms", phase, timeTaken);
+    }
+
+    /**
+     * Returns the time taken in milliseconds by each startup phase, in the order the phases ran.
+     *
+     * @return map of phase name to time taken in milliseconds.
+     */
+    public Map<String, Long> getStartupPhaseTimings() {
+        synchronized (startupPhaseTimings) {
+            return new LinkedHashMap<>(startupPhaseTimings);
         }
     }
 
@@ -676,7 +886,52 @@ public abstract class AbstractIgniteDAOMongoConfig implements HealthMonitor {
             builder.serverSelectionTimeout(serverSelectionTimeout, TimeUnit.MILLISECONDS);
             builder.hosts(servers);
         });
-        LOGGER.info("Mongo client settings applied for MongoDB");
+        List<MongoCompressor> compressorList = getCompressors();
+        if (!compressorList.isEmpty()) {
+            mongoClientSettingsBuilder.compressorList(compressorList);
+        }
+        if (wireBytesMetricsEnabled) {
+            mongoClientSettingsBuilder.streamFactoryFactory((socketSettings, sslSettings) ->
+                    new WireBytesStreamFactory(new SocketStreamFactory(socketSettings, sslSettings), serviceName));
+        }
+        LOGGER.info("Mongo client settings applied for MongoDB with compressors {}", compressorList);
+    }
+
+    /**
+     * Returns the configured compressors of the wire protocol, in order of preference.
+     * The server uses the first one it supports.
+     *
+     * @return list of compressors, empty if compression is disabled.
+     * @throws IllegalArgumentException if a compressor is unknown
+     */
+    protected List<MongoCompressor> getCompressors() {
+        List<MongoCompressor> compressorList = new ArrayList<>();
+        if (StringUtils.isBlank(compressors)) {
+            return compressorList;
+        }
+        for (String compressor : compressors.split(",")) {
+            String name = compressor.trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                continue;
+            }
+            switch (name) {
+                case "zstd":
+                    compressorList.add(MongoCompressor.createZstdCompressor());
+                    break;
+                case "snappy":
+                    compressorList.add(MongoCompressor.createSnappyCompressor());
+                    break;
+                case "zlib":
+                    MongoCompressor zlib = MongoCompressor.createZlibCompressor();
+                    compressorList.add(zlibCompressionLevel == -1 ? zlib
+                            : zlib.withProperty(MongoCompressor.LEVEL, zlibCompressionLevel));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown mongo compressor " + compressor
+                            + " in " + PropertyNames.MONGODB_COMPRESSORS);
+            }
+        }
+        return compressorList;
     }
 
     /**
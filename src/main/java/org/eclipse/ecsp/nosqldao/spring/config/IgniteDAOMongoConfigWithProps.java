@@ -52,18 +52,26 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import dev.morphia.AdvancedDatastore;
 import dev.morphia.Morphia;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.ecsp.nosqldao.MongoRetryExhaustException;
 import org.eclipse.ecsp.nosqldao.NoSqlDatabaseType;
+import org.eclipse.ecsp.nosqldao.mongodb.AnalyticalDatastore;
 import org.eclipse.ecsp.nosqldao.mongodb.MongoReadPreference;
 import org.eclipse.ecsp.nosqldao.utils.NumericConstants;
 import org.eclipse.ecsp.utils.logger.IgniteLogger;
 import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
+import org.springframework.cglib.proxy.Dispatcher;
+import org.springframework.cglib.proxy.Enhancer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class provides methods for IgniteDAOMongoConfiguration with properties
@@ -81,10 +89,19 @@ public class IgniteDAOMongoConfigWithProps extends AbstractIgniteDAOMongoConfig
     private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(IgniteDAOMongoConfigWithProps.class);
 
     /**
-     * PropertyEnabledDatastoreInvocationHandler.
+     * Routes the datastore operations to the current client.
      */
-    private volatile PropertyEnabledDatastoreInvocationHandler peInvocationHandler =
-            new PropertyEnabledDatastoreInvocationHandler();
+    private final DatastoreRouter datastoreRouter = new DatastoreRouter();
+
+    /**
+     * Manages the clients replaced during a hot swap.
+     */
+    private volatile MongoClientLifecycleManager clientLifecycleManager;
+
+    /**
+     * Time taken in milliseconds by the last client warm-up, -1 if no client was warmed up.
+     */
+    private volatile long lastWarmUpDuration = -1L;
 
     /**
      * Retrieves the AdvancedDatastore instance, creating a new MongoClient if necessary.
@@ -94,17 +111,160 @@ public class IgniteDAOMongoConfigWithProps extends AbstractIgniteDAOMongoConfig
     @SuppressWarnings("removal")
     @Override
     protected AdvancedDatastore getDatastore() {
-        mongoClient = createMongoClient();
-        String dataStoreDbName = dbName;
-        if (noSqlDatabaseType == NoSqlDatabaseType.COSMOSDB) {
-            dataStoreDbName = cosmosdbName;
+        long startTime = System.currentTimeMillis();
+        MongoClientWarmUp clientWarmUp = new MongoClientWarmUp();
+        mongoClient = createMongoClient(clientWarmUp);
+        recordStartupPhase("mongoClient", startTime);
+        if (clientStartupPrewarmEnabled) {
+            startTime = System.currentTimeMillis();
+            try {
+                warmUp(mongoClient, clientWarmUp);
+            } catch (RuntimeException e) {
+                // the client still connects on demand, the first requests pay for the handshakes
+                LOGGER.warn("Failed to warm up mongo client at startup", e);
+            }
+            recordStartupPhase("mongoClientWarmUp", startTime);
         }
-        AdvancedDatastore ads = (AdvancedDatastore) Morphia.createDatastore(mongoClient, 
-                dataStoreDbName, mapperOptions);
+        setHealthy(true);
+        AdvancedDatastore ads = createDatastore(mongoClient);
+        datastoreRouter.setManagedClient(new ManagedMongoClient(mongoClient, ads));
+        return createRoutingDatastore();
+    }
+
+    /**
+     * Creates the datastore handed out to the DAOs. It is a class generated at startup which implements each
+     * datastore method as a direct call on the datastore of the current client, read from a volatile field,
+     * so a hot swap is picked up by the next call without reflection on the request path.
+     *
+     * @return the routing datastore
+     */
+    @SuppressWarnings("removal")
+    private AdvancedDatastore createRoutingDatastore() {
+        Enhancer enhancer = new Enhancer();
+        enhancer.setSuperclass(AdvancedDatastore.class);
+        enhancer.setClassLoader(AdvancedDatastore.class.getClassLoader());
+        enhancer.setUseFactory(false);
+        enhancer.setCallback(datastoreRouter);
+        return (AdvancedDatastore) enhancer.create();
+    }
+
+    /**
+     * Creates the datastore of the analytical client, which runs the scans, aggregations and analytical
+     * queries on its own connection pool. The client is not re-created by the health monitor.
+     *
+     * @return the analytical datastore, without datastore if no analytical client is configured
+     */
+    @Bean(destroyMethod = "close")
+    @DependsOn("mongoDatastore")
+    @SuppressWarnings("removal")
+    public AnalyticalDatastore analyticalDatastore() {
+        if (!analyticsEnabled) {
+            return new AnalyticalDatastore(null, null);
+        }
+        MongoClientSettings.Builder mongoClientSettingsBuilder = createMongoClientSettingsBuilder();
+        if (noSqlDatabaseType == NoSqlDatabaseType.MONGODB) {
+            mongoClientSettingsBuilder.credential(getMongoCredentials());
+        }
+        mongoClientSettingsBuilder.applyToConnectionPoolSettings(builder -> {
+            builder.maxSize(analyticsPoolMaxSize);
+            builder.minSize(analyticsPoolMinSize);
+            builder.maxWaitTime(analyticsMaxWaitTime, TimeUnit.MILLISECONDS);
+        }).applyToSocketSettings(builder -> builder.readTimeout(analyticsSocketTimeout, TimeUnit.MILLISECONDS))
+                .readPreference(getAnalyticsReadPreference());
+        MongoClient analyticalClient = MongoClients.create(mongoClientSettingsBuilder.build());
+        try {
+            AdvancedDatastore ads = createDatastore(analyticalClient);
+            LOGGER.info("Initialized analytical mongo client with pool max size {} and read preference {}",
+                    analyticsPoolMaxSize, analyticalClient.getDatabase(getDataStoreDbName()).getReadPreference());
+            return new AnalyticalDatastore(analyticalClient, ads);
+        } catch (RuntimeException e) {
+            analyticalClient.close();
+            throw new MongoConnectionException("Failed to initialize analytical mongodb connection", e);
+        }
+    }
+
+    /**
+     * Returns the read preference of the analytical client, restricted to the tagged servers if tags are set.
+     *
+     * @return the read preference
+     * @throws IllegalArgumentException if a tag is not a name:value pair
+     */
+    ReadPreference getAnalyticsReadPreference() {
+        ReadPreference preference = MongoReadPreference.getEnum(analyticsReadPreference).getReadPreference();
+        if (StringUtils.isBlank(analyticsReadPreferenceTags)) {
+            return preference;
+        }
+        List<Tag> tags = new ArrayList<>();
+        for (String tag : analyticsReadPreferenceTags.split(",")) {
+            String[] parts = tag.split(":");
+            if (parts.length != NumericConstants.TWO || StringUtils.isAnyBlank(parts)) {
+                throw new IllegalArgumentException("Invalid analytical read preference tag " + tag
+                        + ", expected name:value");
+            }
+            tags.add(new Tag(parts[0].trim(), parts[1].trim()));
+        }
+        return ReadPreference.valueOf(preference.getName(), List.of(new TagSet(tags)));
+    }
+
+    /**
+     * Creates a datastore on the given client and maps the entities to it.
+     *
+     * @param client the mongo client
+     * @return the datastore
+     */
+    @SuppressWarnings("removal")
+    private AdvancedDatastore createDatastore(MongoClient client) {
+        AdvancedDatastore ads = (AdvancedDatastore) Morphia.createDatastore(client, getDataStoreDbName(),
+                mapperOptions);
         mapPackagesToDatastore(ads);
-        peInvocationHandler.setDatastore(ads);
-        return (AdvancedDatastore) Proxy.newProxyInstance(this.getClass().getClassLoader(),
-                new Class[] { AdvancedDatastore.class }, peInvocationHandler);
+        return ads;
+    }
+
+    /**
+     * Returns the database name for the configured database type.
+     *
+     * @return the database name
+     */
+    private String getDataStoreDbName() {
+        return noSqlDatabaseType == NoSqlDatabaseType.COSMOSDB ? cosmosdbName : dbName;
+    }
+
+    /**
+     * Warms up a client before it is reported ready.
+     *
+     * @param client the client to warm up
+     * @param clientWarmUp the warm-up listening to the pool of the client
+     */
+    private void warmUp(MongoClient client, MongoClientWarmUp clientWarmUp) {
+        lastWarmUpDuration = clientWarmUp.warmUp(client, getDataStoreDbName(), poolMinSize != null ? poolMinSize : 0,
+                MongoClientWarmUp.parseCommands(clientPrewarmCommands), clientPrewarmTimeout);
+        LOGGER.info("Warmed up mongo client {} in {} ms", client.hashCode(), lastWarmUpDuration);
+    }
+
+    /**
+     * Returns the time taken by the last client warm-up.
+     *
+     * @return time taken in milliseconds, -1 if no client was warmed up.
+     */
+    public long getLastWarmUpDuration() {
+        return lastWarmUpDuration;
+    }
+
+    /**
+     * Returns the manager of replaced clients, creating it on first use.
+     *
+     * @return the client lifecycle manager
+     */
+    private MongoClientLifecycleManager getClientLifecycleManager() {
+        if (clientLifecycleManager == null) {
+            synchronized (this) {
+                if (clientLifecycleManager == null) {
+                    clientLifecycleManager = new MongoClientLifecycleManager(clientCleanupInterval,
+                            clientCloseWaitInterval);
+                }
+            }
+        }
+        return clientLifecycleManager;
     }
 
     /**
@@ -119,14 +279,18 @@ public class IgniteDAOMongoConfigWithProps extends AbstractIgniteDAOMongoConfig
 
     /**
      * Creates and returns a new instance of MongoClient with the configured settings.
+     * The client is reported healthy by the caller.
      *
+     * @param clientWarmUp the warm-up listening to the pool of the client
      * @return a new MongoClient instance
      */
-    private MongoClient createMongoClient() {
+    private MongoClient createMongoClient(MongoClientWarmUp clientWarmUp) {
         validate();
         MongoClient newMongoClient = null;
         MongoClientSettings mongoClientSettings = null;
         MongoClientSettings.Builder mongoClientSettingsBuilder = createMongoClientSettingsBuilder();
+        mongoClientSettingsBuilder.applyToConnectionPoolSettings(builder ->
+                builder.addConnectionPoolListener(clientWarmUp));
         if (noSqlDatabaseType == NoSqlDatabaseType.MONGODB) {
             mongoClientSettingsBuilder.credential(getMongoCredentials());
         }
@@ -146,7 +310,6 @@ public class IgniteDAOMongoConfigWithProps extends AbstractIgniteDAOMongoConfig
             long startTime = System.currentTimeMillis();
             newMongoClient = MongoClients.create(mongoClientSettings);
             long endTime = System.currentTimeMillis();
-            setHealthy(true);
             LOGGER.info("Initialized mongo client with servers = {} and time taken in millisec is: {}",
                     servers, endTime - startTime);
         } catch (Exception e) {
@@ -162,6 +325,8 @@ public class IgniteDAOMongoConfigWithProps extends AbstractIgniteDAOMongoConfig
 
     /**
      * Checks the health status of the MongoDB client.
+     * When the client is re-created, it is warmed up before traffic is switched to it,
+     * and the replaced client is closed once its in-flight operations have drained.
      *
      * @param forceToRecreateClient if true, forces the recreation of the MongoDB client if it is not healthy
      * @return true if the MongoDB client is healthy, false otherwise
@@ -171,77 +336,176 @@ public class IgniteDAOMongoConfigWithProps extends AbstractIgniteDAOMongoConfig
     public boolean isHealthy(boolean forceToRecreateClient) {
 
         if (forceToRecreateClient && (!healthy || mongoClient == null)) {
-            String dataStoreDbName = dbName;
-            if (noSqlDatabaseType == NoSqlDatabaseType.COSMOSDB) {
-                dataStoreDbName = cosmosdbName;
+            MongoClientWarmUp clientWarmUp = new MongoClientWarmUp();
+            MongoClient newMongoClient = createMongoClient(clientWarmUp);
+            try {
+                if (clientPrewarmEnabled) {
+                    warmUp(newMongoClient, clientWarmUp);
+                }
+                AdvancedDatastore ads = createDatastore(newMongoClient);
+                ManagedMongoClient replacedClient = datastoreRouter.setManagedClient(
+                        new ManagedMongoClient(newMongoClient, ads));
+                mongoClient = newMongoClient;
+                if (replacedClient != null) {
+                    getClientLifecycleManager().retire(replacedClient);
+                }
+            } catch (RuntimeException e) {
+                newMongoClient.close();
+                setHealthy(false);
+                LOGGER.error("Failed to switch to the re-created mongo client", e);
+                throw e;
             }
-            AdvancedDatastore ads = (AdvancedDatastore) Morphia.createDatastore(createMongoClient(),
-                    dataStoreDbName, mapperOptions);
-            mapPackagesToDatastore(ads);
-            peInvocationHandler.setDatastore(ads);
             setHealthy(true);
         }
         return healthy;
     }
 
     /**
-     * InvocationHandler implementation for handling datastore operations with properties.
+     * Exposes the leases on the client the datastore routes operations to, which the DAOs hold for the whole
+     * of each operation, so that a replaced client is only closed once drained.
+     *
+     * @return the client leases
      */
-    private class PropertyEnabledDatastoreInvocationHandler implements InvocationHandler {
+    @Bean
+    public MongoClientLeases mongoClientLeases() {
+        return datastoreRouter;
+    }
+
+    /**
+     * Closes the mongo clients replaced during a hot swap.
+     */
+    @PreDestroy
+    public void closeRetiredClients() {
+        if (clientLifecycleManager != null) {
+            clientLifecycleManager.shutdown();
+        }
+    }
+
+    /**
+     * Routes the datastore operations to the current client and leases that client to the operations, which
+     * hold it until done.
+     */
+    static class DatastoreRouter implements Dispatcher, MongoClientLeases {
 
         /**
-         * AdvancedDatastore instance.
+         * The client and datastore operations are currently routed to.
          */
-        @SuppressWarnings("removal")
-        private volatile AdvancedDatastore datastore;
+        private volatile ManagedMongoClient managedClient;
 
         /**
-         * Invokes the specified method on the AdvancedDatastore instance.
-         * Handles cases for -
+         * Gets the datastore of the current client, which the routing datastore calls for each method.
+         *
+         * @return the datastore of the current client
+         */
+        @Override
+        public Object loadObject() {
+            return managedClient.getDatastore();
+        }
+
+        /**
+         * Acquires a lease on the current client. A client retired between the read and the acquire is
+         * skipped for the client which replaced it.
+         *
+         * @return the lease
+         */
+        @Override
+        public Lease acquire() {
+            ManagedMongoClient client = managedClient;
+            if (!client.acquire()) {
+                // swapped since it was read, route to the new client
+                client = managedClient;
+                client.forceAcquire();
+            }
+            return new ClientLease(client);
+        }
+
+        /**
+         * Reports the outcome of an operation to the health flag, which is written only when the state
+         * changes. The outcome on a replaced client says nothing of the current one and is ignored. A failure
+         * the retry executor gave up on is classified by the error of its last attempt. Marks the client
+         * unhealthy for -
+         * client and socket errors,
          * error code 11 - UserNotFound,
          * error code 13 - Unauthorized,
          * error code 31 - RoleNotFound,
          * error code 32 - RolesNotRelated,
          * error code 33 - PrivilegeNotFound.
          *
-         * @param proxy the proxy object
-         * @param method the method to invoke
-         * @param args the arguments to pass to the method
-         * @return the result of the method invocation
-         * @throws Throwable if an error occurs while invoking the method
+         * @param client the client the operation ran on
+         * @param failure the exception the operation failed with, null if it succeeded
          */
-        @Override
-        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            LOGGER.trace("ProxyInvoke:Invoking data store {} with mongo client {} ",
-                    datastore.hashCode(), mongoClient.hashCode());
-            try {
-                Object result = method.invoke(datastore, args);
+        private void onCompleted(ManagedMongoClient client, Throwable failure) {
+            if (client != managedClient) {
+                return;
+            }
+            Throwable cause = failure;
+            while (cause instanceof MongoRetryExhaustException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause == null) {
                 setHealthy(true);
-                return result;
-            } catch (Exception ex) {
-                Throwable targetException = ex.getCause();
-                if (targetException instanceof MongoException exception) {
-                    int code = exception.getCode();
-                    if (exception instanceof MongoClientException || exception instanceof MongoSocketException
-                            || code == NumericConstants.ELEVEN || code == NumericConstants.THIRTEEN
-                            || code == NumericConstants.THIRTY_ONE || code == NumericConstants.THIRTY_TWO
-                            || code == NumericConstants.THIRTY_THREE) {
-                        setHealthy(false);
-                    }
-                }
-                throw targetException;
-
+            } else if (cause instanceof MongoException exception && isConnectionFailure(exception)) {
+                setHealthy(false);
             }
         }
 
         /**
-         * Sets the AdvancedDatastore instance.
+         * Checks whether the exception means the client can no longer serve requests.
+         *
+         * @param exception the exception thrown by the datastore
+         * @return true if the client should be re-created
+         */
+        private boolean isConnectionFailure(MongoException exception) {
+            int code = exception.getCode();
+            return exception instanceof MongoClientException || exception instanceof MongoSocketException
+                    || code == NumericConstants.ELEVEN || code == NumericConstants.THIRTEEN
+                    || code == NumericConstants.THIRTY_ONE || code == NumericConstants.THIRTY_TWO
+                    || code == NumericConstants.THIRTY_THREE;
+        }
+
+        /**
+         * Routes the datastore operations to the given client.
          *
-         * @param datastore the AdvancedDatastore instance to set
+         * @param client the client and datastore to route operations to
+         * @return the client operations were routed to before, or null
+         */
+        ManagedMongoClient setManagedClient(ManagedMongoClient client) {
+            LOGGER.debug("Switching routed datastore to {}", client.getDatastore().hashCode());
+            ManagedMongoClient replacedClient = this.managedClient;
+            this.managedClient = client;
+            return replacedClient;
+        }
+
+        /**
+         * A lease on a client, which reports the outcome of the operation when released.
          */
-        @SuppressWarnings("removal")
-        private void setDatastore(AdvancedDatastore datastore) {
-            this.datastore = datastore;
+        private final class ClientLease implements Lease {
+
+            /**
+             * The leased client.
+             */
+            private final ManagedMongoClient client;
+
+            /**
+             * Creates the lease on an acquired client.
+             *
+             * @param client the leased client
+             */
+            private ClientLease(ManagedMongoClient client) {
+                this.client = client;
+            }
+
+            @SuppressWarnings("removal")
+            @Override
+            public AdvancedDatastore getDatastore() {
+                return client.getDatastore();
+            }
+
+            @Override
+            public void release(Throwable failure) {
+                client.release();
+                onCompleted(client, failure);
+            }
         }
     }
-}
\ No newline at end of file
+}
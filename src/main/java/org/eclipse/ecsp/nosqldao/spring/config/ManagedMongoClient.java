@@ -0,0 +1,181 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.spring.config;
+
+import com.mongodb.client.MongoClient;
+import dev.morphia.AdvancedDatastore;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A MongoClient together with the datastore built on it and the number of leases held on it. A DAO
+ * operation holds a lease until it completes, and a stream until its cursor is closed. Once retired,
+ * no new lease is granted and the client can be closed as soon as the leases have been released.
+ */
+final class ManagedMongoClient {
+
+    /**
+     * The mongo client.
+     */
+    private final MongoClient mongoClient;
+
+    /**
+     * The datastore built on the mongo client.
+     */
+    @SuppressWarnings("removal")
+    private final AdvancedDatastore datastore;
+
+    /**
+     * Number of leases held on the client. A striped counter, so that concurrent operations do not contend
+     * on one cache line; it is only summed when a retired client is checked for draining.
+     */
+    private final LongAdder inFlight = new LongAdder();
+
+    /**
+     * Whether the client has been replaced by a newer one.
+     */
+    private volatile boolean retired;
+
+    /**
+     * Whether the client has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Time in milliseconds at which the client was retired.
+     */
+    private volatile long retiredAt;
+
+    /**
+     * Creates a managed client.
+     *
+     * @param mongoClient the mongo client
+     * @param datastore the datastore built on the mongo client
+     */
+    ManagedMongoClient(MongoClient mongoClient, @SuppressWarnings("removal") AdvancedDatastore datastore) {
+        this.mongoClient = mongoClient;
+        this.datastore = datastore;
+    }
+
+    /**
+     * Registers an operation on the client.
+     *
+     * @return false if the client is retired, in which case the operation is not registered
+     */
+    boolean acquire() {
+        inFlight.increment();
+        if (retired) {
+            inFlight.decrement();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Registers an operation on the client even if it is retired.
+     */
+    void forceAcquire() {
+        inFlight.increment();
+    }
+
+    /**
+     * Marks an operation registered with acquire as finished.
+     */
+    void release() {
+        inFlight.decrement();
+    }
+
+    /**
+     * Stops admitting new operations on the client.
+     */
+    void retire() {
+        retiredAt = System.currentTimeMillis();
+        retired = true;
+    }
+
+    /**
+     * Closes the client if it is retired and has drained, or if it has been retired for longer than
+     * the close wait interval.
+     *
+     * @param closeWaitIntervalMs time to wait for in-flight operations before the client is force closed
+     * @return true if the client is closed
+     */
+    synchronized boolean closeIfDrained(long closeWaitIntervalMs) {
+        if (closed) {
+            return true;
+        }
+        boolean drained = inFlight.sum() <= 0;
+        if (retired && (drained || System.currentTimeMillis() - retiredAt >= closeWaitIntervalMs)) {
+            closed = true;
+            mongoClient.close();
+        }
+        return closed;
+    }
+
+    /**
+     * Gets the mongo client.
+     *
+     * @return the mongo client
+     */
+    MongoClient getMongoClient() {
+        return mongoClient;
+    }
+
+    /**
+     * Gets the datastore.
+     *
+     * @return the datastore
+     */
+    @SuppressWarnings("removal")
+    AdvancedDatastore getDatastore() {
+        return datastore;
+    }
+
+    /**
+     * Gets the number of operations currently running on the client. The sum is not an atomic snapshot
+     * while operations start and end concurrently, which is why it is only read on retired clients.
+     *
+     * @return the number of in-flight operations
+     */
+    int getInFlight() {
+        return inFlight.intValue();
+    }
+}
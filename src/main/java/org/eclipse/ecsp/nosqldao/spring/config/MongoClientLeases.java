@@ -0,0 +1,82 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.spring.config;
+
+import dev.morphia.AdvancedDatastore;
+
+/**
+ * Leases on the mongo client the datastore currently routes operations to. A client replaced by a hot swap
+ * is only closed once its leases are released, so an operation holds its lease until it is done, including
+ * the cursors and streams it opened.
+ */
+public interface MongoClientLeases {
+
+    /**
+     * Acquires a lease on the client operations are currently routed to.
+     *
+     * @return the lease, to release exactly once
+     */
+    Lease acquire();
+
+    /**
+     * A lease on a mongo client.
+     */
+    interface Lease {
+
+        /**
+         * Gets the datastore of the leased client. An operation spanning several statements, such as a
+         * transaction, runs them all on it rather than on the routing datastore, which a hot swap may route
+         * to another client in between.
+         *
+         * @return the datastore of the leased client
+         */
+        @SuppressWarnings("removal")
+        AdvancedDatastore getDatastore();
+
+        /**
+         * Releases the lease once the operation and its cursors are done. The outcome of the operation is
+         * reported to the health of the client: a connection failure marks it unhealthy, a success healthy.
+         *
+         * @param failure the exception the operation failed with, null if it succeeded
+         */
+        void release(Throwable failure);
+    }
+}
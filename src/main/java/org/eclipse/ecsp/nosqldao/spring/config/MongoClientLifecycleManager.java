@@ -0,0 +1,165 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.spring.config;
+
+import org.eclipse.ecsp.utils.logger.IgniteLogger;
+import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages the life cycle of mongo clients replaced during a hot swap.
+ * The replaced client is closed by a scheduled task once its in-flight operations have drained, or
+ * force closed after the close wait interval. The new client is warmed up by {@link MongoClientWarmUp}
+ * before traffic is switched to it.
+ */
+class MongoClientLifecycleManager {
+
+    /**
+     * Logger.
+     */
+    private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(MongoClientLifecycleManager.class);
+
+    /**
+     * Interval in milliseconds between two runs of the cleanup task.
+     */
+    private final long cleanupIntervalMs;
+
+    /**
+     * Time in milliseconds a retired client is given to drain before it is force closed.
+     */
+    private final long closeWaitIntervalMs;
+
+    /**
+     * Retired clients which are not closed yet.
+     */
+    private final Queue<ManagedMongoClient> retiredClients = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Executor running the cleanup task, created on the first retirement.
+     */
+    private ScheduledExecutorService cleanupExecutor;
+
+    /**
+     * Creates the manager.
+     *
+     * @param cleanupIntervalMs interval in milliseconds between two runs of the cleanup task
+     * @param closeWaitIntervalMs time in milliseconds a retired client is given to drain
+     */
+    MongoClientLifecycleManager(long cleanupIntervalMs, long closeWaitIntervalMs) {
+        this.cleanupIntervalMs = cleanupIntervalMs;
+        this.closeWaitIntervalMs = closeWaitIntervalMs;
+    }
+
+    /**
+     * Retires a replaced client. It is closed by the cleanup task once drained.
+     *
+     * @param client the replaced client
+     */
+    void retire(ManagedMongoClient client) {
+        client.retire();
+        retiredClients.add(client);
+        LOGGER.info("Retired mongo client {} with {} in-flight operations",
+                client.getMongoClient().hashCode(), client.getInFlight());
+        scheduleCleanup();
+    }
+
+    /**
+     * Closes the retired clients which have drained or exceeded the close wait interval.
+     */
+    void closeRetiredClients() {
+        for (ManagedMongoClient client : retiredClients) {
+            int inFlight = client.getInFlight();
+            try {
+                if (client.closeIfDrained(closeWaitIntervalMs)) {
+                    retiredClients.remove(client);
+                    LOGGER.info("Closed retired mongo client {}, in-flight operations at close : {}",
+                            client.getMongoClient().hashCode(), inFlight);
+                }
+            } catch (RuntimeException e) {
+                retiredClients.remove(client);
+                LOGGER.error("Failed to close retired mongo client", e);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of retired clients which are not closed yet.
+     *
+     * @return the number of retired clients
+     */
+    int getRetiredClientCount() {
+        return retiredClients.size();
+    }
+
+    /**
+     * Stops the cleanup task and closes every retired client without waiting.
+     */
+    synchronized void shutdown() {
+        if (cleanupExecutor != null) {
+            cleanupExecutor.shutdownNow();
+            cleanupExecutor = null;
+        }
+        for (ManagedMongoClient client : retiredClients) {
+            client.closeIfDrained(0);
+        }
+        retiredClients.clear();
+    }
+
+    /**
+     * Starts the cleanup task if it is not running yet.
+     */
+    private synchronized void scheduleCleanup() {
+        if (cleanupExecutor == null) {
+            cleanupExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mongo-client-cleanup");
+                thread.setDaemon(true);
+                return thread;
+            });
+            cleanupExecutor.scheduleWithFixedDelay(this::closeRetiredClients, cleanupIntervalMs,
+                    cleanupIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
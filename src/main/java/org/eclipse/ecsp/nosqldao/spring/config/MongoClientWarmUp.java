@@ -0,0 +1,267 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.spring.config;
+
+import com.mongodb.MongoException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.connection.ServerDescription;
+import com.mongodb.connection.ServerType;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import com.mongodb.event.ConnectionReadyEvent;
+import org.apache.commons.lang3.StringUtils;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.eclipse.ecsp.utils.logger.IgniteLogger;
+import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms up a new mongo client before traffic is routed to it. The warm-up runs as many concurrent pings as
+ * the minimum pool size, waits until the driver has opened the minimum pool size of connections to every
+ * data bearing server, and runs the representative commands, so that their plans are cached by the servers.
+ * The connections are counted by listening to the pool of the client, so an instance is created for each
+ * client.
+ */
+final class MongoClientWarmUp implements ConnectionPoolListener {
+
+    /**
+     * Logger.
+     */
+    private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(MongoClientWarmUp.class);
+
+    /**
+     * Interval between two checks of the pool sizes, in milliseconds.
+     */
+    private static final long POLL_INTERVAL_MS = 50L;
+
+    /**
+     * Ping command used to open and check connections.
+     */
+    private static final Document PING_COMMAND = new Document("ping", 1);
+
+    /**
+     * Ready connections, by server.
+     */
+    private final Map<ServerAddress, AtomicInteger> connections = new ConcurrentHashMap<>();
+
+    /**
+     * Counts a connection which is ready to be used.
+     *
+     * @param event the connection ready event
+     */
+    @Override
+    public void connectionReady(ConnectionReadyEvent event) {
+        connections.computeIfAbsent(event.getConnectionId().getServerId().getAddress(),
+                address -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /**
+     * Stops counting a closed connection.
+     *
+     * @param event the connection closed event
+     */
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        AtomicInteger count = connections.get(event.getConnectionId().getServerId().getAddress());
+        if (count != null) {
+            count.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the number of ready connections to a server.
+     *
+     * @param address the address of the server
+     * @return the number of ready connections
+     */
+    int getConnectionCount(ServerAddress address) {
+        AtomicInteger count = connections.get(address);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Parses the representative commands run by the warm-up.
+     *
+     * @param commands a JSON array of commands, may be blank
+     * @return the commands
+     * @throws IllegalArgumentException if the commands are not a JSON array of documents
+     */
+    static List<BsonDocument> parseCommands(String commands) {
+        if (StringUtils.isBlank(commands)) {
+            return Collections.emptyList();
+        }
+        List<BsonDocument> documents = new ArrayList<>();
+        try {
+            for (BsonValue command : BsonArray.parse(commands)) {
+                documents.add(command.asDocument());
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Warm-up commands must be a JSON array of commands : " + commands, e);
+        }
+        return documents;
+    }
+
+    /**
+     * Warms up the client. The pings must succeed; a pool which is not full when the timeout elapses and a
+     * representative command which fails are only logged.
+     *
+     * @param mongoClient the client to warm up
+     * @param dbName the database to run the commands on
+     * @param minConnections the minimum pool size of the client, 0 if it has none
+     * @param commands the representative commands
+     * @param timeoutMs the maximum time waited for the pools, in milliseconds
+     * @return the time taken by the warm-up, in milliseconds
+     */
+    long warmUp(MongoClient mongoClient, String dbName, int minConnections, List<BsonDocument> commands,
+                long timeoutMs) {
+        long startTime = System.currentTimeMillis();
+        MongoDatabase database = mongoClient.getDatabase(dbName);
+        ping(database, Math.max(minConnections, 1));
+        if (minConnections > 0) {
+            List<ServerAddress> servers = new ArrayList<>();
+            for (ServerDescription server : mongoClient.getClusterDescription().getServerDescriptions()) {
+                if (isDataBearing(server)) {
+                    servers.add(server.getAddress());
+                }
+            }
+            if (!awaitConnections(servers, minConnections, startTime + timeoutMs)) {
+                LOGGER.warn("Mongo connection pools not filled within {} ms, ready connections : {}",
+                        timeoutMs, connections);
+            }
+        }
+        for (BsonDocument command : commands) {
+            try {
+                database.runCommand(command, database.getReadPreference());
+            } catch (MongoException e) {
+                LOGGER.warn("Mongo warm-up command {} failed", command, e);
+            }
+        }
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * Runs concurrent pings, so that the driver opens as many connections and checks them.
+     *
+     * @param database the database to ping
+     * @param connections the number of concurrent pings to run
+     */
+    private static void ping(MongoDatabase database, int connections) {
+        if (connections <= 1) {
+            database.runCommand(PING_COMMAND);
+            return;
+        }
+        ExecutorService pingExecutor = Executors.newFixedThreadPool(connections);
+        try {
+            List<Callable<Document>> pings = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                pings.add(() -> database.runCommand(PING_COMMAND));
+            }
+            for (Future<Document> ping : pingExecutor.invokeAll(pings)) {
+                ping.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MongoConnectionException("Interrupted while warming up mongo client", e);
+        } catch (ExecutionException e) {
+            throw new MongoConnectionException("Failed to warm up mongo client", e);
+        } finally {
+            pingExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits until every server has the minimum number of ready connections.
+     *
+     * @param servers the addresses of the servers
+     * @param minConnections the minimum number of ready connections
+     * @param deadline the time the wait ends at, in epoch milliseconds
+     * @return true if every server has the minimum number of ready connections
+     */
+    boolean awaitConnections(Collection<ServerAddress> servers, int minConnections, long deadline) {
+        while (true) {
+            boolean filled = true;
+            for (ServerAddress server : servers) {
+                filled &= getConnectionCount(server) >= minConnections;
+            }
+            if (filled) {
+                return true;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MongoConnectionException("Interrupted while warming up mongo client", e);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a server serves reads or writes, so that its pool is used.
+     *
+     * @param server the description of the server
+     * @return true if the server is reachable and bears data
+     */
+    private static boolean isDataBearing(ServerDescription server) {
+        ServerType type = server.getType();
+        return server.isOk() && (type == ServerType.STANDALONE || type == ServerType.REPLICA_SET_PRIMARY
+                || type == ServerType.REPLICA_SET_SECONDARY || type == ServerType.SHARD_ROUTER);
+    }
+}
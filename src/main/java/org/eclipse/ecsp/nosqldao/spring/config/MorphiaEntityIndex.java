@@ -0,0 +1,143 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.spring.config;
+
+import dev.morphia.mapping.Mapper;
+import dev.morphia.mapping.codec.pojo.EntityModel;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.ecsp.utils.logger.IgniteLogger;
+import org.eclipse.ecsp.utils.logger.IgniteLoggerFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Pre-computed list of Morphia entity classes.
+ *
+ * <p>Mapping packages makes Morphia scan the classpath for every configured package, which dominates the
+ * cold start of a service. The index is a plain text file with one fully qualified class name per line
+ * (blank lines and lines starting with '#' are ignored). It can be generated at build time, or written on
+ * the first run from the entities Morphia discovered, and then loaded to map the classes explicitly.</p>
+ */
+public final class MorphiaEntityIndex {
+
+    /**
+     * Logger.
+     */
+    private static final IgniteLogger LOGGER = IgniteLoggerFactory.getLogger(MorphiaEntityIndex.class);
+
+    /**
+     * Comment prefix in the index file.
+     */
+    private static final String COMMENT_PREFIX = "#";
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private MorphiaEntityIndex() {
+    }
+
+    /**
+     * Loads the entity classes listed in the index.
+     *
+     * @param location spring resource location of the index, e.g. classpath:ignite-dao-entities.idx
+     * @param classLoader class loader used to resolve the entity classes
+     * @return the entity classes, or an empty list if the index does not exist
+     * @throws MongoConnectionException if the index cannot be read or lists an unknown class
+     */
+    public static List<Class<?>> load(String location, ClassLoader classLoader) {
+        List<Class<?>> entityClasses = new ArrayList<>();
+        Resource resource = new DefaultResourceLoader(classLoader).getResource(location);
+        if (!resource.exists()) {
+            LOGGER.info("Morphia entity index {} not found", location);
+            return entityClasses;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String className = line.trim();
+                if (StringUtils.isNotEmpty(className) && !className.startsWith(COMMENT_PREFIX)) {
+                    entityClasses.add(Class.forName(className, false, classLoader));
+                }
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new MongoConnectionException("Failed to load morphia entity index from " + location, e);
+        }
+        LOGGER.info("Loaded {} entity classes from morphia entity index {}", entityClasses.size(), location);
+        return entityClasses;
+    }
+
+    /**
+     * Writes the entities currently known to the mapper to the given file, so that the next start can
+     * load them instead of scanning packages. Failures are logged, they never fail the startup.
+     *
+     * @param mapper the mapper whose mapped entities are written
+     * @param path file system path of the index to write
+     */
+    public static void write(Mapper mapper, String path) {
+        Set<String> classNames = new TreeSet<>();
+        for (EntityModel model : mapper.getMappedEntities()) {
+            classNames.add(model.getType().getName());
+        }
+        try {
+            Path indexPath = Paths.get(path);
+            if (indexPath.getParent() != null) {
+                Files.createDirectories(indexPath.getParent());
+            }
+            Files.write(indexPath, classNames, StandardCharsets.UTF_8);
+            LOGGER.info("Written {} entity classes to morphia entity index {}", classNames.size(), path);
+        } catch (IOException e) {
+            LOGGER.error("Failed to write morphia entity index to {}", path, e);
+        }
+    }
+}
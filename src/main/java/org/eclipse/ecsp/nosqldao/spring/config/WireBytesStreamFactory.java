@@ -0,0 +1,307 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.spring.config;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.AsyncCompletionHandler;
+import com.mongodb.connection.Stream;
+import com.mongodb.connection.StreamFactory;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import org.bson.ByteBuf;
+import org.eclipse.ecsp.nosqldao.utils.Constants;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Stream factory counting the bytes of the mongo messages before and after compression. The bytes on the
+ * socket are counted as compressed; the uncompressed size of a compressed message is read from its
+ * OP_COMPRESSED header, so the messages are never decompressed twice. Messages which are not compressed,
+ * such as the handshake and the heartbeats, count the same in both stages.
+ */
+public final class WireBytesStreamFactory implements StreamFactory {
+
+    /**
+     * Length of the header of a message.
+     */
+    static final int MESSAGE_HEADER_LENGTH = 16;
+
+    /**
+     * Op code of a compressed message.
+     */
+    static final int OP_COMPRESSED = 2012;
+
+    /**
+     * Offset of the op code in the header of a message.
+     */
+    private static final int OP_CODE_OFFSET = 12;
+
+    /**
+     * Offset of the uncompressed size in the body of a compressed message, after the original op code.
+     */
+    private static final int UNCOMPRESSED_SIZE_OFFSET = 4;
+
+    /**
+     * Counter of the bytes of the messages.
+     */
+    private static volatile Counter wireBytesCounter;
+
+    /**
+     * The stream factory creating the counted streams.
+     */
+    private final StreamFactory delegate;
+
+    /**
+     * Counter of the compressed bytes sent.
+     */
+    private final Counter.Child sentCompressed;
+
+    /**
+     * Counter of the uncompressed bytes sent.
+     */
+    private final Counter.Child sentUncompressed;
+
+    /**
+     * Counter of the compressed bytes received.
+     */
+    private final Counter.Child receivedCompressed;
+
+    /**
+     * Counter of the uncompressed bytes received.
+     */
+    private final Counter.Child receivedUncompressed;
+
+    /**
+     * Instantiates a new wire bytes stream factory.
+     *
+     * @param delegate the stream factory creating the counted streams
+     * @param serviceName the service where this DAO library is embedded
+     */
+    public WireBytesStreamFactory(StreamFactory delegate, String serviceName) {
+        this.delegate = delegate;
+        synchronized (WireBytesStreamFactory.class) {
+            if (wireBytesCounter == null) {
+                wireBytesCounter = Counter.build(Constants.WIRE_BYTES_COUNTER_NAME,
+                                Constants.WIRE_BYTES_COUNTER_HELP_STR)
+                        .labelNames(Constants.SVC, Constants.WIRE_DIRECTION_LABEL, Constants.WIRE_STAGE_LABEL)
+                        .register(CollectorRegistry.defaultRegistry);
+            }
+        }
+        sentCompressed = wireBytesCounter.labels(serviceName, Constants.WIRE_DIRECTION_SENT,
+                Constants.WIRE_STAGE_COMPRESSED);
+        sentUncompressed = wireBytesCounter.labels(serviceName, Constants.WIRE_DIRECTION_SENT,
+                Constants.WIRE_STAGE_UNCOMPRESSED);
+        receivedCompressed = wireBytesCounter.labels(serviceName, Constants.WIRE_DIRECTION_RECEIVED,
+                Constants.WIRE_STAGE_COMPRESSED);
+        receivedUncompressed = wireBytesCounter.labels(serviceName, Constants.WIRE_DIRECTION_RECEIVED,
+                Constants.WIRE_STAGE_UNCOMPRESSED);
+    }
+
+    /**
+     * Creates a stream counting the bytes of its messages.
+     *
+     * @param serverAddress the address of the server
+     * @return the stream
+     */
+    @Override
+    public Stream create(ServerAddress serverAddress) {
+        return new WireBytesStream(delegate.create(serverAddress));
+    }
+
+    /**
+     * Gets the uncompressed length of a message.
+     *
+     * @param firstBuffer the first buffer of the message, starting with its header
+     * @param length the length of the message
+     * @return the uncompressed length of the message
+     */
+    static long getUncompressedLength(ByteBuf firstBuffer, long length) {
+        int position = firstBuffer.position();
+        if (firstBuffer.remaining() >= MESSAGE_HEADER_LENGTH + UNCOMPRESSED_SIZE_OFFSET + Integer.BYTES
+                && firstBuffer.getInt(position + OP_CODE_OFFSET) == OP_COMPRESSED) {
+            return MESSAGE_HEADER_LENGTH
+                    + (long) firstBuffer.getInt(position + MESSAGE_HEADER_LENGTH + UNCOMPRESSED_SIZE_OFFSET);
+        }
+        return length;
+    }
+
+    /**
+     * Checks whether a message header is the one of a compressed message.
+     *
+     * @param header the header
+     * @return true if the message is compressed
+     */
+    static boolean isCompressed(ByteBuf header) {
+        return header.getInt(header.position() + OP_CODE_OFFSET) == OP_COMPRESSED;
+    }
+
+    /**
+     * Gets the uncompressed length of the body of a compressed message.
+     *
+     * @param body the body of the compressed message
+     * @return the uncompressed length of the body
+     */
+    static long getUncompressedBodyLength(ByteBuf body) {
+        return body.getInt(body.position() + UNCOMPRESSED_SIZE_OFFSET);
+    }
+
+    /**
+     * Stream counting the bytes of its messages. The driver writes a message with a single write, and reads
+     * the header of a message before its body, so each stream only tracks whether the body it reads next
+     * is compressed.
+     */
+    private final class WireBytesStream implements Stream {
+
+        /**
+         * The counted stream.
+         */
+        private final Stream stream;
+
+        /**
+         * Whether the next read is the body of a message.
+         */
+        private boolean bodyExpected;
+
+        /**
+         * Whether the body read next is compressed.
+         */
+        private boolean compressedBody;
+
+        /**
+         * Instantiates a new wire bytes stream.
+         *
+         * @param stream the counted stream
+         */
+        private WireBytesStream(Stream stream) {
+            this.stream = stream;
+        }
+
+        /**
+         * Counts the bytes of a read.
+         *
+         * @param buffer the bytes read
+         * @return the bytes read
+         */
+        private ByteBuf count(ByteBuf buffer) {
+            int length = buffer.remaining();
+            receivedCompressed.inc(length);
+            if (bodyExpected) {
+                bodyExpected = false;
+                receivedUncompressed.inc(MESSAGE_HEADER_LENGTH
+                        + (compressedBody ? getUncompressedBodyLength(buffer) : length));
+            } else if (length == MESSAGE_HEADER_LENGTH) {
+                bodyExpected = true;
+                compressedBody = isCompressed(buffer);
+            } else {
+                receivedUncompressed.inc(length);
+            }
+            return buffer;
+        }
+
+        @Override
+        public ByteBuf getBuffer(int size) {
+            return stream.getBuffer(size);
+        }
+
+        @Override
+        public void open() throws IOException {
+            stream.open();
+        }
+
+        @Override
+        public void openAsync(AsyncCompletionHandler<Void> handler) {
+            stream.openAsync(handler);
+        }
+
+        @Override
+        public void write(List<ByteBuf> buffers) throws IOException {
+            long length = 0;
+            for (ByteBuf buffer : buffers) {
+                length += buffer.remaining();
+            }
+            long uncompressedLength = buffers.isEmpty() ? length : getUncompressedLength(buffers.get(0), length);
+            stream.write(buffers);
+            sentCompressed.inc(length);
+            sentUncompressed.inc(uncompressedLength);
+        }
+
+        @Override
+        public ByteBuf read(int numBytes) throws IOException {
+            return count(stream.read(numBytes));
+        }
+
+        @Override
+        public boolean supportsAdditionalTimeout() {
+            return stream.supportsAdditionalTimeout();
+        }
+
+        @Override
+        public ByteBuf read(int numBytes, int additionalTimeout) throws IOException {
+            return count(stream.read(numBytes, additionalTimeout));
+        }
+
+        @Override
+        public void writeAsync(List<ByteBuf> buffers, AsyncCompletionHandler<Void> handler) {
+            stream.writeAsync(buffers, handler);
+        }
+
+        @Override
+        public void readAsync(int numBytes, AsyncCompletionHandler<ByteBuf> handler) {
+            stream.readAsync(numBytes, handler);
+        }
+
+        @Override
+        public ServerAddress getAddress() {
+            return stream.getAddress();
+        }
+
+        @Override
+        public void close() {
+            stream.close();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return stream.isClosed();
+        }
+    }
+}
@@ -96,11 +96,41 @@ public abstract class Constants {
      */
     public static final String OPERATION_TYPE_FIND_QUERY = "find_query";
 
+    /**
+     * The operation type for find query with projection type.
+     */
+    public static final String OPERATION_TYPE_FIND_PROJECTION = "find_projection";
+
+    /**
+     * The operation type for find query returning raw BSON.
+     */
+    public static final String OPERATION_TYPE_FIND_RAW = "find_raw";
+
+    /**
+     * The operation type for streaming find query returning raw BSON.
+     */
+    public static final String OPERATION_TYPE_STREAM_FIND_RAW = "stream_find_raw";
+
     /**
      * The operation type for save.
      */
     public static final String OPERATION_TYPE_SAVE = "save";
 
+    /**
+     * The operation type for saving raw BSON documents.
+     */
+    public static final String OPERATION_TYPE_SAVE_RAW = "save_raw";
+
+    /**
+     * The operation type for the bulk writes of a transaction.
+     */
+    public static final String OPERATION_TYPE_TRANSACTION_WRITE = "transaction_write";
+
+    /**
+     * The operation type for the reads of a transaction.
+     */
+    public static final String OPERATION_TYPE_TRANSACTION_FIND = "transaction_find";
+
     /**
      * The operation type for upsert.
      */
@@ -121,6 +151,11 @@ public abstract class Constants {
      */
     public static final String OPERATION_TYPE_COUNT_ALL = "count_all";
 
+    /**
+     * The operation type for estimated count.
+     */
+    public static final String OPERATION_TYPE_ESTIMATED_COUNT = "estimated_count";
+
     /**
      * The operation type for count query.
      */
@@ -166,6 +201,26 @@ public abstract class Constants {
      */
     public static final String OPERATION_TYPE_FIND_DISTINCT = "find_distinct";
 
+    /**
+     * The operation type for streaming distinct.
+     */
+    public static final String OPERATION_TYPE_STREAM_DISTINCT = "stream_distinct";
+
+    /**
+     * The operation type for aggregate.
+     */
+    public static final String OPERATION_TYPE_AGGREGATE = "aggregate";
+
+    /**
+     * The operation type for geoNear.
+     */
+    public static final String OPERATION_TYPE_GEO_NEAR = "geo_near";
+
+    /**
+     * The operation type for stream aggregate.
+     */
+    public static final String OPERATION_TYPE_STREAM_AGGREGATE = "stream_aggregate";
+
     /**
      * The constant for the ID filter.
      */
@@ -176,6 +231,246 @@ public abstract class Constants {
      */
     public static final String DISCRIMINATOR_KEY = "className";
 
+    /**
+     * The name of the retry attempts counter.
+     */
+    public static final String RETRY_COUNTER_NAME = "dao_retry_attempts";
+
+    /**
+     * The help string for the retry attempts counter.
+     */
+    public static final String RETRY_COUNTER_HELP_STR = "Retry attempts per operation and outcome";
+
+    /**
+     * The label for the retry outcome.
+     */
+    public static final String RETRY_OUTCOME_LABEL = "outcome";
+
+    /**
+     * Retry outcome when an attempt failed and is retried.
+     */
+    public static final String RETRY_OUTCOME_RETRIED = "retried";
+
+    /**
+     * Retry outcome when the operation succeeded after at least one retry.
+     */
+    public static final String RETRY_OUTCOME_RECOVERED = "recovered";
+
+    /**
+     * Retry outcome when all attempts failed.
+     */
+    public static final String RETRY_OUTCOME_EXHAUSTED = "exhausted";
+
+    /**
+     * Retry outcome when a retry was refused because the retry budget is used up.
+     */
+    public static final String RETRY_OUTCOME_BUDGET_EXHAUSTED = "budget_exhausted";
+
+    /**
+     * Retry outcome when a transient error is not retried because the operation is not idempotent.
+     */
+    public static final String RETRY_OUTCOME_NOT_IDEMPOTENT = "not_idempotent";
+
+    /**
+     * The name of the request units histogram.
+     */
+    public static final String RU_HISTO_NAME = "dao_cosmosdb_request_units";
+
+    /**
+     * The help string for the request units histogram.
+     */
+    public static final String RU_HISTO_HELP_STR = "CosmosDB request units charged per operation";
+
+    /**
+     * The name of the throttled requests counter.
+     */
+    public static final String THROTTLED_COUNTER_NAME = "dao_cosmosdb_throttled_requests";
+
+    /**
+     * The help string for the throttled requests counter.
+     */
+    public static final String THROTTLED_COUNTER_HELP_STR = "CosmosDB requests rejected with request rate is large";
+
+    /**
+     * The name of the rate limiter wait counter.
+     */
+    public static final String RU_LIMITER_WAIT_COUNTER_NAME = "dao_cosmosdb_ru_limiter_wait_ms";
+
+    /**
+     * The help string for the rate limiter wait counter.
+     */
+    public static final String RU_LIMITER_WAIT_COUNTER_HELP_STR = "Time operations waited for request units";
+
+    /**
+     * The name of the shard routing counter.
+     */
+    public static final String SHARD_ROUTING_COUNTER_NAME = "dao_shard_routing";
+
+    /**
+     * The help string for the shard routing counter.
+     */
+    public static final String SHARD_ROUTING_COUNTER_HELP_STR = "Operations on sharded collections by routing";
+
+    /**
+     * The label for the shard routing.
+     */
+    public static final String SHARD_ROUTING_LABEL = "routing";
+
+    /**
+     * Routing of an operation whose filter contains the full shard key.
+     */
+    public static final String SHARD_ROUTING_TARGETED = "targeted";
+
+    /**
+     * Routing of an operation whose filter lacks the shard key and is sent to all shards.
+     */
+    public static final String SHARD_ROUTING_BROADCAST = "broadcast";
+
+    /**
+     * The name of the hedged read counter.
+     */
+    public static final String HEDGE_COUNTER_NAME = "dao_hedged_reads";
+
+    /**
+     * The help string for the hedged read counter.
+     */
+    public static final String HEDGE_COUNTER_HELP_STR = "Hedged reads per operation and outcome";
+
+    /**
+     * The label for the outcome of a hedged read.
+     */
+    public static final String HEDGE_OUTCOME_LABEL = "outcome";
+
+    /**
+     * Read sent a second time after the hedge delay.
+     */
+    public static final String HEDGE_OUTCOME_HEDGED = "hedged";
+
+    /**
+     * Hedged read answered first by the hedge.
+     */
+    public static final String HEDGE_OUTCOME_HEDGE_WON = "hedge_won";
+
+    /**
+     * Hedged read answered first by the first read.
+     */
+    public static final String HEDGE_OUTCOME_FIRST_WON = "first_won";
+
+    /**
+     * Read not hedged after the hedge delay because the hedge budget is exhausted.
+     */
+    public static final String HEDGE_OUTCOME_BUDGET_EXHAUSTED = "budget_exhausted";
+
+    /**
+     * The name of the timeout counter.
+     */
+    public static final String TIMEOUT_COUNTER_NAME = "dao_operation_timeouts";
+
+    /**
+     * The help string for the timeout counter.
+     */
+    public static final String TIMEOUT_COUNTER_HELP_STR = "Operations aborted by a server, socket or deadline timeout";
+
+    /**
+     * The label for the kind of timeout.
+     */
+    public static final String TIMEOUT_KIND_LABEL = "kind";
+
+    /**
+     * Timeout of an operation aborted by the server once its maximum execution time elapsed.
+     */
+    public static final String TIMEOUT_KIND_SERVER = "server";
+
+    /**
+     * Timeout of an operation whose client deadline passed before it was sent.
+     */
+    public static final String TIMEOUT_KIND_DEADLINE = "deadline";
+
+    /**
+     * Timeout of an operation whose response was not read within the socket timeout.
+     */
+    public static final String TIMEOUT_KIND_SOCKET = "socket";
+
+    /**
+     * The name of the wire bytes counter.
+     */
+    public static final String WIRE_BYTES_COUNTER_NAME = "dao_wire_bytes";
+
+    /**
+     * The help string for the wire bytes counter.
+     */
+    public static final String WIRE_BYTES_COUNTER_HELP_STR = "Bytes of the mongo messages before and after compression";
+
+    /**
+     * The label for the direction of the bytes.
+     */
+    public static final String WIRE_DIRECTION_LABEL = "direction";
+
+    /**
+     * Bytes of the messages sent to the server.
+     */
+    public static final String WIRE_DIRECTION_SENT = "sent";
+
+    /**
+     * Bytes of the messages received from the server.
+     */
+    public static final String WIRE_DIRECTION_RECEIVED = "received";
+
+    /**
+     * The label for the stage at which the bytes are counted.
+     */
+    public static final String WIRE_STAGE_LABEL = "stage";
+
+    /**
+     * Bytes of the messages as sent on the socket, after compression.
+     */
+    public static final String WIRE_STAGE_COMPRESSED = "compressed";
+
+    /**
+     * Bytes of the messages before compression.
+     */
+    public static final String WIRE_STAGE_UNCOMPRESSED = "uncompressed";
+
+    /**
+     * The name of the transaction commit latency histogram.
+     */
+    public static final String TRANSACTION_COMMIT_HISTO_NAME = "dao_transaction_commit_duration_ms";
+
+    /**
+     * The help string for the transaction commit latency histogram.
+     */
+    public static final String TRANSACTION_COMMIT_HISTO_HELP_STR = "Latency of the commits of mongo transactions";
+
+    /**
+     * The name of the transactions counter.
+     */
+    public static final String TRANSACTION_COUNTER_NAME = "dao_transactions";
+
+    /**
+     * The help string for the transactions counter.
+     */
+    public static final String TRANSACTION_COUNTER_HELP_STR = "Mongo transactions by outcome";
+
+    /**
+     * The label for the outcome of a transaction.
+     */
+    public static final String TRANSACTION_OUTCOME_LABEL = "outcome";
+
+    /**
+     * Transaction committed.
+     */
+    public static final String TRANSACTION_OUTCOME_COMMITTED = "committed";
+
+    /**
+     * Transaction aborted, after its work or commit failed with an error that is not transient.
+     */
+    public static final String TRANSACTION_OUTCOME_ABORTED = "aborted";
+
+    /**
+     * Transaction aborted by a transient error and run again.
+     */
+    public static final String TRANSACTION_OUTCOME_RETRIED = "retried";
+
     /**
      * Private constructor.
      */
@@ -211,6 +211,295 @@ public abstract class PropertyNames {
      */
     public static final String COSMOSDB_NAME = "cosmosdb.name";
 
+    /**
+     * Morphia entity index location property name.
+     */
+    public static final String MORPHIA_ENTITY_INDEX_LOCATION = "morphia.entity.index.location";
+
+    /**
+     * Morphia entity index generation path property name.
+     */
+    public static final String MORPHIA_ENTITY_INDEX_GENERATE_PATH = "morphia.entity.index.generate.path";
+
+    /**
+     * Interval between two runs of the retired mongo client cleanup, in milliseconds.
+     */
+    public static final String MONGODB_CLIENT_CLEANUP_INTERVAL_MS = "mongodb.client.cleanup.interval.ms";
+
+    /**
+     * Time given to a retired mongo client to drain before it is force closed, in milliseconds.
+     */
+    public static final String MONGODB_CLIENT_CLOSE_WAIT_INTERVAL_MS = "mongodb.client.close.wait.interval.ms";
+
+    /**
+     * Whether a re-created mongo client is warmed up before traffic is switched to it.
+     */
+    public static final String MONGODB_CLIENT_PREWARM_ENABLED = "mongodb.client.prewarm.enabled";
+
+    /**
+     * Whether the mongo client created at startup is warmed up before the datastore is created.
+     */
+    public static final String MONGODB_CLIENT_STARTUP_PREWARM_ENABLED = "mongodb.client.startup.prewarm.enabled";
+
+    /**
+     * JSON array of representative commands run by the mongo client warm-up, to warm the plan cache.
+     */
+    public static final String MONGODB_CLIENT_PREWARM_COMMANDS = "mongodb.client.prewarm.commands";
+
+    /**
+     * Maximum time the mongo client warm-up waits for the connection pools to be filled, in milliseconds.
+     */
+    public static final String MONGODB_CLIENT_PREWARM_TIMEOUT_MS = "mongodb.client.prewarm.timeout.ms";
+
+    /**
+     * Whether a separate analytical mongo client runs the scans, aggregations and analytical queries.
+     */
+    public static final String MONGODB_ANALYTICS_ENABLED = "mongodb.analytics.enabled";
+
+    /**
+     * Maximum connection pool size of the analytical mongo client.
+     */
+    public static final String MONGODB_ANALYTICS_POOL_MAX_SIZE = "mongodb.analytics.pool.max.size";
+
+    /**
+     * Minimum connection pool size of the analytical mongo client.
+     */
+    public static final String MONGODB_ANALYTICS_POOL_MIN_SIZE = "mongodb.analytics.pool.min.size";
+
+    /**
+     * Maximum wait time for a connection of the analytical mongo client, in milliseconds.
+     */
+    public static final String MONGODB_ANALYTICS_MAX_WAIT_TIME_MS = "mongodb.analytics.max.wait.time.ms";
+
+    /**
+     * Socket timeout of the analytical mongo client, in milliseconds.
+     */
+    public static final String MONGODB_ANALYTICS_SOCKET_TIMEOUT_MS = "mongodb.analytics.socket.timeout.ms";
+
+    /**
+     * Read preference of the analytical mongo client.
+     */
+    public static final String MONGODB_ANALYTICS_READ_PREFERENCE = "mongodb.analytics.read.preference";
+
+    /**
+     * Comma separated name:value tags of the servers read by the analytical mongo client.
+     */
+    public static final String MONGODB_ANALYTICS_READ_PREFERENCE_TAGS = "mongodb.analytics.read.preference.tags";
+
+    /**
+     * Whether transient errors of DAO operations are retried.
+     */
+    public static final String MONGODB_RETRY_ENABLED = "mongodb.retry.enabled";
+
+    /**
+     * Maximum number of attempts of a DAO operation, including the first one.
+     */
+    public static final String MONGODB_RETRY_MAX_ATTEMPTS = "mongodb.retry.max.attempts";
+
+    /**
+     * Backoff before the first retry, in milliseconds.
+     */
+    public static final String MONGODB_RETRY_INITIAL_BACKOFF_MS = "mongodb.retry.initial.backoff.ms";
+
+    /**
+     * Upper bound of the backoff between two attempts, in milliseconds.
+     */
+    public static final String MONGODB_RETRY_MAX_BACKOFF_MS = "mongodb.retry.max.backoff.ms";
+
+    /**
+     * Factor by which the backoff grows after each attempt.
+     */
+    public static final String MONGODB_RETRY_BACKOFF_MULTIPLIER = "mongodb.retry.backoff.multiplier";
+
+    /**
+     * Whether a random jitter is applied to the backoff.
+     */
+    public static final String MONGODB_RETRY_JITTER_ENABLED = "mongodb.retry.jitter.enabled";
+
+    /**
+     * Size of the retry budget shared by all DAOs, in tokens.
+     */
+    public static final String MONGODB_RETRY_BUDGET_MAX_TOKENS = "mongodb.retry.budget.max.tokens";
+
+    /**
+     * Tokens given back to the retry budget by each successful operation.
+     */
+    public static final String MONGODB_RETRY_BUDGET_TOKEN_RATIO = "mongodb.retry.budget.token.ratio";
+
+    /**
+     * Whether request unit consumption of CosmosDB operations is tracked.
+     */
+    public static final String COSMOSDB_RU_TRACKING_ENABLED = "cosmosdb.ru.tracking.enabled";
+
+    /**
+     * Fraction of operations, between 0 and 1, whose request charge is read with getLastRequestStatistics,
+     * 0.01 by default. The charge read is approximate, as it may be that of another request of the pool.
+     */
+    public static final String COSMOSDB_RU_STATISTICS_SAMPLE_RATE = "cosmosdb.ru.statistics.sample.rate";
+
+    /**
+     * Request units per second provisioned for the database, 0 disables the client side rate limiter.
+     */
+    public static final String COSMOSDB_PROVISIONED_RU_PER_SECOND = "cosmosdb.provisioned.ru.per.second";
+
+    /**
+     * Seconds of provisioned throughput the rate limiter may spend in a single burst.
+     */
+    public static final String COSMOSDB_RU_LIMITER_BURST_SECONDS = "cosmosdb.ru.limiter.burst.seconds";
+
+    /**
+     * Maximum time an operation waits for request units before it is sent anyway, in milliseconds.
+     */
+    public static final String COSMOSDB_RU_LIMITER_MAX_WAIT_MS = "cosmosdb.ru.limiter.max.wait.ms";
+
+    /**
+     * Request charge assumed for an operation whose charge has not been sampled yet.
+     */
+    public static final String COSMOSDB_RU_DEFAULT_CHARGE = "cosmosdb.ru.default.charge";
+
+    /**
+     * Default maximum server execution time of find operations, in milliseconds, 0 for none.
+     */
+    public static final String MONGODB_FIND_MAX_TIME_MS = "mongodb.find.max.time.ms";
+
+    /**
+     * Default maximum server execution time of count operations, in milliseconds, 0 for none.
+     */
+    public static final String MONGODB_COUNT_MAX_TIME_MS = "mongodb.count.max.time.ms";
+
+    /**
+     * Default maximum server execution time of distinct operations, in milliseconds, 0 for none.
+     */
+    public static final String MONGODB_DISTINCT_MAX_TIME_MS = "mongodb.distinct.max.time.ms";
+
+    /**
+     * Default maximum server execution time of aggregations, in milliseconds, 0 for none.
+     */
+    public static final String MONGODB_AGGREGATE_MAX_TIME_MS = "mongodb.aggregate.max.time.ms";
+
+    /**
+     * Whether small reads on secondaries are hedged.
+     */
+    public static final String MONGODB_HEDGED_READS_ENABLED = "mongodb.hedged.reads.enabled";
+
+    /**
+     * Latency percentile, between 0 and 1, after which a read is hedged.
+     */
+    public static final String MONGODB_HEDGED_READS_DELAY_PERCENTILE = "mongodb.hedged.reads.delay.percentile";
+
+    /**
+     * Hedge delay used until enough latencies are observed, in milliseconds.
+     */
+    public static final String MONGODB_HEDGED_READS_INITIAL_DELAY_MS = "mongodb.hedged.reads.initial.delay.ms";
+
+    /**
+     * Lower bound of the hedge delay, in milliseconds.
+     */
+    public static final String MONGODB_HEDGED_READS_MIN_DELAY_MS = "mongodb.hedged.reads.min.delay.ms";
+
+    /**
+     * Maximum percentage of reads which are hedged.
+     */
+    public static final String MONGODB_HEDGED_READS_BUDGET_PERCENT = "mongodb.hedged.reads.budget.percent";
+
+    /**
+     * Maximum number of threads running hedged reads.
+     */
+    public static final String MONGODB_HEDGED_READS_MAX_THREADS = "mongodb.hedged.reads.max.threads";
+
+    /**
+     * Maximum page size of a find to be hedged.
+     */
+    public static final String MONGODB_HEDGED_READS_MAX_PAGE_SIZE = "mongodb.hedged.reads.max.page.size";
+
+    /**
+     * Maximum execution time, in milliseconds, of a hedged read whose query sets none, so that the losing
+     * read does not keep running on the server.
+     */
+    public static final String MONGODB_HEDGED_READS_MAX_TIME_MS = "mongodb.hedged.reads.max.time.ms";
+
+    /**
+     * Comma separated collections whose countAll uses the estimated count from the collection metadata.
+     */
+    public static final String MONGODB_COUNT_ALL_ESTIMATED_COLLECTIONS = "mongodb.count.all.estimated.collections";
+
+    /**
+     * Time an exact countAll result is cached, in milliseconds, 0 disables the cache.
+     */
+    public static final String MONGODB_COUNT_ALL_CACHE_TTL_MS = "mongodb.count.all.cache.ttl.ms";
+
+    /**
+     * Default read concern level by collection, as comma separated collection:level pairs.
+     */
+    public static final String MONGODB_COLLECTION_READ_CONCERNS = "mongodb.collection.read.concerns";
+
+    /**
+     * Default write concern by collection, as comma separated collection:name pairs, such as orders:MAJORITY.
+     */
+    public static final String MONGODB_COLLECTION_WRITE_CONCERNS = "mongodb.collection.write.concerns";
+
+    /**
+     * Comma separated compressors of the mongo wire protocol, in order of preference: zstd, snappy or zlib.
+     */
+    public static final String MONGODB_COMPRESSORS = "mongodb.compressors";
+
+    /**
+     * Compression level of the zlib compressor, from 0 to 9, -1 for the zlib default.
+     */
+    public static final String MONGODB_COMPRESSORS_ZLIB_LEVEL = "mongodb.compressors.zlib.level";
+
+    /**
+     * Whether the bytes of the mongo messages before and after compression are counted.
+     */
+    public static final String MONGODB_WIRE_BYTES_METRICS_ENABLED = "mongodb.wire.bytes.metrics.enabled";
+
+    /**
+     * Maximum number of threads querying the partitions of time-partitioned collections in parallel.
+     */
+    public static final String MONGODB_PARTITION_QUERY_MAX_THREADS = "mongodb.partition.query.max.threads";
+
+    /**
+     * Maximum execution time, in milliseconds, of a partition read whose operation sets none, so that the reads
+     * still running when another partition read failed do not keep running on the server.
+     */
+    public static final String MONGODB_PARTITION_QUERY_MAX_TIME_MS = "mongodb.partition.query.max.time.ms";
+
+    /**
+     * Time the collection names listed to find the partitions of time-partitioned collections are cached, in
+     * milliseconds, 0 disables the cache.
+     */
+    public static final String MONGODB_PARTITIONS_CACHE_TTL_MS = "mongodb.partitions.cache.ttl.ms";
+
+    /**
+     * Maximum number of collection views kept by a DAO, beyond which the least recently used is evicted.
+     */
+    public static final String MONGODB_COLLECTION_VIEWS_CACHE_SIZE = "mongodb.collection.views.cache.size";
+
+    /**
+     * Read concern level of the mongo transactions, snapshot by default.
+     */
+    public static final String MONGODB_TRANSACTION_READ_CONCERN = "mongodb.transaction.read.concern";
+
+    /**
+     * Write concern of the mongo transactions, such as MAJORITY, the default.
+     */
+    public static final String MONGODB_TRANSACTION_WRITE_CONCERN = "mongodb.transaction.write.concern";
+
+    /**
+     * Maximum time a commit of a mongo transaction may run on the server, in milliseconds, 0 for no limit.
+     */
+    public static final String MONGODB_TRANSACTION_MAX_COMMIT_TIME_MS = "mongodb.transaction.max.commit.time.ms";
+
+    /**
+     * Time during which a mongo transaction failing with a transient error is run again, in milliseconds.
+     */
+    public static final String MONGODB_TRANSACTION_RETRY_TIMEOUT_MS = "mongodb.transaction.retry.timeout.ms";
+
+    /**
+     * Number of writes a unit of work buffers before running them as bulk writes.
+     */
+    public static final String MONGODB_TRANSACTION_MAX_PENDING_WRITES = "mongodb.transaction.max.pending.writes";
+
     /**
      * Private constructor to prevent instantiation.
      */
@@ -0,0 +1,92 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.ecall;
+
+import dev.morphia.annotations.Entity;
+import dev.morphia.annotations.Id;
+import org.bson.types.ObjectId;
+import org.eclipse.ecsp.entities.AbstractIgniteEvent;
+import org.eclipse.ecsp.entities.IgniteEvent;
+import org.eclipse.ecsp.nosqldao.TimeSeries;
+
+import java.util.Date;
+import java.util.List;
+
+/** TelemetryEvent class, a measurement stored in a time-series collection. */
+@Entity()
+@TimeSeries(timeField = "recordedAt", metaField = "vehicleId", expireAfterSeconds = 86400L)
+public class TelemetryEvent extends AbstractIgniteEvent {
+
+    private static final long serialVersionUID = 4402731589160337395L;
+    @Id
+    private ObjectId id;
+    private Date recordedAt;
+    private double speed;
+
+    public ObjectId getId() {
+        return id;
+    }
+
+    public void setId(ObjectId id) {
+        this.id = id;
+    }
+
+    @Override
+    public List<IgniteEvent> getNestedEvents() {
+        return null;
+    }
+
+    public Date getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(Date recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+}
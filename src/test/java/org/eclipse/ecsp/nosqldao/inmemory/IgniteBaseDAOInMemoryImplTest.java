@@ -0,0 +1,383 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.inmemory;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.eclipse.ecsp.nosqldao.Coordinate;
+import org.eclipse.ecsp.nosqldao.GeoNearResult;
+import org.eclipse.ecsp.nosqldao.GeoShape;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation.Accumulator;
+import org.eclipse.ecsp.nosqldao.IgniteBaseDAO;
+import org.eclipse.ecsp.nosqldao.IgniteCriteria;
+import org.eclipse.ecsp.nosqldao.IgniteCriteriaGroup;
+import org.eclipse.ecsp.nosqldao.IgniteOrderBy;
+import org.eclipse.ecsp.nosqldao.IgniteQuery;
+import org.eclipse.ecsp.nosqldao.Operator;
+import org.eclipse.ecsp.nosqldao.Updates;
+import org.eclipse.ecsp.nosqldao.ecall.ECallEvent;
+import org.eclipse.ecsp.nosqldao.ecall.ECallEvent.AuthUsers;
+import org.eclipse.ecsp.nosqldao.ecall.GeoSpatialMockEvent;
+import org.eclipse.ecsp.nosqldao.ecall.Location;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for IgniteBaseDAOInMemoryImpl.
+ */
+public class IgniteBaseDAOInMemoryImplTest {
+
+    private static final String VEHICLE_ID = "vehicleId";
+
+    private static final String HITS = "hits";
+
+    private IgniteBaseDAOInMemoryImpl<String, ECallEvent> dao;
+
+    /**
+     * Saves three events with one, two and three hits.
+     */
+    @Before
+    public void setup() {
+        dao = new IgniteBaseDAOInMemoryImpl<>(ECallEvent.class);
+        dao.saveAll(event("ecall1", "vehicle1", 1L, "a", "b"), event("ecall2", "Vehicle2", 2L, "b", "c"),
+                event("ecall3", "vehicle3", 3L, "c"));
+    }
+
+    private static ECallEvent event(String id, String vehicleId, long hits, String... attributes) {
+        ECallEvent event = new ECallEvent();
+        event.setEcallId(id);
+        event.setVehicleId(vehicleId);
+        event.setHits(hits);
+        event.setListAttr1(new ArrayList<>(Arrays.asList(attributes)));
+        return event;
+    }
+
+    private static IgniteQuery query(String field, Operator op, Object val) {
+        return new IgniteQuery(new IgniteCriteriaGroup(new IgniteCriteria(field, op, val)));
+    }
+
+    private static List<String> ids(List<ECallEvent> events) {
+        return events.stream().map(ECallEvent::getEcallId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testSaveKeepsCopies() {
+        ECallEvent event = dao.findById("ecall1");
+        assertNotNull(event.getLastUpdatedTime());
+        event.getListAttr1().add("z");
+        event.setHits(100L);
+        ECallEvent stored = dao.findById("ecall1");
+        assertEquals(1L, stored.getHits());
+        assertEquals(Arrays.asList("a", "b"), stored.getListAttr1());
+        assertEquals(3, dao.countAll());
+        assertTrue(dao.collectionExists("ecallEvents"));
+    }
+
+    @Test
+    public void testFindWithComparisonOperators() {
+        assertEquals(Arrays.asList("ecall2", "ecall3"), ids(dao.find(query(HITS, Operator.GT, 1))));
+        assertEquals(Arrays.asList("ecall1", "ecall2"), ids(dao.find(query(HITS, Operator.LTE, 2.0))));
+        assertEquals(Arrays.asList("ecall1", "ecall3"), ids(dao.find(query(HITS, Operator.NEQ, 2))));
+        assertEquals(Arrays.asList("ecall1", "ecall3"), ids(dao.find(query(HITS, Operator.IN,
+                Arrays.asList(1, 3)))));
+        assertEquals(Arrays.asList("ecall2"), ids(dao.find(query(HITS, Operator.NOT_IN, Arrays.asList(1L, 3L)))));
+        assertTrue(dao.find(query(VEHICLE_ID, Operator.GT, 1)).isEmpty());
+    }
+
+    @Test
+    public void testFindWithStringOperators() {
+        assertEquals(Arrays.asList("ecall2"), ids(dao.find(query(VEHICLE_ID, Operator.EQI, "vehicle2"))));
+        assertEquals(Arrays.asList("ecall1", "ecall3"), ids(dao.find(query(VEHICLE_ID, Operator.CONTAINS,
+                "vehicle"))));
+        assertEquals(3, dao.countByQuery(query(VEHICLE_ID, Operator.CONTAINS_IGNORE_CASE, "VEHICLE")));
+        assertEquals(Arrays.asList("ecall1", "ecall2"), ids(dao.find(query("listAttr1", Operator.EQ, "b"))));
+    }
+
+    @Test
+    public void testFindWithMixedLogicalOperators() {
+        IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(new IgniteCriteria(HITS, Operator.EQ, 1)))
+                .or(new IgniteCriteriaGroup(new IgniteCriteria(HITS, Operator.EQ, 2)))
+                .and(new IgniteCriteriaGroup(new IgniteCriteria(VEHICLE_ID, Operator.EQ, "vehicle3")));
+        assertEquals(Arrays.asList("ecall1"), ids(dao.find(query)));
+        IgniteQuery groupQuery = new IgniteQuery(new IgniteCriteriaGroup(new IgniteCriteria(HITS, Operator.EQ, 3))
+                .or(new IgniteCriteria(VEHICLE_ID, Operator.EQ, "vehicle1")));
+        assertEquals(Arrays.asList("ecall1", "ecall3"), ids(dao.find(groupQuery)));
+    }
+
+    @Test
+    public void testFindWithElementMatch() {
+        ECallEvent event = dao.findById("ecall2");
+        AuthUsers admin = new AuthUsers();
+        admin.setUserId("user1");
+        admin.setRole("admin");
+        AuthUsers guest = new AuthUsers();
+        guest.setUserId("user2");
+        guest.setRole("guest");
+        event.setAuthorizedUsers(Arrays.asList(admin, guest));
+        dao.save(event);
+        IgniteQuery match = new IgniteQuery(new IgniteCriteriaGroup(new IgniteCriteria("userId", Operator.EQ,
+                "user2")).and(new IgniteCriteria("role", Operator.EQ, "guest")));
+        IgniteQuery mismatch = new IgniteQuery(new IgniteCriteriaGroup(new IgniteCriteria("userId", Operator.EQ,
+                "user2")).and(new IgniteCriteria("role", Operator.EQ, "admin")));
+        assertEquals(Arrays.asList("ecall2"), ids(dao.find(query("authorizedUsers", Operator.ELEMENT_MATCH,
+                match))));
+        assertTrue(dao.find(query("authorizedUsers", Operator.ELEMENT_MATCH, mismatch)).isEmpty());
+        assertEquals(Arrays.asList("ecall2"), ids(dao.find(query("authorizedUsers.role", Operator.EQ, "admin"))));
+    }
+
+    @Test
+    public void testSortAndPaging() {
+        IgniteQuery query = query(HITS, Operator.GTE, 1);
+        query.orderBy(new IgniteOrderBy().byfield(HITS).desc());
+        query.setPageNumber(2);
+        query.setPageSize(2);
+        assertEquals(Arrays.asList("ecall1"), ids(dao.find(query)));
+        assertEquals(3, dao.findWithPagingInfo(query).getTotal());
+        IgniteQuery invalid = query(HITS, Operator.GTE, 1);
+        invalid.setPageSize(2);
+        assertThrows(IllegalArgumentException.class, () -> dao.find(invalid));
+    }
+
+    @Test
+    public void testUpdates() {
+        Updates updates = new Updates().addIncr(HITS, 5L).addListAppend("listAttr1", "d")
+                .addSetAppend("listAttr1", "a").addFieldSet("entity.name", "name1");
+        assertTrue(dao.update("ecall1", updates));
+        ECallEvent event = dao.findById("ecall1");
+        assertEquals(6L, event.getHits());
+        assertEquals(Arrays.asList("a", "b", "d"), event.getListAttr1());
+        assertEquals("name1", event.getEntity().getName());
+        assertEquals(Arrays.asList("ecall1"), ids(dao.find(query(HITS, Operator.GT, 5))));
+
+        assertTrue(dao.update(query("listAttr1", Operator.EQ, "c"), new Updates().addRemoveOp("listAttr1",
+                Arrays.asList("c")).addDecr(HITS)));
+        assertEquals(Arrays.asList(1L, 2L), dao.find(query("ecallId", Operator.IN, Arrays.asList("ecall2",
+                "ecall3"))).stream().map(ECallEvent::getHits).collect(Collectors.toList()));
+        assertTrue(dao.find(query("listAttr1", Operator.EQ, "c")).isEmpty());
+        assertFalse(dao.update("missing", new Updates().addIncr(HITS)));
+    }
+
+    @Test
+    public void testProjectionAndDistinct() {
+        IgniteQuery query = query(HITS, Operator.EQ, 1);
+        query.setFieldNames(new String[] {HITS});
+        ECallEvent event = dao.find(query).get(0);
+        assertEquals("ecall1", event.getEcallId());
+        assertEquals(1L, event.getHits());
+        assertNull(event.getVehicleId());
+        assertEquals(Arrays.asList("a", "b", "c"), dao.distinct(query(HITS, Operator.GTE, 1), "listAttr1",
+                String.class));
+    }
+
+    @Test
+    public void testDeletes() {
+        assertEquals(2, dao.deleteByQuery(query(HITS, Operator.LT, 3)));
+        assertEquals(Arrays.asList("ecall3"), ids(dao.findAll()));
+        assertFalse(dao.deleteById("ecall1"));
+        assertTrue(dao.deleteAll());
+        assertEquals(0, dao.countAll());
+    }
+
+    @Test
+    public void testGetAndUpdateMergesSetFields() {
+        ECallEvent changes = new ECallEvent();
+        changes.setEcallId("ecall2");
+        changes.setDunks(7L);
+        Map<String, Map<String, String>> params = new HashMap<>();
+        params.put("k1", new HashMap<>());
+        changes.setCustomParams(params);
+        changes.setListAttr1(null);
+        assertTrue(dao.getAndUpdate(changes));
+        ECallEvent event = dao.findById("ecall2");
+        assertEquals(7L, event.getDunks());
+        assertEquals(2L, event.getHits());
+        assertEquals("Vehicle2", event.getVehicleId());
+        assertEquals(Arrays.asList("b", "c"), event.getListAttr1());
+    }
+
+    @Test
+    public void testCollectionViewsShareTheStore() {
+        IgniteBaseDAO<String, ECallEvent> view = dao.withCollection("ecallEvents_archive");
+        view.save(event("ecall4", "vehicle4", 4L));
+        assertEquals(1, view.countAll());
+        assertEquals(3, dao.countAll());
+        assertTrue(dao.collectionExists("ecallEvents_archive"));
+        assertEquals("ecall4", dao.withCollection("ecallEvents_archive").findById("ecall4").getEcallId());
+    }
+
+    @Test
+    public void testNearFiltersAndSortsByDistance() {
+        IgniteBaseDAOInMemoryImpl<String, GeoSpatialMockEvent> geoDao =
+                new IgniteBaseDAOInMemoryImpl<>(GeoSpatialMockEvent.class);
+        geoDao.saveAll(dealer("far", 77.80, 12.90), dealer("near", 77.60, 12.97), dealer("away", 0.0, 0.0));
+        List<GeoSpatialMockEvent> found = geoDao.find(query("location", Operator.NEAR,
+                new Coordinate(12.97, 77.59, 50000)));
+        assertEquals(Arrays.asList("near", "far"), found.stream().map(GeoSpatialMockEvent::getDealername)
+                .collect(Collectors.toList()));
+        assertNotNull(found.get(0).getId());
+    }
+
+    @Test
+    public void testGeoWithinAndIntersectsMatchPoints() {
+        IgniteBaseDAOInMemoryImpl<String, GeoSpatialMockEvent> geoDao =
+                new IgniteBaseDAOInMemoryImpl<>(GeoSpatialMockEvent.class);
+        geoDao.saveAll(dealer("inside", 77.60, 12.97), dealer("edge", 77.70, 13.00), dealer("out", 78.50, 13.50));
+        GeoShape box = GeoShape.box(new Coordinate(12.90, 77.50, 0), new Coordinate(13.00, 77.70, 0));
+        assertEquals(Arrays.asList("edge", "inside"), dealerNames(geoDao.find(query("location",
+                Operator.GEO_WITHIN, box))));
+        GeoShape triangle = GeoShape.polygon(new Coordinate(12.90, 77.50, 0), new Coordinate(12.90, 77.80, 0),
+                new Coordinate(13.10, 77.65, 0));
+        assertEquals(Arrays.asList("edge", "inside"), dealerNames(geoDao.find(query("location",
+                Operator.GEO_WITHIN, triangle))));
+        GeoShape sphere = GeoShape.centerSphere(new Coordinate(12.97, 77.60, 5000));
+        assertEquals(Arrays.asList("inside"), dealerNames(geoDao.find(query("location", Operator.GEO_WITHIN,
+                sphere))));
+        GeoShape line = GeoShape.lineString(new Coordinate(12.90, 77.50, 0), new Coordinate(13.10, 77.90, 0));
+        assertEquals(Arrays.asList("edge"), dealerNames(geoDao.find(query("location", Operator.GEO_INTERSECTS,
+                line))));
+        assertEquals(Arrays.asList("edge"), dealerNames(geoDao.find(query("location", Operator.GEO_INTERSECTS,
+                GeoShape.point(new Coordinate(13.00, 77.70, 0))))));
+        assertThrows(IllegalArgumentException.class, () -> geoDao.find(query("location",
+                Operator.GEO_INTERSECTS, box)));
+    }
+
+    @Test
+    public void testGeoNearReturnsDistancesNearestFirst() {
+        IgniteBaseDAOInMemoryImpl<String, GeoSpatialMockEvent> geoDao =
+                new IgniteBaseDAOInMemoryImpl<>(GeoSpatialMockEvent.class);
+        geoDao.saveAll(dealer("far", 77.80, 12.90), dealer("near", 77.60, 12.97), dealer("away", 0.0, 0.0));
+        Coordinate incident = new Coordinate(12.97, 77.59, 50000);
+        List<GeoNearResult<GeoSpatialMockEvent>> results = geoDao.geoNear("location", incident, new IgniteQuery());
+        assertEquals(2, results.size());
+        assertEquals("near", results.get(0).getEntity().getDealername());
+        assertEquals(1085.0, results.get(0).getDistance(), 5.0);
+        assertEquals("far", results.get(1).getEntity().getDealername());
+        assertTrue(results.get(1).getDistance() > results.get(0).getDistance());
+        IgniteQuery secondPage = query("dealername", Operator.NEQ, "away");
+        secondPage.setPageNumber(2);
+        secondPage.setPageSize(1);
+        results = geoDao.geoNear("location", incident, secondPage);
+        assertEquals(1, results.size());
+        assertEquals("far", results.get(0).getEntity().getDealername());
+    }
+
+    private static List<String> dealerNames(List<GeoSpatialMockEvent> events) {
+        return events.stream().map(GeoSpatialMockEvent::getDealername).sorted().collect(Collectors.toList());
+    }
+
+    private static GeoSpatialMockEvent dealer(String name, double longitude, double latitude) {
+        Location location = new Location();
+        location.setType("Point");
+        location.setCoordinates(new Double[] {longitude, latitude});
+        GeoSpatialMockEvent event = new GeoSpatialMockEvent();
+        event.setDealername(name);
+        event.setLocation(location);
+        return event;
+    }
+
+    @Test
+    public void testFindRawReturnsStoredDocuments() {
+        List<RawBsonDocument> documents = dao.findRaw(query(HITS, Operator.GTE, 2));
+        assertEquals(Arrays.asList("ecall2", "ecall3"), documents.stream()
+                .map(document -> document.getString("_id").getValue()).collect(Collectors.toList()));
+        assertEquals(ECallEvent.class.getName(), documents.get(0).getString("className").getValue());
+        assertEquals(2L, documents.get(0).getInt64(HITS).longValue());
+        IgniteQuery projected = query(HITS, Operator.EQ, 1);
+        projected.setFieldNames(new String[] {VEHICLE_ID, "counter"});
+        RawBsonDocument document = dao.findRaw(projected).get(0);
+        assertEquals(new HashSet<>(Arrays.asList("_id", VEHICLE_ID, "testCounter")), document.keySet());
+    }
+
+    @Test
+    public void testAggregationPipeline() {
+        dao.save(event("ecall4", "vehicle4", 4L, "d"));
+        IgniteAggregation aggregation = new IgniteAggregation()
+                .match(query(HITS, Operator.GT, 1))
+                .unwind("listAttr1")
+                .group(Collections.singletonList("listAttr1"), Accumulator.count("count"),
+                        Accumulator.sum("total", HITS), Accumulator.push("ids", "_id"))
+                .sort(new IgniteOrderBy().byfield("total").desc())
+                .skip(1)
+                .limit(2);
+        List<Document> results = dao.aggregate(aggregation, Document.class);
+        assertEquals(Arrays.asList("d", "b"), results.stream().map(result -> result.get("_id"))
+                .collect(Collectors.toList()));
+        assertEquals(4L, results.get(0).get("total"));
+        assertEquals(1, results.get(1).get("count"));
+        assertEquals(Arrays.asList("ecall2"), results.get(1).get("ids"));
+        assertEquals(2, dao.streamAggregate(aggregation, Document.class).collectList().block().size());
+    }
+
+    @Test
+    public void testAggregationProjectionLookupAndDecoding() {
+        dao.withCollection("ecallEvents_archive").save(event("ecall9", "vehicle1", 9L));
+        List<Document> joined = dao.aggregate(new IgniteAggregation()
+                .match(query("ecallId", Operator.EQ, "ecall1"))
+                .lookup("ecallEvents_archive", VEHICLE_ID, VEHICLE_ID, "archived")
+                .project(Collections.emptyList(), Collections.singletonList("_id"),
+                        Collections.singletonMap("archivedIds", "archived._id")), Document.class);
+        assertEquals(Collections.singletonList(new Document("archivedIds", Arrays.asList("ecall9"))), joined);
+
+        List<ECallEvent> events = dao.aggregate(new IgniteAggregation().match(query(HITS, Operator.EQ, 2))
+                .project("hits", "listAttr1"), ECallEvent.class);
+        assertEquals(1, events.size());
+        assertEquals("ecall2", events.get(0).getEcallId());
+        assertEquals(2L, events.get(0).getHits());
+        assertEquals(Arrays.asList("b", "c"), events.get(0).getListAttr1());
+        assertNull(events.get(0).getVehicleId());
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.eclipse.ecsp.nosqldao.IgniteBaseDAO;
+import org.eclipse.ecsp.nosqldao.IgniteCriteria;
+import org.eclipse.ecsp.nosqldao.IgniteQuery;
+import org.eclipse.ecsp.nosqldao.Operator;
+import org.eclipse.ecsp.nosqldao.Order;
+import org.eclipse.ecsp.nosqldao.Workload;
+import org.eclipse.ecsp.nosqldao.ecall.ECallEvent;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for CollectionTransfer.
+ */
+public class CollectionTransferTest {
+
+    private static final int DOCUMENTS = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private IgniteBaseDAO<String, ECallEvent> dao;
+    private List<RawBsonDocument> documents;
+    private List<RawBsonDocument> imported;
+
+    /**
+     * Creates the documents and a DAO recording the documents imported.
+     */
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        documents = new ArrayList<>();
+        for (int i = 1; i <= DOCUMENTS; i++) {
+            BsonDocument document = new BsonDocument("_id", new BsonInt32(i))
+                    .append("name", new BsonString("event \"" + i + "\"\n"))
+                    .append("count", new BsonInt64(i))
+                    .append("at", new BsonDateTime(i * 1000L));
+            documents.add(new RawBsonDocument(document, new BsonDocumentCodec()));
+        }
+        imported = Collections.synchronizedList(new ArrayList<>());
+        dao = Mockito.mock(IgniteBaseDAO.class);
+        Mockito.when(dao.saveAllRaw(Mockito.anyList())).thenAnswer(invocation -> {
+            List<RawBsonDocument> batch = invocation.getArgument(0);
+            imported.addAll(batch);
+            return batch.size();
+        });
+    }
+
+    @Test
+    public void testNdjsonGzipRoundTrip() throws IOException {
+        Mockito.when(dao.streamFindRaw(Mockito.any())).thenReturn(Flux.fromIterable(documents));
+        Path file = folder.getRoot().toPath().resolve("events.ndjson.gz");
+        CollectionTransfer transfer = new CollectionTransfer(DumpFormat.NDJSON, DumpCompression.GZIP).batchSize(2);
+
+        TransferProgress exported = transfer.exportTo(dao, null, file);
+        assertEquals(DOCUMENTS, exported.getDocuments());
+        assertTrue(exported.getBytes() > 0);
+        assertFalse(Files.exists(file.resolveSibling("events.ndjson.gz.checkpoint")));
+        ArgumentCaptor<IgniteQuery> query = ArgumentCaptor.forClass(IgniteQuery.class);
+        Mockito.verify(dao).streamFindRaw(query.capture());
+        assertEquals(Workload.ANALYTICAL, query.getValue().getWorkload());
+        assertEquals("_id", query.getValue().getOrderBys().get(0).getFieldName());
+        assertEquals(Order.ASC, query.getValue().getOrderBys().get(0).getOrder());
+
+        TransferProgress importedProgress = transfer.importFrom(dao, file);
+        assertEquals(DOCUMENTS, importedProgress.getDocuments());
+        assertEquals(exported.getBytes(), importedProgress.getBytes());
+        assertEquals(documents, sortById(imported));
+    }
+
+    @Test
+    public void testExportResumesFromCheckpoint() throws IOException {
+        Flux<RawBsonDocument> interrupted = Flux.concat(Flux.fromIterable(documents.subList(0, 3)),
+                Flux.error(new IllegalStateException("Cursor lost")));
+        Mockito.when(dao.streamFindRaw(Mockito.any()))
+                .thenReturn(interrupted, Flux.fromIterable(documents.subList(2, DOCUMENTS)));
+        Path file = folder.getRoot().toPath().resolve("events.bson");
+        CollectionTransfer transfer = new CollectionTransfer(DumpFormat.BSON, DumpCompression.NONE)
+                .checkpointInterval(2);
+        try {
+            transfer.exportTo(dao, null, file);
+            fail("Export should fail with the cursor");
+        } catch (IllegalStateException e) {
+            assertEquals("Cursor lost", e.getMessage());
+        }
+        assertTrue(Files.exists(file.resolveSibling("events.bson.checkpoint")));
+
+        assertEquals(DOCUMENTS - 2, transfer.exportTo(dao, null, file).getDocuments());
+        ArgumentCaptor<IgniteQuery> query = ArgumentCaptor.forClass(IgniteQuery.class);
+        Mockito.verify(dao, Mockito.times(2)).streamFindRaw(query.capture());
+        IgniteCriteria after = query.getValue().getCriteriaGroups().get(0).getCriterias().get(0);
+        assertEquals(Operator.GT, after.getOp());
+        assertEquals(2, after.getVal());
+
+        transfer.importFrom(dao, file);
+        assertEquals(documents, imported);
+    }
+
+    @Test
+    public void testImportResumesFromCheckpoint() throws IOException {
+        Mockito.when(dao.streamFindRaw(Mockito.any())).thenReturn(Flux.fromIterable(documents));
+        Path file = folder.getRoot().toPath().resolve("events.ndjson");
+        CollectionTransfer transfer = new CollectionTransfer(DumpFormat.NDJSON, DumpCompression.NONE)
+                .batchSize(1).workers(1).checkpointInterval(1);
+        transfer.exportTo(dao, null, file);
+        Mockito.when(dao.saveAllRaw(Mockito.anyList())).thenAnswer(invocation -> {
+            List<RawBsonDocument> batch = invocation.getArgument(0);
+            if (batch.get(0).getInt32("_id").getValue() == DOCUMENTS - 1) {
+                throw new IllegalStateException("Write failed");
+            }
+            imported.addAll(batch);
+            return batch.size();
+        });
+        try {
+            transfer.importFrom(dao, file);
+            fail("Import should fail with the write");
+        } catch (IllegalStateException e) {
+            assertEquals("Write failed", e.getMessage());
+        }
+        assertTrue(Files.exists(file.resolveSibling("events.ndjson.import.checkpoint")));
+
+        Mockito.when(dao.saveAllRaw(Mockito.anyList())).thenAnswer(invocation -> {
+            List<RawBsonDocument> batch = invocation.getArgument(0);
+            imported.addAll(batch);
+            return batch.size();
+        });
+        TransferProgress progress = transfer.importFrom(dao, file);
+        assertEquals(2, progress.getDocuments());
+        assertEquals(documents, sortById(new ArrayList<>(new LinkedHashSet<>(imported))));
+        assertFalse(Files.exists(file.resolveSibling("events.ndjson.import.checkpoint")));
+    }
+
+    private static List<RawBsonDocument> sortById(List<RawBsonDocument> documents) {
+        List<RawBsonDocument> sorted = new ArrayList<>(documents);
+        sorted.sort((first, second) -> Integer.compare(first.getInt32("_id").getValue(),
+                second.getInt32("_id").getValue()));
+        return sorted;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for CosmosRequestUnitTracker and RequestUnitRateLimiter.
+ */
+public class CosmosRequestUnitTrackerTest {
+
+    private static final String OPERATION = "find_query";
+    private static final String ENTITY = "TestEvent";
+    private static final String SHAPE = "((field=<v>))";
+
+    private CosmosRequestUnitTracker tracker;
+    private MongoDatabase database;
+
+    /**
+     * Creates an active tracker with a rate limiter.
+     */
+    @Before
+    public void setUp() {
+        tracker = new CosmosRequestUnitTracker();
+        ReflectionTestUtils.setField(tracker, "noSqlDatabaseType", "cosmosDB");
+        ReflectionTestUtils.setField(tracker, "trackingEnabled", true);
+        ReflectionTestUtils.setField(tracker, "sampleRate", 1.0);
+        ReflectionTestUtils.setField(tracker, "provisionedRuPerSecond", 1000.0);
+        ReflectionTestUtils.setField(tracker, "burstSeconds", 1.0);
+        ReflectionTestUtils.setField(tracker, "maxWaitMs", 1000L);
+        ReflectionTestUtils.setField(tracker, "defaultCharge", 5.0);
+        tracker.init();
+        database = Mockito.mock(MongoDatabase.class);
+    }
+
+    @Test
+    public void testInactiveForMongoDb() {
+        CosmosRequestUnitTracker mongoTracker = new CosmosRequestUnitTracker();
+        ReflectionTestUtils.setField(mongoTracker, "noSqlDatabaseType", "mongoDB");
+        ReflectionTestUtils.setField(mongoTracker, "trackingEnabled", true);
+        mongoTracker.init();
+        assertFalse(mongoTracker.isActive());
+        assertEquals("ok", mongoTracker.execute(database, OPERATION, ENTITY, SHAPE, () -> "ok"));
+        Mockito.verifyNoInteractions(database);
+    }
+
+    @Test
+    public void testRequestChargeUpdatesEstimate() {
+        Mockito.when(database.runCommand(Mockito.any(Bson.class)))
+                .thenReturn(new Document("RequestCharge", 25.0));
+        assertTrue(tracker.isActive());
+        assertEquals("ok", tracker.execute(database, OPERATION, ENTITY, SHAPE, () -> "ok"));
+        assertEquals(25.0, tracker.getChargeEstimate(OPERATION, ENTITY, SHAPE), 0.001);
+        tracker.execute(database, OPERATION, ENTITY, SHAPE, () -> "ok");
+        assertEquals(25.0, tracker.getChargeEstimate(OPERATION, ENTITY, SHAPE), 0.001);
+        assertEquals(5.0, tracker.getChargeEstimate(OPERATION, ENTITY, "other"), 0.001);
+    }
+
+    @Test
+    public void testThrottlingErrorIsRethrown() {
+        MongoException throttled = new MongoException(16500, "Error=16500, RetryAfterMs=20, Details='throttled'");
+        try {
+            tracker.execute(database, OPERATION, ENTITY, SHAPE, () -> {
+                throw throttled;
+            });
+            fail("MongoException expected");
+        } catch (MongoException e) {
+            assertEquals(throttled, e);
+        }
+        Mockito.verifyNoInteractions(database);
+    }
+
+    @Test
+    public void testGetRetryAfterMs() {
+        assertEquals(20L, CosmosRequestUnitTracker.getRetryAfterMs(
+                new MongoException(16500, "Error=16500, RetryAfterMs=20, Details='throttled'")));
+        assertEquals(CosmosRequestUnitTracker.NO_RETRY_AFTER, CosmosRequestUnitTracker.getRetryAfterMs(
+                new MongoException(16500, "Error=16500, Details='throttled'")));
+        assertEquals(CosmosRequestUnitTracker.NO_RETRY_AFTER, CosmosRequestUnitTracker.getRetryAfterMs(
+                new MongoException(11000, "RetryAfterMs=20")));
+    }
+
+    @Test
+    public void testRateLimiterWaitsForRefill() throws InterruptedException {
+        RequestUnitRateLimiter limiter = new RequestUnitRateLimiter(1000.0, 0.1);
+        assertEquals(0L, limiter.acquire(100.0, 1000L));
+        long waited = limiter.acquire(50.0, 1000L);
+        assertTrue("waited " + waited, waited >= 40L);
+    }
+
+    @Test
+    public void testRateLimiterPause() throws InterruptedException {
+        RequestUnitRateLimiter limiter = new RequestUnitRateLimiter(1000.0, 1.0);
+        limiter.acquire(510.0, 1000L);
+        assertTrue(limiter.getAvailableUnits() < 600.0);
+        limiter.pause(50L);
+        assertTrue(limiter.getAvailableUnits() <= 0.0);
+        long waited = limiter.acquire(1.0, 1000L);
+        assertTrue("waited " + waited, waited >= 40L);
+    }
+
+    @Test
+    public void testRateLimiterMaxWait() throws InterruptedException {
+        RequestUnitRateLimiter limiter = new RequestUnitRateLimiter(10.0, 1.0);
+        limiter.acquire(10.0, 0L);
+        long waited = limiter.acquire(10.0, 20L);
+        assertTrue("waited " + waited, waited < 500L);
+        assertTrue(limiter.getAvailableUnits() < 0.0);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.MongoException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for HedgedReadExecutor.
+ */
+public class HedgedReadExecutorTest {
+
+    private static final String OPERATION = "findById";
+    private static final String ENTITY = "TestEvent";
+    private static final long SLOW_READ_MS = 2000L;
+    private static final long SHORT_READ_MS = 50L;
+
+    private HedgedReadExecutor hedgedReadExecutor;
+
+    /**
+     * Creates a hedged read executor with a short initial delay, hedging every read.
+     */
+    @Before
+    public void setUp() {
+        hedgedReadExecutor = new HedgedReadExecutor();
+        ReflectionTestUtils.setField(hedgedReadExecutor, "hedgingEnabled", true);
+        ReflectionTestUtils.setField(hedgedReadExecutor, "delayPercentile", 0.95);
+        ReflectionTestUtils.setField(hedgedReadExecutor, "initialDelayMs", 5L);
+        ReflectionTestUtils.setField(hedgedReadExecutor, "minDelayMs", 1L);
+        ReflectionTestUtils.setField(hedgedReadExecutor, "budgetPercent", 100.0);
+        ReflectionTestUtils.setField(hedgedReadExecutor, "maxThreads", 4);
+        ReflectionTestUtils.setField(hedgedReadExecutor, "maxPageSize", 10);
+        hedgedReadExecutor.init();
+    }
+
+    @After
+    public void tearDown() {
+        hedgedReadExecutor.close();
+    }
+
+    @Test
+    public void testFastReadIsNotHedged() {
+        AtomicInteger calls = new AtomicInteger();
+        assertEquals("ok", hedgedReadExecutor.execute(OPERATION, ENTITY, () -> {
+            calls.incrementAndGet();
+            return "ok";
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testSlowReadIsHedged() {
+        AtomicInteger calls = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        String result = hedgedReadExecutor.execute(OPERATION, ENTITY, () -> {
+            if (calls.incrementAndGet() == 1) {
+                sleep(SLOW_READ_MS);
+                return "first";
+            }
+            return "hedge";
+        });
+        assertEquals("hedge", result);
+        assertEquals(2, calls.get());
+        assertTrue(System.currentTimeMillis() - start < SLOW_READ_MS);
+    }
+
+    @Test
+    public void testLosingReadIsNotInterrupted() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch firstDone = new CountDownLatch(1);
+        String result = hedgedReadExecutor.execute(OPERATION, ENTITY, () -> {
+            if (calls.incrementAndGet() == 1) {
+                sleep(SHORT_READ_MS);
+                interrupted.set(Thread.currentThread().isInterrupted());
+                firstDone.countDown();
+                return "first";
+            }
+            return "hedge";
+        });
+        assertEquals("hedge", result);
+        assertTrue(firstDone.await(SLOW_READ_MS, TimeUnit.MILLISECONDS));
+        assertFalse(interrupted.get());
+    }
+
+    @Test
+    public void testReadIsNotHedgedWithoutBudget() {
+        ReflectionTestUtils.setField(hedgedReadExecutor, "budgetPercent", 0.0);
+        AtomicInteger calls = new AtomicInteger();
+        String result = hedgedReadExecutor.execute(OPERATION, ENTITY, () -> {
+            calls.incrementAndGet();
+            sleep(SHORT_READ_MS);
+            return "first";
+        });
+        assertEquals("first", result);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testErrorIsPropagated() {
+        try {
+            hedgedReadExecutor.execute(OPERATION, ENTITY, () -> {
+                throw new MongoException("read failed");
+            });
+            fail("MongoException expected");
+        } catch (MongoException e) {
+            assertEquals("read failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIsHedged() {
+        assertTrue(hedgedReadExecutor.isHedged(1));
+        assertFalse(hedgedReadExecutor.isHedged(0));
+        assertFalse(hedgedReadExecutor.isHedged(11));
+    }
+
+    @Test
+    public void testLatencyWindowPercentile() {
+        HedgedReadExecutor.LatencyWindow window = new HedgedReadExecutor.LatencyWindow();
+        assertEquals(20L, window.getDelayMs(20L, 2L));
+        for (long latency = 1; latency <= 64; latency++) {
+            window.record(latency, 0.95);
+        }
+        assertEquals(61L, window.getDelayMs(20L, 2L));
+        assertEquals(100L, window.getDelayMs(20L, 100L));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import org.eclipse.ecsp.nosqldao.Updates;
+import org.eclipse.ecsp.nosqldao.ecall.ECallEvent;
+import org.eclipse.ecsp.nosqldao.ecall.EcallDAO;
+import org.eclipse.ecsp.nosqldao.spring.config.IgniteDAOMongoConfigWithProps;
+import org.eclipse.ecsp.nosqldao.utils.EmbeddedMongoDB;
+import org.eclipse.ecsp.nosqldao.utils.NumericConstants;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Map;
+
+/**
+ * Test class for IgniteBaseDAO with a shard key made of the id and another field.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = { IgniteDAOMongoConfigWithProps.class })
+@TestPropertySource("/ignite-dao-compound-shardkey-collection.properties")
+public class IgniteBaseDAOCompoundShardKeyIntegrationTest {
+
+    @ClassRule
+    public static EmbeddedMongoDB embeddedMongoDB = new EmbeddedMongoDB();
+
+    @Autowired
+    private EcallDAO ecallDao;
+
+    @Test
+    public void testShardKeyTargetedOperations() {
+        ecallDao.deleteAll();
+        ECallEvent ecall = new ECallEvent();
+        ecall.setEcallId("ECallId_2");
+        ecall.setSourceDeviceId("Device_1");
+        ecall.setEventId("ECall");
+        ecall.setRequestId("Request_2");
+        ecall.setTimestamp(NumericConstants.TIMESTAMP);
+        ecall.setVehicleId("Vehicle_2");
+        ecall.setVersion(org.eclipse.ecsp.domain.Version.V1_0);
+        ecallDao.save(ecall);
+
+        Map<String, Object> shardKey = ecallDao.getShardKey(ecall);
+        Assert.assertEquals("Vehicle_2", shardKey.get("vehicleId"));
+        Map<String, Object> otherShardKey = Map.of("vehicleId", "Vehicle_3");
+        Assert.assertNotNull(ecallDao.findById("ECallId_2", shardKey));
+        Assert.assertNull(ecallDao.findById("ECallId_2", otherShardKey));
+
+        Updates updates = new Updates();
+        updates.addFieldSet("sourceDeviceId", "Device_2");
+        Assert.assertTrue(ecallDao.update("ECallId_2", shardKey, updates));
+        Assert.assertEquals("Device_2", ecallDao.findById("ECallId_2", shardKey).getSourceDeviceId());
+
+        Assert.assertFalse(ecallDao.deleteById("ECallId_2", otherShardKey));
+        Assert.assertTrue(ecallDao.deleteById("ECallId_2", shardKey));
+        Assert.assertNull(ecallDao.findById("ECallId_2"));
+    }
+}
@@ -42,8 +42,13 @@ package org.eclipse.ecsp.nosqldao.mongodb;
 
 import com.mongodb.MongoNamespace;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.InsertManyOptions;
 import dev.morphia.AdvancedDatastore;
 import dev.morphia.mapping.Mapper;
+import dev.morphia.mapping.codec.pojo.EntityModel;
 import dev.morphia.query.Query;
 import dev.morphia.query.UpdateOperations;
 import dev.morphia.query.internal.MorphiaCursor;
@@ -57,6 +62,8 @@ import org.eclipse.ecsp.nosqldao.ecall.ECallDAOMongoImpl;
 import org.eclipse.ecsp.nosqldao.ecall.ECallEvent;
 import org.eclipse.ecsp.nosqldao.ecall.MockTestDAOMongoImpl;
 import org.eclipse.ecsp.nosqldao.ecall.MockTestEvent;
+import org.eclipse.ecsp.nosqldao.ecall.TelemetryDAOMongoImpl;
+import org.eclipse.ecsp.nosqldao.ecall.TelemetryEvent;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -68,8 +75,13 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Matchers.eq;
 
@@ -90,6 +102,9 @@ public class IgniteBaseDAOMongoImplMockTest {
     @InjectMocks
     private ECallDAOMongoImpl testEcallDAOMongoImpl;
 
+    @InjectMocks
+    private TelemetryDAOMongoImpl telemetryDAOMongoImpl;
+
     @Mock
     private AdvancedDatastore ds;
 
@@ -136,6 +151,20 @@ public class IgniteBaseDAOMongoImplMockTest {
         Mockito.verify(ds, Mockito.times(1)).find(collection, MockTestEvent.class);
     }
 
+    @Test
+    public void testFindAllOnAnalyticalDatastore() {
+        AdvancedDatastore analyticalDs = Mockito.mock(AdvancedDatastore.class);
+        ReflectionTestUtils.setField(testDAOMongoImpl, "analyticalDatastore",
+                new AnalyticalDatastore(null, analyticalDs));
+        Query<MockTestEvent> query = (Query<MockTestEvent>) Mockito.mock(Query.class);
+        Mockito.when(analyticalDs.find(collection, MockTestEvent.class)).thenReturn(query);
+        MorphiaCursor<MockTestEvent> morphiaCursor = (MorphiaCursor<MockTestEvent>) Mockito.mock(MorphiaCursor.class);
+        Mockito.when(query.iterator()).thenReturn(morphiaCursor);
+        testDAOMongoImpl.findAll();
+        Mockito.verify(analyticalDs, Mockito.times(1)).find(collection, MockTestEvent.class);
+        Mockito.verify(ds, Mockito.never()).find(collection, MockTestEvent.class);
+    }
+
     @Test
     public void testSave() {
         ECallEvent event = new ECallEvent();
@@ -152,6 +181,40 @@ public class IgniteBaseDAOMongoImplMockTest {
         Mockito.verify(ds, Mockito.times(1)).save(event2);
     }
 
+    @Test
+    public void testSaveOnTimeSeriesCollection() {
+        TelemetryEvent event = new TelemetryEvent();
+        telemetryDAOMongoImpl.save(event);
+        Mockito.verify(mongoCollection, Mockito.times(1)).insertOne(event);
+        Mockito.verify(ds, Mockito.never()).save(event);
+    }
+
+    @Test
+    public void testSaveAllOnTimeSeriesCollection() {
+        TelemetryEvent event = new TelemetryEvent();
+        TelemetryEvent event2 = new TelemetryEvent();
+        Assert.assertEquals(2, telemetryDAOMongoImpl.saveAll(event, event2).size());
+        Mockito.verify(mongoCollection, Mockito.times(1)).insertMany(eq(Arrays.asList(event, event2)),
+                Mockito.argThat((InsertManyOptions options) -> !options.isOrdered()));
+        Mockito.verify(ds, Mockito.never()).save(event);
+    }
+
+    @Test
+    public void testCreateTimeSeriesCollection() {
+        MongoDatabase database = Mockito.mock(MongoDatabase.class);
+        MongoIterable<String> names = Mockito.mock(MongoIterable.class);
+        Mockito.when(ds.getDatabase()).thenReturn(database);
+        Mockito.when(database.listCollectionNames()).thenReturn(names);
+        Mockito.when(names.into(Mockito.any(Collection.class))).thenReturn(new HashSet<>());
+        Mockito.when(mapper.getEntityModel(TelemetryEvent.class)).thenReturn(Mockito.mock(EntityModel.class));
+        ReflectionTestUtils.invokeMethod(telemetryDAOMongoImpl, "createTimeSeriesCollection", "telemetry");
+        Mockito.verify(database, Mockito.times(1)).createCollection(eq("telemetry"),
+                Mockito.argThat((CreateCollectionOptions options) ->
+                        "recordedAt".equals(options.getTimeSeriesOptions().getTimeField())
+                        && "vehicleId".equals(options.getTimeSeriesOptions().getMetaField())
+                        && options.getExpireAfter(TimeUnit.SECONDS) == 86400L));
+    }
+
     @Test
     public void testCountByQuery() {
         Query<MockTestEvent> query = Mockito.mock(Query.class);
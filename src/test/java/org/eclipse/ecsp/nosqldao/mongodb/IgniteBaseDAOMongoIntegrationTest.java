@@ -41,12 +41,17 @@
 package org.eclipse.ecsp.nosqldao.mongodb;
 
 import com.mongodb.DuplicateKeyException;
+import com.mongodb.MongoExecutionTimeoutException;
 import com.mongodb.MongoWriteException;
+import com.mongodb.ReadConcern;
 import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.ListIndexesIterable;
 import com.mongodb.client.MongoCollection;
 import dev.morphia.AdvancedDatastore;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.eclipse.ecsp.nosqldao.IgniteAggregation;
 import org.eclipse.ecsp.nosqldao.IgniteCriteria;
 import org.eclipse.ecsp.nosqldao.IgniteCriteriaGroup;
 import org.eclipse.ecsp.nosqldao.IgniteOrderBy;
@@ -81,10 +86,13 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Flux;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.security.SecureRandom;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -95,10 +103,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 /**
  * Test Class for IgniteBaseDAOMongo operations.
@@ -109,6 +119,7 @@ import static org.junit.Assert.assertNotNull;
 public class IgniteBaseDAOMongoIntegrationTest {
 
     private static final String SOURCEDEVICEID = "sourceDeviceId";
+    private static final long COUNT_ALL_CACHE_TTL_MS = 60000L;
 
     @ClassRule
     public static EmbeddedMongoDB embeddedMongoDB = new EmbeddedMongoDB();
@@ -1430,6 +1441,78 @@ public class IgniteBaseDAOMongoIntegrationTest {
         assertEquals(NumericConstants.THIRTEEN, count);
     }
 
+    @Test
+    public void testEstimatedCount() {
+        initEcallEventData(NumericConstants.THREE);
+        assertEquals(NumericConstants.THREE, ecallDao.estimatedCount());
+        ReflectionTestUtils.setField(ecallDao, "estimatedCountCollections", Set.of("ecallEvents"));
+        try {
+            assertEquals(NumericConstants.THREE, ecallDao.countAll());
+        } finally {
+            ReflectionTestUtils.setField(ecallDao, "estimatedCountCollections", Collections.emptySet());
+        }
+    }
+
+    @Test
+    public void testCountAllCache() {
+        initEcallEventData(NumericConstants.THREE);
+        ReflectionTestUtils.setField(ecallDao, "countAllCacheTtlMs", COUNT_ALL_CACHE_TTL_MS);
+        try {
+            assertEquals(NumericConstants.THREE, ecallDao.countAll());
+            ECallEvent event = new ECallEvent();
+            event.setEcallId("ECallIdAll_4");
+            ecallDao.save(event);
+            assertEquals(NumericConstants.THREE, ecallDao.countAll());
+        } finally {
+            ReflectionTestUtils.setField(ecallDao, "countAllCacheTtlMs", 0L);
+            ((Map<?, ?>) ReflectionTestUtils.getField(ecallDao, "countAllCache")).clear();
+        }
+        assertEquals(NumericConstants.FOUR, ecallDao.countAll());
+    }
+
+    @Test
+    public void testMaxTimeAndDeadline() {
+        initEcallEventData(NumericConstants.THREE);
+        IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria("vehicleId", Operator.EQ, "Vehicle_1")));
+        query.setMaxTimeMs(NumericConstants.THOUSAND);
+        query.setDeadline(Instant.now().plusSeconds(NumericConstants.THREE_SIXTY));
+        assertEquals(1, ecallDao.find(query).size());
+        assertEquals(1, ecallDao.countByQuery(query));
+
+        query.setDeadline(Instant.now().minusSeconds(1));
+        Assert.assertThrows(MongoExecutionTimeoutException.class, () -> ecallDao.find(query));
+        Assert.assertThrows(MongoExecutionTimeoutException.class, () -> ecallDao.deleteByQuery(query));
+        assertEquals(NumericConstants.THREE, ecallDao.countAll());
+    }
+
+    @Test
+    public void testReadAndWriteConcerns() {
+        ReflectionTestUtils.setField(ecallDao, "readConcerns", Map.of("ecallEvents", ReadConcern.MAJORITY));
+        ReflectionTestUtils.setField(ecallDao, "writeConcerns", Map.of("ecallEvents", WriteConcern.ACKNOWLEDGED));
+        try {
+            initEcallEventData(NumericConstants.THREE);
+            ECallEvent event = new ECallEvent();
+            event.setEcallId("ECallIdAll_4");
+            event.setVehicleId("Vehicle_1");
+            ecallDao.save(event, WriteConcern.W1);
+
+            IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(
+                    new IgniteCriteria("vehicleId", Operator.EQ, "Vehicle_1")));
+            assertEquals(NumericConstants.TWO, ecallDao.find(query).size());
+            query.setReadConcern(ReadConcern.LOCAL);
+            assertEquals(NumericConstants.TWO, ecallDao.countByQuery(query));
+            assertEquals(NumericConstants.FOUR, ecallDao.countAll());
+
+            query.setWriteConcern(WriteConcern.JOURNALED);
+            assertEquals(NumericConstants.TWO, ecallDao.deleteByQuery(query));
+            assertNull(ecallDao.findById("ECallIdAll_4"));
+        } finally {
+            ReflectionTestUtils.setField(ecallDao, "readConcerns", Collections.emptyMap());
+            ReflectionTestUtils.setField(ecallDao, "writeConcerns", Collections.emptyMap());
+        }
+    }
+
     @Test
     public void testFindWithPagingInfo() {
 
@@ -1448,6 +1531,97 @@ public class IgniteBaseDAOMongoIntegrationTest {
         assertEquals(NumericConstants.LONG_THREE, actual.getTotal());
     }
 
+    @Test
+    public void testAggregate() {
+        initEcallEventData(NumericConstants.THREE);
+        IgniteCriteriaGroup criteriaGroup = new IgniteCriteriaGroup(
+                new IgniteCriteria("vehicleId", Operator.EQ, "Vehicle_1"))
+                .or(new IgniteCriteria("vehicleId", Operator.EQ, "Vehicle_2"));
+        IgniteAggregation aggregation = new IgniteAggregation()
+                .match(new IgniteQuery(criteriaGroup))
+                .group(List.of("vehicleId"), IgniteAggregation.Accumulator.count("events"))
+                .sort(new IgniteOrderBy().byfield("_id").desc())
+                .allowDiskUse(true)
+                .batchSize(1);
+        List<Document> result = ecallDao.aggregate(aggregation, Document.class);
+        assertEquals(NumericConstants.TWO, result.size());
+        assertEquals("Vehicle_2", result.get(0).getString("_id"));
+        assertEquals(1, result.get(0).getInteger("events").intValue());
+        assertEquals(result, ecallDao.streamAggregate(aggregation, Document.class).collectList().block());
+    }
+
+    @Test
+    public void testAggregateFacet() {
+        initEcallEventData(NumericConstants.THREE);
+        IgniteAggregation aggregation = new IgniteAggregation().facet(Map.of(
+                "total", new IgniteAggregation().group(Collections.emptyList(),
+                        IgniteAggregation.Accumulator.count("count")),
+                "first", new IgniteAggregation().sort(new IgniteOrderBy().byfield("vehicleId"))
+                        .limit(1).project("vehicleId")));
+        List<Document> result = ecallDao.aggregate(aggregation, Document.class);
+        assertEquals(1, result.size());
+        assertEquals(NumericConstants.THREE,
+                result.get(0).getList("total", Document.class).get(0).getInteger("count").intValue());
+        assertEquals("Vehicle_1", result.get(0).getList("first", Document.class).get(0).getString("vehicleId"));
+    }
+
+    @Test
+    public void testFindWithProjectionType() {
+        initEcallEventData(NumericConstants.THREE);
+        IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria("vehicleId", Operator.NEQ, "Vehicle_1")));
+        query.orderBy(new IgniteOrderBy().byfield("vehicleId").desc());
+        List<ECallSummary> summaries = ecallDao.find(query, ECallSummary.class);
+        assertEquals(NumericConstants.TWO, summaries.size());
+        assertEquals(new ECallSummary("ECallIdAll_3", "Vehicle_3", 0L), summaries.get(0));
+        assertEquals(new ECallSummary("ECallIdAll_2", "Vehicle_2", 0L), summaries.get(1));
+
+        query.setPageNumber(NumericConstants.TWO);
+        query.setPageSize(1);
+        List<ECallVehicle> vehicles = ecallDao.find(query, ECallVehicle.class);
+        assertEquals(1, vehicles.size());
+        assertEquals("Vehicle_2", vehicles.get(0).vehicleId);
+        assertNull(vehicles.get(0).requestId);
+    }
+
+    @Test
+    public void testFindRaw() throws IOException {
+        initEcallEventData(NumericConstants.THREE);
+        IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria("vehicleId", Operator.NEQ, "Vehicle_1")));
+        query.orderBy(new IgniteOrderBy().byfield("vehicleId"));
+        query.setFieldNames(new String[] {"vehicleId"});
+        List<RawBsonDocument> documents = ecallDao.findRaw(query);
+        assertEquals(NumericConstants.TWO, documents.size());
+        assertEquals("ECallIdAll_2", documents.get(0).getString("_id").getValue());
+        assertEquals("Vehicle_2", documents.get(0).getString("vehicleId").getValue());
+        Assert.assertFalse(documents.get(0).containsKey("requestId"));
+        assertEquals(documents, ecallDao.streamFindRaw(query).collectList().block());
+
+        StringWriter writer = new StringWriter();
+        RawBsonJsonWriter.writeArray(documents, writer);
+        assertEquals("[{\"_id\": \"ECallIdAll_2\", \"vehicleId\": \"Vehicle_2\"},"
+                + "{\"_id\": \"ECallIdAll_3\", \"vehicleId\": \"Vehicle_3\"}]", writer.toString());
+    }
+
+    /**
+     * Record projection of an ecall event.
+     *
+     * @param ecallId the ecall id
+     * @param vehicleId the vehicle id
+     * @param hits the hits
+     */
+    record ECallSummary(String ecallId, String vehicleId, long hits) {
+    }
+
+    /**
+     * Class projection of an ecall event, without its id.
+     */
+    static class ECallVehicle {
+        private String vehicleId;
+        private transient String requestId;
+    }
+
     private void initEcallEventData(int numOfRecords) {
         ecallDao.deleteAll();
         for (int i = 1; i <= numOfRecords; i++) {
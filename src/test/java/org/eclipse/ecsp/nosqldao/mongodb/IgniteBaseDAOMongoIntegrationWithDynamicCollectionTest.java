@@ -46,7 +46,11 @@ import com.mongodb.client.MongoCollection;
 import dev.morphia.AdvancedDatastore;
 import dev.morphia.query.experimental.filters.Filters;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.eclipse.ecsp.nosqldao.Coordinate;
+import org.eclipse.ecsp.nosqldao.GeoNearResult;
+import org.eclipse.ecsp.nosqldao.GeoShape;
+import org.eclipse.ecsp.nosqldao.IgniteBaseDAO;
 import org.eclipse.ecsp.nosqldao.IgniteCriteria;
 import org.eclipse.ecsp.nosqldao.IgniteCriteriaGroup;
 import org.eclipse.ecsp.nosqldao.IgniteOrderBy;
@@ -58,6 +62,7 @@ import org.eclipse.ecsp.nosqldao.ecall.GeoSpatialMockEvent;
 import org.eclipse.ecsp.nosqldao.ecall.Location;
 import org.eclipse.ecsp.nosqldao.ecall.MockTestDAOMongoImpl;
 import org.eclipse.ecsp.nosqldao.ecall.MockTestEvent;
+import org.eclipse.ecsp.nosqldao.ecall.PartitionedMockDAOMongoImpl;
 import org.eclipse.ecsp.nosqldao.spring.config.IgniteDAOMongoConfigWithProps;
 import org.eclipse.ecsp.nosqldao.test.TestDAO;
 import org.eclipse.ecsp.nosqldao.test.TestEvent;
@@ -76,8 +81,12 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
@@ -91,6 +100,16 @@ public class IgniteBaseDAOMongoIntegrationWithDynamicCollectionTest {
 
     private static final String SOURCEDEVICEID = "sourceDeviceId";
 
+    private static final String TIMESTAMP = "timestamp";
+
+    private static final long JANUARY = Instant.parse("2026-01-15T10:00:00Z").toEpochMilli();
+
+    private static final long FEBRUARY = Instant.parse("2026-02-10T10:00:00Z").toEpochMilli();
+
+    private static final long FEBRUARY_LATER = Instant.parse("2026-02-20T10:00:00Z").toEpochMilli();
+
+    private static final long MARCH = Instant.parse("2026-03-05T10:00:00Z").toEpochMilli();
+
     @ClassRule
     public static EmbeddedMongoDB embeddedMongoDB = new EmbeddedMongoDB();
     @Autowired
@@ -98,6 +117,8 @@ public class IgniteBaseDAOMongoIntegrationWithDynamicCollectionTest {
     @Autowired
     private MockTestDAOMongoImpl mockDao;
     @Autowired
+    private PartitionedMockDAOMongoImpl partitionedDao;
+    @Autowired
     private TestDAO dao;
 
     @Autowired
@@ -348,6 +369,28 @@ public class IgniteBaseDAOMongoIntegrationWithDynamicCollectionTest {
         return ecall1;
     }
 
+    @Test
+    public void testTypedDistinct() {
+        mockDao.deleteAll();
+        MockTestEvent event1 = getMockTestEvent("ECallId_Distinct_1", "Device_1", "Request_1", "Vehicle_1");
+        event1.setHits(NumericConstants.HITS);
+        MockTestEvent event2 = getMockTestEvent("ECallId_Distinct_2", "Device_2", "Request_2", "Vehicle_2");
+        event2.setHits(NumericConstants.HITS);
+        MockTestEvent event3 = getMockTestEvent("ECallId_Distinct_3", "Device_3", "Request_3", "Vehicle_1");
+        mockDao.saveAll(event1, event2, event3);
+
+        IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria("eventId", Operator.EQ, "ECall")));
+        query.setMaxTimeMs(NumericConstants.THOUSAND);
+        List<String> vehicles = mockDao.distinct(query, "vehicleId", String.class);
+        Assert.assertEquals(NumericConstants.TWO, vehicles.size());
+        Assert.assertTrue(vehicles.containsAll(Arrays.asList("Vehicle_1", "Vehicle_2")));
+        List<Long> hits = mockDao.distinct(query, "hits", Long.class);
+        Assert.assertEquals(NumericConstants.TWO, hits.size());
+        Assert.assertTrue(hits.contains((long) NumericConstants.HITS));
+        Assert.assertEquals(hits, mockDao.streamDistinct(query, "hits", Long.class).collectList().block());
+    }
+
     @Test
     public void testUpdate() {
         MockTestEvent ecall = new MockTestEvent();
@@ -669,6 +712,69 @@ public class IgniteBaseDAOMongoIntegrationWithDynamicCollectionTest {
         Assert.assertEquals("Expected query count does not match actual count", 1, ecallEvents.size());
     }
 
+    @Test
+    public void testGeoWithinAndGeoIntersectsQueries() {
+        geoMockDao.saveAll(dealer("Dealer1", 77.60, 12.97), dealer("Dealer2", 77.70, 13.00),
+                dealer("Dealer3", 78.50, 13.50));
+        GeoShape box = GeoShape.box(new Coordinate(12.90, 77.50, 0), new Coordinate(13.05, 77.75, 0));
+        Assert.assertEquals(Arrays.asList("Dealer1", "Dealer2"), dealerNames(geoMockDao.find(
+                new IgniteQuery(new IgniteCriteriaGroup(new IgniteCriteria("location", Operator.GEO_WITHIN, box))))));
+        GeoShape triangle = GeoShape.polygon(new Coordinate(12.90, 77.50, 0), new Coordinate(12.90, 77.80, 0),
+                new Coordinate(13.10, 77.65, 0));
+        Assert.assertEquals(Arrays.asList("Dealer1", "Dealer2"), dealerNames(geoMockDao.find(new IgniteQuery(
+                new IgniteCriteriaGroup(new IgniteCriteria("location", Operator.GEO_WITHIN, triangle))))));
+        GeoShape sphere = GeoShape.centerSphere(new Coordinate(12.97, 77.60, 5000));
+        Assert.assertEquals(Arrays.asList("Dealer1"), dealerNames(geoMockDao.find(new IgniteQuery(
+                new IgniteCriteriaGroup(new IgniteCriteria("location", Operator.GEO_WITHIN, sphere))))));
+        GeoShape point = GeoShape.point(new Coordinate(13.00, 77.70, 0));
+        Assert.assertEquals(Arrays.asList("Dealer2"), dealerNames(geoMockDao.find(new IgniteQuery(
+                new IgniteCriteriaGroup(new IgniteCriteria("location", Operator.GEO_INTERSECTS, point))))));
+    }
+
+    @Test
+    public void testGeoNearReturnsDistancesNearestFirst() {
+        geoMockDao.saveAll(dealer("Far", 77.80, 12.90), dealer("Near", 77.60, 12.97), dealer("Away", 0.0, 0.0));
+        Coordinate incident = new Coordinate(12.97, 77.59, 50000);
+        List<GeoNearResult<GeoSpatialMockEvent>> results = geoMockDao.geoNear("location", incident,
+                new IgniteQuery());
+        Assert.assertEquals(NumericConstants.TWO, results.size());
+        Assert.assertEquals("Near", results.get(0).getEntity().getDealername());
+        Assert.assertEquals(1085.0, results.get(0).getDistance(), 5.0);
+        Assert.assertEquals("Far", results.get(1).getEntity().getDealername());
+        Assert.assertTrue(results.get(1).getDistance() > results.get(0).getDistance());
+
+        IgniteQuery farOnly = new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria("dealername", Operator.EQ, "Far")));
+        results = geoMockDao.geoNear("location", incident, farOnly);
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals("Far", results.get(0).getEntity().getDealername());
+
+        IgniteQuery secondPage = new IgniteQuery();
+        secondPage.setPageNumber(NumericConstants.TWO);
+        secondPage.setPageSize(1);
+        results = geoMockDao.geoNear("location", incident, secondPage);
+        Assert.assertEquals("Far", results.get(0).getEntity().getDealername());
+        Assert.assertThrows(IllegalStateException.class, () -> geoMockDao.geoNear("dealername", incident,
+                new IgniteQuery()));
+    }
+
+    private static GeoSpatialMockEvent dealer(String name, double longitude, double latitude) {
+        Location location = new Location();
+        location.setType("Point");
+        location.setCoordinates(new Double[] {longitude, latitude});
+        GeoSpatialMockEvent event = new GeoSpatialMockEvent();
+        event.setDealername(name);
+        event.setLocation(location);
+        return event;
+    }
+
+    private static List<String> dealerNames(List<GeoSpatialMockEvent> events) {
+        List<String> names = new ArrayList<>();
+        events.forEach(event -> names.add(event.getDealername()));
+        Collections.sort(names);
+        return names;
+    }
+
     @Test
     public void testSaveForNullableObjects() throws InterruptedException {
         MockTestEvent mockEvent = new MockTestEvent();
@@ -687,9 +793,193 @@ public class IgniteBaseDAOMongoIntegrationWithDynamicCollectionTest {
         Assert.assertEquals(mockGot.getTargetDeviceId().get(), (mockGot.getTargetDeviceId().get()));
     }
 
+    @Test
+    public void testSaveToTimePartitions() {
+        savePartitionedEvents();
+        Assert.assertTrue(partitionedDao.collectionExists("partitionedEvents_2026_01"));
+        Assert.assertTrue(partitionedDao.collectionExists("partitionedEvents_2026_02"));
+        Assert.assertTrue(partitionedDao.collectionExists("partitionedEvents_2026_03"));
+        Assert.assertEquals(NumericConstants.FOUR, partitionedDao.findAll().size());
+        Assert.assertEquals(NumericConstants.TWO, datastore.getDatabase()
+                .getCollection("partitionedEvents_2026_02").countDocuments());
+    }
+
+    @Test
+    public void testFindInPrunedTimePartitions() {
+        savePartitionedEvents();
+        IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria(TIMESTAMP, Operator.GTE, FEBRUARY))
+                .and(new IgniteCriteria(TIMESTAMP, Operator.LT, MARCH)));
+        query.orderBy(new IgniteOrderBy().byfield(TIMESTAMP).desc());
+        List<MockTestEvent> events = partitionedDao.find(query);
+        Assert.assertEquals(NumericConstants.TWO, events.size());
+        Assert.assertEquals("Feb_2", events.get(0).getId());
+        Assert.assertEquals("Feb_1", events.get(1).getId());
+        Assert.assertEquals(NumericConstants.TWO, partitionedDao.countByQuery(query));
+    }
+
+    @Test
+    public void testFindPageMergedAcrossTimePartitions() {
+        savePartitionedEvents();
+        IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria(SOURCEDEVICEID, Operator.EQ, "Device_1")));
+        query.orderBy(new IgniteOrderBy().byfield(TIMESTAMP).desc());
+        query.setPageNumber(NumericConstants.TWO);
+        query.setPageSize(NumericConstants.TWO);
+        List<MockTestEvent> events = partitionedDao.find(query);
+        Assert.assertEquals(NumericConstants.TWO, events.size());
+        Assert.assertEquals("Feb_1", events.get(0).getId());
+        Assert.assertEquals("Jan_1", events.get(1).getId());
+        Assert.assertEquals(NumericConstants.FOUR, partitionedDao.countByQuery(query));
+    }
+
+    @Test
+    public void testDropTimePartitionsBefore() {
+        savePartitionedEvents();
+        List<String> dropped = partitionedDao.dropPartitionsBefore(Instant.ofEpochMilli(MARCH));
+        Assert.assertTrue(dropped.containsAll(Arrays.asList("partitionedEvents_2026_01",
+                "partitionedEvents_2026_02")));
+        Assert.assertFalse(dropped.contains("partitionedEvents_2026_03"));
+        Assert.assertFalse(partitionedDao.collectionExists("partitionedEvents_2026_01"));
+        Assert.assertEquals(1, partitionedDao.findAll().size());
+    }
+
+    @Test
+    public void testFindByIdInTimePartitions() {
+        savePartitionedEvents();
+        Assert.assertEquals("Feb_2", partitionedDao.findById("Feb_2").getId());
+        Assert.assertNull(partitionedDao.findById("Apr_1"));
+        Assert.assertEquals(NumericConstants.TWO, partitionedDao.findByIds("Jan_1", "Mar_1").size());
+        Assert.assertEquals(NumericConstants.FOUR, partitionedDao.countAll());
+    }
+
+    @Test
+    public void testNewTimePartitionIsReadWithinCacheTtl() {
+        Assert.assertTrue(partitionedDao.findAll().isEmpty());
+        savePartitionedEvents();
+        Assert.assertEquals(NumericConstants.FOUR, partitionedDao.findAll().size());
+        Assert.assertEquals("Mar_1", partitionedDao.findById("Mar_1").getId());
+        partitionedDao.dropPartitionsBefore(Instant.ofEpochMilli(MARCH));
+        Assert.assertNull(partitionedDao.findById("Jan_1"));
+        Assert.assertEquals(1, partitionedDao.countAll());
+    }
+
+    @Test
+    public void testUpdateAndDeleteByIdInTimePartitions() {
+        savePartitionedEvents();
+        Updates u = new Updates();
+        u.addFieldSet(SOURCEDEVICEID, "Device_2");
+        Assert.assertTrue(partitionedDao.update("Jan_1", u));
+        Assert.assertEquals("Device_2", partitionedDao.findById("Jan_1").getSourceDeviceId());
+        Assert.assertTrue(partitionedDao.deleteById("Feb_1"));
+        Assert.assertNull(partitionedDao.findById("Feb_1"));
+        Assert.assertEquals(NumericConstants.TWO, partitionedDao.deleteByIds("Jan_1", "Mar_1"));
+        Assert.assertEquals(1, partitionedDao.countAll());
+        Assert.assertEquals(0, datastore.getDatabase().getCollection("partitionedEvents_2026_01")
+                .countDocuments());
+    }
+
+    @Test
+    public void testDistinctMergedAcrossTimePartitions() {
+        savePartitionedEvents();
+        Updates u = new Updates();
+        u.addFieldSet(SOURCEDEVICEID, "Device_2");
+        Assert.assertTrue(partitionedDao.update("Mar_1", u));
+        IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria(TIMESTAMP, Operator.GTE, JANUARY)));
+        List<String> devices = partitionedDao.distinct(query, SOURCEDEVICEID, String.class);
+        Assert.assertEquals(Arrays.asList("Device_2", "Device_1"), devices);
+        Assert.assertEquals(devices, partitionedDao.distinct(query, SOURCEDEVICEID));
+        Assert.assertEquals(devices, partitionedDao.streamDistinct(query, SOURCEDEVICEID, String.class)
+                .collectList().block());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRawFindOnTimePartitions() {
+        partitionedDao.findRaw(new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria(SOURCEDEVICEID, Operator.EQ, "Device_1"))));
+    }
+
+    @Test
+    public void testCollectionViews() {
+        IgniteBaseDAO<String, MockTestEvent> tenantA = mockDao.withCollection("tenantA_events");
+        IgniteBaseDAO<String, MockTestEvent> tenantB = mockDao.withCollection("tenantB_events");
+        Assert.assertSame(tenantA, mockDao.withCollection("tenantA_events"));
+        Assert.assertEquals("tenantA_events", tenantA.getOverridingCollectionName());
+        try {
+            MockTestEvent event = new MockTestEvent();
+            event.setId("ECallId_1");
+            event.setSourceDeviceId("Device_1");
+            event.setVersion(org.eclipse.ecsp.domain.Version.V1_0);
+            tenantA.save(event);
+            tenantA.saveAll(event);
+            Assert.assertEquals(1, tenantA.countAll());
+            Assert.assertEquals("ECallId_1", tenantA.findById("ECallId_1").getId());
+            Assert.assertNull(tenantB.findById("ECallId_1"));
+            Assert.assertNull(mockDao.findById("ECallId_1"));
+            IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(
+                    new IgniteCriteria(SOURCEDEVICEID, Operator.EQ, "Device_1")));
+            List<RawBsonDocument> documents = tenantA.streamFindRaw(query).collectList().block();
+            Assert.assertEquals(1, documents.size());
+            Assert.assertEquals(NumericConstants.TWO, datastore.getDatabase().getCollection("tenantB_events")
+                    .listIndexes().into(new ArrayList<>()).size());
+        } finally {
+            datastore.getDatabase().getCollection("tenantA_events").drop();
+            datastore.getDatabase().getCollection("tenantB_events").drop();
+        }
+    }
+
+    @Test
+    public void testExportAndImportCollection() throws IOException {
+        IgniteBaseDAO<String, MockTestEvent> source = mockDao.withCollection("export_source");
+        IgniteBaseDAO<String, MockTestEvent> target = mockDao.withCollection("export_target");
+        Path file = Files.createTempFile("export_source", ".ndjson.gz");
+        try {
+            for (int i = 0; i < NumericConstants.THREE; i++) {
+                MockTestEvent event = new MockTestEvent();
+                event.setId("ECallId_" + i);
+                event.setSourceDeviceId("Device_1");
+                event.setVersion(org.eclipse.ecsp.domain.Version.V1_0);
+                source.save(event);
+            }
+            CollectionTransfer transfer = new CollectionTransfer(DumpFormat.NDJSON, DumpCompression.GZIP)
+                    .batchSize(NumericConstants.TWO);
+            Assert.assertEquals(NumericConstants.THREE, transfer.exportTo(source, null, file).getDocuments());
+            Assert.assertEquals(NumericConstants.THREE, transfer.importFrom(target, file).getDocuments());
+            transfer.importFrom(target, file);
+            Assert.assertEquals(NumericConstants.THREE, target.countAll());
+            Assert.assertEquals("Device_1", target.findById("ECallId_2").getSourceDeviceId());
+        } finally {
+            Files.deleteIfExists(file);
+            datastore.getDatabase().getCollection("export_source").drop();
+            datastore.getDatabase().getCollection("export_target").drop();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCollectionViewOfPartitionedCollection() {
+        partitionedDao.withCollection("tenantA_events");
+    }
+
+    private void savePartitionedEvents() {
+        long[] timestamps = {JANUARY, FEBRUARY, FEBRUARY_LATER, MARCH};
+        String[] ids = {"Jan_1", "Feb_1", "Feb_2", "Mar_1"};
+        for (int i = 0; i < ids.length; i++) {
+            MockTestEvent event = new MockTestEvent();
+            event.setId(ids[i]);
+            event.setSourceDeviceId("Device_1");
+            event.setEventId("ECall");
+            event.setTimestamp(timestamps[i]);
+            event.setVersion(org.eclipse.ecsp.domain.Version.V1_0);
+            partitionedDao.save(event);
+        }
+    }
+
     @After
     public void deleteAllRecords() {
         mockDao.deleteAll();
+        geoMockDao.deleteAll();
+        partitionedDao.dropPartitionsBefore(Instant.MAX);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import org.eclipse.ecsp.nosqldao.MongoRetryExhaustException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for MongoRetryExecutor.
+ */
+public class MongoRetryExecutorTest {
+
+    private static final String OPERATION = "findById";
+    private static final String ENTITY = "TestEvent";
+
+    private MongoRetryExecutor retryExecutor;
+
+    /**
+     * Creates a retry executor with short backoffs.
+     */
+    @Before
+    public void setUp() {
+        retryExecutor = new MongoRetryExecutor();
+        ReflectionTestUtils.setField(retryExecutor, "retryEnabled", true);
+        ReflectionTestUtils.setField(retryExecutor, "maxAttempts", 3);
+        ReflectionTestUtils.setField(retryExecutor, "initialBackoffMs", 1L);
+        ReflectionTestUtils.setField(retryExecutor, "maxBackoffMs", 5L);
+        ReflectionTestUtils.setField(retryExecutor, "backoffMultiplier", 2.0);
+        ReflectionTestUtils.setField(retryExecutor, "jitterEnabled", true);
+        ReflectionTestUtils.setField(retryExecutor, "budgetMaxTokens", 10);
+        ReflectionTestUtils.setField(retryExecutor, "budgetTokenRatio", 0.1);
+        retryExecutor.init();
+    }
+
+    @Test
+    public void testTransientErrorIsRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        String result = retryExecutor.execute(OPERATION, ENTITY, true, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw socketError();
+            }
+            return "ok";
+        });
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testRetriesExhausted() {
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            retryExecutor.execute(OPERATION, ENTITY, true, () -> {
+                calls.incrementAndGet();
+                throw socketError();
+            });
+            fail("MongoRetryExhaustException expected");
+        } catch (MongoRetryExhaustException e) {
+            assertTrue(e.getCause() instanceof MongoSocketReadException);
+        }
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testNonIdempotentOperationIsNotRetried() {
+        double budgetTokens = retryExecutor.getBudgetTokens();
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            retryExecutor.execute(OPERATION, ENTITY, false, () -> {
+                calls.incrementAndGet();
+                throw socketError();
+            });
+            fail("MongoSocketReadException expected");
+        } catch (MongoSocketReadException e) {
+            assertEquals(1, calls.get());
+        }
+        assertEquals(budgetTokens, retryExecutor.getBudgetTokens(), 0.0);
+    }
+
+    @Test
+    public void testNonTransientErrorIsNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            retryExecutor.execute(OPERATION, ENTITY, true, () -> {
+                calls.incrementAndGet();
+                throw new MongoException(11000, "duplicate key");
+            });
+            fail("MongoException expected");
+        } catch (MongoException e) {
+            assertEquals(1, calls.get());
+        }
+    }
+
+    @Test
+    public void testBudgetExhausted() {
+        for (int i = 0; i < 10; i++) {
+            try {
+                retryExecutor.execute(OPERATION, ENTITY, true, () -> {
+                    throw socketError();
+                });
+            } catch (MongoRetryExhaustException e) {
+                // expected, every attempt fails
+            }
+        }
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            retryExecutor.execute(OPERATION, ENTITY, true, () -> {
+                calls.incrementAndGet();
+                throw socketError();
+            });
+            fail("MongoRetryExhaustException expected");
+        } catch (MongoRetryExhaustException e) {
+            assertEquals(1, calls.get());
+        }
+        assertEquals(0.0, retryExecutor.getBudgetTokens(), 0.0);
+    }
+
+    @Test
+    public void testIsTransient() {
+        assertTrue(MongoRetryExecutor.isTransient(socketError()));
+        assertTrue(MongoRetryExecutor.isTransient(new MongoException(91, "shutdown in progress")));
+        assertFalse(MongoRetryExecutor.isTransient(new MongoException(11000, "duplicate key")));
+    }
+
+    private static MongoSocketReadException socketError() {
+        return new MongoSocketReadException("connection reset", new ServerAddress());
+    }
+}
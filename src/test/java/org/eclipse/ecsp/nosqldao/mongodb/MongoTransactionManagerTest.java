@@ -0,0 +1,218 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import com.mongodb.MongoException;
+import com.mongodb.TransactionOptions;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import dev.morphia.AdvancedDatastore;
+import dev.morphia.transactions.MorphiaSession;
+import org.bson.Document;
+import org.eclipse.ecsp.nosqldao.IgniteBaseDAO;
+import org.eclipse.ecsp.nosqldao.IgniteQuery;
+import org.eclipse.ecsp.nosqldao.Updates;
+import org.eclipse.ecsp.nosqldao.ecall.ECallEvent;
+import org.eclipse.ecsp.nosqldao.spring.config.MongoClientLeases;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for MongoTransactionManager and MongoUnitOfWork.
+ */
+public class MongoTransactionManagerTest {
+
+    private MongoTransactionManager manager;
+    private AdvancedDatastore datastore;
+    private MorphiaSession morphiaSession;
+    private ClientSession session;
+    private IgniteBaseDAO<String, ECallEvent> dao;
+    private TransactionParticipant<String, ECallEvent> participant;
+
+    /**
+     * Creates a manager on a mocked datastore and a mocked mongo DAO.
+     */
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        datastore = Mockito.mock(AdvancedDatastore.class);
+        morphiaSession = Mockito.mock(MorphiaSession.class);
+        session = Mockito.mock(ClientSession.class);
+        Mockito.when(datastore.startSession()).thenReturn(morphiaSession);
+        Mockito.when(morphiaSession.getSession()).thenReturn(session);
+        Mockito.when(session.hasActiveTransaction()).thenReturn(true);
+        manager = new MongoTransactionManager();
+        ReflectionTestUtils.setField(manager, "mongoDatastore", datastore);
+        ReflectionTestUtils.setField(manager, "readConcernLevel", "snapshot");
+        ReflectionTestUtils.setField(manager, "writeConcernName", "MAJORITY");
+        ReflectionTestUtils.setField(manager, "retryTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(manager, "maxPendingWrites", 100);
+        manager.init();
+        dao = Mockito.mock(IgniteBaseDAO.class, Mockito.withSettings().extraInterfaces(TransactionParticipant.class));
+        participant = (TransactionParticipant<String, ECallEvent>) dao;
+        Mockito.when(participant.prepareSave(Mockito.any()))
+                .thenAnswer(invocation -> new TransactionWrite<>("ecallEvents",
+                        new InsertOneModel<>(invocation.getArgument(0))));
+        Mockito.when(participant.prepareDelete(Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> new TransactionWrite<>("ecallEvents_archive",
+                        new DeleteOneModel<>(new Document("_id", invocation.getArgument(0)))));
+        Mockito.when(participant.prepareUpdate(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> new TransactionWrite<>("ecallEvents",
+                        new UpdateOneModel<>(new Document("_id", invocation.getArgument(0)),
+                                new Document("$set", new Document("hits", 1)))));
+    }
+
+    @Test
+    public void testWritesBatchedPerCollection() {
+        String result = manager.execute(unitOfWork -> {
+            unitOfWork.save(dao, new ECallEvent());
+            unitOfWork.deleteById(dao, "ECallId_1");
+            unitOfWork.save(dao, new ECallEvent());
+            unitOfWork.update(dao, "ECallId_2", new Updates().addFieldSet("hits", 1));
+            return "done";
+        });
+        assertEquals("done", result);
+        Mockito.verify(participant).bulkWrite(Mockito.eq(morphiaSession), Mockito.eq("ecallEvents"),
+                Mockito.argThat(writes -> writes.size() == 3));
+        Mockito.verify(participant).bulkWrite(Mockito.eq(morphiaSession), Mockito.eq("ecallEvents_archive"),
+                Mockito.argThat(writes -> writes.size() == 1));
+        Mockito.verify(session).startTransaction(Mockito.any(TransactionOptions.class));
+        Mockito.verify(session).commitTransaction();
+    }
+
+    @Test
+    public void testFindRunsPendingWritesFirst() {
+        Mockito.when(participant.findInSession(Mockito.eq(morphiaSession), Mockito.any()))
+                .thenReturn(Collections.singletonList(new ECallEvent()));
+        int found = manager.execute(unitOfWork -> {
+            unitOfWork.save(dao, new ECallEvent());
+            return unitOfWork.find(dao, new IgniteQuery()).size();
+        });
+        assertEquals(1, found);
+        InOrder inOrder = Mockito.inOrder(participant, session);
+        inOrder.verify(participant).bulkWrite(Mockito.eq(morphiaSession), Mockito.eq("ecallEvents"), Mockito.anyList());
+        inOrder.verify(participant).findInSession(Mockito.eq(morphiaSession), Mockito.any());
+        inOrder.verify(session).commitTransaction();
+        Mockito.verify(participant, Mockito.times(1)).bulkWrite(Mockito.any(), Mockito.any(), Mockito.anyList());
+    }
+
+    @Test
+    public void testTransientCommitErrorRunsWorkAgain() {
+        MongoException conflict = new MongoException("Write conflict");
+        conflict.addLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+        Mockito.doThrow(conflict).doNothing().when(session).commitTransaction();
+        AtomicInteger runs = new AtomicInteger();
+        manager.execute(unitOfWork -> {
+            unitOfWork.save(dao, new ECallEvent());
+            return runs.incrementAndGet();
+        });
+        assertEquals(2, runs.get());
+        Mockito.verify(session, Mockito.times(2)).startTransaction(Mockito.any(TransactionOptions.class));
+        Mockito.verify(session, Mockito.times(2)).commitTransaction();
+    }
+
+    @Test
+    public void testUnknownCommitResultRetriesCommit() {
+        MongoException unknown = new MongoException("Primary stepped down");
+        unknown.addLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL);
+        Mockito.doThrow(unknown).doNothing().when(session).commitTransaction();
+        AtomicInteger runs = new AtomicInteger();
+        manager.execute(unitOfWork -> runs.incrementAndGet());
+        assertEquals(1, runs.get());
+        Mockito.verify(session, Mockito.times(2)).commitTransaction();
+    }
+
+    @Test
+    public void testFailedWorkAborts() {
+        try {
+            manager.execute(unitOfWork -> {
+                unitOfWork.save(dao, new ECallEvent());
+                throw new IllegalStateException("Vehicle profile not found");
+            });
+            fail("Transaction should fail with the work");
+        } catch (IllegalStateException e) {
+            assertEquals("Vehicle profile not found", e.getMessage());
+        }
+        Mockito.verify(session).abortTransaction();
+        Mockito.verify(session, Mockito.never()).commitTransaction();
+        Mockito.verify(participant, Mockito.never()).bulkWrite(Mockito.any(), Mockito.any(), Mockito.anyList());
+    }
+
+    @Test
+    public void testTransactionRunsOnLeasedClient() {
+        AdvancedDatastore leasedDatastore = Mockito.mock(AdvancedDatastore.class);
+        Mockito.when(leasedDatastore.startSession()).thenReturn(morphiaSession);
+        MongoClientLeases.Lease lease = Mockito.mock(MongoClientLeases.Lease.class);
+        Mockito.when(lease.getDatastore()).thenReturn(leasedDatastore);
+        MongoClientLeases leases = Mockito.mock(MongoClientLeases.class);
+        Mockito.when(leases.acquire()).thenReturn(lease);
+        ReflectionTestUtils.setField(manager, "mongoClientLeases", leases);
+        manager.execute(unitOfWork -> {
+            unitOfWork.save(dao, new ECallEvent());
+            return null;
+        });
+        Mockito.verify(leasedDatastore).startSession();
+        Mockito.verify(datastore, Mockito.never()).startSession();
+        Mockito.verify(participant).bulkWrite(Mockito.eq(morphiaSession), Mockito.eq("ecallEvents"),
+                Mockito.anyList());
+        Mockito.verify(lease).release(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDaoOutsideMongoRejected() {
+        @SuppressWarnings("unchecked")
+        IgniteBaseDAO<String, ECallEvent> other = Mockito.mock(IgniteBaseDAO.class);
+        manager.execute(unitOfWork -> {
+            unitOfWork.save(other, new ECallEvent());
+            return null;
+        });
+    }
+}
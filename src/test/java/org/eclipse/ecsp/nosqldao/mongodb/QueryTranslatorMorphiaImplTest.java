@@ -42,6 +42,8 @@ package org.eclipse.ecsp.nosqldao.mongodb;
 
 import dev.morphia.AdvancedDatastore;
 import dev.morphia.query.Query;
+import org.eclipse.ecsp.nosqldao.Coordinate;
+import org.eclipse.ecsp.nosqldao.GeoShape;
 import org.eclipse.ecsp.nosqldao.IgniteCriteria;
 import org.eclipse.ecsp.nosqldao.IgniteCriteriaGroup;
 import org.eclipse.ecsp.nosqldao.IgniteQuery;
@@ -63,6 +65,8 @@ import java.util.Optional;
 import java.util.Properties;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Testing QueryTranslatorMorphiaImpl.
@@ -236,6 +240,28 @@ public class QueryTranslatorMorphiaImplTest {
         assertEquals("Actual query does not match with expected", expected, query.toString());
     }
 
+    @Test
+    public void testGeoWithinAndGeoIntersectsQueries() {
+        QueryTranslatorMorphiaImpl<ECallEvent> queryMorphia = new QueryTranslatorMorphiaImpl<>(
+                datastore, ECallEvent.class);
+        GeoShape sphere = GeoShape.centerSphere(new Coordinate(12.97, 77.59, GeoShape.EARTH_RADIUS_METERS / 1000));
+        String json = queryMorphia.translate(new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria("location", Operator.GEO_WITHIN, sphere))), Optional.empty()).toDocument().toJson();
+        assertTrue(json, json.contains("\"$centerSphere\": [[77.59, 12.97], "));
+
+        GeoShape triangle = GeoShape.polygon(new Coordinate(12.90, 77.50, 0), new Coordinate(12.90, 77.80, 0),
+                new Coordinate(13.10, 77.65, 0));
+        json = queryMorphia.translate(new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria("location", Operator.GEO_INTERSECTS, triangle))), Optional.empty())
+                .toDocument().toJson();
+        assertTrue(json, json.contains("\"$geoIntersects\""));
+        assertTrue(json, json.contains("\"Polygon\""));
+
+        IgniteQuery invalid = new IgniteQuery(new IgniteCriteriaGroup(new IgniteCriteria("location",
+                Operator.GEO_INTERSECTS, GeoShape.box(new Coordinate(0, 0, 0), new Coordinate(1, 1, 0)))));
+        assertThrows(IllegalArgumentException.class, () -> queryMorphia.translate(invalid, Optional.empty()));
+    }
+
     @Test
     public void testNotEqualsCriteriaQuery() {
         String expected = "MorphiaQuery[clazz=ECallEvent, query=Document{{" + VEHICLEID
@@ -0,0 +1,85 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for RawBsonJsonWriter.
+ */
+public class RawBsonJsonWriterTest {
+
+    private static final long TIMESTAMP = 1700000000000L;
+
+    @Test
+    public void testWrite() {
+        RawBsonDocument document = new RawBsonDocument(new Document("_id", "ECallId_1")
+                .append("hits", TIMESTAMP).append("tags", List.of("a", "b")), new DocumentCodec());
+        StringWriter writer = new StringWriter();
+        RawBsonJsonWriter.write(document, writer);
+        assertEquals("{\"_id\": \"ECallId_1\", \"hits\": 1700000000000, \"tags\": [\"a\", \"b\"]}",
+                writer.toString());
+        assertEquals(document.toJson(RawBsonJsonWriter.RELAXED_SETTINGS), writer.toString());
+    }
+
+    @Test
+    public void testWriteArray() throws IOException {
+        RawBsonDocument first = RawBsonDocument.parse("{\"a\": 1}");
+        RawBsonDocument second = RawBsonDocument.parse("{\"b\": {\"c\": null}}");
+        StringWriter writer = new StringWriter();
+        RawBsonJsonWriter.writeArray(List.of(first, second), writer);
+        assertEquals("[{\"a\": 1},{\"b\": {\"c\": null}}]", writer.toString());
+
+        writer = new StringWriter();
+        RawBsonJsonWriter.writeArray(Collections.emptyList(), writer);
+        assertEquals("[]", writer.toString());
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import org.eclipse.ecsp.nosqldao.ecall.ECallEvent;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for ShardKeyExtractor.
+ */
+public class ShardKeyExtractorTest {
+
+    @Test
+    public void testIdShardKey() {
+        ECallEvent event = new ECallEvent();
+        event.setEcallId("ECallId_1");
+        ShardKeyExtractor extractor = ShardKeyExtractor.compile(ECallEvent.class, "ecallId", null);
+        assertTrue(extractor.isId());
+        assertEquals("_id", extractor.getMappedName());
+        assertEquals("ECallId_1", extractor.getValue(event));
+    }
+
+    @Test
+    public void testValueTypeIsKept() {
+        ECallEvent event = new ECallEvent();
+        event.setHits(2L);
+        ShardKeyExtractor extractor = ShardKeyExtractor.compile(ECallEvent.class, "hits", null);
+        assertFalse(extractor.isId());
+        assertEquals("hits", extractor.getMappedName());
+        assertEquals(Long.valueOf(2L), extractor.getValue(event));
+    }
+
+    @Test
+    public void testUnknownShardKey() {
+        assertNull(ShardKeyExtractor.compile(ECallEvent.class, "unknown", null));
+        assertNull(ShardKeyExtractor.compile(ECallEvent.class, "hits.unknown", null));
+    }
+}
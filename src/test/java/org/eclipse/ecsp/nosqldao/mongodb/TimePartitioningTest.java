@@ -0,0 +1,124 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.mongodb;
+
+import org.eclipse.ecsp.nosqldao.IgniteCriteria;
+import org.eclipse.ecsp.nosqldao.IgniteCriteriaGroup;
+import org.eclipse.ecsp.nosqldao.IgniteQuery;
+import org.eclipse.ecsp.nosqldao.Operator;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for TimePartitioning.
+ */
+public class TimePartitioningTest {
+
+    private static final String TIME_FIELD = "recordedAt";
+
+    private static final Instant FEBRUARY = Instant.parse("2026-02-10T10:00:00Z");
+
+    private static final Instant APRIL = Instant.parse("2026-04-01T00:00:00Z");
+
+    private static final List<String> COLLECTIONS = Arrays.asList("events_2026_04", "events_2026_01", "other",
+            "events_2026_02", "events_2026_03", "events_archive");
+
+    private final TimePartitioning partitioning = new TimePartitioning("events", TIME_FIELD);
+
+    @Test
+    public void testPartitionOfTime() {
+        assertEquals("events_2026_02", partitioning.getPartition(FEBRUARY));
+        assertEquals("events_2026_03", partitioning.getPartition(Instant.parse("2026-03-31T23:59:59Z")));
+        assertEquals(YearMonth.of(2026, 2), partitioning.getMonth("events_2026_02"));
+        assertNull(partitioning.getMonth("events_archive"));
+    }
+
+    @Test
+    public void testAllPartitionsWithoutTimeRange() {
+        IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria("vehicleId", Operator.EQ, "v1")));
+        assertEquals(Arrays.asList("events_2026_01", "events_2026_02", "events_2026_03", "events_2026_04"),
+                partitioning.getPartitions(COLLECTIONS, query));
+        assertEquals(partitioning.getPartitions(COLLECTIONS, query), partitioning.getPartitions(COLLECTIONS, null));
+    }
+
+    @Test
+    public void testPartitionsPrunedByTimeRange() {
+        IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria(TIME_FIELD, Operator.GTE, Date.from(FEBRUARY)))
+                .and(new IgniteCriteria(TIME_FIELD, Operator.LT, APRIL.toEpochMilli())));
+        assertEquals(Arrays.asList("events_2026_02", "events_2026_03", "events_2026_04"),
+                partitioning.getPartitions(COLLECTIONS, query));
+        IgniteQuery equality = new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria(TIME_FIELD, Operator.EQ, LocalDateTime.parse("2026-01-20T08:00:00"))));
+        assertEquals(Collections.singletonList("events_2026_01"), partitioning.getPartitions(COLLECTIONS, equality));
+    }
+
+    @Test
+    public void testDisjunctionIsNotPruned() {
+        IgniteQuery query = new IgniteQuery(new IgniteCriteriaGroup(
+                new IgniteCriteria(TIME_FIELD, Operator.GTE, FEBRUARY))
+                .or(new IgniteCriteria("vehicleId", Operator.EQ, "v1")));
+        assertEquals(COLLECTIONS.size() - 2, partitioning.getPartitions(COLLECTIONS, query).size());
+    }
+
+    @Test
+    public void testPartitionsBefore() {
+        assertEquals(Arrays.asList("events_2026_01", "events_2026_02", "events_2026_03"),
+                partitioning.getPartitionsBefore(COLLECTIONS, APRIL));
+        assertEquals(Collections.singletonList("events_2026_01"),
+                partitioning.getPartitionsBefore(COLLECTIONS, FEBRUARY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedTimeType() {
+        TimePartitioning.toInstant("2026-02-10");
+    }
+}
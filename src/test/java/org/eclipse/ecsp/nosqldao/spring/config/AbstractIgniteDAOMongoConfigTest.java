@@ -41,6 +41,10 @@
 package org.eclipse.ecsp.nosqldao.spring.config;
 
 import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
+import com.mongodb.Tag;
+import com.mongodb.TagSet;
 import org.eclipse.ecsp.nosqldao.NoSqlDatabaseType;
 import org.eclipse.ecsp.nosqldao.utils.NumericConstants;
 import org.junit.Assert;
@@ -49,6 +53,7 @@ import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.MockitoAnnotations;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
@@ -153,6 +158,36 @@ public class AbstractIgniteDAOMongoConfigTest {
 
     }
 
+    @Test
+    public void testCompressorSettings() {
+        igniteDAOMongoConfig.hosts = "localhost";
+        igniteDAOMongoConfig.noSqlDatabaseType = NoSqlDatabaseType.MONGODB;
+        igniteDAOMongoConfig.compressors = "zstd, zlib";
+        igniteDAOMongoConfig.zlibCompressionLevel = NumericConstants.SEVEN;
+        List<MongoCompressor> compressors = igniteDAOMongoConfig.createMongoClientSettingsBuilder().build()
+                .getCompressorList();
+        assertEquals(NumericConstants.TWO, compressors.size());
+        assertEquals("zstd", compressors.get(0).getName());
+        assertEquals("zlib", compressors.get(1).getName());
+        assertEquals(Integer.valueOf(NumericConstants.SEVEN),
+                compressors.get(1).getProperty(MongoCompressor.LEVEL, null));
+
+        igniteDAOMongoConfig.compressors = "lz4";
+        assertThrows(IllegalArgumentException.class, () -> igniteDAOMongoConfig.createMongoClientSettingsBuilder());
+    }
+
+    @Test
+    public void testAnalyticsReadPreference() {
+        IgniteDAOMongoConfigWithProps config = (IgniteDAOMongoConfigWithProps) igniteDAOMongoConfig;
+        config.analyticsReadPreference = "secondary";
+        assertEquals(ReadPreference.secondary(), config.getAnalyticsReadPreference());
+        config.analyticsReadPreferenceTags = "nodeType:ANALYTICS, region:east";
+        assertEquals(ReadPreference.secondary(new TagSet(List.of(new Tag("nodeType", "ANALYTICS"),
+                new Tag("region", "east")))), config.getAnalyticsReadPreference());
+        config.analyticsReadPreferenceTags = "ANALYTICS";
+        assertThrows(IllegalArgumentException.class, () -> config.getAnalyticsReadPreference());
+    }
+
     @Test
     public void testConnectionPoolSettingWhenExceptionOccurs() {
         igniteDAOMongoConfig.hosts = "localhost";
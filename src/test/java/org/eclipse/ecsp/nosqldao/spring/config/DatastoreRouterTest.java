@@ -0,0 +1,157 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.spring.config;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.MongoClient;
+import dev.morphia.AdvancedDatastore;
+import org.eclipse.ecsp.nosqldao.MongoRetryExhaustException;
+import org.eclipse.ecsp.nosqldao.mongodb.MongoRetryExecutor;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for the DatastoreRouter of IgniteDAOMongoConfigWithProps.
+ */
+public class DatastoreRouterTest {
+
+    private IgniteDAOMongoConfigWithProps.DatastoreRouter router;
+
+    @Before
+    public void setUp() {
+        router = new IgniteDAOMongoConfigWithProps.DatastoreRouter();
+        router.setManagedClient(managedClient());
+        AbstractIgniteDAOMongoConfig.setHealthy(true);
+    }
+
+    @Test
+    public void testSuccessfulOperationMarksHealthy() {
+        AbstractIgniteDAOMongoConfig.setHealthy(false);
+        router.acquire().release(null);
+        assertTrue(AbstractIgniteDAOMongoConfig.healthy);
+    }
+
+    @Test
+    public void testUnauthorizedErrorMarksUnhealthy() {
+        router.acquire().release(new MongoException(13, "unauthorized"));
+        assertFalse(AbstractIgniteDAOMongoConfig.healthy);
+    }
+
+    @Test
+    public void testSocketErrorMarksUnhealthy() {
+        router.acquire().release(socketError());
+        assertFalse(AbstractIgniteDAOMongoConfig.healthy);
+    }
+
+    @Test
+    public void testOtherErrorKeepsHealthFlag() {
+        router.acquire().release(new MongoException(11000, "duplicate key"));
+        assertTrue(AbstractIgniteDAOMongoConfig.healthy);
+
+        AbstractIgniteDAOMongoConfig.setHealthy(false);
+        router.acquire().release(new MongoException(11000, "duplicate key"));
+        assertFalse(AbstractIgniteDAOMongoConfig.healthy);
+    }
+
+    @Test
+    public void testOutcomeOnReplacedClientIsIgnored() {
+        MongoClientLeases.Lease lease = router.acquire();
+        router.setManagedClient(managedClient());
+        lease.release(new MongoException(13, "unauthorized"));
+        assertTrue(AbstractIgniteDAOMongoConfig.healthy);
+    }
+
+    @Test
+    public void testLeaseKeepsDatastoreOfLeasedClient() {
+        MongoClientLeases.Lease lease = router.acquire();
+        Object leasedDatastore = router.loadObject();
+        router.setManagedClient(managedClient());
+        assertSame(leasedDatastore, lease.getDatastore());
+        assertNotSame(leasedDatastore, router.loadObject());
+        lease.release(null);
+    }
+
+    @Test
+    public void testRetriedSocketErrorMarksUnhealthy() {
+        MongoRetryExecutor retryExecutor = new MongoRetryExecutor();
+        ReflectionTestUtils.setField(retryExecutor, "retryEnabled", true);
+        ReflectionTestUtils.setField(retryExecutor, "maxAttempts", 2);
+        ReflectionTestUtils.setField(retryExecutor, "initialBackoffMs", 1L);
+        ReflectionTestUtils.setField(retryExecutor, "maxBackoffMs", 1L);
+        ReflectionTestUtils.setField(retryExecutor, "backoffMultiplier", 1.0);
+        ReflectionTestUtils.setField(retryExecutor, "budgetMaxTokens", 10);
+        ReflectionTestUtils.setField(retryExecutor, "budgetTokenRatio", 0.1);
+        retryExecutor.init();
+
+        MongoClientLeases.Lease lease = router.acquire();
+        Throwable failure = null;
+        try {
+            retryExecutor.execute("findById", "TestEvent", true, () -> {
+                throw socketError();
+            });
+            fail("MongoRetryExhaustException expected");
+        } catch (MongoRetryExhaustException e) {
+            failure = e;
+        } finally {
+            lease.release(failure);
+        }
+        assertFalse(AbstractIgniteDAOMongoConfig.healthy);
+    }
+
+    @SuppressWarnings("removal")
+    private static ManagedMongoClient managedClient() {
+        return new ManagedMongoClient(Mockito.mock(MongoClient.class), Mockito.mock(AdvancedDatastore.class));
+    }
+
+    private static MongoSocketReadException socketError() {
+        return new MongoSocketReadException("connection reset", new ServerAddress());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.spring.config;
+
+import com.mongodb.client.MongoClient;
+import dev.morphia.AdvancedDatastore;
+import org.eclipse.ecsp.nosqldao.utils.NumericConstants;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for MongoClientLifecycleManager and ManagedMongoClient.
+ */
+public class MongoClientLifecycleManagerTest {
+
+    private MongoClient mongoClient;
+
+    private ManagedMongoClient managedClient;
+
+    @SuppressWarnings("removal")
+    @Before
+    public void setUp() {
+        mongoClient = Mockito.mock(MongoClient.class);
+        managedClient = new ManagedMongoClient(mongoClient, Mockito.mock(AdvancedDatastore.class));
+    }
+
+    @Test
+    public void testRetiredClientIsClosedOnceDrained() {
+        MongoClientLifecycleManager manager = new MongoClientLifecycleManager(NumericConstants.SIXTY_K,
+                NumericConstants.SIXTY_K);
+        assertTrue(managedClient.acquire());
+        manager.retire(managedClient);
+
+        manager.closeRetiredClients();
+        Mockito.verify(mongoClient, Mockito.never()).close();
+        assertEquals(1, manager.getRetiredClientCount());
+
+        managedClient.release();
+        manager.closeRetiredClients();
+        Mockito.verify(mongoClient).close();
+        assertEquals(0, manager.getRetiredClientCount());
+        manager.shutdown();
+    }
+
+    @Test
+    public void testRetiredClientIsForceClosedAfterWaitInterval() {
+        MongoClientLifecycleManager manager = new MongoClientLifecycleManager(NumericConstants.SIXTY_K, 0);
+        assertTrue(managedClient.acquire());
+        manager.retire(managedClient);
+        manager.closeRetiredClients();
+        Mockito.verify(mongoClient).close();
+        manager.shutdown();
+    }
+
+    @Test
+    public void testRetiredClientRejectsNewOperations() {
+        managedClient.retire();
+        assertFalse(managedClient.acquire());
+        assertEquals(0, managedClient.getInFlight());
+        assertTrue(managedClient.closeIfDrained(NumericConstants.SIXTY_K));
+    }
+}
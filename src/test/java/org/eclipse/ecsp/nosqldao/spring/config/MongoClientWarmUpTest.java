@@ -0,0 +1,96 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.spring.config;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionReadyEvent;
+import org.bson.BsonDocument;
+import org.eclipse.ecsp.nosqldao.utils.NumericConstants;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for MongoClientWarmUp.
+ */
+public class MongoClientWarmUpTest {
+
+    private static final ServerAddress PRIMARY = new ServerAddress("primary");
+
+    private static final ServerAddress SECONDARY = new ServerAddress("secondary");
+
+    @Test
+    public void testAwaitConnections() {
+        MongoClientWarmUp warmUp = new MongoClientWarmUp();
+        ServerId primaryId = new ServerId(new ClusterId(), PRIMARY);
+        warmUp.connectionReady(new ConnectionReadyEvent(new ConnectionId(primaryId)));
+        warmUp.connectionReady(new ConnectionReadyEvent(new ConnectionId(primaryId)));
+        warmUp.connectionReady(new ConnectionReadyEvent(new ConnectionId(new ServerId(new ClusterId(), SECONDARY))));
+        assertEquals(NumericConstants.TWO, warmUp.getConnectionCount(PRIMARY));
+        assertTrue(warmUp.awaitConnections(List.of(PRIMARY, SECONDARY), 1, System.currentTimeMillis()));
+        assertFalse(warmUp.awaitConnections(List.of(PRIMARY, SECONDARY), NumericConstants.TWO,
+                System.currentTimeMillis() + NumericConstants.HUNDRED));
+
+        warmUp.connectionClosed(new ConnectionClosedEvent(new ConnectionId(primaryId),
+                ConnectionClosedEvent.Reason.IDLE));
+        assertEquals(1, warmUp.getConnectionCount(PRIMARY));
+    }
+
+    @Test
+    public void testParseCommands() {
+        List<BsonDocument> commands = MongoClientWarmUp.parseCommands(
+                "[{\"find\": \"vehicles\", \"filter\": {\"vin\": \"x\"}, \"limit\": 1}, {\"count\": \"vehicles\"}]");
+        assertEquals(NumericConstants.TWO, commands.size());
+        assertEquals("vehicles", commands.get(0).getString("find").getValue());
+        assertTrue(MongoClientWarmUp.parseCommands(" ").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> MongoClientWarmUp.parseCommands("{\"ping\": 1}"));
+        assertThrows(IllegalArgumentException.class, () -> MongoClientWarmUp.parseCommands("[1]"));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.spring.config;
+
+import org.eclipse.ecsp.nosqldao.ecall.ECallEvent;
+import org.eclipse.ecsp.nosqldao.test.TestEvent;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for MorphiaEntityIndex.
+ */
+public class MorphiaEntityIndexTest {
+
+    @Test
+    public void testLoadSkipsCommentsAndBlankLines() {
+        List<Class<?>> entities = MorphiaEntityIndex.load("classpath:ignite-dao-entities.idx",
+                getClass().getClassLoader());
+        assertEquals(List.of(ECallEvent.class, TestEvent.class), entities);
+    }
+
+    @Test
+    public void testLoadMissingIndexReturnsEmptyList() {
+        assertTrue(MorphiaEntityIndex.load("classpath:missing-entities.idx",
+                getClass().getClassLoader()).isEmpty());
+    }
+
+    @Test
+    public void testLoadUnknownClassFails() {
+        assertThrows(MongoConnectionException.class, () -> MorphiaEntityIndex.load(
+                "classpath:ignite-dao.properties", getClass().getClassLoader()));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *
+ *
+ *   *******************************************************************************
+ *
+ *     Copyright (c) 2023-24 Harman International
+ *
+ *
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ *     you may not use this file except in compliance with the License.
+ *
+ *     You may obtain a copy of the License at
+ *
+ *
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ *     See the License for the specific language governing permissions and
+ *
+ *     limitations under the License.
+ *
+ *
+ *
+ *     SPDX-License-Identifier: Apache-2.0
+ *
+ *    *******************************************************************************
+ *
+ *
+ */
+
+package org.eclipse.ecsp.nosqldao.spring.config;
+
+import org.bson.ByteBuf;
+import org.bson.ByteBufNIO;
+import org.eclipse.ecsp.nosqldao.utils.NumericConstants;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for WireBytesStreamFactory.
+ */
+public class WireBytesStreamFactoryTest {
+
+    private static final int OP_MSG = 2013;
+
+    private static final int COMPRESSED_LENGTH = 120;
+
+    private static final int UNCOMPRESSED_BODY_LENGTH = 1000;
+
+    @Test
+    public void testCompressedMessage() {
+        ByteBuf message = createMessage(WireBytesStreamFactory.OP_COMPRESSED);
+        assertEquals(WireBytesStreamFactory.MESSAGE_HEADER_LENGTH + UNCOMPRESSED_BODY_LENGTH,
+                WireBytesStreamFactory.getUncompressedLength(message, COMPRESSED_LENGTH));
+        assertTrue(WireBytesStreamFactory.isCompressed(message));
+        message.position(WireBytesStreamFactory.MESSAGE_HEADER_LENGTH);
+        assertEquals(UNCOMPRESSED_BODY_LENGTH, WireBytesStreamFactory.getUncompressedBodyLength(message));
+    }
+
+    @Test
+    public void testUncompressedMessage() {
+        ByteBuf message = createMessage(OP_MSG);
+        assertEquals(COMPRESSED_LENGTH, WireBytesStreamFactory.getUncompressedLength(message, COMPRESSED_LENGTH));
+        assertFalse(WireBytesStreamFactory.isCompressed(message));
+    }
+
+    @Test
+    public void testShortBuffer() {
+        ByteBuf buffer = new ByteBufNIO(ByteBuffer.allocate(NumericConstants.TEN).order(ByteOrder.LITTLE_ENDIAN));
+        assertEquals(NumericConstants.TEN, WireBytesStreamFactory.getUncompressedLength(buffer, NumericConstants.TEN));
+    }
+
+    private static ByteBuf createMessage(int opCode) {
+        ByteBuffer buffer = ByteBuffer.allocate(COMPRESSED_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(COMPRESSED_LENGTH).putInt(1).putInt(0).putInt(opCode);
+        buffer.putInt(OP_MSG).putInt(UNCOMPRESSED_BODY_LENGTH).put((byte) NumericConstants.TWO);
+        buffer.position(0);
+        return new ByteBufNIO(buffer);
+    }
+}